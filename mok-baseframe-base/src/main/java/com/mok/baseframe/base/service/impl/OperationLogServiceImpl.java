@@ -66,10 +66,16 @@ public class OperationLogServiceImpl extends ServiceImpl<OperationLogMapper, Ope
             wrapper.le(OperationLogEntity::getOperTime, param.get("endTime"));
         }
         if (StringUtils.hasText(param.getKeyword())) {
-            wrapper.like(OperationLogEntity::getTitle, param.getKeyword())
+            wrapper.and(w -> w.like(OperationLogEntity::getTitle, param.getKeyword())
                     //.like 模糊查询
                     .or().like(OperationLogEntity::getOperatorName, param.getKeyword())
-                    .or().like(OperationLogEntity::getOperUrl, param.getKeyword());
+                    .or().like(OperationLogEntity::getOperUrl, param.getKeyword()));
+        }
+        // 游标分页：按时间+id定位下一页，不使用OFFSET，默认不统计总数
+        if (param.isCursorMode()) {
+            Long total = param.shouldCount() ? baseMapper.selectCount(wrapper) : null;
+            List<OperationLogEntity> rows = baseMapper.selectList(param.applyCursor(wrapper, OperationLogEntity::getOperTime, OperationLogEntity::getId));
+            return PageResult.fromCursor(rows, param, OperationLogEntity::getOperTime, OperationLogEntity::getId, total);
         }
         // 排序
         wrapper.orderByDesc(OperationLogEntity::getOperTime);
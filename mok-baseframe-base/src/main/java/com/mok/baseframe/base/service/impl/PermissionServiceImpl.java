@@ -72,8 +72,14 @@ public class PermissionServiceImpl
         }
         //根据权限名搜索或者权限编码查询
         if (StringUtils.hasText(param.getKeyword())) {
-            wrapper.like(PermissionEntity::getPermissionName, param.getKeyword())
-                    .or().like(PermissionEntity::getPermissionCode, param.getKeyword());
+            wrapper.and(w -> w.like(PermissionEntity::getPermissionName, param.getKeyword())
+                    .or().like(PermissionEntity::getPermissionCode, param.getKeyword()));
+        }
+        // 游标分页：按时间+id定位下一页，不使用OFFSET，默认不统计总数
+        if (param.isCursorMode()) {
+            Long total = param.shouldCount() ? baseMapper.selectCount(wrapper) : null;
+            List<PermissionEntity> rows = baseMapper.selectList(param.applyCursor(wrapper, PermissionEntity::getCreateTime, PermissionEntity::getId));
+            return PageResult.fromCursor(rows, param, PermissionEntity::getCreateTime, PermissionEntity::getId, total);
         }
         if (param.getOrderBy() != null) {
             if ("asc".equalsIgnoreCase(param.getOrder())) {
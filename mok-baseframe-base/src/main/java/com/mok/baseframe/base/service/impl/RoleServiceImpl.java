@@ -78,13 +78,19 @@ public class RoleServiceImpl extends ServiceImpl<RoleMapper, RoleEntity> impleme
         }
         //根据角色名搜索或者角色编码查询
         if (StringUtils.hasText(param.getKeyword())) {
-            wrapper.like(RoleEntity::getRoleName, param.getKeyword())
-                    .or().like(RoleEntity::getRoleCode, param.getKeyword());
+            wrapper.and(w -> w.like(RoleEntity::getRoleName, param.getKeyword())
+                    .or().like(RoleEntity::getRoleCode, param.getKeyword()));
         }
         //按状态查询
         if (param.get("status") != null) {
             wrapper.eq(RoleEntity::getStatus, param.get("status"));
         }
+        // 游标分页：按时间+id定位下一页，不使用OFFSET，默认不统计总数
+        if (param.isCursorMode()) {
+            Long total = param.shouldCount() ? baseMapper.selectCount(wrapper) : null;
+            List<RoleEntity> rows = baseMapper.selectList(param.applyCursor(wrapper, RoleEntity::getCreateTime, RoleEntity::getId));
+            return PageResult.fromCursor(rows, param, RoleEntity::getCreateTime, RoleEntity::getId, total);
+        }
         if (param.getOrderBy() != null) {
             if ("asc".equalsIgnoreCase(param.getOrder())) {
                 wrapper.orderByAsc(RoleEntity::getCreateTime);
@@ -107,6 +107,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, UserEntity> impleme
         if (param.getStatus() != null) {
             wrapper.eq(UserEntity::getStatus, param.getStatus());
         }
+        // 游标分页：按时间+id定位下一页，不使用OFFSET，默认不统计总数
+        if (param.isCursorMode()) {
+            Long total = param.shouldCount() ? baseMapper.selectCount(wrapper) : null;
+            List<UserEntity> rows = baseMapper.selectList(param.applyCursor(wrapper, UserEntity::getCreateTime, UserEntity::getId));
+            return PageResult.fromCursor(rows, param, UserEntity::getCreateTime, UserEntity::getId, total);
+        }
         wrapper.orderByDesc(UserEntity::getCreateTime);
         //执行分页查询
         //  baseMapper.selectPage : 调用父类的的BaseMapper来执行分页查询
@@ -1,6 +1,8 @@
 package com.mok.baseframe.common;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,6 +16,12 @@ import org.springframework.util.StringUtils;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -59,6 +67,12 @@ public class PageParam implements Serializable  {
     @Schema(description = "其他扩展参数")
     private Map<String, Object> params = new HashMap<>();
 
+    @Schema(description = "游标分页：上一页返回的nextCursor，首页传空字符串；不传时使用页码分页")
+    private String cursor;
+
+    @Schema(description = "游标分页时是否统计总数，默认不统计")
+    private Boolean searchCount;
+
     // ============== 构造函数 ==============
     public PageParam() {
     }
@@ -157,6 +171,24 @@ public class PageParam implements Serializable  {
         return this;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public PageParam setCursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public Boolean getSearchCount() {
+        return searchCount;
+    }
+
+    public PageParam setSearchCount(Boolean searchCount) {
+        this.searchCount = searchCount;
+        return this;
+    }
+
     // ============== 工具方法 ==============
     @JsonIgnore
     public Object get(String key) {
@@ -357,6 +389,119 @@ public class PageParam implements Serializable  {
         return pageNum * pageSize;
     }
 
+    // ============== 游标分页 ==============
+
+    /**
+     * 是否为游标分页：按 创建时间 DESC, id DESC 排序，用上一页最后一条的排序键定位，
+     * 不使用 OFFSET，翻到多深的页都只扫描 pageSize 行
+     */
+    @JsonIgnore
+    public boolean isCursorMode() {
+        return cursor != null;
+    }
+
+    /**
+     * 是否需要统计总数：页码分页总是统计，游标分页默认不统计
+     */
+    @JsonIgnore
+    public boolean shouldCount() {
+        return !isCursorMode() || Boolean.TRUE.equals(searchCount);
+    }
+
+    /**
+     * 游标分页每次查询的行数，多查一行用于判断是否还有下一页
+     */
+    @JsonIgnore
+    public Integer getCursorFetchSize() {
+        validate();
+        return pageSize + 1;
+    }
+
+    /**
+     * 游标中的排序时间，首页返回null
+     */
+    @JsonIgnore
+    public Date getCursorTime() {
+        String[] parts = decodeCursor();
+        return parts != null ? new Date(Long.parseLong(parts[0])) : null;
+    }
+
+    @JsonIgnore
+    public LocalDateTime getCursorLocalTime() {
+        Date time = getCursorTime();
+        return time != null ? LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault()) : null;
+    }
+
+    /**
+     * 游标中的记录id，首页返回null
+     */
+    @JsonIgnore
+    public String getCursorId() {
+        String[] parts = decodeCursor();
+        return parts != null ? parts[1] : null;
+    }
+
+    /**
+     * 为MyBatis Plus查询追加游标条件、排序和行数限制
+     *
+     * @param wrapper    已设置好筛选条件的查询包装器
+     * @param timeColumn 排序时间字段
+     * @param idColumn   主键字段
+     */
+    @JsonIgnore
+    public <T> LambdaQueryWrapper<T> applyCursor(LambdaQueryWrapper<T> wrapper,
+                                                 SFunction<T, ?> timeColumn,
+                                                 SFunction<T, ?> idColumn) {
+        LocalDateTime cursorTime = getCursorLocalTime();
+        if (cursorTime != null) {
+            String cursorId = getCursorId();
+            wrapper.and(w -> w.lt(timeColumn, cursorTime)
+                    .or(o -> o.eq(timeColumn, cursorTime).lt(idColumn, cursorId)));
+        }
+        wrapper.orderByDesc(timeColumn).orderByDesc(idColumn)
+                .last("LIMIT " + getCursorFetchSize());
+        return wrapper;
+    }
+
+    /**
+     * 生成游标：排序时间毫秒数 + 记录id，Base64编码后对调用方不透明
+     *
+     * @param time 排序时间，支持 Date 和 LocalDateTime
+     * @param id   记录id
+     */
+    public static String encodeCursor(Object time, String id) {
+        long millis;
+        if (time instanceof Date) {
+            millis = ((Date) time).getTime();
+        } else if (time instanceof LocalDateTime) {
+            millis = ((LocalDateTime) time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } else if (time instanceof Instant) {
+            millis = ((Instant) time).toEpochMilli();
+        } else {
+            throw new IllegalArgumentException("不支持的游标排序字段类型：" + time);
+        }
+        String raw = millis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor() {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(':');
+            if (index <= 0 || index == raw.length() - 1) {
+                throw new BusinessException("分页游标无效");
+            }
+            // 校验时间部分
+            Long.parseLong(raw.substring(0, index));
+            return new String[]{raw.substring(0, index), raw.substring(index + 1)};
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("分页游标无效");
+        }
+    }
+
     @JsonIgnore
     public boolean hasTimeRange() {
         return StringUtils.hasText(startTime) || StringUtils.hasText(endTime);
@@ -384,6 +529,8 @@ public class PageParam implements Serializable  {
                 ", endTime='" + endTime + '\'' +
                 ", status=" + status +
                 ", params=" + params +
+                ", cursor='" + cursor + '\'' +
+                ", searchCount=" + searchCount +
                 '}';
     }
 
@@ -471,6 +618,16 @@ public class PageParam implements Serializable  {
             return this;
         }
 
+        public Builder cursor(String cursor) {
+            pageParam.setCursor(cursor);
+            return this;
+        }
+
+        public Builder searchCount(Boolean searchCount) {
+            pageParam.setSearchCount(searchCount);
+            return this;
+        }
+
         public Builder param(String key, Object value) {
             pageParam.set(key, value);
             return this;
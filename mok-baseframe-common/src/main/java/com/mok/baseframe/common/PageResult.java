@@ -5,8 +5,10 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * 分页查询结果
@@ -43,6 +45,9 @@ public class PageResult<T> implements Serializable {
     @Schema(description = "数据列表")
     private List<T> data;
 
+    @Schema(description = "游标分页：下一页游标，没有下一页时为空")
+    private String nextCursor;
+
     // ============== 构造函数 ==============
 
     public PageResult() {
@@ -191,6 +196,15 @@ public class PageResult<T> implements Serializable {
         return this;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public PageResult<T> setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+
     // ============== 计算方法 ==============
 
     private void calculate() {
@@ -247,6 +261,39 @@ public class PageResult<T> implements Serializable {
         return new PageResult<>(data, total, pageNum, pageSize);
     }
 
+    /**
+     * 从游标分页查询结果创建PageResult
+     * 查询按 PageParam.getCursorFetchSize() 多取一行，多出的一行表示还有下一页
+     *
+     * @param rows    查询结果
+     * @param param   分页参数
+     * @param timeKey 排序时间
+     * @param idKey   记录id
+     * @param total   总数，未统计时传null
+     */
+    public static <T> PageResult<T> fromCursor(List<T> rows, PageParam param,
+                                               Function<T, ?> timeKey, Function<T, String> idKey,
+                                               Long total) {
+        int pageSize = param.getPageSize();
+        boolean hasNext = rows.size() > pageSize;
+        List<T> data = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        PageResult<T> result = new PageResult<>();
+        result.setData(data);
+        result.setTotal(total);
+        result.setPageSize(pageSize);
+        result.setHasNext(hasNext);
+        result.setHasPrevious(param.getCursorId() != null);
+        if (total != null) {
+            result.setTotalPages((int) Math.ceil((double) total / pageSize));
+        }
+        if (hasNext) {
+            T last = data.get(data.size() - 1);
+            result.setNextCursor(PageParam.encodeCursor(timeKey.apply(last), idKey.apply(last)));
+        }
+        return result;
+    }
+
     /**
      * 创建空的分页结果
      */
@@ -326,12 +373,13 @@ public class PageResult<T> implements Serializable {
                 Objects.equals(totalPages, that.totalPages) &&
                 Objects.equals(hasNext, that.hasNext) &&
                 Objects.equals(hasPrevious, that.hasPrevious) &&
-                Objects.equals(data, that.data);
+                Objects.equals(data, that.data) &&
+                Objects.equals(nextCursor, that.nextCursor);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(code, message, total, pageSize, pageNum, totalPages, hasNext, hasPrevious, data);
+        return Objects.hash(code, message, total, pageSize, pageNum, totalPages, hasNext, hasPrevious, data, nextCursor);
     }
 
     // ============== toString 方法 ==============
@@ -347,6 +395,7 @@ public class PageResult<T> implements Serializable {
                 ", totalPages=" + totalPages +
                 ", hasNext=" + hasNext +
                 ", hasPrevious=" + hasPrevious +
+                ", nextCursor='" + nextCursor + '\'' +
                 ", dataSize=" + (data != null ? data.size() : 0) +
                 '}';
     }
@@ -3,6 +3,7 @@ import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.entity.CouponEntity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,9 @@ public interface CouponMapper {
     // 根据ID查询优惠券
     CouponEntity selectById(String id);
 
+    // 根据ID批量查询优惠券
+    List<CouponEntity> selectByIds(@Param("ids") List<String> ids);
+
     // 更新优惠券
     int update(CouponEntity coupon);
 
@@ -38,8 +42,20 @@ public interface CouponMapper {
     // 恢复优惠券库存
     int restoreCouponStock(@Param("id") String id, @Param("quantity") Integer quantity, @Param("version") Integer version);
 
+    // 批量扣减优惠券库存（优惠券ID -> 扣减数量）
+    int reduceCouponStockBatch(@Param("quantities") Map<String, Integer> quantities);
+
+    // 批量恢复优惠券库存（优惠券ID -> 恢复数量）
+    int restoreCouponStockBatch(@Param("quantities") Map<String, Integer> quantities);
+
     // 查询可用的优惠券列表
     List<CouponEntity> selectAvailableCoupons();
 
+    // 查询尚未结束或关联了商品的优惠券（用于加载本地优惠券目录）
+    List<CouponEntity> selectCatalog();
+
+    // 流式读取可用优惠券库存（用于库存预热，需在事务内遍历）
+    Cursor<CouponEntity> scanAvailableCouponStock();
+
     List<CouponEntity> getByProductId(@Param("productId")String productId);
 }
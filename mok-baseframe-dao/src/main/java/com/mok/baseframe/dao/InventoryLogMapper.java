@@ -2,6 +2,9 @@ package com.mok.baseframe.dao;
 
 import com.mok.baseframe.entity.InventoryLogEntity;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * @description: 库存流水 mapper
@@ -12,4 +15,7 @@ import org.apache.ibatis.annotations.Mapper;
 public interface InventoryLogMapper {
     // 插入库存流水记录
     int insert(InventoryLogEntity inventoryLog);
+
+    // 批量插入库存流水记录
+    int insertBatch(@Param("list") List<InventoryLogEntity> inventoryLogs);
 }
@@ -14,12 +14,18 @@ public interface OrderCouponMapper {
     // 插入订单优惠券使用记录
     int insert(OrderCouponEntity orderCoupon);
 
+    // 批量插入订单优惠券使用记录
+    int batchInsert(@Param("list") List<OrderCouponEntity> orderCoupons);
+
     // 根据订单ID查询
     List<OrderCouponEntity> selectByOrderId(@Param("orderId") String orderId);
 
     // 根据订单号查询
     List<OrderCouponEntity> selectByOrderNo(@Param("orderNo") String orderNo);
 
+    // 根据订单号批量查询
+    List<OrderCouponEntity> selectByOrderNos(@Param("orderNos") List<String> orderNos);
+
     // 根据用户优惠券ID查询
     OrderCouponEntity selectByUserCouponId(@Param("userCouponId") String userCouponId);
 }
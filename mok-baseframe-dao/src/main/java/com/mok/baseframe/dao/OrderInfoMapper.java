@@ -18,6 +18,9 @@ public interface OrderInfoMapper {
     // 插入订单
     int insert(OrderInfoEntity order);
 
+    // 批量插入订单
+    int insertBatch(@Param("list") List<OrderInfoEntity> orders);
+
     // 根据ID查询订单
     OrderInfoEntity selectById(String id);
 
@@ -49,12 +52,22 @@ public interface OrderInfoMapper {
                         @Param("payType") Integer payType,
                         @Param("transactionId") String transactionId);
 
-    // 查询超时未支付订单
-    List<OrderInfoEntity> selectTimeoutOrders(@Param("timeoutMinutes") Integer timeoutMinutes,
-                                              @Param("status") Integer status);
+    // 查询创建时间早于指定时间的超时未支付订单
+    List<OrderInfoEntity> selectTimeoutOrders(@Param("deadline") Date deadline,
+                                              @Param("status") Integer status,
+                                              @Param("limit") Integer limit);
+
+    // 按订单号查询待支付订单并加行锁
+    List<OrderInfoEntity> selectPendingByOrderNosForUpdate(@Param("orderNos") List<String> orderNos);
 
-    // 关闭超时订单
-    int closeTimeoutOrders(@Param("timeoutMinutes") Integer timeoutMinutes,
+    // 批量关闭超时订单（状态CAS）
+    int closeTimeoutOrders(@Param("ids") List<String> ids,
                            @Param("oldStatus") Integer oldStatus,
-                           @Param("newStatus") Integer newStatus);
+                           @Param("newStatus") Integer newStatus,
+                           @Param("cancelReason") String cancelReason,
+                           @Param("cancelTime") Date cancelTime);
+
+    // 统计用户在某秒杀商品上未取消的秒杀订单数（依赖索引 (user_id, product_id)）
+    int countUserSeckillOrders(@Param("userId") String userId,
+                               @Param("productId") String productId);
 }
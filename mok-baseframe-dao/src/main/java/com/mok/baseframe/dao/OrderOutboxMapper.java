@@ -0,0 +1,36 @@
+package com.mok.baseframe.dao;
+
+import com.mok.baseframe.entity.OrderOutboxEntity;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 订单消息发件箱 mapper
+ *
+ * @author: mok
+ */
+@Mapper
+public interface OrderOutboxMapper {
+    // 批量写入待投递消息
+    int insertBatch(@Param("list") List<OrderOutboxEntity> messages);
+
+    // 按id顺序查询可投递的消息（同一聚合存在等待重试的更早消息时跳过，保证聚合内顺序）
+    List<OrderOutboxEntity> selectPending(@Param("limit") Integer limit);
+
+    // 删除已确认投递的消息
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    // 投递失败，增加重试次数并延后重试，超过最大重试次数标记为失败
+    int markRetry(@Param("ids") List<Long> ids,
+                  @Param("nextRetryTime") Date nextRetryTime,
+                  @Param("maxRetries") Integer maxRetries);
+
+    // 将投递失败的消息复制到死信表 order_outbox_dead
+    int copyFailedToDead();
+
+    // 删除投递失败的消息（已复制到死信表）
+    int deleteFailed();
+}
@@ -12,4 +12,13 @@ public interface ProductCouponMapper {
     void insertBatch(List<ProductCouponEntity> productCouponList);
 
     void deleteByProductId(@Param("productId") String productId);
+
+    // 删除商品与指定优惠券的关联
+    int deleteByProductIdAndCouponIds(@Param("productId") String productId, @Param("couponIds") List<String> couponIds);
+
+    // 查询商品关联的优惠券ID
+    List<String> selectCouponIdsByProductId(@Param("productId") String productId);
+
+    // 查询全部商品优惠券关联（用于加载本地优惠券目录）
+    List<ProductCouponEntity> selectAll();
 }
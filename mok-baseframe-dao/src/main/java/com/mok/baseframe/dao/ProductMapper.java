@@ -4,7 +4,10 @@ import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.entity.ProductEntity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 /**
@@ -48,7 +51,22 @@ public interface ProductMapper {
     // 扣减秒杀库存
     int reduceSeckillStock(@Param("id") String id, @Param("quantity") Integer quantity, @Param("version") Integer version);
 
+    // 按增量原子调整库存（delta为负表示扣减，库存不足时不更新）
+    int changeStock(@Param("id") String id, @Param("delta") Integer delta, @Param("seckill") boolean seckill);
+
+    // 根据ID批量查询商品
+    List<ProductEntity> selectByIds(@Param("ids") Collection<String> ids);
+
+    // 流式读取全部上架商品库存（用于库存预热，需在事务内遍历）
+    Cursor<ProductEntity> scanUpProductStock();
+
+    // 按ID顺序查询afterId之后的一批上架商品库存（用于库存对账）
+    List<ProductEntity> selectStockChunk(@Param("afterId") String afterId, @Param("limit") Integer limit);
+
     // 查询秒杀商品列表
     List<ProductEntity> selectSeckillProducts();
+
+    // 查询在指定时间前开始且尚未结束的秒杀商品（用于秒杀预热）
+    List<ProductEntity> selectUpcomingSeckillProducts(@Param("startBefore") Date startBefore);
 }
 
@@ -4,7 +4,9 @@ import com.mok.baseframe.entity.UserCouponEntity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户-优惠券 关联信息 mapper
@@ -20,12 +22,19 @@ public interface UserCouponMapper {
     // 根据ID查询用户优惠券
     UserCouponEntity selectById(String id);
 
+    // 根据ID批量查询用户优惠券
+    List<UserCouponEntity> selectByIds(@Param("ids") List<String> ids);
+
     // 更新用户优惠券
     int update(UserCouponEntity userCoupon);
 
     // 根据用户和优惠券ID查询
     List<UserCouponEntity> selectByUserAndCoupon(@Param("userId") String userId, @Param("couponId") String couponId);
 
+    // 查询用户指定优惠券中未使用的记录
+    List<UserCouponEntity> selectUnusedByUserAndCoupons(@Param("userId") String userId,
+                                                        @Param("couponIds") List<String> couponIds);
+
     // 查询用户可用优惠券
     List<UserCouponEntity> selectAvailableByUser(@Param("userId") String userId);
 
@@ -35,6 +44,24 @@ public interface UserCouponMapper {
     // 批量插入用户优惠券
     int batchInsert(List<UserCouponEntity> userCoupons);
 
-    // 更新过期优惠券状态
-    int updateExpiredCoupons();
+    // 查询已存在的用户优惠券ID（抢券消息重复投递时过滤）
+    List<String> selectExistingIds(@Param("ids") List<String> ids);
+
+    // 按用户统计某优惠券未使用和已使用的领取数量（返回userId、grabCount）
+    List<Map<String, Object>> countGrabsByCoupon(@Param("couponId") String couponId);
+
+    // 按结束时间、ID顺序查询游标之后的一批已过期未使用优惠券（afterEndTime为空时从头开始，依赖索引 (status, end_time, id)）
+    List<UserCouponEntity> selectExpiredChunk(@Param("deadline") Date deadline,
+                                              @Param("afterEndTime") Date afterEndTime,
+                                              @Param("afterId") String afterId,
+                                              @Param("limit") Integer limit);
+
+    // 批量将已过期的未使用优惠券标记为已过期
+    int expireByIds(@Param("ids") List<String> ids, @Param("deadline") Date deadline);
+
+    // 批量将未使用的用户优惠券标记为已使用
+    int useByIds(@Param("ids") List<String> ids, @Param("orderId") String orderId, @Param("useTime") Date useTime);
+
+    // 批量恢复已使用的用户优惠券为未使用
+    int restoreUsedByIds(@Param("ids") List<String> ids);
 }
@@ -0,0 +1,34 @@
+-- 订单消息发件箱：订单、库存消息与业务数据在同一事务中写入，由转发任务按id顺序投递到RabbitMQ
+-- 投递成功后删除；同一聚合存在更早的未送达消息时，后面的消息不投递
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id              BIGINT       NOT NULL AUTO_INCREMENT COMMENT '自增id，同一聚合按id顺序投递',
+    aggregate_id    VARCHAR(64)  NOT NULL COMMENT '聚合标识（订单号，批量库存消息为 STOCK_BATCH:uuid）',
+    exchange        VARCHAR(128) NOT NULL COMMENT '交换机',
+    routing_key     VARCHAR(128) NOT NULL COMMENT '路由键',
+    payload         MEDIUMTEXT   NOT NULL COMMENT '消息体JSON',
+    priority        INT          NULL COMMENT '消息优先级，为空时不设置',
+    expiration      VARCHAR(20)  NULL COMMENT '消息过期时间（毫秒），为空时不设置',
+    status          TINYINT      NOT NULL DEFAULT 0 COMMENT '0-待投递，2-投递失败（随后转入死信表）',
+    retry_count     INT          NOT NULL DEFAULT 0 COMMENT '重试次数',
+    next_retry_time DATETIME     NOT NULL COMMENT '下次投递时间',
+    create_time     DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (id),
+    KEY idx_status_next_retry (status, next_retry_time),
+    KEY idx_aggregate_id (aggregate_id, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '订单消息发件箱';
+
+-- 发件箱死信：超过最大重试次数的消息，需人工核对后补发或丢弃
+CREATE TABLE IF NOT EXISTS order_outbox_dead (
+    id           BIGINT       NOT NULL COMMENT '原发件箱id',
+    aggregate_id VARCHAR(64)  NOT NULL COMMENT '聚合标识',
+    exchange     VARCHAR(128) NOT NULL COMMENT '交换机',
+    routing_key  VARCHAR(128) NOT NULL COMMENT '路由键',
+    payload      MEDIUMTEXT   NOT NULL COMMENT '消息体JSON',
+    priority     INT          NULL COMMENT '消息优先级',
+    expiration   VARCHAR(20)  NULL COMMENT '消息过期时间（毫秒）',
+    retry_count  INT          NOT NULL COMMENT '已重试次数',
+    create_time  DATETIME     NOT NULL COMMENT '原消息创建时间',
+    dead_time    DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '转入死信时间',
+    PRIMARY KEY (id),
+    KEY idx_aggregate_id (aggregate_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '订单消息发件箱死信';
@@ -76,8 +76,14 @@ public class FileServiceImpl extends ServiceImpl<FileMapper, FileEntity> impleme
         }
         //根据原始文件名或者存储文件名模糊搜索
         if (StringUtils.hasText(param.getKeyword())) {
-            wrapper.like(FileEntity::getOriginalName, param.getKeyword())
-                    .or().like(FileEntity::getStorageName, param.getKeyword());
+            wrapper.and(w -> w.like(FileEntity::getOriginalName, param.getKeyword())
+                    .or().like(FileEntity::getStorageName, param.getKeyword()));
+        }
+        // 游标分页：按时间+id定位下一页，不使用OFFSET，默认不统计总数
+        if (param.isCursorMode()) {
+            Long total = param.shouldCount() ? baseMapper.selectCount(wrapper) : null;
+            List<FileEntity> rows = baseMapper.selectList(param.applyCursor(wrapper, FileEntity::getCreateTime, FileEntity::getId));
+            return PageResult.fromCursor(rows, param, FileEntity::getCreateTime, FileEntity::getId, total);
         }
         if (param.getOrderBy() != null) {
             if ("asc".equalsIgnoreCase(param.getOrder())) {
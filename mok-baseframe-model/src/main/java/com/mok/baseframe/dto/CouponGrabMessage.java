@@ -0,0 +1,83 @@
+package com.mok.baseframe.dto;
+
+import java.util.Objects;
+
+/**
+ * 抢券-消息 实体类
+ * 抢券请求在Redis中扣减库存成功后投递，由消费者批量落库生成用户优惠券
+ *
+ * @author: mok
+ */
+public class CouponGrabMessage {
+    // 用户优惠券ID（抢券时生成，用于消费幂等）
+    private String userCouponId;
+    private String userId;
+    private String couponId;
+    private String couponCode;
+    private Long createTime;
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CouponGrabMessage that = (CouponGrabMessage) o;
+        return Objects.equals(userCouponId, that.userCouponId) && Objects.equals(userId, that.userId) && Objects.equals(couponId, that.couponId) && Objects.equals(couponCode, that.couponCode) && Objects.equals(createTime, that.createTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userCouponId, userId, couponId, couponCode, createTime);
+    }
+
+    @Override
+    public String toString() {
+        return "CouponGrabMessage{" +
+                "userCouponId='" + userCouponId + '\'' +
+                ", userId='" + userId + '\'' +
+                ", couponId='" + couponId + '\'' +
+                ", couponCode='" + couponCode + '\'' +
+                ", createTime=" + createTime +
+                '}';
+    }
+
+    public String getUserCouponId() {
+        return userCouponId;
+    }
+
+    public void setUserCouponId(String userCouponId) {
+        this.userCouponId = userCouponId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(String couponId) {
+        this.couponId = couponId;
+    }
+
+    public String getCouponCode() {
+        return couponCode;
+    }
+
+    public void setCouponCode(String couponCode) {
+        this.couponCode = couponCode;
+    }
+
+    public Long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Long createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mok.baseframe.dto;
+
+import java.util.Objects;
+
+/**
+ * 秒杀下单-消息 实体类
+ * 秒杀请求预占库存成功后投递，由消费者批量落库生成订单
+ *
+ * @author: mok
+ */
+public class SeckillOrderMessage {
+    // 排队凭证（即库存预占记录ID）
+    private String ticket;
+    private String userId;
+    private String productId;
+    private Integer quantity;
+    private Long createTime;
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SeckillOrderMessage that = (SeckillOrderMessage) o;
+        return Objects.equals(ticket, that.ticket) && Objects.equals(userId, that.userId) && Objects.equals(productId, that.productId) && Objects.equals(quantity, that.quantity) && Objects.equals(createTime, that.createTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ticket, userId, productId, quantity, createTime);
+    }
+
+    @Override
+    public String toString() {
+        return "SeckillOrderMessage{" +
+                "ticket='" + ticket + '\'' +
+                ", userId='" + userId + '\'' +
+                ", productId='" + productId + '\'' +
+                ", quantity=" + quantity +
+                ", createTime=" + createTime +
+                '}';
+    }
+
+    public String getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(String ticket) {
+        this.ticket = ticket;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Long createTime) {
+        this.createTime = createTime;
+    }
+}
\ No newline at end of file
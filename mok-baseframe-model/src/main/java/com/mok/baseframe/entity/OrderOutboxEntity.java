@@ -0,0 +1,131 @@
+package com.mok.baseframe.entity;
+
+import java.util.Date;
+
+/**
+ * 订单消息发件箱实体类
+ * 订单、库存消息与业务数据在同一事务中写入，由转发任务按id顺序投递到RabbitMQ
+ *
+ * @author: mok
+ */
+public class OrderOutboxEntity {
+    // 自增id，同一聚合（订单号）的消息按id顺序投递
+    private Long id;
+    // 聚合标识（订单号）
+    private String aggregateId;
+    private String exchange;
+    private String routingKey;
+    // 消息体JSON
+    private String payload;
+    // 消息优先级，为空时不设置
+    private Integer priority;
+    // 消息过期时间（毫秒），为空时不设置
+    private String expiration;
+    // 状态：0-待投递，2-投递失败（超过最大重试次数，随后转入死信表 order_outbox_dead）
+    private Integer status;
+    private Integer retryCount;
+    private Date nextRetryTime;
+    private Date createTime;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(String aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public void setExchange(String exchange) {
+        this.exchange = exchange;
+    }
+
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public void setRoutingKey(String routingKey) {
+        this.routingKey = routingKey;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public String getExpiration() {
+        return expiration;
+    }
+
+    public void setExpiration(String expiration) {
+        this.expiration = expiration;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(Integer retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public Date getNextRetryTime() {
+        return nextRetryTime;
+    }
+
+    public void setNextRetryTime(Date nextRetryTime) {
+        this.nextRetryTime = nextRetryTime;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderOutboxEntity{" +
+                "id=" + id +
+                ", aggregateId='" + aggregateId + '\'' +
+                ", exchange='" + exchange + '\'' +
+                ", routingKey='" + routingKey + '\'' +
+                ", status=" + status +
+                ", retryCount=" + retryCount +
+                ", nextRetryTime=" + nextRetryTime +
+                ", createTime=" + createTime +
+                '}';
+    }
+}
@@ -53,6 +53,30 @@ public class RabbitMQConfig {
     private static final String STOCK_UPDATE_DLX_QUEUE = "stock.update.dlx.queue";
     // 库存更新死信路由键
     private static final String STOCK_UPDATE_DLX_ROUTING_KEY = "stock.update.dlx";
+    // 秒杀下单交换机
+    private static final String SECKILL_ORDER_EXCHANGE = "seckill.order.exchange";
+    // 秒杀下单队列
+    private static final String SECKILL_ORDER_QUEUE = "seckill.order.queue";
+    // 秒杀下单路由键
+    private static final String SECKILL_ORDER_ROUTING_KEY = "seckill.order";
+    // 抢券交换机
+    private static final String COUPON_GRAB_EXCHANGE = "coupon.grab.exchange";
+    // 抢券队列
+    private static final String COUPON_GRAB_QUEUE = "coupon.grab.queue";
+    // 抢券路由键
+    private static final String COUPON_GRAB_ROUTING_KEY = "coupon.grab";
+    // 抢券死信交换机
+    private static final String COUPON_GRAB_DLX_EXCHANGE = "coupon.grab.dlx.exchange";
+    // 抢券重试队列
+    private static final String COUPON_GRAB_RETRY_QUEUE = "coupon.grab.retry.queue";
+    // 抢券重试路由键
+    private static final String COUPON_GRAB_RETRY_ROUTING_KEY = "coupon.grab.retry";
+    // 抢券死信队列
+    private static final String COUPON_GRAB_DLX_QUEUE = "coupon.grab.dlx.queue";
+    // 抢券死信路由键
+    private static final String COUPON_GRAB_DLX_ROUTING_KEY = "coupon.grab.dlx";
+    // 抢券重试等待时间（5秒）
+    private static final int COUPON_GRAB_RETRY_DELAY_MILLIS = 5000;
 
     /**
      * 创建操作日志队列
@@ -268,6 +292,114 @@ public class RabbitMQConfig {
                 .with(STOCK_UPDATE_DLX_ROUTING_KEY);
     }
 
+    /**
+     * 秒杀下单交换机
+     */
+    @Bean
+    public DirectExchange seckillOrderExchange() {
+        return new DirectExchange(SECKILL_ORDER_EXCHANGE, true, false);
+    }
+
+    /**
+     * 秒杀下单队列
+     * 秒杀请求只预占库存并投递到该队列，由消费者批量落库，削平数据库写入峰值
+     */
+    @Bean
+    public Queue seckillOrderQueue() {
+        return QueueBuilder.durable(SECKILL_ORDER_QUEUE).build();
+    }
+
+    /**
+     * 绑定秒杀下单队列到交换机
+     */
+    @Bean
+    public Binding seckillOrderBinding() {
+        return BindingBuilder.bind(seckillOrderQueue())
+                .to(seckillOrderExchange())
+                .with(SECKILL_ORDER_ROUTING_KEY);
+    }
+
+    /**
+     * 抢券交换机
+     */
+    @Bean
+    public DirectExchange couponGrabExchange() {
+        return new DirectExchange(COUPON_GRAB_EXCHANGE, true, false);
+    }
+
+    /**
+     * 抢券队列
+     * 抢券请求只在Redis中扣减库存并投递到该队列，由消费者批量写入用户优惠券；
+     * 暂时写入失败的消息被拒绝后进入重试队列
+     */
+    @Bean
+    public Queue couponGrabQueue() {
+        return QueueBuilder.durable(COUPON_GRAB_QUEUE)
+                .withArgument("x-dead-letter-exchange", COUPON_GRAB_DLX_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", COUPON_GRAB_RETRY_ROUTING_KEY)
+                .build();
+    }
+
+    /**
+     * 绑定抢券队列到交换机
+     */
+    @Bean
+    public Binding couponGrabBinding() {
+        return BindingBuilder.bind(couponGrabQueue())
+                .to(couponGrabExchange())
+                .with(COUPON_GRAB_ROUTING_KEY);
+    }
+
+    /**
+     * 抢券死信交换机
+     */
+    @Bean
+    public DirectExchange couponGrabDlxExchange() {
+        return new DirectExchange(COUPON_GRAB_DLX_EXCHANGE, true, false);
+    }
+
+    /**
+     * 抢券重试队列
+     * 没有消费者，消息过期后回到抢券队列重新消费
+     */
+    @Bean
+    public Queue couponGrabRetryQueue() {
+        return QueueBuilder.durable(COUPON_GRAB_RETRY_QUEUE)
+                .withArgument("x-message-ttl", COUPON_GRAB_RETRY_DELAY_MILLIS)
+                .withArgument("x-dead-letter-exchange", COUPON_GRAB_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", COUPON_GRAB_ROUTING_KEY)
+                .build();
+    }
+
+    /**
+     * 绑定抢券重试队列
+     */
+    @Bean
+    public Binding couponGrabRetryBinding() {
+        return BindingBuilder.bind(couponGrabRetryQueue())
+                .to(couponGrabDlxExchange())
+                .with(COUPON_GRAB_RETRY_ROUTING_KEY);
+    }
+
+    /**
+     * 抢券死信队列
+     * 无法解析或超过重试次数的抢券消息，保留待人工处理
+     */
+    @Bean
+    public Queue couponGrabDlxQueue() {
+        return QueueBuilder.durable(COUPON_GRAB_DLX_QUEUE).build();
+    }
+
+    /**
+     * 绑定抢券死信队列
+     */
+    @Bean
+    public Binding couponGrabDlxBinding() {
+        return BindingBuilder.bind(couponGrabDlxQueue())
+                .to(couponGrabDlxExchange())
+                .with(COUPON_GRAB_DLX_ROUTING_KEY);
+    }
+
     /**
      * JSON消息转换器
      * 让RabbitMQ支持发送和接收JSON格式的消息
@@ -288,6 +420,9 @@ public class RabbitMQConfig {
         // 设置JSON消息转换器
         rabbitTemplate.setMessageConverter(jsonMessageConverter());
 
+        // 无法路由的消息退回给生产者，发布确认时可以判断消息是否进入队列
+        rabbitTemplate.setMandatory(true);
+
         // 设置消息发送确认回调（可选）
         rabbitTemplate.setConfirmCallback((correlationData, ack, cause) -> {
             if (ack) {
@@ -0,0 +1,261 @@
+package com.mok.baseframe.order.cache;
+
+import com.mok.baseframe.dao.CouponMapper;
+import com.mok.baseframe.dao.ProductCouponMapper;
+import com.mok.baseframe.entity.CouponEntity;
+import com.mok.baseframe.entity.ProductCouponEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 优惠券本地目录
+ * 每个节点在内存中保存尚未结束的优惠券和所有关联了商品的优惠券，按开始时间排序并按商品建立索引，
+ * 可用优惠券列表和商品优惠券列表不再查询数据库。
+ * 优惠券或商品优惠券关联变更后通过Redis发布订阅通知所有节点重新加载，另有定时全量刷新兜底；
+ * 可用列表缓存到下一个开始/结束时间点，跨过时间点时在内存中重新计算。
+ * 剩余数量为加载时的值，抢券发现售罄时在本节点标记售罄。返回的优惠券为共享对象，调用方不要修改。
+ */
+@Component
+public class CouponCatalogCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponCatalogCache.class);
+    // 优惠券目录刷新通知频道
+    public static final String CATALOG_REFRESH_CHANNEL = "coupon:catalog:refresh";
+
+    private final CouponMapper couponMapper;
+    private final ProductCouponMapper productCouponMapper;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Object loadLock = new Object();
+    // 本节点抢券发现售罄的优惠券，重新加载后清空
+    private final Set<String> soldOutCoupons = ConcurrentHashMap.newKeySet();
+    private volatile Catalog catalog;
+    private volatile AvailableView availableView;
+
+    public CouponCatalogCache(CouponMapper couponMapper,
+                              ProductCouponMapper productCouponMapper,
+                              RedisTemplate<String, Object> redisTemplate) {
+        this.couponMapper = couponMapper;
+        this.productCouponMapper = productCouponMapper;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 根据ID获取优惠券（只包含尚未结束或关联了商品的优惠券）
+     */
+    public CouponEntity getCoupon(String couponId) {
+        return getCatalog().coupons.get(couponId);
+    }
+
+    /**
+     * 获取可用优惠券：已启用、在有效期内且有剩余数量，按开始时间倒序
+     */
+    public List<CouponEntity> getAvailableCoupons() {
+        Catalog current = getCatalog();
+        long now = System.currentTimeMillis();
+        AvailableView view = availableView;
+        if (view == null || view.catalog != current || now < view.fromMillis || now >= view.untilMillis) {
+            view = buildAvailableView(current, now);
+            availableView = view;
+        }
+        if (soldOutCoupons.isEmpty()) {
+            return view.coupons;
+        }
+        List<CouponEntity> result = new ArrayList<>(view.coupons.size());
+        for (CouponEntity coupon : view.coupons) {
+            if (!soldOutCoupons.contains(coupon.getId())) {
+                result.add(coupon);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取商品关联的优惠券，按优惠券创建时间倒序
+     */
+    public List<CouponEntity> getByProductId(String productId) {
+        return getCatalog().productCoupons.getOrDefault(productId, Collections.emptyList());
+    }
+
+    /**
+     * 在本节点标记优惠券售罄（抢券返回售罄时调用），下次重新加载时清除
+     */
+    public void markSoldOut(String couponId) {
+        if (soldOutCoupons.add(couponId)) {
+            logger.info("优惠券已抢完，本地目录标记售罄，优惠券ID：{}", couponId);
+        }
+    }
+
+    /**
+     * 通知所有节点重新加载目录（优惠券或商品优惠券关联变更后调用，在事务中调用时提交后再通知）
+     */
+    public void publishRefresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPublishRefresh();
+                }
+            });
+        } else {
+            doPublishRefresh();
+        }
+    }
+
+    private void doPublishRefresh() {
+        try {
+            redisTemplate.convertAndSend(CATALOG_REFRESH_CHANNEL, String.valueOf(System.currentTimeMillis()));
+        } catch (Exception e) {
+            // 通知失败时本节点立即重新加载，其他节点等待定时刷新
+            logger.error("发布优惠券目录刷新通知失败：{}", e.getMessage(), e);
+            reload();
+        }
+    }
+
+    /**
+     * 接收优惠券目录刷新通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        reload();
+    }
+
+    /**
+     * 从数据库全量加载目录（两次查询），加载失败时保留原目录
+     */
+    public void reload() {
+        synchronized (loadLock) {
+            try {
+                catalog = load();
+                soldOutCoupons.clear();
+            } catch (Exception e) {
+                logger.error("加载优惠券目录失败：{}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private Catalog getCatalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            synchronized (loadLock) {
+                current = catalog;
+                if (current == null) {
+                    current = load();
+                    catalog = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Catalog load() {
+        List<CouponEntity> coupons = couponMapper.selectCatalog();
+        List<ProductCouponEntity> links = productCouponMapper.selectAll();
+
+        Map<String, CouponEntity> couponMap = new HashMap<>(coupons.size() * 2);
+        List<CouponEntity> enabled = new ArrayList<>();
+        for (CouponEntity coupon : coupons) {
+            couponMap.put(coupon.getId(), coupon);
+            if (Integer.valueOf(1).equals(coupon.getStatus())
+                    && coupon.getStartTime() != null && coupon.getEndTime() != null) {
+                enabled.add(coupon);
+            }
+        }
+        enabled.sort(Comparator.comparing(CouponEntity::getStartTime).reversed());
+
+        Map<String, List<CouponEntity>> productCoupons = new HashMap<>();
+        for (ProductCouponEntity link : links) {
+            CouponEntity coupon = couponMap.get(link.getCouponId());
+            if (coupon != null) {
+                productCoupons.computeIfAbsent(link.getProductId(), k -> new ArrayList<>()).add(coupon);
+            }
+        }
+        Comparator<CouponEntity> byCreateTimeDesc = Comparator.comparing(CouponEntity::getCreateTime,
+                Comparator.nullsLast(Comparator.reverseOrder()));
+        for (Map.Entry<String, List<CouponEntity>> entry : productCoupons.entrySet()) {
+            entry.getValue().sort(byCreateTimeDesc);
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        logger.info("加载优惠券目录完成，优惠券数：{}，关联商品数：{}", couponMap.size(), productCoupons.size());
+        return new Catalog(couponMap, enabled, productCoupons);
+    }
+
+    /**
+     * 计算当前时间的可用列表及其有效区间：区间内没有优惠券开始或结束，可用列表不变
+     */
+    private AvailableView buildAvailableView(Catalog current, long now) {
+        List<CouponEntity> coupons = new ArrayList<>();
+        long fromMillis = Long.MIN_VALUE;
+        long untilMillis = Long.MAX_VALUE;
+        for (CouponEntity coupon : current.enabledByStartDesc) {
+            long start = coupon.getStartTime().getTime();
+            long end = coupon.getEndTime().getTime();
+            if (start > now) {
+                // 尚未开始
+                untilMillis = Math.min(untilMillis, start);
+                continue;
+            }
+            fromMillis = Math.max(fromMillis, start);
+            if (end < now) {
+                // 已结束
+                fromMillis = Math.max(fromMillis, end + 1);
+                continue;
+            }
+            untilMillis = Math.min(untilMillis, end + 1);
+            if (coupon.getRemainingQuantity() != null && coupon.getRemainingQuantity() > 0) {
+                coupons.add(coupon);
+            }
+        }
+        return new AvailableView(current, Collections.unmodifiableList(coupons), fromMillis, untilMillis);
+    }
+
+    /**
+     * 目录快照，加载后不再修改
+     */
+    private static final class Catalog {
+        private final Map<String, CouponEntity> coupons;
+        private final List<CouponEntity> enabledByStartDesc;
+        private final Map<String, List<CouponEntity>> productCoupons;
+
+        private Catalog(Map<String, CouponEntity> coupons,
+                        List<CouponEntity> enabledByStartDesc,
+                        Map<String, List<CouponEntity>> productCoupons) {
+            this.coupons = coupons;
+            this.enabledByStartDesc = enabledByStartDesc;
+            this.productCoupons = productCoupons;
+        }
+    }
+
+    /**
+     * 可用列表及其有效区间 [fromMillis, untilMillis)
+     */
+    private static final class AvailableView {
+        private final Catalog catalog;
+        private final List<CouponEntity> coupons;
+        private final long fromMillis;
+        private final long untilMillis;
+
+        private AvailableView(Catalog catalog, List<CouponEntity> coupons, long fromMillis, long untilMillis) {
+            this.catalog = catalog;
+            this.coupons = coupons;
+            this.fromMillis = fromMillis;
+            this.untilMillis = untilMillis;
+        }
+    }
+}
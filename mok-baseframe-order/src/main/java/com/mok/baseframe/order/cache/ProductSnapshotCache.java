@@ -0,0 +1,149 @@
+package com.mok.baseframe.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mok.baseframe.dao.ProductMapper;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.config.ProductCacheProperties;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品快照两级缓存（本地Caffeine + Redis）
+ * 快照只包含名称、价格、秒杀时间等不随下单变化的字段，库存以Redis库存key为准；
+ * 商品变更时删除Redis快照并通过发布订阅通知所有节点清除本地缓存。
+ * 返回的快照为各线程共享对象，调用方不要修改。
+ */
+@Component
+public class ProductSnapshotCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshotCache.class);
+    // 商品快照失效通知频道
+    public static final String SNAPSHOT_EVICT_CHANNEL = "product:snapshot:evict";
+
+    private final Cache<String, ProductEntity> localCache;
+    private final ProductMapper productMapper;
+    private final ProductCacheProperties productCacheProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public ProductSnapshotCache(ProductMapper productMapper,
+                                ProductCacheProperties productCacheProperties,
+                                RedisTemplate<String, Object> redisTemplate) {
+        this.productMapper = productMapper;
+        this.productCacheProperties = productCacheProperties;
+        this.redisTemplate = redisTemplate;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(productCacheProperties.getLocalMaxSize())
+                .expireAfterWrite(productCacheProperties.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取商品快照，依次查询本地缓存、Redis、数据库
+     * 同一节点上同一商品并发未命中时只回源一次
+     *
+     * @return 商品快照，商品不存在时返回null
+     */
+    public ProductEntity get(String productId) {
+        return localCache.get(productId, this::loadSnapshot);
+    }
+
+    /**
+     * 写入商品快照（秒杀预热使用）
+     */
+    public void put(ProductEntity product) {
+        ProductEntity snapshot = toSnapshot(product);
+        redisTemplate.opsForValue().set(RedisKeyUtil.getProductSnapshotKey(product.getId()), snapshot,
+                productCacheProperties.getRedisExpireSeconds(), TimeUnit.SECONDS);
+        localCache.put(product.getId(), snapshot);
+    }
+
+    /**
+     * 删除商品快照并通知所有节点清除本地缓存（商品信息变更时调用）
+     * 在事务中调用时提交后再删除一次，防止提交前被并发请求用旧数据回填
+     */
+    public void evict(String productId) {
+        doEvict(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(productId);
+                }
+            });
+        }
+    }
+
+    private void doEvict(String productId) {
+        localCache.invalidate(productId);
+        try {
+            redisTemplate.delete(RedisKeyUtil.getProductSnapshotKey(productId));
+            redisTemplate.convertAndSend(SNAPSHOT_EVICT_CHANNEL, productId);
+        } catch (Exception e) {
+            logger.error("删除商品快照失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 接收其他节点的商品快照失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object productId = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (productId != null) {
+            localCache.invalidate(productId.toString());
+        }
+    }
+
+    private ProductEntity loadSnapshot(String productId) {
+        String snapshotKey = RedisKeyUtil.getProductSnapshotKey(productId);
+        try {
+            Object cached = redisTemplate.opsForValue().get(snapshotKey);
+            if (cached instanceof ProductEntity) {
+                return (ProductEntity) cached;
+            }
+        } catch (Exception e) {
+            logger.error("读取Redis商品快照失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+
+        ProductEntity product = productMapper.selectById(productId);
+        if (product == null) {
+            return null;
+        }
+        ProductEntity snapshot = toSnapshot(product);
+        try {
+            redisTemplate.opsForValue().set(snapshotKey, snapshot,
+                    productCacheProperties.getRedisExpireSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.error("写入Redis商品快照失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 构建商品快照，去掉库存、版本号等会变化的字段
+     */
+    private ProductEntity toSnapshot(ProductEntity product) {
+        ProductEntity snapshot = new ProductEntity();
+        snapshot.setId(product.getId());
+        snapshot.setProductName(product.getProductName());
+        snapshot.setProductDesc(product.getProductDesc());
+        snapshot.setPrice(product.getPrice());
+        snapshot.setSeckillPrice(product.getSeckillPrice());
+        snapshot.setSeckillStartTime(product.getSeckillStartTime());
+        snapshot.setSeckillEndTime(product.getSeckillEndTime());
+        snapshot.setStatus(product.getStatus());
+        snapshot.setCreateTime(product.getCreateTime());
+        snapshot.setUpdateTime(product.getUpdateTime());
+        return snapshot;
+    }
+}
@@ -0,0 +1,87 @@
+package com.mok.baseframe.order.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 秒杀结果变更通知
+ * 长轮询查询秒杀结果的请求在本节点登记回调，不占用请求线程；
+ * 下单消费者更新结果后通过Redis发布订阅通知所有节点，持有该凭证回调的节点重新读取结果并响应。
+ */
+@Component
+public class SeckillResultNotifier implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillResultNotifier.class);
+    // 秒杀结果变更通知频道
+    public static final String RESULT_CHANGED_CHANNEL = "seckill:result:changed";
+
+    // 排队凭证 -> 等待结果的回调
+    private final ConcurrentHashMap<String, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public SeckillResultNotifier(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 登记等待结果的回调
+     */
+    public void register(String ticket, Runnable callback) {
+        waiters.computeIfAbsent(ticket, k -> ConcurrentHashMap.newKeySet()).add(callback);
+    }
+
+    /**
+     * 取消登记（请求完成或超时后调用）
+     */
+    public void unregister(String ticket, Runnable callback) {
+        waiters.computeIfPresent(ticket, (k, callbacks) -> {
+            callbacks.remove(callback);
+            return callbacks.isEmpty() ? null : callbacks;
+        });
+    }
+
+    /**
+     * 通知所有节点凭证的结果已变更
+     */
+    public void publish(String ticket) {
+        notifyLocal(ticket);
+        try {
+            redisTemplate.convertAndSend(RESULT_CHANGED_CHANNEL, ticket);
+        } catch (Exception e) {
+            // 通知失败时其他节点的等待请求超时后返回当前状态
+            logger.error("发布秒杀结果变更通知失败，凭证：{}，异常：{}", ticket, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 接收秒杀结果变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object ticket = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (ticket != null) {
+            notifyLocal(ticket.toString());
+        }
+    }
+
+    private void notifyLocal(String ticket) {
+        Set<Runnable> callbacks = waiters.get(ticket);
+        if (callbacks == null) {
+            return;
+        }
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                logger.error("处理秒杀结果变更通知失败，凭证：{}，异常：{}", ticket, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.mok.baseframe.order.cache;
+
+import com.mok.baseframe.order.config.SeckillProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀商品本地售罄标记
+ * 预占返回库存为0或预热时库存为0时标记售罄，并通过Redis发布订阅通知所有节点同时标记，
+ * 后续请求在任一节点都直接拒绝，不再访问Redis和数据库；
+ * 库存恢复时通过Redis发布订阅通知所有节点清除标记。
+ * 标记有过期时间，即使漏收清除通知也只会在过期前误拒请求。
+ */
+@Component
+public class SeckillSoldOutCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillSoldOutCache.class);
+    // 售罄标记清除通知频道
+    public static final String SOLD_OUT_CLEAR_CHANNEL = "seckill:soldout:clear";
+    // 售罄标记通知频道
+    public static final String SOLD_OUT_MARK_CHANNEL = "seckill:soldout:mark";
+
+    // 商品ID -> 标记过期时间戳（毫秒）
+    private final Map<String, Long> soldOutProducts = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SeckillProperties seckillProperties;
+
+    public SeckillSoldOutCache(RedisTemplate<String, Object> redisTemplate,
+                               SeckillProperties seckillProperties) {
+        this.redisTemplate = redisTemplate;
+        this.seckillProperties = seckillProperties;
+    }
+
+    /**
+     * 商品是否已在本节点标记售罄
+     */
+    public boolean isSoldOut(String productId) {
+        Long expireAt = soldOutProducts.get(productId);
+        if (expireAt == null) {
+            return false;
+        }
+        if (expireAt < System.currentTimeMillis()) {
+            soldOutProducts.remove(productId, expireAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 标记商品售罄并通知所有节点（本节点新标记时才发布，每个节点每个标记周期最多发布一次）
+     */
+    public void markSoldOut(String productId) {
+        if (!markLocal(productId)) {
+            return;
+        }
+        logger.info("秒杀商品已售罄，标记售罄并通知所有节点，商品ID：{}", productId);
+        try {
+            redisTemplate.convertAndSend(SOLD_OUT_MARK_CHANNEL, productId);
+        } catch (Exception e) {
+            // 通知失败时其他节点在预占返回售罄后自行标记
+            logger.error("发布售罄标记通知失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 清除所有节点的售罄标记（库存恢复时调用）
+     */
+    public void clear(String productId) {
+        soldOutProducts.remove(productId);
+        try {
+            redisTemplate.convertAndSend(SOLD_OUT_CLEAR_CHANNEL, productId);
+        } catch (Exception e) {
+            logger.error("发布售罄标记清除通知失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 接收其他节点的售罄标记和清除通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object productId = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (productId == null) {
+            return;
+        }
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        if (SOLD_OUT_MARK_CHANNEL.equals(channel)) {
+            if (markLocal(productId.toString())) {
+                logger.info("收到售罄标记通知，本地标记售罄，商品ID：{}", productId);
+            }
+        } else if (soldOutProducts.remove(productId.toString()) != null) {
+            logger.info("收到售罄标记清除通知，商品ID：{}", productId);
+        }
+    }
+
+    /**
+     * 在本节点标记售罄
+     *
+     * @return true-新标记（之前未标记或标记已过期）
+     */
+    private boolean markLocal(String productId) {
+        long now = System.currentTimeMillis();
+        long expireAt = now + TimeUnit.SECONDS.toMillis(seckillProperties.getSoldOutCacheSeconds());
+        Long previous = soldOutProducts.put(productId, expireAt);
+        return previous == null || previous < now;
+    }
+}
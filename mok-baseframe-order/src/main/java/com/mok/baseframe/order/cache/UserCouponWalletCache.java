@@ -0,0 +1,335 @@
+package com.mok.baseframe.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mok.baseframe.dao.UserCouponMapper;
+import com.mok.baseframe.entity.UserCouponEntity;
+import com.mok.baseframe.order.config.CouponProperties;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户优惠券钱包两级缓存（本地Caffeine + Redis hash）
+ * Redis中每个用户一个hash：用户优惠券ID -> 紧凑编码的优惠券记录，另有加载完成标记字段；
+ * 领取、使用、恢复时在事务提交后按条更新，不整体重建，并通过发布订阅通知所有节点清除本地缓存。
+ * 过期不单独更新：读取时未使用且已过结束时间的记录按已过期返回，与定时清理任务的结果一致。
+ * 返回的记录为各线程共享对象，调用方不要修改。
+ */
+@Component
+public class UserCouponWalletCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCouponWalletCache.class);
+    // 钱包本地缓存失效通知频道
+    public static final String WALLET_EVICT_CHANNEL = "coupon:wallet:evict";
+    // 加载完成标记字段（用户没有优惠券时也能区分已加载）
+    private static final String LOADED_FIELD = "#";
+    // 记录编码字段分隔符
+    private static final String SEPARATOR = "|";
+
+    private final Cache<String, List<UserCouponEntity>> localCache;
+    private final UserCouponMapper userCouponMapper;
+    private final CouponProperties couponProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public UserCouponWalletCache(UserCouponMapper userCouponMapper,
+                                 CouponProperties couponProperties,
+                                 RedisTemplate<String, Object> redisTemplate) {
+        this.userCouponMapper = userCouponMapper;
+        this.couponProperties = couponProperties;
+        this.redisTemplate = redisTemplate;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(couponProperties.getWalletLocalMaxSize())
+                .expireAfterWrite(couponProperties.getWalletLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取用户全部优惠券（按领取时间倒序），依次查询本地缓存、Redis、数据库
+     * 未使用且已过结束时间的记录按已过期（状态2）返回
+     */
+    public List<UserCouponEntity> getCoupons(String userId) {
+        List<UserCouponEntity> coupons = localCache.get(userId, this::loadWallet);
+        Date now = new Date();
+        List<UserCouponEntity> result = new ArrayList<>(coupons.size());
+        for (UserCouponEntity coupon : coupons) {
+            if (Integer.valueOf(0).equals(coupon.getStatus()) && coupon.getEndTime() != null
+                    && now.after(coupon.getEndTime())) {
+                UserCouponEntity expired = copy(coupon);
+                expired.setStatus(2);
+                result.add(expired);
+            } else {
+                result.add(coupon);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入变更后的用户优惠券记录（领取、使用、恢复后调用）
+     * 在事务中调用时提交后再写入；只更新对应字段，钱包未加载的用户也直接写入，加载时不会覆盖
+     */
+    public void putAll(Collection<UserCouponEntity> userCoupons) {
+        putAll(userCoupons, false);
+    }
+
+    /**
+     * 只更新已存在的钱包（批量过期等涉及大量冷用户的场景调用），未加载的钱包读取时从数据库加载
+     */
+    public void putAllIfLoaded(Collection<UserCouponEntity> userCoupons) {
+        putAll(userCoupons, true);
+    }
+
+    private void putAll(Collection<UserCouponEntity> userCoupons, boolean onlyLoaded) {
+        if (userCoupons == null || userCoupons.isEmpty()) {
+            return;
+        }
+        List<UserCouponEntity> snapshot = new ArrayList<>(userCoupons);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPutAll(snapshot, onlyLoaded);
+                }
+            });
+        } else {
+            doPutAll(snapshot, onlyLoaded);
+        }
+    }
+
+    /**
+     * 立即删除用户钱包（缓存与数据库不一致时调用），下次读取从数据库重新加载
+     */
+    public void evict(String userId) {
+        deleteQuietly(Collections.singletonList(userId));
+        evictLocal(Collections.singletonList(userId));
+    }
+
+    private void doPutAll(List<UserCouponEntity> userCoupons, boolean onlyLoaded) {
+        Map<String, Map<String, Object>> wallets = new LinkedHashMap<>();
+        for (UserCouponEntity userCoupon : userCoupons) {
+            wallets.computeIfAbsent(userCoupon.getUserId(), k -> new HashMap<>())
+                    .put(userCoupon.getId(), encode(userCoupon));
+        }
+        long expireSeconds = couponProperties.getWalletRedisExpireSeconds();
+        try {
+            if (onlyLoaded) {
+                retainLoaded(wallets);
+                if (wallets.isEmpty()) {
+                    return;
+                }
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    wallets.forEach((userId, entries) -> {
+                        String walletKey = RedisKeyUtil.getUserCouponWalletKey(userId);
+                        ops.opsForHash().putAll(walletKey, entries);
+                        ops.expire(walletKey, expireSeconds, TimeUnit.SECONDS);
+                    });
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 写入失败时删除钱包，下次读取从数据库重新加载
+            logger.error("更新用户优惠券钱包失败，删除钱包，用户数：{}，异常：{}", wallets.size(), e.getMessage(), e);
+            deleteQuietly(wallets.keySet());
+        }
+        evictLocal(wallets.keySet());
+    }
+
+    /**
+     * 一次流水线查询各用户钱包是否存在，去掉不存在的用户
+     */
+    private void retainLoaded(Map<String, Map<String, Object>> wallets) {
+        List<String> userIds = new ArrayList<>(wallets.keySet());
+        List<Object> exists = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String userId : userIds) {
+                    ops.hasKey(RedisKeyUtil.getUserCouponWalletKey(userId));
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < userIds.size(); i++) {
+            if (!Boolean.TRUE.equals(exists.get(i))) {
+                wallets.remove(userIds.get(i));
+            }
+        }
+    }
+
+    /**
+     * 清除本节点及其他节点的本地缓存（一批用户一条通知）
+     */
+    private void evictLocal(Collection<String> userIds) {
+        localCache.invalidateAll(userIds);
+        try {
+            redisTemplate.convertAndSend(WALLET_EVICT_CHANNEL, String.join(",", userIds));
+        } catch (Exception e) {
+            logger.error("发布用户优惠券钱包失效通知失败，用户数：{}，异常：{}", userIds.size(), e.getMessage(), e);
+        }
+    }
+
+    private void deleteQuietly(Collection<String> userIds) {
+        try {
+            List<String> keys = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                keys.add(RedisKeyUtil.getUserCouponWalletKey(userId));
+            }
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            logger.error("删除用户优惠券钱包失败，用户数：{}，异常：{}", userIds.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 接收其他节点的钱包失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object userIds = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (userIds != null) {
+            for (String userId : userIds.toString().split(",")) {
+                localCache.invalidate(userId);
+            }
+        }
+    }
+
+    /**
+     * 从Redis加载钱包，未加载完成时从数据库读取并补齐
+     * 补齐只写入不存在的字段，期间提交的变更已写入的字段不会被数据库旧数据覆盖
+     */
+    private List<UserCouponEntity> loadWallet(String userId) {
+        String walletKey = RedisKeyUtil.getUserCouponWalletKey(userId);
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(walletKey);
+            if (entries.containsKey(LOADED_FIELD)) {
+                return decodeWallet(userId, entries);
+            }
+        } catch (Exception e) {
+            logger.error("读取用户优惠券钱包失败，用户ID：{}，异常：{}", userId, e.getMessage(), e);
+        }
+
+        List<UserCouponEntity> userCoupons = userCouponMapper.selectByUser(userId, null);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (UserCouponEntity userCoupon : userCoupons) {
+                        ops.opsForHash().putIfAbsent(walletKey, userCoupon.getId(), encode(userCoupon));
+                    }
+                    ops.opsForHash().put(walletKey, LOADED_FIELD, "1");
+                    ops.expire(walletKey, couponProperties.getWalletRedisExpireSeconds(), TimeUnit.SECONDS);
+                    return null;
+                }
+            });
+            return decodeWallet(userId, redisTemplate.opsForHash().entries(walletKey));
+        } catch (Exception e) {
+            logger.error("写入用户优惠券钱包失败，用户ID：{}，异常：{}", userId, e.getMessage(), e);
+        }
+        return Collections.unmodifiableList(userCoupons);
+    }
+
+    private List<UserCouponEntity> decodeWallet(String userId, Map<Object, Object> entries) {
+        List<UserCouponEntity> userCoupons = new ArrayList<>(entries.size());
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String id = entry.getKey().toString();
+            if (LOADED_FIELD.equals(id) || entry.getValue() == null) {
+                continue;
+            }
+            userCoupons.add(decode(userId, id, entry.getValue().toString()));
+        }
+        userCoupons.sort(Comparator.comparing(UserCouponEntity::getCreateTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return Collections.unmodifiableList(userCoupons);
+    }
+
+    /**
+     * 编码格式：优惠券ID|状态|开始时间|结束时间|领取时间|优惠券码|订单ID|使用时间（时间为毫秒时间戳，空值为空串）
+     */
+    private String encode(UserCouponEntity userCoupon) {
+        return String.join(SEPARATOR,
+                nullToEmpty(userCoupon.getCouponId()),
+                userCoupon.getStatus() != null ? userCoupon.getStatus().toString() : "",
+                toMillis(userCoupon.getStartTime()),
+                toMillis(userCoupon.getEndTime()),
+                toMillis(userCoupon.getCreateTime() != null ? userCoupon.getCreateTime() : new Date()),
+                nullToEmpty(userCoupon.getCouponCode()),
+                nullToEmpty(userCoupon.getOrderId()),
+                toMillis(userCoupon.getUseTime()));
+    }
+
+    private UserCouponEntity decode(String userId, String id, String value) {
+        String[] parts = value.split("\\|", -1);
+        UserCouponEntity userCoupon = new UserCouponEntity();
+        userCoupon.setId(id);
+        userCoupon.setUserId(userId);
+        userCoupon.setCouponId(emptyToNull(parts[0]));
+        userCoupon.setStatus(parts[1].isEmpty() ? null : Integer.valueOf(parts[1]));
+        userCoupon.setStartTime(toDate(parts[2]));
+        userCoupon.setEndTime(toDate(parts[3]));
+        userCoupon.setCreateTime(toDate(parts[4]));
+        userCoupon.setCouponCode(emptyToNull(parts[5]));
+        userCoupon.setOrderId(emptyToNull(parts[6]));
+        userCoupon.setUseTime(toDate(parts[7]));
+        return userCoupon;
+    }
+
+    private UserCouponEntity copy(UserCouponEntity source) {
+        UserCouponEntity target = new UserCouponEntity();
+        target.setId(source.getId());
+        target.setUserId(source.getUserId());
+        target.setCouponId(source.getCouponId());
+        target.setCouponCode(source.getCouponCode());
+        target.setStatus(source.getStatus());
+        target.setOrderId(source.getOrderId());
+        target.setUseTime(source.getUseTime());
+        target.setStartTime(source.getStartTime());
+        target.setEndTime(source.getEndTime());
+        target.setCreateTime(source.getCreateTime());
+        target.setUpdateTime(source.getUpdateTime());
+        return target;
+    }
+
+    private static String toMillis(Date date) {
+        return date != null ? String.valueOf(date.getTime()) : "";
+    }
+
+    private static Date toDate(String millis) {
+        return millis.isEmpty() ? null : new Date(Long.parseLong(millis));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 优惠券属性配置
+ * 绑定 application-order.yml 中以 order.coupon 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.coupon")
+public class CouponProperties {
+
+    /**
+     * 抢券落库每批最多消费的消息数
+     */
+    private int grabBatchSize = 500;
+
+    /**
+     * 抢券落库凑批最长等待时间（毫秒）
+     */
+    private long grabBatchWaitMillis = 100;
+
+    /**
+     * 抢券消息等待发布确认的最长时间（毫秒），超时视为投递失败并撤销抢券
+     */
+    private long grabConfirmTimeoutMillis = 3000;
+
+    /**
+     * 抢券消息暂时写入失败时的最大重试次数，超过后转入死信队列
+     */
+    private int grabMaxRetries = 5;
+
+    /**
+     * 用户优惠券钱包本地缓存最大用户数
+     */
+    private long walletLocalMaxSize = 10000;
+
+    /**
+     * 用户优惠券钱包本地缓存过期时间（秒），兜底丢失的失效通知
+     */
+    private long walletLocalExpireSeconds = 30;
+
+    /**
+     * 用户优惠券钱包Redis过期时间（秒），每次更新时续期
+     */
+    private long walletRedisExpireSeconds = 86400;
+
+    /**
+     * 过期优惠券清理每批处理的数量（每批一个短事务）
+     */
+    private int expireChunkSize = 500;
+
+    /**
+     * 过期优惠券清理每批之间的停顿时间（毫秒），避免影响在线业务
+     */
+    private long expirePauseMillis = 50;
+
+    /**
+     * 过期优惠券清理锁有效期（秒），同一时间只有一个节点清理
+     */
+    private long expireLockSeconds = 3600;
+
+    /**
+     * 本地优惠券目录定时全量刷新间隔（毫秒），兜底丢失的刷新通知和剩余数量变化
+     */
+    private long catalogRefreshMillis = 60000;
+
+    public int getGrabBatchSize() {
+        return grabBatchSize;
+    }
+
+    public void setGrabBatchSize(int grabBatchSize) {
+        this.grabBatchSize = grabBatchSize;
+    }
+
+    public long getGrabBatchWaitMillis() {
+        return grabBatchWaitMillis;
+    }
+
+    public void setGrabBatchWaitMillis(long grabBatchWaitMillis) {
+        this.grabBatchWaitMillis = grabBatchWaitMillis;
+    }
+
+    public long getGrabConfirmTimeoutMillis() {
+        return grabConfirmTimeoutMillis;
+    }
+
+    public void setGrabConfirmTimeoutMillis(long grabConfirmTimeoutMillis) {
+        this.grabConfirmTimeoutMillis = grabConfirmTimeoutMillis;
+    }
+
+    public int getGrabMaxRetries() {
+        return grabMaxRetries;
+    }
+
+    public void setGrabMaxRetries(int grabMaxRetries) {
+        this.grabMaxRetries = grabMaxRetries;
+    }
+
+    public long getWalletLocalMaxSize() {
+        return walletLocalMaxSize;
+    }
+
+    public void setWalletLocalMaxSize(long walletLocalMaxSize) {
+        this.walletLocalMaxSize = walletLocalMaxSize;
+    }
+
+    public long getWalletLocalExpireSeconds() {
+        return walletLocalExpireSeconds;
+    }
+
+    public void setWalletLocalExpireSeconds(long walletLocalExpireSeconds) {
+        this.walletLocalExpireSeconds = walletLocalExpireSeconds;
+    }
+
+    public long getWalletRedisExpireSeconds() {
+        return walletRedisExpireSeconds;
+    }
+
+    public void setWalletRedisExpireSeconds(long walletRedisExpireSeconds) {
+        this.walletRedisExpireSeconds = walletRedisExpireSeconds;
+    }
+
+    public int getExpireChunkSize() {
+        return expireChunkSize;
+    }
+
+    public void setExpireChunkSize(int expireChunkSize) {
+        this.expireChunkSize = expireChunkSize;
+    }
+
+    public long getExpirePauseMillis() {
+        return expirePauseMillis;
+    }
+
+    public void setExpirePauseMillis(long expirePauseMillis) {
+        this.expirePauseMillis = expirePauseMillis;
+    }
+
+    public long getExpireLockSeconds() {
+        return expireLockSeconds;
+    }
+
+    public void setExpireLockSeconds(long expireLockSeconds) {
+        this.expireLockSeconds = expireLockSeconds;
+    }
+
+    public long getCatalogRefreshMillis() {
+        return catalogRefreshMillis;
+    }
+
+    public void setCatalogRefreshMillis(long catalogRefreshMillis) {
+        this.catalogRefreshMillis = catalogRefreshMillis;
+    }
+}
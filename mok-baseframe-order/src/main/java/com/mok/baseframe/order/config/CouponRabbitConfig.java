@@ -0,0 +1,37 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 优惠券消息队列配置
+ */
+@Configuration
+public class CouponRabbitConfig {
+
+    /**
+     * 抢券落库批量消费容器工厂
+     * 每次最多拉取 grabBatchSize 条消息，凑批最多等待 grabBatchWaitMillis 毫秒，
+     * 消费者处理完一批后一次性确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory couponGrabBatchContainerFactory(ConnectionFactory connectionFactory,
+                                                                               Jackson2JsonMessageConverter jsonMessageConverter,
+                                                                               CouponProperties couponProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(couponProperties.getGrabBatchSize());
+        factory.setPrefetchCount(couponProperties.getGrabBatchSize() * 2);
+        factory.setReceiveTimeout(couponProperties.getGrabBatchWaitMillis());
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存属性配置
+ * 绑定 application-order.yml 中以 order.inventory 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.inventory")
+public class InventoryProperties {
+
+    /**
+     * Redis预减库存开关
+     */
+    private boolean redisPreReduce = true;
+
+    /**
+     * 数据库库存同步延迟（毫秒）
+     */
+    private long syncDelay = 1000;
+
+    /**
+     * 库存告警阈值
+     */
+    private int warningThreshold = 10;
+
+    /**
+     * 是否启用库存变更批量消费（按窗口拉取消息，同一商品的变更合并为一次数据库更新）
+     */
+    private boolean batchEnabled = false;
+
+    /**
+     * 库存变更批量消费每个窗口最多处理的消息数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 库存变更批量消费凑批的最长等待时间（毫秒）
+     */
+    private long batchWaitMillis = 100;
+
+    /**
+     * 库存流水每批写入的最大条数
+     */
+    private int logBatchSize = 500;
+
+    /**
+     * 库存流水刷新间隔（毫秒），未攒够一批时最多等待这么久写入
+     */
+    private long logFlushIntervalMillis = 200;
+
+    /**
+     * 库存流水缓冲队列容量
+     */
+    private int logQueueCapacity = 20000;
+
+    /**
+     * 缓冲队列满时等待入队的最长时间（毫秒），超时后由调用线程直接写入
+     */
+    private long logOfferTimeoutMillis = 50;
+
+    public boolean isRedisPreReduce() {
+        return redisPreReduce;
+    }
+
+    public void setRedisPreReduce(boolean redisPreReduce) {
+        this.redisPreReduce = redisPreReduce;
+    }
+
+    public long getSyncDelay() {
+        return syncDelay;
+    }
+
+    public void setSyncDelay(long syncDelay) {
+        this.syncDelay = syncDelay;
+    }
+
+    public int getWarningThreshold() {
+        return warningThreshold;
+    }
+
+    public void setWarningThreshold(int warningThreshold) {
+        this.warningThreshold = warningThreshold;
+    }
+
+    public boolean isBatchEnabled() {
+        return batchEnabled;
+    }
+
+    public void setBatchEnabled(boolean batchEnabled) {
+        this.batchEnabled = batchEnabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWaitMillis() {
+        return batchWaitMillis;
+    }
+
+    public void setBatchWaitMillis(long batchWaitMillis) {
+        this.batchWaitMillis = batchWaitMillis;
+    }
+
+    public int getLogBatchSize() {
+        return logBatchSize;
+    }
+
+    public void setLogBatchSize(int logBatchSize) {
+        this.logBatchSize = logBatchSize;
+    }
+
+    public long getLogFlushIntervalMillis() {
+        return logFlushIntervalMillis;
+    }
+
+    public void setLogFlushIntervalMillis(long logFlushIntervalMillis) {
+        this.logFlushIntervalMillis = logFlushIntervalMillis;
+    }
+
+    public int getLogQueueCapacity() {
+        return logQueueCapacity;
+    }
+
+    public void setLogQueueCapacity(int logQueueCapacity) {
+        this.logQueueCapacity = logQueueCapacity;
+    }
+
+    public long getLogOfferTimeoutMillis() {
+        return logOfferTimeoutMillis;
+    }
+
+    public void setLogOfferTimeoutMillis(long logOfferTimeoutMillis) {
+        this.logOfferTimeoutMillis = logOfferTimeoutMillis;
+    }
+}
@@ -0,0 +1,52 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单号生成属性配置
+ * 绑定 application-order.yml 中以 order.no 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.no")
+public class OrderNoProperties {
+
+    /**
+     * 节点号（0-99），小于0时启动时从Redis租约获取
+     */
+    private int workerId = -1;
+
+    /**
+     * 节点号租约有效期（秒）
+     */
+    private long workerLeaseSeconds = 60;
+
+    /**
+     * 节点号租约续期间隔（毫秒），需明显小于租约有效期
+     */
+    private long workerRenewIntervalMillis = 20000;
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(int workerId) {
+        this.workerId = workerId;
+    }
+
+    public long getWorkerLeaseSeconds() {
+        return workerLeaseSeconds;
+    }
+
+    public void setWorkerLeaseSeconds(long workerLeaseSeconds) {
+        this.workerLeaseSeconds = workerLeaseSeconds;
+    }
+
+    public long getWorkerRenewIntervalMillis() {
+        return workerRenewIntervalMillis;
+    }
+
+    public void setWorkerRenewIntervalMillis(long workerRenewIntervalMillis) {
+        this.workerRenewIntervalMillis = workerRenewIntervalMillis;
+    }
+}
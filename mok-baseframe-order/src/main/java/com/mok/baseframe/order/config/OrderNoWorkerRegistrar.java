@@ -0,0 +1,189 @@
+package com.mok.baseframe.order.config;
+
+import com.mok.baseframe.order.util.OrderNoGenerator;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号节点号注册
+ * 配置了节点号时直接使用；否则启动时从Redis租约一个空闲节点号，定时续期，停机时释放，
+ * 保证多节点同时运行时节点号互不相同。
+ * 续期在单独的线程中执行，不受共享定时线程上其他任务阻塞的影响；每次续期成功后把租约到期时间同步给
+ * OrderNoGenerator，即使续期线程停滞，租约到期后也不再生成单号。
+ * 租约丢失（或无法续期且租约即将到期）时该节点号可能被其他节点占用，立即暂停生成单号，
+ * 之后每次续期时重新获取，获取成功后恢复
+ */
+@Component
+public class OrderNoWorkerRegistrar {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNoWorkerRegistrar.class);
+
+    /**
+     * 续期脚本：租约仍属于本节点时续期
+     * KEYS: 1.节点号租约key
+     * ARGV: 1.本节点标识 2.租约有效期(毫秒)
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('pexpire', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0";
+
+    /**
+     * 释放脚本：租约仍属于本节点时删除
+     * KEYS: 1.节点号租约key
+     * ARGV: 1.本节点标识
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+
+    private static final DefaultRedisScript<Long> RENEW_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private final OrderNoProperties orderNoProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 本节点租约标识
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // 当前租约的节点号，未使用租约或租约丢失时为-1
+    private volatile int leasedWorkerId = -1;
+
+    // 当前租约的到期时间（按发起续期的时间计算，偏保守）
+    private volatile long leaseExpireAtMillis;
+
+    // 续期线程，只在使用租约时创建
+    private ScheduledExecutorService renewScheduler;
+
+    public OrderNoWorkerRegistrar(OrderNoProperties orderNoProperties,
+                                  RedisTemplate<String, Object> redisTemplate) {
+        this.orderNoProperties = orderNoProperties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (orderNoProperties.getWorkerId() >= 0) {
+            OrderNoGenerator.setWorkerId(orderNoProperties.getWorkerId());
+            logger.info("订单号节点号使用配置值：{}", orderNoProperties.getWorkerId());
+            return;
+        }
+        if (!acquire()) {
+            throw new IllegalStateException("没有空闲的订单号节点号，请检查运行节点数或配置 order.no.worker-id");
+        }
+        long interval = orderNoProperties.getWorkerRenewIntervalMillis();
+        renewScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-no-worker-renew");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewScheduler.scheduleWithFixedDelay(this::renew, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 定时续期，租约丢失时暂停生成单号并重新获取
+     */
+    private void renew() {
+        int workerId = leasedWorkerId;
+        if (workerId < 0) {
+            reacquire();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            Long result = redisTemplate.execute(RENEW_REDIS_SCRIPT,
+                    Collections.singletonList(RedisKeyUtil.getOrderNoWorkerKey(workerId)),
+                    instanceId,
+                    TimeUnit.SECONDS.toMillis(orderNoProperties.getWorkerLeaseSeconds()));
+            if (result != null && result == 1) {
+                leaseExpireAtMillis = now + TimeUnit.SECONDS.toMillis(orderNoProperties.getWorkerLeaseSeconds());
+                OrderNoGenerator.setWorkerId(workerId, leaseExpireAtMillis);
+                return;
+            }
+            logger.warn("订单号节点号租约已丢失，暂停生成单号并重新获取，原节点号：{}", workerId);
+            suspend();
+            reacquire();
+        } catch (Exception e) {
+            logger.error("订单号节点号续期失败，节点号：{}，异常：{}", workerId, e.getMessage(), e);
+            // 下次续期前租约可能到期并被其他节点占用，提前暂停生成单号
+            if (now + orderNoProperties.getWorkerRenewIntervalMillis() >= leaseExpireAtMillis) {
+                logger.error("订单号节点号租约即将到期且无法续期，暂停生成单号，节点号：{}", workerId);
+                suspend();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (renewScheduler != null) {
+            renewScheduler.shutdownNow();
+        }
+        if (leasedWorkerId < 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_REDIS_SCRIPT,
+                    Collections.singletonList(RedisKeyUtil.getOrderNoWorkerKey(leasedWorkerId)),
+                    instanceId);
+        } catch (Exception e) {
+            logger.warn("释放订单号节点号失败，节点号：{}，异常：{}", leasedWorkerId, e.getMessage());
+        }
+    }
+
+    /**
+     * 暂停生成单号
+     */
+    private void suspend() {
+        leasedWorkerId = -1;
+        OrderNoGenerator.suspend();
+    }
+
+    /**
+     * 租约丢失后重新获取节点号，失败时保持暂停，等待下次续期重试
+     */
+    private void reacquire() {
+        try {
+            if (!acquire()) {
+                logger.error("没有空闲的订单号节点号，暂停生成单号，等待下次续期时重试");
+            }
+        } catch (Exception e) {
+            logger.error("重新获取订单号节点号失败，暂停生成单号，等待下次续期时重试，异常：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从0开始依次尝试占用空闲节点号
+     */
+    private boolean acquire() {
+        long now = System.currentTimeMillis();
+        for (int id = 0; id <= OrderNoGenerator.getMaxWorkerId(); id++) {
+            Boolean locked = redisTemplate.opsForValue().setIfAbsent(RedisKeyUtil.getOrderNoWorkerKey(id),
+                    instanceId, orderNoProperties.getWorkerLeaseSeconds(), TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(locked)) {
+                leaseExpireAtMillis = now + TimeUnit.SECONDS.toMillis(orderNoProperties.getWorkerLeaseSeconds());
+                leasedWorkerId = id;
+                OrderNoGenerator.setWorkerId(id, leaseExpireAtMillis);
+                logger.info("订单号节点号租约获取成功：{}", id);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单消息发件箱属性配置
+ * 绑定 application-order.yml 中以 order.outbox 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.outbox")
+public class OrderOutboxProperties {
+
+    /**
+     * 转发任务执行间隔（毫秒）
+     */
+    private long relayIntervalMillis = 200;
+
+    /**
+     * 每批转发的消息数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 等待一批消息发布确认的最长时间（毫秒）
+     */
+    private long confirmTimeoutMillis = 5000;
+
+    /**
+     * 投递失败后重试延迟（毫秒）
+     */
+    private long retryDelayMillis = 5000;
+
+    /**
+     * 最大重试次数，超过后标记为投递失败
+     */
+    private int maxRetries = 10;
+
+    /**
+     * 转发租约有效期（秒）
+     */
+    private long leaseSeconds = 30;
+
+    public long getRelayIntervalMillis() {
+        return relayIntervalMillis;
+    }
+
+    public void setRelayIntervalMillis(long relayIntervalMillis) {
+        this.relayIntervalMillis = relayIntervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getConfirmTimeoutMillis() {
+        return confirmTimeoutMillis;
+    }
+
+    public void setConfirmTimeoutMillis(long confirmTimeoutMillis) {
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+    }
+
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(long leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+}
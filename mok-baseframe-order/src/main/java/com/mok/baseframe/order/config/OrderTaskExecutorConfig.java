@@ -0,0 +1,68 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 订单模块定时任务执行器配置
+ * 耗时较长或执行频繁的定时任务由定时线程触发后交给各自的执行器运行，不占用共享的定时线程；
+ * 执行器只有一个线程且不排队，上一次还没执行完时本次触发直接跳过
+ */
+@Configuration
+public class OrderTaskExecutorConfig {
+
+    /**
+     * 库存对账执行器
+     */
+    @Bean(name = "stockReconcileExecutor")
+    public ThreadPoolTaskExecutor stockReconcileExecutor() {
+        return singleThreadExecutor("stock-reconcile-");
+    }
+
+    /**
+     * 消息发件箱转发执行器
+     */
+    @Bean(name = "orderOutboxRelayExecutor")
+    public ThreadPoolTaskExecutor orderOutboxRelayExecutor() {
+        return singleThreadExecutor("order-outbox-relay-");
+    }
+
+    /**
+     * 库存预占到期扫描执行器
+     */
+    @Bean(name = "stockReservationSweepExecutor")
+    public ThreadPoolTaskExecutor stockReservationSweepExecutor() {
+        return singleThreadExecutor("stock-reservation-sweep-");
+    }
+
+    /**
+     * 超时订单关闭执行器
+     */
+    @Bean(name = "orderCloseExecutor")
+    public ThreadPoolTaskExecutor orderCloseExecutor() {
+        return singleThreadExecutor("order-close-");
+    }
+
+    /**
+     * 过期优惠券清理执行器（分批清理，批次之间会暂停）
+     */
+    @Bean(name = "couponCleanExecutor")
+    public ThreadPoolTaskExecutor couponCleanExecutor() {
+        return singleThreadExecutor("coupon-clean-");
+    }
+
+    private static ThreadPoolTaskExecutor singleThreadExecutor(String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
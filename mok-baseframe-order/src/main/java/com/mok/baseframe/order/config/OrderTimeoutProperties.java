@@ -0,0 +1,130 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单超时关闭属性配置
+ * 绑定 application-order.yml 中以 order.timeout-wheel 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.timeout-wheel")
+public class OrderTimeoutProperties {
+
+    /**
+     * 超时订单分片数，每个分片一个Redis有序集合，由持有租约的节点负责关闭
+     */
+    private int shards = 16;
+
+    /**
+     * 时间轮tick（毫秒）
+     */
+    private long tickMillis = 100;
+
+    /**
+     * 时间轮槽位数
+     */
+    private int wheelSize = 512;
+
+    /**
+     * 从Redis加载即将到期订单、续期分片租约的间隔（毫秒）
+     */
+    private long loadIntervalMillis = 5000;
+
+    /**
+     * 加载到时间轮的提前量（毫秒），只有该时间内到期的订单才进入内存
+     */
+    private long lookaheadMillis = 15000;
+
+    /**
+     * 每个分片每次最多加载的订单数
+     */
+    private int loadBatchSize = 1000;
+
+    /**
+     * 分片租约有效期（秒）
+     */
+    private long leaseSeconds = 15;
+
+    /**
+     * 关闭失败后重试延迟（毫秒）
+     */
+    private long retryDelayMillis = 10000;
+
+    /**
+     * 数据库兜底扫描周期，用于关闭未进入超时队列的订单（登记失败、上线前创建的订单）
+     */
+    private String fallbackScanCron = "0 */5 * * * ?";
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    public void setWheelSize(int wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    public long getLoadIntervalMillis() {
+        return loadIntervalMillis;
+    }
+
+    public void setLoadIntervalMillis(long loadIntervalMillis) {
+        this.loadIntervalMillis = loadIntervalMillis;
+    }
+
+    public long getLookaheadMillis() {
+        return lookaheadMillis;
+    }
+
+    public void setLookaheadMillis(long lookaheadMillis) {
+        this.lookaheadMillis = lookaheadMillis;
+    }
+
+    public int getLoadBatchSize() {
+        return loadBatchSize;
+    }
+
+    public void setLoadBatchSize(int loadBatchSize) {
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(long leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public String getFallbackScanCron() {
+        return fallbackScanCron;
+    }
+
+    public void setFallbackScanCron(String fallbackScanCron) {
+        this.fallbackScanCron = fallbackScanCron;
+    }
+}
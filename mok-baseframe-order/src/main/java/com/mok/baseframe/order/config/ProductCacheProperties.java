@@ -0,0 +1,52 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品快照缓存属性配置
+ * 绑定 application-order.yml 中以 order.product-cache 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.product-cache")
+public class ProductCacheProperties {
+
+    /**
+     * 本地缓存最大商品数
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存过期时间（秒），兜底漏收失效通知的情况
+     */
+    private long localExpireSeconds = 60;
+
+    /**
+     * Redis缓存过期时间（秒）
+     */
+    private long redisExpireSeconds = 3600;
+
+    public long getLocalMaxSize() {
+        return localMaxSize;
+    }
+
+    public void setLocalMaxSize(long localMaxSize) {
+        this.localMaxSize = localMaxSize;
+    }
+
+    public long getLocalExpireSeconds() {
+        return localExpireSeconds;
+    }
+
+    public void setLocalExpireSeconds(long localExpireSeconds) {
+        this.localExpireSeconds = localExpireSeconds;
+    }
+
+    public long getRedisExpireSeconds() {
+        return redisExpireSeconds;
+    }
+
+    public void setRedisExpireSeconds(long redisExpireSeconds) {
+        this.redisExpireSeconds = redisExpireSeconds;
+    }
+}
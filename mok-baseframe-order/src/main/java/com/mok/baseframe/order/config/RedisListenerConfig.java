@@ -0,0 +1,46 @@
+package com.mok.baseframe.order.config;
+
+import com.mok.baseframe.order.cache.CouponCatalogCache;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
+import com.mok.baseframe.order.cache.SeckillResultNotifier;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.cache.UserCouponWalletCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 订单模块Redis发布订阅配置
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    /**
+     * 订阅本地缓存失效通知：秒杀售罄标记和清除、商品快照失效、用户优惠券钱包失效、优惠券目录刷新，以及秒杀结果变更通知
+     */
+    @Bean
+    public RedisMessageListenerContainer orderRedisListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                     SeckillSoldOutCache seckillSoldOutCache,
+                                                                     ProductSnapshotCache productSnapshotCache,
+                                                                     UserCouponWalletCache userCouponWalletCache,
+                                                                     CouponCatalogCache couponCatalogCache,
+                                                                     SeckillResultNotifier seckillResultNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(seckillSoldOutCache,
+                new ChannelTopic(SeckillSoldOutCache.SOLD_OUT_CLEAR_CHANNEL));
+        container.addMessageListener(seckillSoldOutCache,
+                new ChannelTopic(SeckillSoldOutCache.SOLD_OUT_MARK_CHANNEL));
+        container.addMessageListener(productSnapshotCache,
+                new ChannelTopic(ProductSnapshotCache.SNAPSHOT_EVICT_CHANNEL));
+        container.addMessageListener(userCouponWalletCache,
+                new ChannelTopic(UserCouponWalletCache.WALLET_EVICT_CHANNEL));
+        container.addMessageListener(couponCatalogCache,
+                new ChannelTopic(CouponCatalogCache.CATALOG_REFRESH_CHANNEL));
+        container.addMessageListener(seckillResultNotifier,
+                new ChannelTopic(SeckillResultNotifier.RESULT_CHANGED_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,299 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 秒杀模块属性配置
+ * 绑定 application-order.yml 中以 order.seckill 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.seckill")
+public class SeckillProperties {
+
+    /**
+     * 单个用户在同一秒杀商品上的最大购买数量（0表示不限购）
+     */
+    private int perUserLimit = 1;
+
+    /**
+     * 秒杀结束后购买记录、预占记录在Redis中的保留时间（秒）
+     */
+    private long recordRetainSeconds = 86400;
+
+    /**
+     * 是否启用异步下单（请求只预占库存并返回排队凭证，订单由消费者批量落库）
+     */
+    private boolean asyncEnabled = false;
+
+    /**
+     * 异步下单消费者每批最多处理的消息数
+     */
+    private int asyncBatchSize = 50;
+
+    /**
+     * 异步下单消费者凑批的最长等待时间（毫秒）
+     */
+    private long asyncBatchWaitMillis = 200;
+
+    /**
+     * 秒杀结果在Redis中的保留时间（秒）
+     */
+    private long resultExpireSeconds = 600;
+
+    /**
+     * 查询秒杀结果时长轮询的最长等待时间（毫秒）
+     */
+    private long resultMaxWaitMillis = 3000;
+
+    /**
+     * 本地售罄标记有效期（秒），防止漏收清除通知后一直拒绝请求
+     */
+    private long soldOutCacheSeconds = 60;
+
+    /**
+     * 秒杀库存分段数（大于1时库存拆分到多个key，用户购买记录和预占记录按用户所属分段拆分，分散热点key压力）
+     */
+    private int stockSegments = 1;
+
+    /**
+     * 秒杀预热提前时间（秒），秒杀开始前这段时间内加载库存和商品快照到Redis
+     */
+    private int preheatBefore = 600;
+
+    /**
+     * 秒杀预热任务执行间隔（毫秒）
+     */
+    private long preheatIntervalMillis = 60000;
+
+    /**
+     * 秒杀验证码有效期（秒）；无状态模式下为签名时间片长度
+     */
+    private int verifyCodeExpire = 60;
+
+    /**
+     * 是否启用无状态验证码（HMAC签名生成和校验，不写Redis）
+     */
+    private boolean verifyCodeStateless = false;
+
+    /**
+     * 无状态验证码签名密钥
+     */
+    private String verifySecret;
+
+    /**
+     * 是否启用秒杀等待室（用户先排队，被放行后才能下单）
+     */
+    private boolean waitingRoomEnabled = false;
+
+    /**
+     * 等待室容量系数：排队加已放行人数上限 = 剩余库存 * 系数
+     */
+    private double waitingOversubscription = 2.0;
+
+    /**
+     * 每次放行的最大人数
+     */
+    private int waitingReleaseBatch = 50;
+
+    /**
+     * 放行任务执行间隔（毫秒）
+     */
+    private long waitingReleaseIntervalMillis = 100;
+
+    /**
+     * 放行后下单资格有效期（秒）
+     */
+    private long admissionExpireSeconds = 60;
+
+    /**
+     * 是否使用布隆过滤器记录已购用户（仅在每人限购1件时生效，替代按用户计数的hash）
+     */
+    private boolean buyerBloomEnabled = false;
+
+    /**
+     * 布隆过滤器总位数，平均分给各库存分段（默认2^24位约2MB，100万购买用户时误判率约0.1%）
+     */
+    private long buyerBloomBits = 1L << 24;
+
+    /**
+     * 布隆过滤器哈希函数个数
+     */
+    private int buyerBloomHashes = 5;
+
+    public int getPerUserLimit() {
+        return perUserLimit;
+    }
+
+    public void setPerUserLimit(int perUserLimit) {
+        this.perUserLimit = perUserLimit;
+    }
+
+    public long getRecordRetainSeconds() {
+        return recordRetainSeconds;
+    }
+
+    public void setRecordRetainSeconds(long recordRetainSeconds) {
+        this.recordRetainSeconds = recordRetainSeconds;
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    public void setAsyncEnabled(boolean asyncEnabled) {
+        this.asyncEnabled = asyncEnabled;
+    }
+
+    public int getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    public void setAsyncBatchSize(int asyncBatchSize) {
+        this.asyncBatchSize = asyncBatchSize;
+    }
+
+    public long getAsyncBatchWaitMillis() {
+        return asyncBatchWaitMillis;
+    }
+
+    public void setAsyncBatchWaitMillis(long asyncBatchWaitMillis) {
+        this.asyncBatchWaitMillis = asyncBatchWaitMillis;
+    }
+
+    public long getResultExpireSeconds() {
+        return resultExpireSeconds;
+    }
+
+    public void setResultExpireSeconds(long resultExpireSeconds) {
+        this.resultExpireSeconds = resultExpireSeconds;
+    }
+
+    public long getResultMaxWaitMillis() {
+        return resultMaxWaitMillis;
+    }
+
+    public void setResultMaxWaitMillis(long resultMaxWaitMillis) {
+        this.resultMaxWaitMillis = resultMaxWaitMillis;
+    }
+
+    public long getSoldOutCacheSeconds() {
+        return soldOutCacheSeconds;
+    }
+
+    public void setSoldOutCacheSeconds(long soldOutCacheSeconds) {
+        this.soldOutCacheSeconds = soldOutCacheSeconds;
+    }
+
+    public int getStockSegments() {
+        return stockSegments;
+    }
+
+    public void setStockSegments(int stockSegments) {
+        this.stockSegments = stockSegments;
+    }
+
+    public int getPreheatBefore() {
+        return preheatBefore;
+    }
+
+    public void setPreheatBefore(int preheatBefore) {
+        this.preheatBefore = preheatBefore;
+    }
+
+    public long getPreheatIntervalMillis() {
+        return preheatIntervalMillis;
+    }
+
+    public void setPreheatIntervalMillis(long preheatIntervalMillis) {
+        this.preheatIntervalMillis = preheatIntervalMillis;
+    }
+
+    public int getVerifyCodeExpire() {
+        return verifyCodeExpire;
+    }
+
+    public void setVerifyCodeExpire(int verifyCodeExpire) {
+        this.verifyCodeExpire = verifyCodeExpire;
+    }
+
+    public boolean isVerifyCodeStateless() {
+        return verifyCodeStateless;
+    }
+
+    public void setVerifyCodeStateless(boolean verifyCodeStateless) {
+        this.verifyCodeStateless = verifyCodeStateless;
+    }
+
+    public String getVerifySecret() {
+        return verifySecret;
+    }
+
+    public void setVerifySecret(String verifySecret) {
+        this.verifySecret = verifySecret;
+    }
+
+    public boolean isWaitingRoomEnabled() {
+        return waitingRoomEnabled;
+    }
+
+    public void setWaitingRoomEnabled(boolean waitingRoomEnabled) {
+        this.waitingRoomEnabled = waitingRoomEnabled;
+    }
+
+    public double getWaitingOversubscription() {
+        return waitingOversubscription;
+    }
+
+    public void setWaitingOversubscription(double waitingOversubscription) {
+        this.waitingOversubscription = waitingOversubscription;
+    }
+
+    public int getWaitingReleaseBatch() {
+        return waitingReleaseBatch;
+    }
+
+    public void setWaitingReleaseBatch(int waitingReleaseBatch) {
+        this.waitingReleaseBatch = waitingReleaseBatch;
+    }
+
+    public long getWaitingReleaseIntervalMillis() {
+        return waitingReleaseIntervalMillis;
+    }
+
+    public void setWaitingReleaseIntervalMillis(long waitingReleaseIntervalMillis) {
+        this.waitingReleaseIntervalMillis = waitingReleaseIntervalMillis;
+    }
+
+    public long getAdmissionExpireSeconds() {
+        return admissionExpireSeconds;
+    }
+
+    public void setAdmissionExpireSeconds(long admissionExpireSeconds) {
+        this.admissionExpireSeconds = admissionExpireSeconds;
+    }
+
+    public boolean isBuyerBloomEnabled() {
+        return buyerBloomEnabled;
+    }
+
+    public void setBuyerBloomEnabled(boolean buyerBloomEnabled) {
+        this.buyerBloomEnabled = buyerBloomEnabled;
+    }
+
+    public long getBuyerBloomBits() {
+        return buyerBloomBits;
+    }
+
+    public void setBuyerBloomBits(long buyerBloomBits) {
+        this.buyerBloomBits = buyerBloomBits;
+    }
+
+    public int getBuyerBloomHashes() {
+        return buyerBloomHashes;
+    }
+
+    public void setBuyerBloomHashes(int buyerBloomHashes) {
+        this.buyerBloomHashes = buyerBloomHashes;
+    }
+}
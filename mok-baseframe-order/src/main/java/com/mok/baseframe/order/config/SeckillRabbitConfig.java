@@ -0,0 +1,37 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 秒杀消息队列配置
+ */
+@Configuration
+public class SeckillRabbitConfig {
+
+    /**
+     * 秒杀下单批量消费容器工厂
+     * 每次最多拉取 asyncBatchSize 条消息，凑批最多等待 asyncBatchWaitMillis 毫秒，
+     * 消费者处理完一批后一次性确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory seckillBatchContainerFactory(ConnectionFactory connectionFactory,
+                                                                            Jackson2JsonMessageConverter jsonMessageConverter,
+                                                                            SeckillProperties seckillProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(seckillProperties.getAsyncBatchSize());
+        factory.setPrefetchCount(seckillProperties.getAsyncBatchSize() * 2);
+        factory.setReceiveTimeout(seckillProperties.getAsyncBatchWaitMillis());
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
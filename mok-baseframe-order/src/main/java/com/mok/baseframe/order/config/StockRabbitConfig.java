@@ -0,0 +1,37 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 库存消息队列配置
+ */
+@Configuration
+public class StockRabbitConfig {
+
+    /**
+     * 库存变更批量消费容器工厂
+     * 每个窗口最多拉取 batchSize 条消息，凑批最多等待 batchWaitMillis 毫秒，
+     * 消费者合并处理完一个窗口后一次性确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory stockBatchContainerFactory(ConnectionFactory connectionFactory,
+                                                                          Jackson2JsonMessageConverter jsonMessageConverter,
+                                                                          InventoryProperties inventoryProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(inventoryProperties.getBatchSize());
+        factory.setPrefetchCount(inventoryProperties.getBatchSize() * 2);
+        factory.setReceiveTimeout(inventoryProperties.getBatchWaitMillis());
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
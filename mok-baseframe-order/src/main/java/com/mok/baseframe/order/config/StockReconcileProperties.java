@@ -0,0 +1,78 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存对账属性配置
+ * 绑定 application-order.yml 中以 order.stock-reconcile 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.stock-reconcile")
+public class StockReconcileProperties {
+
+    /**
+     * 是否启用定时对账
+     */
+    private boolean enabled = true;
+
+    /**
+     * 对账执行时间
+     */
+    private String cron = "0 30 3 * * ?";
+
+    /**
+     * 每批读取的商品数（一批商品的Redis库存一次流水线读取）
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 发现差异后复核前的等待时间（毫秒），等待途中的库存消息处理完，复核后差异不变才修复
+     */
+    private long settleMillis = 2000;
+
+    /**
+     * 对账锁有效期（秒），同一时间只有一个节点对账
+     */
+    private long lockSeconds = 3600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCron() {
+        return cron;
+    }
+
+    public void setCron(String cron) {
+        this.cron = cron;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getSettleMillis() {
+        return settleMillis;
+    }
+
+    public void setSettleMillis(long settleMillis) {
+        this.settleMillis = settleMillis;
+    }
+
+    public long getLockSeconds() {
+        return lockSeconds;
+    }
+
+    public void setLockSeconds(long lockSeconds) {
+        this.lockSeconds = lockSeconds;
+    }
+}
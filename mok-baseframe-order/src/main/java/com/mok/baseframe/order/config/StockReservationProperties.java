@@ -0,0 +1,65 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 普通订单库存预占属性配置
+ * 绑定 application-order.yml 中以 order.stock-reservation 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.stock-reservation")
+public class StockReservationProperties {
+
+    /**
+     * 预占有效期（秒），默认与订单支付超时时间一致
+     */
+    private long ttlSeconds = 1800;
+
+    /**
+     * 到期释放后保留释放标记的时间（秒），期间取消或支付订单可识别预占已释放
+     */
+    private long releasedRetainSeconds = 3600;
+
+    /**
+     * 到期预占扫描间隔（毫秒）
+     */
+    private long sweepIntervalMillis = 1000;
+
+    /**
+     * 每次脚本调用最多释放的预占条数
+     */
+    private int sweepBatchSize = 500;
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getReleasedRetainSeconds() {
+        return releasedRetainSeconds;
+    }
+
+    public void setReleasedRetainSeconds(long releasedRetainSeconds) {
+        this.releasedRetainSeconds = releasedRetainSeconds;
+    }
+
+    public long getSweepIntervalMillis() {
+        return sweepIntervalMillis;
+    }
+
+    public void setSweepIntervalMillis(long sweepIntervalMillis) {
+        this.sweepIntervalMillis = sweepIntervalMillis;
+    }
+
+    public int getSweepBatchSize() {
+        return sweepBatchSize;
+    }
+
+    public void setSweepBatchSize(int sweepBatchSize) {
+        this.sweepBatchSize = sweepBatchSize;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mok.baseframe.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存预热属性配置
+ * 绑定 application-order.yml 中以 order.warm-up 开头的属性
+ */
+@Component
+@ConfigurationProperties(prefix = "order.warm-up")
+public class StockWarmUpProperties {
+
+    /**
+     * 启动时是否自动预热（只写入Redis中不存在的库存，不覆盖运行中其他节点的库存）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每批流水线写入的条数
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 每预热多少条输出一次进度日志
+     */
+    private int progressInterval = 100000;
+
+    /**
+     * 商品库存在Redis中的过期时间（秒）
+     */
+    private long productStockTtlSeconds = 604800;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(int progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    public long getProductStockTtlSeconds() {
+        return productStockTtlSeconds;
+    }
+
+    public void setProductStockTtlSeconds(long productStockTtlSeconds) {
+        this.productStockTtlSeconds = productStockTtlSeconds;
+    }
+}
@@ -154,8 +154,8 @@ public class CouponController {
     @PostMapping("/clean/expired")
     @PreAuthorize("@permissionChecker.hasPermission('order:coupon:clean')")
     public R<String> cleanExpiredCoupons() {
-        couponService.cleanExpiredCoupons();
-        return R.ok("清理过期优惠券成功");
+        int count = couponService.cleanExpiredCoupons();
+        return R.ok("清理过期优惠券成功，共清理" + count + "个");
     }
 
     /**
@@ -4,11 +4,15 @@ import com.mok.baseframe.common.R;
 import com.mok.baseframe.common.annotation.OperationLog;
 import com.mok.baseframe.common.enums.BusinessType;
 import com.mok.baseframe.order.service.SeckillService;
+import com.mok.baseframe.order.service.SeckillWaitingRoomService;
 import com.mok.baseframe.security.utils.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
 
 @RestController
 @RequestMapping("/seckill")
@@ -16,11 +20,14 @@ import org.springframework.web.bind.annotation.*;
 public class SeckillController {
 
     private final SeckillService seckillService;
+    private final SeckillWaitingRoomService seckillWaitingRoomService;
     private final SecurityUtils securityUtils;
 
     public SeckillController(SeckillService seckillService,
+                             SeckillWaitingRoomService seckillWaitingRoomService,
                              SecurityUtils securityUtils) {
         this.seckillService = seckillService;
+        this.seckillWaitingRoomService = seckillWaitingRoomService;
         this.securityUtils = securityUtils;
     }
 
@@ -47,6 +54,41 @@ public class SeckillController {
         return seckillService.seckillOrder(userId, productId, quantity);
     }
 
+    /**
+     * 加入秒杀等待室
+     */
+    @Operation(summary = "加入秒杀等待室")
+    @PreAuthorize("@permissionChecker.hasPermission('order:seckill:order')")
+    @PostMapping("/queue/join")
+    public R<Map<String, Object>> joinQueue(@RequestParam("productId") String productId) {
+        String userId = securityUtils.getCurrentUserId();
+        return seckillWaitingRoomService.joinQueue(userId, productId);
+    }
+
+    /**
+     * 查询秒杀等待室排队状态
+     */
+    @Operation(summary = "查询秒杀排队状态")
+    @PreAuthorize("@permissionChecker.hasPermission('order:seckill:order')")
+    @GetMapping("/queue/status")
+    public R<Map<String, Object>> getQueueStatus(@RequestParam("productId") String productId) {
+        String userId = securityUtils.getCurrentUserId();
+        return seckillWaitingRoomService.getQueueStatus(userId, productId);
+    }
+
+    /**
+     * 查询异步秒杀结果
+     */
+    @Operation(summary = "查询秒杀结果")
+    @PreAuthorize("@permissionChecker.hasPermission('order:seckill:order')")
+    @GetMapping("/result")
+    public DeferredResult<R<Map<String, Object>>> getSeckillResult(@RequestParam("productId") String productId,
+                                                                   @RequestParam("ticket") String ticket,
+                                                                   @RequestParam(name = "waitMillis", required = false) Long waitMillis) {
+        String userId = securityUtils.getCurrentUserId();
+        return seckillService.getSeckillResult(userId, productId, ticket, waitMillis);
+    }
+
     /**
      * 获取秒杀验证码
      */
@@ -59,6 +101,16 @@ public class SeckillController {
         return seckillService.getSeckillVerifyCode(userId, productId);
     }
 
+    /**
+     * 查询秒杀剩余库存
+     */
+    @Operation(summary = "查询秒杀剩余库存")
+    @PreAuthorize("@permissionChecker.hasPermission('order:product:query')")
+    @GetMapping("/stock/{productId}")
+    public R<Integer> getSeckillRemainingStock(@PathVariable("productId") String productId) {
+        return seckillService.getSeckillRemainingStock(productId);
+    }
+
     /**
      * 初始化秒杀库存（管理员操作）
      */
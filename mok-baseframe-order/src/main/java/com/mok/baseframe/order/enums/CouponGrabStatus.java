@@ -0,0 +1,70 @@
+package com.mok.baseframe.order.enums;
+
+/**
+ * 抢券结果枚举
+ * code 与抢券 Lua 脚本的返回值一一对应
+ */
+public enum CouponGrabStatus {
+
+    /**
+     * 抢券成功
+     */
+    SUCCESS(1, "抢券成功"),
+
+    /**
+     * 优惠券已抢完
+     */
+    SOLD_OUT(0, "优惠券已抢完"),
+
+    /**
+     * 不在优惠券有效期内
+     */
+    NOT_IN_TIME(-1, "不在优惠券有效期内"),
+
+    /**
+     * 超过用户限领数量
+     */
+    EXCEED_USER_LIMIT(-2, "已达到领取上限"),
+
+    /**
+     * 抢券信息未加载到Redis
+     */
+    NOT_PRELOADED(-3, "优惠券未就绪，请稍后再试"),
+
+    /**
+     * 优惠券已失效
+     */
+    INVALID(-4, "优惠券不存在或已失效");
+
+    private final int code;
+    private final String message;
+
+    CouponGrabStatus(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 根据Lua脚本返回值获取对应的枚举
+     * @param code 脚本返回值
+     * @return 对应的枚举，未知返回值按未就绪处理
+     */
+    public static CouponGrabStatus of(Long code) {
+        if (code != null) {
+            for (CouponGrabStatus status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+        }
+        return NOT_PRELOADED;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mok.baseframe.order.enums;
+
+/**
+ * 秒杀库存预占结果枚举
+ * code 与预占 Lua 脚本的返回值一一对应
+ */
+public enum SeckillReserveStatus {
+
+    /**
+     * 预占成功
+     */
+    SUCCESS(1, "秒杀成功"),
+
+    /**
+     * 库存已售罄
+     */
+    SOLD_OUT(0, "秒杀商品已售罄"),
+
+    /**
+     * 不在秒杀时间内
+     */
+    NOT_IN_TIME(-1, "不在秒杀时间内"),
+
+    /**
+     * 超过用户限购数量
+     */
+    EXCEED_USER_LIMIT(-2, "已达到限购数量"),
+
+    /**
+     * 秒杀信息未加载到Redis
+     */
+    NOT_PRELOADED(-3, "秒杀商品未就绪，请稍后再试"),
+
+    /**
+     * 剩余库存不足本次购买数量
+     */
+    STOCK_NOT_ENOUGH(-4, "秒杀商品剩余库存不足"),
+
+    /**
+     * 购买记录布隆过滤器命中，需要精确确认是否已购买（仅内部使用）
+     */
+    SUSPECTED_DUPLICATE(-5, "已达到限购数量");
+
+    private final int code;
+    private final String message;
+
+    SeckillReserveStatus(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 根据Lua脚本返回值获取对应的枚举
+     * @param code 脚本返回值
+     * @return 对应的枚举，未知返回值按未就绪处理
+     */
+    public static SeckillReserveStatus of(Long code) {
+        if (code != null) {
+            for (SeckillReserveStatus status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+        }
+        return NOT_PRELOADED;
+    }
+}
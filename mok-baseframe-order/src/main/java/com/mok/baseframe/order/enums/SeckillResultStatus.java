@@ -0,0 +1,38 @@
+package com.mok.baseframe.order.enums;
+
+/**
+ * 异步秒杀结果状态枚举
+ */
+public enum SeckillResultStatus {
+
+    /**
+     * 排队中（库存已预占，订单尚未落库）
+     */
+    QUEUING(0, "排队中"),
+
+    /**
+     * 秒杀成功（订单已落库）
+     */
+    SUCCESS(1, "秒杀成功"),
+
+    /**
+     * 秒杀失败（订单创建失败，预占库存已归还）
+     */
+    FAILED(-1, "秒杀失败");
+
+    private final int code;
+    private final String message;
+
+    SeckillResultStatus(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,38 @@
+package com.mok.baseframe.order.enums;
+
+/**
+ * 秒杀等待室排队状态枚举
+ */
+public enum SeckillWaitingStatus {
+
+    /**
+     * 排队中
+     */
+    WAITING(0, "排队中"),
+
+    /**
+     * 已放行（可以下单）
+     */
+    ADMITTED(1, "已放行，请尽快下单"),
+
+    /**
+     * 未排队或下单资格已过期
+     */
+    NOT_IN_QUEUE(-1, "未排队或下单资格已过期");
+
+    private final int code;
+    private final String message;
+
+    SeckillWaitingStatus(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
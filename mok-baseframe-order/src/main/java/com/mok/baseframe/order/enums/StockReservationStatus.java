@@ -0,0 +1,70 @@
+package com.mok.baseframe.order.enums;
+
+/**
+ * 普通订单库存预占处理结果枚举
+ * code 与预占记录 Lua 脚本的返回值一一对应
+ */
+public enum StockReservationStatus {
+
+    /**
+     * 库存不足
+     */
+    STOCK_NOT_ENOUGH(0, "库存不足"),
+
+    /**
+     * 预占已释放，库存已归还
+     */
+    RELEASED(1, "预占已释放"),
+
+    /**
+     * 预占已转为售出
+     */
+    CONVERTED(2, "预占已转为售出"),
+
+    /**
+     * 预占已到期被释放，支付时重新从可用库存扣减成功
+     */
+    REDEDUCTED(3, "库存已重新扣减"),
+
+    /**
+     * 预占已到期被释放（库存已归还，无需再次归还）
+     */
+    EXPIRED(4, "预占已到期释放"),
+
+    /**
+     * 没有预占记录（非预占下单的订单或上线前创建的订单）
+     */
+    NOT_FOUND(-1, "预占记录不存在");
+
+    private final int code;
+    private final String message;
+
+    StockReservationStatus(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 根据Lua脚本返回值获取对应的枚举
+     * @param code 脚本返回值
+     * @return 对应的枚举，未知返回值按预占记录不存在处理
+     */
+    public static StockReservationStatus of(Long code) {
+        if (code != null) {
+            for (StockReservationStatus status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+        }
+        return NOT_FOUND;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.mok.baseframe.order.mq.consumer;
+
+import com.mok.baseframe.common.BusinessException;
+import com.mok.baseframe.dto.CouponGrabMessage;
+import com.mok.baseframe.order.config.CouponProperties;
+import com.mok.baseframe.order.service.CouponService;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class CouponGrabConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponGrabConsumer.class);
+    // 抢券队列
+    private static final String COUPON_GRAB_QUEUE = "coupon.grab.queue";
+    // 抢券死信交换机
+    private static final String COUPON_GRAB_DLX_EXCHANGE = "coupon.grab.dlx.exchange";
+    // 抢券死信路由键
+    private static final String COUPON_GRAB_DLX_ROUTING_KEY = "coupon.grab.dlx";
+
+    private final CouponService couponService;
+    private final CouponProperties couponProperties;
+    private final RabbitTemplate rabbitTemplate;
+    private final Jackson2JsonMessageConverter jsonMessageConverter;
+
+    public CouponGrabConsumer(CouponService couponService,
+                              CouponProperties couponProperties,
+                              RabbitTemplate rabbitTemplate,
+                              Jackson2JsonMessageConverter jsonMessageConverter) {
+        this.couponService = couponService;
+        this.couponProperties = couponProperties;
+        this.rabbitTemplate = rabbitTemplate;
+        this.jsonMessageConverter = jsonMessageConverter;
+    }
+
+    /**
+     * 批量监听抢券队列
+     * 一批消息在一个事务内批量落库，批量失败时逐条重试：
+     * 1.业务上确定无法写入（库存不足、优惠券不存在、数据冲突）时撤销抢券（归还Redis库存和领取数量）
+     * 2.数据库暂时不可用等其他异常拒绝消息，进入重试队列稍后重新消费，超过重试次数转入死信队列
+     * 3.无法解析的消息直接转入死信队列
+     */
+    @RabbitListener(queues = COUPON_GRAB_QUEUE, containerFactory = "couponGrabBatchContainerFactory")
+    public void handleCouponGrabs(List<Message> mqMessages, Channel channel) throws IOException {
+        if (mqMessages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = mqMessages.get(mqMessages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        // 1. 逐条解析，解析失败的消息转入死信队列
+        List<Message> parsedMessages = new ArrayList<>(mqMessages.size());
+        List<CouponGrabMessage> messages = new ArrayList<>(mqMessages.size());
+        List<Long> retryTags = new ArrayList<>();
+        for (Message mqMessage : mqMessages) {
+            try {
+                messages.add((CouponGrabMessage) jsonMessageConverter.fromMessage(mqMessage));
+                parsedMessages.add(mqMessage);
+            } catch (Exception e) {
+                logger.error("解析抢券消息失败，转入死信队列，异常：{}", e.getMessage(), e);
+                if (!deadLetter(mqMessage)) {
+                    retryTags.add(mqMessage.getMessageProperties().getDeliveryTag());
+                }
+            }
+        }
+
+        // 2. 整批写入，失败时逐条写入
+        if (!messages.isEmpty()) {
+            try {
+                couponService.saveGrabbedCoupons(messages);
+                logger.info("批量写入用户优惠券完成，消息数：{}", messages.size());
+            } catch (Exception e) {
+                logger.error("批量写入用户优惠券失败，逐条重试，批次大小：{}，异常：{}",
+                        messages.size(), e.getMessage(), e);
+                for (int i = 0; i < messages.size(); i++) {
+                    if (!saveOne(messages.get(i), parsedMessages.get(i))) {
+                        retryTags.add(parsedMessages.get(i).getMessageProperties().getDeliveryTag());
+                    }
+                }
+            }
+        }
+
+        // 3. 没有需要重试的消息时整批确认，否则逐条确认或拒绝
+        if (retryTags.isEmpty()) {
+            channel.basicAck(lastDeliveryTag, true);
+            return;
+        }
+        for (Message mqMessage : mqMessages) {
+            long deliveryTag = mqMessage.getMessageProperties().getDeliveryTag();
+            if (retryTags.contains(deliveryTag)) {
+                channel.basicNack(deliveryTag, false, false);
+            } else {
+                channel.basicAck(deliveryTag, false);
+            }
+        }
+    }
+
+    /**
+     * 单条写入用户优惠券
+     *
+     * @return false-暂时写入失败，需要拒绝消息进入重试队列
+     */
+    private boolean saveOne(CouponGrabMessage message, Message mqMessage) {
+        try {
+            couponService.saveGrabbedCoupons(Collections.singletonList(message));
+            return true;
+        } catch (BusinessException | DataIntegrityViolationException e) {
+            couponService.revokeGrab(message);
+            logger.error("写入用户优惠券失败，已撤销抢券，优惠券ID：{}，用户ID：{}，优惠券码：{}，异常：{}",
+                    message.getCouponId(), message.getUserId(), message.getCouponCode(), e.getMessage(), e);
+            return true;
+        } catch (Exception e) {
+            long retries = getRetryCount(mqMessage);
+            if (retries < couponProperties.getGrabMaxRetries()) {
+                logger.warn("写入用户优惠券暂时失败，稍后重试，优惠券ID：{}，用户ID：{}，已重试：{}，异常：{}",
+                        message.getCouponId(), message.getUserId(), retries, e.getMessage());
+                return false;
+            }
+            logger.error("写入用户优惠券超过重试次数，转入死信队列，优惠券ID：{}，用户ID：{}，优惠券码：{}，异常：{}",
+                    message.getCouponId(), message.getUserId(), message.getCouponCode(), e.getMessage(), e);
+            return deadLetter(mqMessage);
+        }
+    }
+
+    /**
+     * 原样转发到死信队列
+     *
+     * @return false-转发失败
+     */
+    private boolean deadLetter(Message mqMessage) {
+        try {
+            rabbitTemplate.send(COUPON_GRAB_DLX_EXCHANGE, COUPON_GRAB_DLX_ROUTING_KEY, mqMessage);
+            return true;
+        } catch (Exception e) {
+            logger.error("抢券消息转入死信队列失败：{}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 消息被抢券队列拒绝（进入重试队列）的次数
+     */
+    private long getRetryCount(Message mqMessage) {
+        List<Map<String, ?>> xDeath = mqMessage.getMessageProperties().getXDeathHeader();
+        if (xDeath == null) {
+            return 0;
+        }
+        for (Map<String, ?> death : xDeath) {
+            if (COUPON_GRAB_QUEUE.equals(String.valueOf(death.get("queue")))
+                    && "rejected".equals(String.valueOf(death.get("reason")))) {
+                Object count = death.get("count");
+                return count instanceof Number ? ((Number) count).longValue() : 0;
+            }
+        }
+        return 0;
+    }
+}
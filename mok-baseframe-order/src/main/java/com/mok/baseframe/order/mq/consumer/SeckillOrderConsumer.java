@@ -0,0 +1,153 @@
+package com.mok.baseframe.order.mq.consumer;
+
+import com.mok.baseframe.dao.OrderInfoMapper;
+import com.mok.baseframe.dto.SeckillOrderMessage;
+import com.mok.baseframe.entity.OrderInfoEntity;
+import com.mok.baseframe.order.enums.SeckillResultStatus;
+import com.mok.baseframe.order.service.OrderService;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.service.SeckillService;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class SeckillOrderConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillOrderConsumer.class);
+
+    private final OrderService orderService;
+    private final SeckillService seckillService;
+    private final SeckillReservationService seckillReservationService;
+    private final OrderInfoMapper orderInfoMapper;
+    private final Jackson2JsonMessageConverter jsonMessageConverter;
+
+    public SeckillOrderConsumer(OrderService orderService,
+                                SeckillService seckillService,
+                                SeckillReservationService seckillReservationService,
+                                OrderInfoMapper orderInfoMapper,
+                                Jackson2JsonMessageConverter jsonMessageConverter) {
+        this.orderService = orderService;
+        this.seckillService = seckillService;
+        this.seckillReservationService = seckillReservationService;
+        this.orderInfoMapper = orderInfoMapper;
+        this.jsonMessageConverter = jsonMessageConverter;
+    }
+
+    /**
+     * 批量监听秒杀下单队列
+     * 一批消息在一个事务内批量落库，批量失败时逐条重试，单条失败则释放预占并记录失败结果；
+     * 订单ID使用排队凭证，重复投递的消息主键冲突，按已落库的订单处理
+     */
+    @RabbitListener(queues = "seckill.order.queue", containerFactory = "seckillBatchContainerFactory")
+    public void handleSeckillOrders(List<Message> mqMessages, Channel channel) throws IOException {
+        if (mqMessages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = mqMessages.get(mqMessages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        // 1. 反序列化并过滤已处理的消息（预占记录已确认或已释放说明是重复投递）
+        List<SeckillOrderMessage> messages = new ArrayList<>(mqMessages.size());
+        for (Message mqMessage : mqMessages) {
+            SeckillOrderMessage message;
+            try {
+                message = (SeckillOrderMessage) jsonMessageConverter.fromMessage(mqMessage);
+            } catch (Exception e) {
+                // 无法解析的消息没有凭证，无法释放预占，预占记录到期后由库存对账修正
+                logger.error("解析秒杀下单消息失败，跳过，异常：{}", e.getMessage(), e);
+                continue;
+            }
+            try {
+                if (seckillReservationService.isPending(message.getProductId(), message.getUserId(),
+                        message.getTicket())) {
+                    messages.add(message);
+                } else {
+                    logger.warn("秒杀下单消息已处理，跳过，凭证：{}", message.getTicket());
+                }
+            } catch (Exception e) {
+                // 无法判断是否已处理时按未处理落库，重复的订单由主键冲突拦截
+                logger.warn("查询秒杀预占记录失败，按未处理落库，凭证：{}，异常：{}", message.getTicket(), e.getMessage());
+                messages.add(message);
+            }
+        }
+
+        logger.info("收到秒杀下单消息{}条，待处理{}条", mqMessages.size(), messages.size());
+
+        // 2. 批量落库，失败时逐条处理
+        if (!messages.isEmpty()) {
+            Map<String, String> orderNos = null;
+            try {
+                orderNos = orderService.createSeckillOrders(messages);
+            } catch (Exception e) {
+                logger.error("批量创建秒杀订单失败，逐条重试，批次大小：{}，异常：{}",
+                        messages.size(), e.getMessage(), e);
+            }
+            for (SeckillOrderMessage message : messages) {
+                if (orderNos != null) {
+                    onSuccess(message, orderNos.get(message.getTicket()));
+                } else {
+                    createOne(message);
+                }
+            }
+        }
+
+        // 3. 整批确认
+        channel.basicAck(lastDeliveryTag, true);
+    }
+
+    /**
+     * 单条创建秒杀订单，订单已存在（重复投递）时按成功处理
+     */
+    private void createOne(SeckillOrderMessage message) {
+        String orderNo;
+        try {
+            orderNo = orderService.createSeckillOrder(message.getUserId(), message.getProductId(),
+                    message.getQuantity(), message.getTicket());
+        } catch (DuplicateKeyException e) {
+            OrderInfoEntity order = orderInfoMapper.selectById(message.getTicket());
+            orderNo = order != null ? order.getOrderNo() : null;
+            logger.warn("秒杀订单已存在，凭证：{}，订单号：{}", message.getTicket(), orderNo);
+        } catch (Exception e) {
+            fail(message, e);
+            return;
+        }
+        onSuccess(message, orderNo);
+    }
+
+    private void onSuccess(SeckillOrderMessage message, String orderNo) {
+        try {
+            seckillReservationService.confirm(message.getProductId(), message.getUserId(), message.getTicket());
+            seckillService.updateSeckillResult(message.getUserId(), message.getProductId(), message.getTicket(),
+                    SeckillResultStatus.SUCCESS, orderNo, SeckillResultStatus.SUCCESS.getMessage());
+        } catch (Exception e) {
+            // 订单已落库，预占记录保留到过期，重复投递时由主键冲突识别
+            logger.error("更新秒杀结果失败，订单已创建，凭证：{}，订单号：{}，异常：{}",
+                    message.getTicket(), orderNo, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 下单失败：释放预占并记录失败结果
+     */
+    private void fail(SeckillOrderMessage message, Exception cause) {
+        try {
+            seckillReservationService.release(message.getProductId(), message.getUserId(), message.getTicket());
+            seckillService.updateSeckillResult(message.getUserId(), message.getProductId(), message.getTicket(),
+                    SeckillResultStatus.FAILED, null, "秒杀失败：" + cause.getMessage());
+        } catch (Exception e) {
+            logger.error("记录秒杀失败结果失败，凭证：{}，异常：{}", message.getTicket(), e.getMessage(), e);
+        }
+        logger.error("创建秒杀订单失败，已释放预占，凭证：{}，用户ID：{}，商品ID：{}，异常：{}",
+                message.getTicket(), message.getUserId(), message.getProductId(), cause.getMessage(), cause);
+    }
+}
@@ -1,44 +1,73 @@
 package com.mok.baseframe.order.mq.consumer;
 
 import cn.hutool.core.util.IdUtil;
-import com.mok.baseframe.dao.InventoryLogMapper;
 import com.mok.baseframe.dao.ProductMapper;
 import com.mok.baseframe.entity.InventoryLogEntity;
 import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.config.InventoryProperties;
+import com.mok.baseframe.order.service.InventoryLogService;
 import com.mok.baseframe.order.util.RedisKeyUtil;
 import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Component
 public class StockUpdateConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(StockUpdateConsumer.class);
+    // 库存更新死信交换机
+    private static final String STOCK_UPDATE_DLX_EXCHANGE = "stock.update.dlx.exchange";
+    // 库存更新死信路由键
+    private static final String STOCK_UPDATE_DLX_ROUTING_KEY = "stock.update.dlx";
 
     private final ProductMapper productMapper;
-    private final InventoryLogMapper inventoryLogMapper;
+    private final InventoryLogService inventoryLogService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final InventoryProperties inventoryProperties;
+    private final Jackson2JsonMessageConverter jsonMessageConverter;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
 
     public StockUpdateConsumer(ProductMapper productMapper,
-                               InventoryLogMapper inventoryLogMapper,
-                               RedisTemplate<String, Object> redisTemplate) {
+                               InventoryLogService inventoryLogService,
+                               RedisTemplate<String, Object> redisTemplate,
+                               InventoryProperties inventoryProperties,
+                               Jackson2JsonMessageConverter jsonMessageConverter,
+                               TransactionTemplate transactionTemplate,
+                               RabbitTemplate rabbitTemplate) {
         this.productMapper = productMapper;
-        this.inventoryLogMapper = inventoryLogMapper;
+        this.inventoryLogService = inventoryLogService;
         this.redisTemplate = redisTemplate;
+        this.inventoryProperties = inventoryProperties;
+        this.jsonMessageConverter = jsonMessageConverter;
+        this.transactionTemplate = transactionTemplate;
+        this.rabbitTemplate = rabbitTemplate;
     }
 
     /**
-     * 监听库存更新队列
+     * 监听库存更新队列（逐条消费，启用批量消费时不启动）
      */
-    @RabbitListener(queues = "stock.update.queue")
+    @RabbitListener(queues = "stock.update.queue",
+            autoStartup = "#{!${order.inventory.batch-enabled:false}}")
     public void handleStockUpdate(Map<String, Object> message, Channel channel, Message mqMessage) throws IOException {
         String messageType = (String) message.get("messageType");
 
@@ -47,6 +76,8 @@ public class StockUpdateConsumer {
                 handleStockWarning(message);
             } else if ("STOCK_SYNC".equals(messageType)) {
                 handleStockSync(message);
+            } else if ("STOCK_BATCH".equals(messageType)) {
+                handleStockBatch(message);
             } else {
                 handleStockChange(message);
             }
@@ -73,6 +104,216 @@ public class StockUpdateConsumer {
         }
     }
 
+    /**
+     * 批量监听库存更新队列（启用批量消费时启动）
+     * 一个窗口内的库存变更按（商品，是否秒杀）合并，每个商品只执行一次原子增量更新，
+     * 库存流水一次批量写入，处理完后整个窗口一次性确认；无法解析或处理失败的消息与逐条消费一样拒绝并转入死信队列
+     */
+    @RabbitListener(queues = "stock.update.queue", containerFactory = "stockBatchContainerFactory",
+            autoStartup = "${order.inventory.batch-enabled:false}")
+    @SuppressWarnings("unchecked")
+    public void handleStockUpdates(List<Message> mqMessages, Channel channel) throws IOException {
+        if (mqMessages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = mqMessages.get(mqMessages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        // 1. 解析消息，预警和同步消息数量少，仍逐条处理；解析或处理失败的消息转入死信队列
+        List<StockChange> changes = new ArrayList<>();
+        Set<Long> failedTags = new HashSet<>();
+        for (Message mqMessage : mqMessages) {
+            long deliveryTag = mqMessage.getMessageProperties().getDeliveryTag();
+            Map<String, Object> message = null;
+            try {
+                message = (Map<String, Object>) jsonMessageConverter.fromMessage(mqMessage);
+                String messageType = (String) message.get("messageType");
+                if ("STOCK_WARNING".equals(messageType)) {
+                    handleStockWarning(message);
+                } else if ("STOCK_SYNC".equals(messageType)) {
+                    handleStockSync(message);
+                } else if ("STOCK_BATCH".equals(messageType)) {
+                    List<Map<String, Object>> items = (List<Map<String, Object>>) message.get("items");
+                    if (items != null) {
+                        for (Map<String, Object> item : items) {
+                            changes.add(StockChange.of(item, deliveryTag, true));
+                        }
+                    }
+                } else {
+                    changes.add(StockChange.of(message, deliveryTag, false));
+                }
+            } catch (Exception e) {
+                logger.error("处理库存更新消息失败，转入死信队列：{}，异常：{}", message, e.getMessage(), e);
+                failedTags.add(deliveryTag);
+                // 已解析出的部分明细不再应用，整条消息进入死信队列
+                changes.removeIf(change -> change.deliveryTag == deliveryTag);
+            }
+        }
+
+        // 2. 整个窗口在一个事务内合并更新
+        try {
+            applyStockChanges(changes);
+        } catch (Exception e) {
+            logger.error("合并处理库存变更失败，逐条重试，窗口大小：{}，异常：{}", changes.size(), e.getMessage(), e);
+            retryOneByOne(mqMessages, changes, failedTags, channel);
+            return;
+        }
+
+        // 3. 没有失败消息时整批确认，否则逐条确认或拒绝
+        if (failedTags.isEmpty()) {
+            channel.basicAck(lastDeliveryTag, true);
+            return;
+        }
+        ackOrReject(mqMessages, failedTags, channel);
+    }
+
+    /**
+     * 合并失败后逐条处理，单条失败的普通库存变更消息转入死信队列；
+     * 批量消息中失败的明细单独转发到死信队列，整条批量消息仍确认，避免已处理的明细重复恢复库存
+     */
+    private void retryOneByOne(List<Message> mqMessages, List<StockChange> changes, Set<Long> failedTags,
+                               Channel channel) throws IOException {
+        for (StockChange change : changes) {
+            try {
+                applyStockChanges(Collections.singletonList(change));
+            } catch (Exception e) {
+                logger.error("库存变更处理失败，商品ID：{}，订单号：{}，异常：{}",
+                        change.productId, change.orderNo, e.getMessage(), e);
+                if (!change.fromBatch) {
+                    failedTags.add(change.deliveryTag);
+                } else {
+                    deadLetter(change.toMessage());
+                }
+            }
+        }
+        ackOrReject(mqMessages, failedTags, channel);
+    }
+
+    /**
+     * 把批量消息中处理失败的单条明细作为普通库存变更消息转发到死信队列
+     */
+    private void deadLetter(Map<String, Object> item) {
+        try {
+            rabbitTemplate.convertAndSend(STOCK_UPDATE_DLX_EXCHANGE, STOCK_UPDATE_DLX_ROUTING_KEY, item);
+            logger.error("批量库存变更明细处理失败，已转入死信队列：{}", item);
+        } catch (Exception e) {
+            logger.error("批量库存变更明细转入死信队列失败，需人工处理：{}，异常：{}", item, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 逐条确认，失败的消息拒绝并转入死信队列
+     */
+    private void ackOrReject(List<Message> mqMessages, Set<Long> failedTags, Channel channel) throws IOException {
+        for (Message mqMessage : mqMessages) {
+            long deliveryTag = mqMessage.getMessageProperties().getDeliveryTag();
+            if (failedTags.contains(deliveryTag)) {
+                channel.basicNack(deliveryTag, false, false);
+            } else {
+                channel.basicAck(deliveryTag, false);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务内应用一批库存变更
+     * 同一（商品，是否秒杀）的增量先合并为一次更新，库存不足导致合并更新失败时再逐条扣减，
+     * 跳过扣不动的变更；最后按更新后的库存倒推每条变更的前后库存并批量写入流水
+     */
+    private void applyStockChanges(List<StockChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Map<String, List<StockChange>> groups = new LinkedHashMap<>();
+        for (StockChange change : changes) {
+            groups.computeIfAbsent(change.productId + ":" + change.seckill, k -> new ArrayList<>()).add(change);
+        }
+
+        Map<String, Integer> afterStocks = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            // 1. 每个商品一次原子增量更新
+            List<List<StockChange>> appliedGroups = new ArrayList<>(groups.size());
+            for (List<StockChange> group : groups.values()) {
+                appliedGroups.add(changeStock(group));
+            }
+
+            // 2. 一次查询更新后的库存（当前事务持有行锁，读到的就是本窗口更新后的值）
+            Set<String> productIds = new LinkedHashSet<>();
+            for (List<StockChange> group : groups.values()) {
+                productIds.add(group.get(0).productId);
+            }
+            Map<String, ProductEntity> products = new HashMap<>();
+            for (ProductEntity product : productMapper.selectByIds(productIds)) {
+                products.put(product.getId(), product);
+            }
+
+            // 3. 倒推每条变更的前后库存，事务提交后批量写入流水
+            List<InventoryLogEntity> inventoryLogs = new ArrayList<>(changes.size());
+            for (List<StockChange> applied : appliedGroups) {
+                if (applied.isEmpty()) {
+                    continue;
+                }
+                StockChange first = applied.get(0);
+                ProductEntity product = products.get(first.productId);
+                if (product == null) {
+                    logger.error("商品不存在，商品ID：{}", first.productId);
+                    continue;
+                }
+                Integer stock = first.seckill ? product.getSeckillStock() : product.getStock();
+                int afterQuantity = stock != null ? stock : 0;
+                afterStocks.put(first.productId + ":" + first.seckill, afterQuantity);
+
+                int quantity = afterQuantity;
+                for (StockChange change : applied) {
+                    quantity -= change.delta();
+                }
+                for (StockChange change : applied) {
+                    int beforeQuantity = quantity;
+                    quantity += change.delta();
+                    inventoryLogs.add(change.toInventoryLog(beforeQuantity, quantity));
+                }
+            }
+            inventoryLogService.recordAll(inventoryLogs);
+        });
+
+        // 普通库存在下单、取消时已由业务预先增减Redis，这里不再用数据库值回写，避免覆盖并发扣减
+        for (Map.Entry<String, List<StockChange>> entry : groups.entrySet()) {
+            Integer afterQuantity = afterStocks.get(entry.getKey());
+            if (afterQuantity == null) {
+                continue;
+            }
+            StockChange first = entry.getValue().get(0);
+            logger.info("库存合并更新成功，商品ID：{}，变更条数：{}，后库存：{}，是否秒杀：{}",
+                    first.productId, entry.getValue().size(), afterQuantity, first.seckill);
+            checkStockWarning(first.productId, afterQuantity);
+        }
+    }
+
+    /**
+     * 对同一（商品，是否秒杀）的变更执行原子增量更新，返回实际生效的变更
+     */
+    private List<StockChange> changeStock(List<StockChange> group) {
+        StockChange first = group.get(0);
+        int delta = 0;
+        for (StockChange change : group) {
+            delta += change.delta();
+        }
+        if (delta == 0 || productMapper.changeStock(first.productId, delta, first.seckill) > 0) {
+            return group;
+        }
+
+        // 合并后的扣减超过当前库存，逐条扣减，库存不足的变更跳过
+        List<StockChange> applied = new ArrayList<>(group.size());
+        for (StockChange change : group) {
+            if (change.delta() == 0 || productMapper.changeStock(change.productId, change.delta(), change.seckill) > 0) {
+                applied.add(change);
+            } else {
+                logger.warn("{}不足或商品不存在，商品ID：{}，变更数量：{}，订单号：{}",
+                        change.seckill ? "秒杀库存" : "库存", change.productId, change.quantity, change.orderNo);
+            }
+        }
+        return applied;
+    }
+
     /**
      * 处理库存变更消息
      */
@@ -101,8 +342,9 @@ public class StockUpdateConsumer {
             int beforeQuantity = isSeckill ? product.getSeckillStock() : product.getStock();
             int afterQuantity = beforeQuantity;
 
-            // 根据变更类型处理库存
+            // 根据变更类型处理库存；锁定、释放只记录流水，数据库库存不变
             boolean updateSuccess = false;
+            boolean stockChanged = true;
 
             if (changeType == 1) { // 扣减库存
                 if (isSeckill) {
@@ -140,20 +382,21 @@ public class StockUpdateConsumer {
                 // 锁定库存逻辑（这里简化为记录日志）
                 logger.info("锁定库存，商品ID：{}，数量：{}", productId, changeQuantity);
                 updateSuccess = true;
+                stockChanged = false;
 
             } else if (changeType == 4) { // 释放库存
                 // 释放库存逻辑（这里简化为记录日志）
                 logger.info("释放库存，商品ID：{}，数量：{}", productId, changeQuantity);
                 updateSuccess = true;
+                stockChanged = false;
             }
 
             if (updateSuccess) {
-                // 更新商品库存
-                int updateResult = productMapper.update(product);
+                // 更新商品库存（锁定、释放不改数据库）
+                // Redis库存不回写：普通库存在下单、预占、取消时已由业务预先增减，数据库库存不含未支付的预占，
+                // 用数据库值覆盖会抹掉所有进行中的预占扣减；秒杀库存以Redis为准
+                int updateResult = stockChanged ? productMapper.update(product) : 1;
                 if (updateResult > 0) {
-                    // 更新Redis缓存
-                    updateRedisStock(productId, isSeckill, afterQuantity);
-
                     // 记录库存流水
                     InventoryLogEntity inventoryLog = new InventoryLogEntity();
                     inventoryLog.setId(IdUtil.simpleUUID());
@@ -166,7 +409,7 @@ public class StockUpdateConsumer {
                     inventoryLog.setAfterQuantity(afterQuantity);
                     inventoryLog.setRemark(isSeckill ? "秒杀库存变更" : "普通库存变更");
 
-                    inventoryLogMapper.insert(inventoryLog);
+                    inventoryLogService.record(inventoryLog);
 
                     logger.info("库存更新成功，商品ID：{}，变更类型：{}，数量：{}，前库存：{}，后库存：{}，是否秒杀：{}",
                             productId, changeType, changeQuantity, beforeQuantity, afterQuantity, isSeckill);
@@ -184,6 +427,25 @@ public class StockUpdateConsumer {
         }
     }
 
+    /**
+     * 处理批量库存变更消息，逐条按单条库存变更处理
+     * 单条明细失败时单独转发到死信队列，不重投整批消息，避免已处理的明细重复恢复库存
+     */
+    @SuppressWarnings("unchecked")
+    private void handleStockBatch(Map<String, Object> message) {
+        List<Map<String, Object>> items = (List<Map<String, Object>>) message.get("items");
+        if (items == null) {
+            return;
+        }
+        for (Map<String, Object> item : items) {
+            try {
+                handleStockChange(item);
+            } catch (Exception e) {
+                deadLetter(item);
+            }
+        }
+    }
+
     /**
      * 处理库存预警消息
      */
@@ -234,7 +496,7 @@ public class StockUpdateConsumer {
                 inventoryLog.setAfterQuantity(dbStock);
                 inventoryLog.setRemark("Redis与数据库库存不一致，进行同步");
 
-                inventoryLogMapper.insert(inventoryLog);
+                inventoryLogService.record(inventoryLog);
             }
 
         } catch (Exception e) {
@@ -277,8 +539,7 @@ public class StockUpdateConsumer {
      */
     private void checkStockWarning(String productId, Integer currentStock) {
         try {
-            // 预警阈值（可以从配置读取，这里硬编码为10）
-            int warningThreshold = 10;
+            int warningThreshold = inventoryProperties.getWarningThreshold();
 
             if (currentStock <= warningThreshold) {
                 logger.warn("商品库存低于预警阈值，商品ID：{}，当前库存：{}，预警阈值：{}",
@@ -329,8 +590,10 @@ public class StockUpdateConsumer {
 
     /**
      * 监听库存更新死信队列
+     * 批量消息按明细逐条补偿，预警、同步消息只记录日志
      */
     @RabbitListener(queues = "stock.update.dlx.queue")
+    @SuppressWarnings("unchecked")
     public void handleStockUpdateDlxQueue(Map<String, Object> message, Channel channel, Message mqMessage) throws IOException {
         try {
             logger.error("收到库存更新死信队列消息：{}", message);
@@ -339,16 +602,16 @@ public class StockUpdateConsumer {
             // 1. 记录错误日志
             // 2. 发送告警通知
             // 3. 尝试恢复或补偿
-
-            String productId = message.get("productId").toString();
-            Integer changeType = Integer.valueOf(message.get("changeType").toString());
-            Integer changeQuantity = Integer.valueOf(message.get("quantity").toString());
-
-            // 如果是扣减库存失败，尝试恢复Redis库存
-            if (changeType == 1) {
-                String stockKey = RedisKeyUtil.getProductStockKey(productId);
-                redisTemplate.opsForValue().increment(stockKey, changeQuantity);
-                logger.info("死信队列：恢复Redis库存，商品ID：{}，数量：{}", productId, changeQuantity);
+            String messageType = (String) message.get("messageType");
+            if ("STOCK_BATCH".equals(messageType)) {
+                List<Map<String, Object>> items = (List<Map<String, Object>>) message.get("items");
+                if (items != null) {
+                    for (Map<String, Object> item : items) {
+                        compensateStockChange(item);
+                    }
+                }
+            } else if (!"STOCK_WARNING".equals(messageType) && !"STOCK_SYNC".equals(messageType)) {
+                compensateStockChange(message);
             }
 
             channel.basicAck(mqMessage.getMessageProperties().getDeliveryTag(), false);
@@ -357,4 +620,100 @@ public class StockUpdateConsumer {
             channel.basicNack(mqMessage.getMessageProperties().getDeliveryTag(), false, false);
         }
     }
+
+    /**
+     * 补偿一条进入死信队列的库存变更：扣减库存失败时按是否秒杀恢复对应的Redis库存，其他变更只记录日志
+     */
+    private void compensateStockChange(Map<String, Object> message) {
+        if (message.get("productId") == null || message.get("changeType") == null || message.get("quantity") == null) {
+            logger.error("死信队列：库存变更消息缺少必要字段，需人工处理：{}", message);
+            return;
+        }
+        String productId = message.get("productId").toString();
+        int changeType = Integer.parseInt(message.get("changeType").toString());
+        int changeQuantity = Integer.parseInt(message.get("quantity").toString());
+        boolean isSeckill = Boolean.TRUE.equals(message.get("isSeckill"));
+
+        // 如果是扣减库存失败，尝试恢复Redis库存
+        if (changeType == 1) {
+            String stockKey = isSeckill
+                    ? RedisKeyUtil.getSeckillStockKey(productId)
+                    : RedisKeyUtil.getProductStockKey(productId);
+            redisTemplate.opsForValue().increment(stockKey, changeQuantity);
+            logger.info("死信队列：恢复Redis{}，商品ID：{}，数量：{}",
+                    isSeckill ? "秒杀库存" : "库存", productId, changeQuantity);
+        } else {
+            logger.error("死信队列：库存变更未写入数据库，需人工处理，商品ID：{}，变更类型：{}，数量：{}，订单号：{}",
+                    productId, changeType, changeQuantity, message.get("orderNo"));
+        }
+    }
+
+    /**
+     * 批量消费中的单条库存变更
+     */
+    private static class StockChange {
+        private long deliveryTag;
+        private boolean fromBatch;
+        private String productId;
+        private int quantity;
+        private int changeType;
+        private String orderId;
+        private String orderNo;
+        private boolean seckill;
+
+        static StockChange of(Map<String, Object> message, long deliveryTag, boolean fromBatch) {
+            StockChange change = new StockChange();
+            change.deliveryTag = deliveryTag;
+            change.fromBatch = fromBatch;
+            change.productId = String.valueOf(message.get("productId"));
+            change.quantity = Integer.parseInt(message.get("quantity").toString());
+            change.changeType = Integer.parseInt(message.get("changeType").toString());
+            change.orderId = message.get("orderId") != null ? message.get("orderId").toString() : null;
+            change.orderNo = (String) message.get("orderNo");
+            change.seckill = Boolean.TRUE.equals(message.get("isSeckill"));
+            return change;
+        }
+
+        /**
+         * 还原为单条库存变更消息，用于转发到死信队列
+         */
+        Map<String, Object> toMessage() {
+            Map<String, Object> message = new HashMap<>();
+            message.put("productId", productId);
+            message.put("quantity", quantity);
+            message.put("changeType", changeType);
+            message.put("orderId", orderId);
+            message.put("orderNo", orderNo);
+            message.put("isSeckill", seckill);
+            message.put("timestamp", System.currentTimeMillis());
+            return message;
+        }
+
+        /**
+         * 库存增量，1扣减为负，2恢复为正，3锁定、4释放只记录流水
+         */
+        int delta() {
+            if (changeType == 1) {
+                return -quantity;
+            }
+            if (changeType == 2) {
+                return quantity;
+            }
+            return 0;
+        }
+
+        InventoryLogEntity toInventoryLog(int beforeQuantity, int afterQuantity) {
+            InventoryLogEntity inventoryLog = new InventoryLogEntity();
+            inventoryLog.setId(IdUtil.simpleUUID());
+            inventoryLog.setProductId(productId);
+            inventoryLog.setOrderId(orderId);
+            inventoryLog.setOrderNo(orderNo);
+            inventoryLog.setChangeType(changeType);
+            inventoryLog.setChangeQuantity(quantity);
+            inventoryLog.setBeforeQuantity(beforeQuantity);
+            inventoryLog.setAfterQuantity(afterQuantity);
+            inventoryLog.setRemark(seckill ? "秒杀库存变更" : "普通库存变更");
+            return inventoryLog;
+        }
+    }
 }
\ No newline at end of file
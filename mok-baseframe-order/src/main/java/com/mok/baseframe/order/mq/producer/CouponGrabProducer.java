@@ -0,0 +1,71 @@
+package com.mok.baseframe.order.mq.producer;
+
+import com.mok.baseframe.dto.CouponGrabMessage;
+import com.mok.baseframe.order.config.CouponProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class CouponGrabProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponGrabProducer.class);
+    // 抢券交换机
+    private static final String COUPON_GRAB_EXCHANGE = "coupon.grab.exchange";
+    // 抢券路由键
+    private static final String COUPON_GRAB_ROUTING_KEY = "coupon.grab";
+    private final RabbitTemplate rabbitTemplate;
+    private final CouponProperties couponProperties;
+
+    public CouponGrabProducer(RabbitTemplate rabbitTemplate, CouponProperties couponProperties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.couponProperties = couponProperties;
+    }
+
+    /**
+     * 发送抢券消息，等待发布确认后返回
+     * Redis中的库存已经扣减，消息必须确认进入队列才算抢券成功，否则由调用方撤销抢券
+     *
+     * @param message 抢券消息
+     */
+    public void sendCouponGrabMessage(CouponGrabMessage message) {
+        CorrelationData correlationData = new CorrelationData(message.getUserCouponId());
+        try {
+            rabbitTemplate.convertAndSend(
+                    COUPON_GRAB_EXCHANGE,
+                    COUPON_GRAB_ROUTING_KEY,
+                    message,
+                    correlationData
+            );
+        } catch (Exception e) {
+            logger.error("发送抢券消息失败，优惠券ID：{}，用户ID：{}，异常：{}",
+                    message.getCouponId(), message.getUserId(), e.getMessage(), e);
+            throw new RuntimeException("发送抢券消息失败", e);
+        }
+
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlationData.getFuture().get(couponProperties.getGrabConfirmTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待抢券消息确认被中断", e);
+        } catch (Exception e) {
+            logger.error("等待抢券消息确认超时，优惠券ID：{}，用户ID：{}，优惠券码：{}",
+                    message.getCouponId(), message.getUserId(), message.getCouponCode());
+            throw new RuntimeException("等待抢券消息确认超时", e);
+        }
+        // 无法路由的消息也会被确认，但已被退回
+        if (!confirm.isAck() || correlationData.getReturned() != null) {
+            logger.error("抢券消息未进入队列，优惠券ID：{}，用户ID：{}，原因：{}",
+                    message.getCouponId(), message.getUserId(), confirm.getReason());
+            throw new RuntimeException("抢券消息未进入队列");
+        }
+
+        logger.debug("发送抢券消息成功，优惠券ID：{}，用户ID：{}，优惠券码：{}",
+                message.getCouponId(), message.getUserId(), message.getCouponCode());
+    }
+}
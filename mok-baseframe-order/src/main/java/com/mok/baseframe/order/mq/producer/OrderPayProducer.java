@@ -1,8 +1,8 @@
 package com.mok.baseframe.order.mq.producer;
 
+import com.mok.baseframe.order.service.OrderOutboxService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -11,10 +11,10 @@ public class OrderPayProducer {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderPayProducer.class);
     
-    private final RabbitTemplate rabbitTemplate;
+    private final OrderOutboxService orderOutboxService;
 
-    public OrderPayProducer(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public OrderPayProducer(OrderOutboxService orderOutboxService) {
+        this.orderOutboxService = orderOutboxService;
     }
     
     // 订单支付成功交换机
@@ -27,20 +27,11 @@ public class OrderPayProducer {
     private static final String ORDER_PAY_ROUTING_KEY = "order.pay";
     
     /**
-     * 发送订单支付成功消息
+     * 发送订单支付成功消息（写入发件箱，事务提交后由转发任务投递）
      * @param orderNo 订单号
      */
     public void sendOrderPayMessage(String orderNo) {
-        try {
-            rabbitTemplate.convertAndSend(
-                ORDER_PAY_EXCHANGE,
-                ORDER_PAY_ROUTING_KEY,
-                orderNo
-            );
-            
-            logger.info("发送订单支付成功消息成功，订单号：{}", orderNo);
-        } catch (Exception e) {
-            logger.error("发送订单支付成功消息失败，订单号：{}，异常：{}", orderNo, e.getMessage(), e);
-        }
+        orderOutboxService.append(orderNo, ORDER_PAY_EXCHANGE, ORDER_PAY_ROUTING_KEY, orderNo, null, null);
+        logger.info("写入订单支付成功消息成功，订单号：{}", orderNo);
     }
 }
\ No newline at end of file
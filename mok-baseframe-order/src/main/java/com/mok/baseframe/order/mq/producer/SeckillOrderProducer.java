@@ -0,0 +1,43 @@
+package com.mok.baseframe.order.mq.producer;
+
+import com.mok.baseframe.dto.SeckillOrderMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SeckillOrderProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillOrderProducer.class);
+    // 秒杀下单交换机
+    private static final String SECKILL_ORDER_EXCHANGE = "seckill.order.exchange";
+    // 秒杀下单路由键
+    private static final String SECKILL_ORDER_ROUTING_KEY = "seckill.order";
+    private final RabbitTemplate rabbitTemplate;
+
+    public SeckillOrderProducer(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    /**
+     * 发送秒杀下单消息
+     *
+     * @param message 秒杀下单消息
+     */
+    public void sendSeckillOrderMessage(SeckillOrderMessage message) {
+        try {
+            rabbitTemplate.convertAndSend(
+                    SECKILL_ORDER_EXCHANGE,
+                    SECKILL_ORDER_ROUTING_KEY,
+                    message
+            );
+
+            logger.info("发送秒杀下单消息成功，凭证：{}，商品ID：{}，用户ID：{}",
+                    message.getTicket(), message.getProductId(), message.getUserId());
+        } catch (Exception e) {
+            logger.error("发送秒杀下单消息失败，凭证：{}，异常：{}", message.getTicket(), e.getMessage(), e);
+            throw new RuntimeException("发送秒杀下单消息失败", e);
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.mok.baseframe.order.mq.producer;
 
+import cn.hutool.core.util.IdUtil;
+import com.mok.baseframe.order.service.OrderOutboxService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.AmqpException;
-import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageDeliveryMode;
-import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -21,6 +19,9 @@ public class StockUpdateProducer {
     @Autowired
     private RabbitTemplate rabbitTemplate;
     
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+    
     // 库存更新交换机
     private static final String STOCK_UPDATE_EXCHANGE = "stock.update.exchange";
     // 库存更新队列
@@ -33,9 +34,13 @@ public class StockUpdateProducer {
     private static final String STOCK_UPDATE_DLX_QUEUE = "stock.update.dlx.queue";
     // 库存更新死信路由键
     private static final String STOCK_UPDATE_DLX_ROUTING_KEY = "stock.update.dlx";
+    // 库存扣减、恢复消息过期时间（30分钟）
+    private static final long STOCK_MESSAGE_EXPIRATION = 1800000L;
+    // 批量库存恢复消息的发件箱聚合标识前缀，每批消息单独成为一个聚合，互不阻塞
+    private static final String STOCK_BATCH_AGGREGATE_PREFIX = "STOCK_BATCH:";
     
     /**
-     * 发送库存扣减消息
+     * 发送库存扣减消息（写入发件箱，事务提交后由转发任务投递）
      * 
      * @param productId 商品ID
      * @param quantity 扣减数量
@@ -43,45 +48,14 @@ public class StockUpdateProducer {
      * @param orderNo 订单号
      */
     public void sendStockReduceMessage(String productId, Integer quantity, String orderId, String orderNo) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("productId", productId);
-            message.put("quantity", quantity);
-            message.put("changeType", 1); // 1表示扣减库存
-            message.put("orderId", orderId);
-            message.put("orderNo", orderNo);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            // 设置消息持久化
-            MessagePostProcessor messagePostProcessor = new MessagePostProcessor() {
-                @Override
-                public Message postProcessMessage(Message message) throws AmqpException {
-                    message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
-                    // 设置消息过期时间（30分钟）
-                    message.getMessageProperties().setExpiration("1800000");
-                    return message;
-                }
-            };
-            
-            rabbitTemplate.convertAndSend(
-                STOCK_UPDATE_EXCHANGE,
-                STOCK_UPDATE_ROUTING_KEY,
-                message,
-                messagePostProcessor
-            );
-            
-            logger.info("发送库存扣减消息成功，商品ID：{}，数量：{}，订单号：{}", 
-                       productId, quantity, orderNo);
-        } catch (Exception e) {
-            logger.error("发送库存扣减消息失败，商品ID：{}，数量：{}，订单号：{}，异常：{}", 
-                       productId, quantity, orderNo, e.getMessage(), e);
-            // 这里可以添加重试逻辑或降级处理
-            throw new RuntimeException("发送库存扣减消息失败", e);
-        }
+        Map<String, Object> message = buildStockMessage(productId, quantity, 1, orderId, orderNo); // 1表示扣减库存
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message,
+                null, STOCK_MESSAGE_EXPIRATION);
+        logger.info("写入库存扣减消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
     }
     
     /**
-     * 发送库存恢复消息
+     * 发送库存恢复消息（写入发件箱，事务提交后由转发任务投递）
      * 
      * @param productId 商品ID
      * @param quantity 恢复数量
@@ -89,44 +63,14 @@ public class StockUpdateProducer {
      * @param orderNo 订单号
      */
     public void sendStockRestoreMessage(String productId, Integer quantity, String orderId, String orderNo) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("productId", productId);
-            message.put("quantity", quantity);
-            message.put("changeType", 2); // 2表示恢复库存
-            message.put("orderId", orderId);
-            message.put("orderNo", orderNo);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            // 设置消息持久化
-            MessagePostProcessor messagePostProcessor = new MessagePostProcessor() {
-                @Override
-                public Message postProcessMessage(Message message) throws AmqpException {
-                    message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
-                    // 设置消息过期时间（30分钟）
-                    message.getMessageProperties().setExpiration("1800000");
-                    return message;
-                }
-            };
-            
-            rabbitTemplate.convertAndSend(
-                STOCK_UPDATE_EXCHANGE,
-                STOCK_UPDATE_ROUTING_KEY,
-                message,
-                messagePostProcessor
-            );
-            
-            logger.info("发送库存恢复消息成功，商品ID：{}，数量：{}，订单号：{}", 
-                       productId, quantity, orderNo);
-        } catch (Exception e) {
-            logger.error("发送库存恢复消息失败，商品ID：{}，数量：{}，订单号：{}，异常：{}", 
-                       productId, quantity, orderNo, e.getMessage(), e);
-            throw new RuntimeException("发送库存恢复消息失败", e);
-        }
+        Map<String, Object> message = buildStockMessage(productId, quantity, 2, orderId, orderNo); // 2表示恢复库存
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message,
+                null, STOCK_MESSAGE_EXPIRATION);
+        logger.info("写入库存恢复消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
     }
     
     /**
-     * 发送库存锁定消息
+     * 发送库存锁定消息（写入发件箱，事务提交后由转发任务投递）
      * 
      * @param productId 商品ID
      * @param quantity 锁定数量
@@ -134,63 +78,27 @@ public class StockUpdateProducer {
      * @param orderNo 订单号
      */
     public void sendStockLockMessage(String productId, Integer quantity, String orderId, String orderNo) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("productId", productId);
-            message.put("quantity", quantity);
-            message.put("changeType", 3); // 3表示锁定库存
-            message.put("orderId", orderId);
-            message.put("orderNo", orderNo);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            rabbitTemplate.convertAndSend(
-                STOCK_UPDATE_EXCHANGE,
-                STOCK_UPDATE_ROUTING_KEY,
-                message
-            );
-            
-            logger.info("发送库存锁定消息成功，商品ID：{}，数量：{}，订单号：{}", 
-                       productId, quantity, orderNo);
-        } catch (Exception e) {
-            logger.error("发送库存锁定消息失败，商品ID：{}，数量：{}，订单号：{}，异常：{}", 
-                       productId, quantity, orderNo, e.getMessage(), e);
-        }
+        Map<String, Object> message = buildStockMessage(productId, quantity, 3, orderId, orderNo); // 3表示锁定库存
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message, null, null);
+        logger.info("写入库存锁定消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
     }
     
     /**
-     * 发送库存释放消息
+     * 发送库存释放消息（预占未支付即释放，数据库库存未扣减，只记录库存流水；写入发件箱，事务提交后由转发任务投递）
      * 
      * @param productId 商品ID
      * @param quantity 释放数量
      * @param orderId 订单ID
      * @param orderNo 订单号
      */
-    public void sendStockReleaseMessage(Long productId, Integer quantity, Long orderId, String orderNo) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("productId", productId);
-            message.put("quantity", quantity);
-            message.put("changeType", 4); // 4表示释放库存
-            message.put("orderId", orderId);
-            message.put("orderNo", orderNo);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            rabbitTemplate.convertAndSend(
-                STOCK_UPDATE_EXCHANGE,
-                STOCK_UPDATE_ROUTING_KEY,
-                message
-            );
-            
-            logger.info("发送库存释放消息成功，商品ID：{}，数量：{}，订单号：{}", 
-                       productId, quantity, orderNo);
-        } catch (Exception e) {
-            logger.error("发送库存释放消息失败，商品ID：{}，数量：{}，订单号：{}，异常：{}", 
-                       productId, quantity, orderNo, e.getMessage(), e);
-        }
+    public void sendStockReleaseMessage(String productId, Integer quantity, String orderId, String orderNo) {
+        Map<String, Object> message = buildStockMessage(productId, quantity, 4, orderId, orderNo); // 4表示释放库存
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message, null, null);
+        logger.info("写入库存释放消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
     }
     
     /**
-     * 发送秒杀库存扣减消息
+     * 发送秒杀库存扣减消息（写入发件箱，事务提交后由转发任务投递）
      * 
      * @param productId 商品ID
      * @param quantity 扣减数量
@@ -198,40 +106,59 @@ public class StockUpdateProducer {
      * @param orderNo 订单号
      */
     public void sendSeckillStockReduceMessage(String productId, Integer quantity, String orderId, String orderNo) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("productId", productId);
-            message.put("quantity", quantity);
-            message.put("changeType", 1); // 1表示扣减库存
-            message.put("orderId", orderId);
-            message.put("orderNo", orderNo);
-            message.put("isSeckill", true); // 标记为秒杀库存
-            message.put("timestamp", System.currentTimeMillis());
-            
-            // 秒杀库存消息设置更高的优先级
-            MessagePostProcessor messagePostProcessor = new MessagePostProcessor() {
-                @Override
-                public Message postProcessMessage(Message message) throws AmqpException {
-                    message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
-                    message.getMessageProperties().setPriority(5); // 设置优先级
-                    return message;
-                }
-            };
-            
-            rabbitTemplate.convertAndSend(
-                STOCK_UPDATE_EXCHANGE,
-                STOCK_UPDATE_ROUTING_KEY,
-                message,
-                messagePostProcessor
-            );
-            
-            logger.info("发送秒杀库存扣减消息成功，商品ID：{}，数量：{}，订单号：{}", 
-                       productId, quantity, orderNo);
-        } catch (Exception e) {
-            logger.error("发送秒杀库存扣减消息失败，商品ID：{}，数量：{}，订单号：{}，异常：{}", 
-                       productId, quantity, orderNo, e.getMessage(), e);
-            throw new RuntimeException("发送秒杀库存扣减消息失败", e);
+        Map<String, Object> message = buildStockMessage(productId, quantity, 1, orderId, orderNo); // 1表示扣减库存
+        message.put("isSeckill", true); // 标记为秒杀库存
+        // 秒杀库存消息设置更高的优先级
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message, 5, null);
+        logger.info("写入秒杀库存扣减消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
+    }
+    
+    /**
+     * 发送秒杀库存恢复消息（秒杀订单取消时使用，写入发件箱，事务提交后由转发任务投递）
+     * 
+     * @param productId 商品ID
+     * @param quantity 恢复数量
+     * @param orderId 订单ID
+     * @param orderNo 订单号
+     */
+    public void sendSeckillStockRestoreMessage(String productId, Integer quantity, String orderId, String orderNo) {
+        Map<String, Object> message = buildStockMessage(productId, quantity, 2, orderId, orderNo); // 2表示恢复库存
+        message.put("isSeckill", true); // 标记为秒杀库存
+        orderOutboxService.append(orderNo, STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message, null, null);
+        logger.info("写入秒杀库存恢复消息成功，商品ID：{}，数量：{}，订单号：{}", productId, quantity, orderNo);
+    }
+    
+    /**
+     * 发送批量库存恢复消息（批量关闭订单、批量释放到期预占时一批合并为一条消息，写入发件箱，事务提交后由转发任务投递）
+     * 
+     * @param items 库存变更明细，字段与单条库存消息相同（productId、quantity、changeType、orderId、orderNo、isSeckill）
+     */
+    public void sendStockRestoreBatchMessage(java.util.List<Map<String, Object>> items) {
+        if (items == null || items.isEmpty()) {
+            return;
         }
+        Map<String, Object> message = new HashMap<>();
+        message.put("messageType", "STOCK_BATCH");
+        message.put("items", items);
+        message.put("timestamp", System.currentTimeMillis());
+        orderOutboxService.append(STOCK_BATCH_AGGREGATE_PREFIX + IdUtil.simpleUUID(), STOCK_UPDATE_EXCHANGE, STOCK_UPDATE_ROUTING_KEY, message,
+                null, null);
+        logger.info("写入批量库存恢复消息成功，明细数：{}", items.size());
+    }
+
+    /**
+     * 构建库存变更消息
+     */
+    private Map<String, Object> buildStockMessage(String productId, Integer quantity, int changeType,
+                                                  String orderId, String orderNo) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("productId", productId);
+        message.put("quantity", quantity);
+        message.put("changeType", changeType);
+        message.put("orderId", orderId);
+        message.put("orderNo", orderNo);
+        message.put("timestamp", System.currentTimeMillis());
+        return message;
     }
     
     /**
@@ -0,0 +1,116 @@
+package com.mok.baseframe.order.pricing;
+
+import com.mok.baseframe.entity.CouponEntity;
+import com.mok.baseframe.entity.UserCouponEntity;
+import com.mok.baseframe.order.cache.CouponCatalogCache;
+import com.mok.baseframe.order.cache.UserCouponWalletCache;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 优惠券计价
+ * 优惠券从本地优惠券目录读取，用户持有的未使用优惠券从钱包缓存读取，在内存中校验规则并计算优惠，
+ * 计价过程不查询数据库
+ */
+@Component
+public class CouponPricer {
+
+    private final CouponCatalogCache couponCatalogCache;
+    private final UserCouponWalletCache userCouponWalletCache;
+
+    public CouponPricer(CouponCatalogCache couponCatalogCache, UserCouponWalletCache userCouponWalletCache) {
+        this.couponCatalogCache = couponCatalogCache;
+        this.userCouponWalletCache = userCouponWalletCache;
+    }
+
+    /**
+     * 计算报价
+     *
+     * @param userId         用户ID
+     * @param originalAmount 原始金额
+     * @param couponIds      请求使用的优惠券ID，不可用的优惠券忽略
+     */
+    public CouponQuote quote(String userId, BigDecimal originalAmount, List<String> couponIds) {
+        List<CouponQuote.Item> items = new ArrayList<>();
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+
+        if (userId != null && couponIds != null && !couponIds.isEmpty()) {
+            List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(couponIds));
+            Date now = new Date();
+
+            Map<String, CouponEntity> coupons = new HashMap<>();
+            for (String couponId : distinctIds) {
+                CouponEntity coupon = couponCatalogCache.getCoupon(couponId);
+                if (coupon != null) {
+                    coupons.put(couponId, coupon);
+                }
+            }
+
+            // 按优惠券分组用户持有的在有效期内的未使用优惠券
+            Map<String, Deque<UserCouponEntity>> usable = new HashMap<>();
+            for (UserCouponEntity userCoupon : userCouponWalletCache.getCoupons(userId)) {
+                if (Integer.valueOf(0).equals(userCoupon.getStatus()) && coupons.containsKey(userCoupon.getCouponId())
+                        && now.after(userCoupon.getStartTime()) && now.before(userCoupon.getEndTime())) {
+                    usable.computeIfAbsent(userCoupon.getCouponId(), k -> new ArrayDeque<>()).add(userCoupon);
+                }
+            }
+
+            // 同一优惠券重复传入时依次使用不同的用户优惠券
+            for (String couponId : couponIds) {
+                CouponEntity coupon = coupons.get(couponId);
+                if (coupon == null || coupon.getStatus() != 1
+                        || now.before(coupon.getStartTime()) || now.after(coupon.getEndTime())) {
+                    continue;
+                }
+                Deque<UserCouponEntity> userCoupons = usable.get(couponId);
+                if (userCoupons == null || userCoupons.isEmpty()) {
+                    continue;
+                }
+                BigDecimal discount = calculateDiscount(coupon, originalAmount);
+                items.add(new CouponQuote.Item(coupon, userCoupons.poll(), discount));
+                if (discount.compareTo(BigDecimal.ZERO) > 0) {
+                    totalDiscount = totalDiscount.add(discount);
+                }
+            }
+        }
+
+        BigDecimal payAmount = originalAmount.subtract(totalDiscount);
+        if (payAmount.compareTo(BigDecimal.ZERO) < 0) {
+            payAmount = BigDecimal.ZERO;
+        }
+        payAmount = payAmount.setScale(2, RoundingMode.HALF_UP);
+        return new CouponQuote(originalAmount, originalAmount.subtract(payAmount), payAmount, items);
+    }
+
+    /**
+     * 计算单个优惠券的折扣金额
+     */
+    public BigDecimal calculateDiscount(CouponEntity coupon, BigDecimal orderAmount) {
+        if (coupon.getCouponType() == 1) { // 满减
+            if (coupon.getThresholdAmount() != null &&
+                    orderAmount.compareTo(coupon.getThresholdAmount()) >= 0) {
+                return coupon.getDiscountAmount();
+            }
+        } else if (coupon.getCouponType() == 2) { // 折扣
+            if (coupon.getDiscountRate() != null) {
+                return orderAmount.multiply(
+                        coupon.getDiscountRate().divide(new BigDecimal(100), 2, RoundingMode.HALF_UP)
+                );
+            }
+        } else if (coupon.getCouponType() == 3) { // 立减
+            return coupon.getDiscountAmount();
+        }
+
+        return BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,79 @@
+package com.mok.baseframe.order.pricing;
+
+import com.mok.baseframe.entity.CouponEntity;
+import com.mok.baseframe.entity.UserCouponEntity;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 优惠券报价结果
+ * 由 CouponPricer 一次计算得出，下单金额和核销优惠券都使用同一份报价
+ */
+public class CouponQuote {
+
+    // 原始金额
+    private final BigDecimal originalAmount;
+    // 总优惠金额（不超过原始金额）
+    private final BigDecimal discountAmount;
+    // 应付金额
+    private final BigDecimal payAmount;
+    // 可用的优惠券及各自的优惠金额
+    private final List<Item> items;
+
+    public CouponQuote(BigDecimal originalAmount, BigDecimal discountAmount,
+                       BigDecimal payAmount, List<Item> items) {
+        this.originalAmount = originalAmount;
+        this.discountAmount = discountAmount;
+        this.payAmount = payAmount;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public BigDecimal getOriginalAmount() {
+        return originalAmount;
+    }
+
+    public BigDecimal getDiscountAmount() {
+        return discountAmount;
+    }
+
+    public BigDecimal getPayAmount() {
+        return payAmount;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public boolean hasCoupons() {
+        return !items.isEmpty();
+    }
+
+    /**
+     * 单张优惠券报价
+     */
+    public static class Item {
+        private final CouponEntity coupon;
+        private final UserCouponEntity userCoupon;
+        private final BigDecimal discountAmount;
+
+        public Item(CouponEntity coupon, UserCouponEntity userCoupon, BigDecimal discountAmount) {
+            this.coupon = coupon;
+            this.userCoupon = userCoupon;
+            this.discountAmount = discountAmount;
+        }
+
+        public CouponEntity getCoupon() {
+            return coupon;
+        }
+
+        public UserCouponEntity getUserCoupon() {
+            return userCoupon;
+        }
+
+        public BigDecimal getDiscountAmount() {
+            return discountAmount;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.mok.baseframe.order.service;
 
 import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.common.PageResult;
+import com.mok.baseframe.dto.CouponGrabMessage;
 import com.mok.baseframe.entity.CouponEntity;
 import com.mok.baseframe.entity.ProductCouponEntity;
 import com.mok.baseframe.entity.ProductEntity;
@@ -39,6 +40,16 @@ public interface CouponService {
      * 抢优惠券
      */
     boolean grabCoupon(String userId, String couponId);
+
+    /**
+     * 批量写入抢券成功的用户优惠券并扣减数据库库存（抢券消息消费者调用，一个事务内完成，重复投递的消息跳过）
+     */
+    void saveGrabbedCoupons(List<CouponGrabMessage> messages);
+
+    /**
+     * 撤销抢券（用户优惠券写入失败时调用），归还Redis库存和用户领取数量
+     */
+    void revokeGrab(CouponGrabMessage message);
     
     /**
      * 查询用户优惠券
@@ -56,9 +67,12 @@ public interface CouponService {
     void initCouponStockToRedis();
     
     /**
-     * 清理过期优惠券
+     * 清理过期优惠券：按结束时间索引分批过期，每批一个短事务，批间停顿
+     * 其他节点正在清理时直接返回0
+     *
+     * @return 过期的用户优惠券数
      */
-    void cleanExpiredCoupons();
+    int cleanExpiredCoupons();
 
     /**
      * 通过商品ID查询该商品拥有的优惠券
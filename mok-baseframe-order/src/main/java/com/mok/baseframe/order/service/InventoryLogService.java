@@ -0,0 +1,33 @@
+package com.mok.baseframe.order.service;
+
+import com.mok.baseframe.entity.InventoryLogEntity;
+
+import java.util.List;
+
+/**
+ * @description: 库存流水 service 接口
+ *               流水先进入有界缓冲队列，由后台线程按数量或时间批量写入；
+ *               当前存在事务时在事务提交后才进入队列，回滚的库存变更不会留下流水
+ * @author: mok
+ */
+public interface InventoryLogService {
+
+    /**
+     * 记录一条库存流水
+     *
+     * @param inventoryLog 库存流水
+     */
+    void record(InventoryLogEntity inventoryLog);
+
+    /**
+     * 记录多条库存流水
+     *
+     * @param inventoryLogs 库存流水列表
+     */
+    void recordAll(List<InventoryLogEntity> inventoryLogs);
+
+    /**
+     * 立即写入缓冲队列中的全部流水
+     */
+    void flush();
+}
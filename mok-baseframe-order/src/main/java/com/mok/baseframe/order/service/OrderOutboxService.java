@@ -0,0 +1,29 @@
+package com.mok.baseframe.order.service;
+
+/**
+ * @description: 订单消息发件箱 service 接口
+ *               订单、库存消息在业务事务提交前批量写入发件箱表，与业务数据一起提交或回滚；
+ *               转发任务按id顺序批量投递并等待发布确认，确认后删除
+ * @author: mok
+ */
+public interface OrderOutboxService {
+
+    /**
+     * 写入一条待投递消息（当前存在事务时在事务提交前与同一事务的其他消息一次批量写入）
+     *
+     * @param aggregateId 聚合标识（订单号），同一聚合的消息按写入顺序投递
+     * @param exchange    交换机
+     * @param routingKey  路由键
+     * @param payload     消息体，按JSON序列化
+     * @param priority    消息优先级，可为空
+     * @param expiration  消息过期时间（毫秒），可为空
+     */
+    void append(String aggregateId, String exchange, String routingKey, Object payload,
+                Integer priority, Long expiration);
+
+    /**
+     * 转发待投递消息，返回确认投递成功的消息数
+     * 未持有转发租约的节点直接返回0
+     */
+    int relay();
+}
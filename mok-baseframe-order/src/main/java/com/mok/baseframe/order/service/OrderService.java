@@ -2,10 +2,12 @@ package com.mok.baseframe.order.service;
 
 import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.common.PageResult;
+import com.mok.baseframe.dto.SeckillOrderMessage;
 import com.mok.baseframe.entity.OrderInfoEntity;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @description:  订单 service 接口
@@ -19,6 +21,21 @@ public interface OrderService {
     String createOrder(String userId, String productId, Integer quantity,
                       List<String> couponIds, String remark,Integer orderType);
     
+    /**
+     * 创建秒杀订单（秒杀库存已在Redis中预占，不再重复扣减）
+     *
+     * @param orderId 订单ID，使用预占记录ID（排队凭证），重复创建同一预占的订单时主键冲突
+     */
+    String createSeckillOrder(String userId, String productId, Integer quantity, String orderId);
+
+    /**
+     * 批量创建秒杀订单（异步下单消费者使用，一个事务内批量落库）
+     * 订单ID使用排队凭证，重复投递的消息主键冲突，不会重复下单
+     *
+     * @return 排队凭证 -> 订单号
+     */
+    Map<String, String> createSeckillOrders(List<SeckillOrderMessage> messages);
+
     /**
      * 确认订单（下单但未支付）
      */
@@ -49,6 +66,13 @@ public interface OrderService {
      * 关闭超时未支付订单
      */
     void closeTimeoutOrders();
+
+    /**
+     * 批量关闭待支付订单（分批执行，每批一个事务）
+     *
+     * @return 实际关闭的订单号
+     */
+    List<String> closeOrders(List<String> orderNos, String cancelReason);
     
     /**
      * 计算订单金额
@@ -0,0 +1,44 @@
+package com.mok.baseframe.order.service;
+
+import java.util.List;
+
+/**
+ * @description: 订单超时 service 接口
+ *               待支付订单按超时时间登记到Redis有序集合（按分片），持有分片租约的节点
+ *               把即将到期的订单加载到本地时间轮，到期后认领并关闭，不再扫描数据库
+ * @author: mok
+ */
+public interface OrderTimeoutService {
+
+    /**
+     * 登记订单超时时间（当前存在事务时在提交后登记）
+     *
+     * @param orderNo        订单号
+     * @param deadlineMillis 超时时间戳（毫秒）
+     */
+    void schedule(String orderNo, long deadlineMillis);
+
+    /**
+     * 批量登记订单超时时间（一次管道请求，当前存在事务时在提交后登记）
+     *
+     * @param orderNos       订单号
+     * @param deadlineMillis 超时时间戳（毫秒）
+     */
+    void schedule(List<String> orderNos, long deadlineMillis);
+
+    /**
+     * 移除订单超时登记（订单已支付或已取消，当前存在事务时在提交后移除）
+     */
+    void cancel(String orderNo);
+
+    /**
+     * 批量移除订单超时登记（一次管道请求，当前存在事务时在提交后移除）
+     */
+    void cancel(List<String> orderNos);
+
+    /**
+     * 推进时间轮，返回本节点认领成功的到期订单号
+     * 认领即从Redis中移除，同一订单只会被一个节点认领
+     */
+    List<String> pollExpired();
+}
@@ -0,0 +1,21 @@
+package com.mok.baseframe.order.service;
+
+/**
+ * @description: 秒杀预热 service 接口
+ *               秒杀开始前把库存、商品快照加载到Redis，秒杀期间下单不再查询数据库
+ * @author: mok
+ */
+public interface SeckillPreheatService {
+
+    /**
+     * 预热即将开始（或进行中）的秒杀商品
+     *
+     * @return 本次新预热的商品数量
+     */
+    int preheatSeckillProducts();
+
+    /**
+     * 清除商品预热标记（商品信息变更时调用，下次预热重新加载）
+     */
+    void evictPreheat(String productId);
+}
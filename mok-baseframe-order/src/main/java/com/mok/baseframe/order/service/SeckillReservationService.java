@@ -0,0 +1,84 @@
+package com.mok.baseframe.order.service;
+
+import com.mok.baseframe.entity.OrderInfoEntity;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.enums.SeckillReserveStatus;
+
+import java.util.List;
+
+/**
+ * @description: 秒杀库存预占 service 接口
+ *               时间窗口、用户限购、库存扣减、预占记录在一个Lua脚本中原子完成，
+ *               用户限购和预占记录保存在用户所属库存分段的key中，确认、释放和查询时需要用户ID定位
+ * @author: mok
+ */
+public interface SeckillReservationService {
+
+    /**
+     * 预占秒杀库存
+     *
+     * @param userId        用户ID
+     * @param productId     商品ID
+     * @param quantity      购买数量
+     * @param reservationId 预占记录ID（由调用方生成，用于确认或释放）
+     * @return 预占结果
+     */
+    SeckillReserveStatus reserve(String userId, String productId, Integer quantity, String reservationId);
+
+    /**
+     * 确认预占（订单已落库），删除预占记录
+     */
+    void confirm(String productId, String userId, String reservationId);
+
+    /**
+     * 释放预占（订单创建失败），库存归还到预占时扣减的分段，并归还用户限购额度
+     *
+     * @return true-释放成功，false-预占记录不存在（已确认或已释放）
+     */
+    boolean release(String productId, String userId, String reservationId);
+
+    /**
+     * 归还已落库订单占用的秒杀库存和用户限购额度（秒杀订单取消时调用），库存按购买记录归还到原分段
+     */
+    void restoreStock(String productId, String userId, Integer quantity);
+
+    /**
+     * 批量归还秒杀订单占用的库存和限购额度（批量关闭超时订单时调用，一次流水线完成）
+     */
+    void restoreStocks(List<OrderInfoEntity> orders);
+
+    /**
+     * 预占记录是否仍待处理（未确认也未释放）
+     */
+    boolean isPending(String productId, String userId, String reservationId);
+
+    /**
+     * 将商品秒杀库存和时间窗口加载到Redis
+     *
+     * @param product   商品信息
+     * @param overwrite true-覆盖已有库存，false-仅在库存key不存在时写入
+     * @return true-已加载，false-不是秒杀商品或秒杀已结束
+     */
+    boolean initSeckillStock(ProductEntity product, boolean overwrite);
+
+    /**
+     * 批量将商品秒杀库存和时间窗口加载到Redis（一次流水线执行）
+     *
+     * @param products  商品列表
+     * @param overwrite true-覆盖已有库存，false-仅在库存key不存在时写入
+     * @return 加载的商品数（不是秒杀商品或秒杀已结束的不计）
+     */
+    int initSeckillStocks(List<ProductEntity> products, boolean overwrite);
+
+    /**
+     * 清除商品在Redis中的秒杀库存和时间窗口
+     */
+    void clearSeckillStock(String productId);
+
+    /**
+     * 查询Redis中秒杀剩余库存（各分段合计）
+     *
+     * @return 剩余库存，未加载到Redis时返回null
+     */
+    Integer getRemainingStock(String productId);
+}
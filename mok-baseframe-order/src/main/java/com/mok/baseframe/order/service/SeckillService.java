@@ -1,6 +1,10 @@
 package com.mok.baseframe.order.service;
 
 import com.mok.baseframe.common.R;
+import com.mok.baseframe.order.enums.SeckillResultStatus;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
 
 public interface SeckillService {
     /**
@@ -8,6 +12,18 @@ public interface SeckillService {
      */
     R<String> seckillOrder(String userId, String productId, Integer quantity);
     
+    /**
+     * 查询异步秒杀结果（排队中时最多等待 waitMillis 毫秒，等待期间不占用请求线程）
+     */
+    DeferredResult<R<Map<String, Object>>> getSeckillResult(String userId, String productId, String ticket,
+                                                            Long waitMillis);
+
+    /**
+     * 更新异步秒杀结果，非排队状态同时移出排队队列
+     */
+    void updateSeckillResult(String userId, String productId, String ticket,
+                             SeckillResultStatus status, String orderNo, String message);
+    
     /**
      * 获取秒杀验证码
      */
@@ -18,6 +34,11 @@ public interface SeckillService {
      */
     boolean verifySeckillCode(String userId, String productId, String verifyCode);
     
+    /**
+     * 查询秒杀剩余库存（Redis各分段合计，未加载时取数据库）
+     */
+    R<Integer> getSeckillRemainingStock(String productId);
+    
     /**
      * 初始化秒杀库存到Redis
      */
@@ -0,0 +1,40 @@
+package com.mok.baseframe.order.service;
+
+import com.mok.baseframe.common.R;
+
+import java.util.Map;
+
+/**
+ * @description: 秒杀等待室 service 接口
+ *               用户先进入先进先出队列，队列长度按剩余库存限制，超出直接拒绝；
+ *               放行任务按下单链路能承受的速率分批放行
+ * @author: mok
+ */
+public interface SeckillWaitingRoomService {
+
+    /**
+     * 加入等待室
+     *
+     * @return 排队状态和排队位置
+     */
+    R<Map<String, Object>> joinQueue(String userId, String productId);
+
+    /**
+     * 查询排队状态
+     */
+    R<Map<String, Object>> getQueueStatus(String userId, String productId);
+
+    /**
+     * 消费下单资格（一次放行只能下单一次）
+     *
+     * @return true-已放行且未过期
+     */
+    boolean consumeAdmission(String userId, String productId);
+
+    /**
+     * 按配置速率放行所有商品的排队用户
+     *
+     * @return 本次放行人数
+     */
+    int releaseWaitingUsers();
+}
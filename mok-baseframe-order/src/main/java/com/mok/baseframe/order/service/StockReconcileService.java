@@ -0,0 +1,18 @@
+package com.mok.baseframe.order.service;
+
+/**
+ * @description: 库存对账 service 接口
+ *               按主键分批读取数据库库存，一批商品的Redis库存一次流水线读取，
+ *               扣除途中的预占后比对，复核后只修复仍然存在的差异并记录库存同步流水
+ * @author: mok
+ */
+public interface StockReconcileService {
+
+    /**
+     * 对账全部上架商品的普通库存和进行中的秒杀库存
+     * 其他节点正在对账时直接返回0
+     *
+     * @return 修复的库存数
+     */
+    int reconcile();
+}
@@ -0,0 +1,52 @@
+package com.mok.baseframe.order.service;
+
+import com.mok.baseframe.order.enums.StockReservationStatus;
+
+import java.util.Map;
+
+/**
+ * @description: 普通订单库存预占 service 接口
+ *               预占记录与库存扣减在一个Lua脚本中原子完成，到期未支付的预占由扫描任务批量归还库存；
+ *               预占记录和到期索引按商品拆分，与商品库存key使用相同的hash tag
+ * @author: mok
+ */
+public interface StockReservationService {
+
+    /**
+     * 预占库存：校验并扣减Redis库存，同时写入预占记录和到期索引
+     * 事务回滚时自动释放预占
+     *
+     * @return true-预占成功，false-库存不足
+     */
+    boolean reserve(String orderNo, String productId, Integer quantity);
+
+    /**
+     * 将预占转为售出（支付时调用）
+     * 预占已到期释放时重新从可用库存扣减；事务回滚时归还本次扣减的库存
+     *
+     * @return CONVERTED-预占已转为售出，REDEDUCTED-重新扣减成功，STOCK_NOT_ENOUGH-库存不足，NOT_FOUND-没有预占记录
+     */
+    StockReservationStatus convert(String orderNo, String productId, Integer quantity);
+
+    /**
+     * 释放预占（取消订单时调用）
+     *
+     * @return RELEASED-已归还库存，EXPIRED-预占已到期释放（无需再归还），NOT_FOUND-没有预占记录
+     */
+    StockReservationStatus release(String orderNo, String productId);
+
+    /**
+     * 批量释放预占（批量关闭订单时调用，同一商品的订单一次脚本调用完成）
+     *
+     * @param productIdByOrderNo 订单号 -> 商品ID
+     * @return 订单号 -> 释放结果
+     */
+    Map<String, StockReservationStatus> releaseAll(Map<String, String> productIdByOrderNo);
+
+    /**
+     * 分批释放所有已到期的预占，归还库存并发送库存释放消息
+     *
+     * @return 本次释放的预占条数
+     */
+    int sweepExpired();
+}
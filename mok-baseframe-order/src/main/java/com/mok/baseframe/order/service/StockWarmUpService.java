@@ -0,0 +1,33 @@
+package com.mok.baseframe.order.service;
+
+/**
+ * @description: 库存预热 service 接口
+ *               流式读取数据库库存，按批通过Redis流水线写入（SET PX一条命令同时设置过期时间）
+ * @author: mok
+ */
+public interface StockWarmUpService {
+
+    /**
+     * 预热全部上架商品的普通库存，以及其中秒杀商品的秒杀库存
+     *
+     * @param overwrite true-覆盖Redis中已有库存，false-只写入不存在的库存
+     * @return 写入的库存数
+     */
+    int warmUpProductStock(boolean overwrite);
+
+    /**
+     * 预热进行中的秒杀商品库存
+     *
+     * @param overwrite true-覆盖Redis中已有库存，false-只写入不存在的库存
+     * @return 加载的秒杀商品数
+     */
+    int warmUpSeckillStock(boolean overwrite);
+
+    /**
+     * 预热可用优惠券库存
+     *
+     * @param overwrite true-覆盖Redis中已有库存，false-只写入不存在的库存
+     * @return 写入的库存数
+     */
+    int warmUpCouponStock(boolean overwrite);
+}
@@ -7,17 +7,26 @@ import com.mok.baseframe.common.PageResult;
 import com.mok.baseframe.dao.CouponMapper;
 import com.mok.baseframe.dao.ProductCouponMapper;
 import com.mok.baseframe.dao.UserCouponMapper;
+import com.mok.baseframe.dto.CouponGrabMessage;
 import com.mok.baseframe.entity.CouponEntity;
 import com.mok.baseframe.entity.ProductCouponEntity;
 import com.mok.baseframe.entity.UserCouponEntity;
+import com.mok.baseframe.order.cache.CouponCatalogCache;
+import com.mok.baseframe.order.cache.UserCouponWalletCache;
+import com.mok.baseframe.order.config.CouponProperties;
+import com.mok.baseframe.order.enums.CouponGrabStatus;
+import com.mok.baseframe.order.mq.producer.CouponGrabProducer;
 import com.mok.baseframe.order.service.CouponService;
+import com.mok.baseframe.order.service.StockWarmUpService;
 import com.mok.baseframe.order.util.OrderNoGenerator;
 import com.mok.baseframe.order.util.RedisKeyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -27,19 +36,132 @@ public class CouponServiceImpl implements CouponService {
 
     private static final Logger logger = LoggerFactory.getLogger(CouponServiceImpl.class);
 
+    // 加载用户领取数量时每次脚本调用写入的用户数
+    private static final int GRAB_USER_LOAD_BATCH_SIZE = 1000;
+
+    // 过期优惠券清理锁名称
+    private static final String EXPIRE_LOCK_NAME = "coupon_expire";
+
+    /**
+     * 抢券脚本
+     * KEYS: 1.优惠券库存key 2.抢券信息key 3.用户领取数量key
+     * ARGV: 1.用户ID 2.当前时间戳(毫秒)
+     * 逻辑:
+     *      1.抢券信息未加载返回-3，优惠券已失效返回-4，不在有效期内返回-1
+     *      2.超过用户限领数量返回-2，库存为0返回0
+     *      3.扣减库存、累加用户领取数量，返回1
+     */
+    private static final String GRAB_SCRIPT =
+            "local info = redis.call('hmget', KEYS[2], 'status', 'startTime', 'endTime', 'perLimit') " +
+            "if not info[1] then " +
+            "    return -3 " +
+            "end " +
+            "if tonumber(info[1]) ~= 1 then " +
+            "    return -4 " +
+            "end " +
+            "local now = tonumber(ARGV[2]) " +
+            "if now < tonumber(info[2]) or now > tonumber(info[3]) then " +
+            "    return -1 " +
+            "end " +
+            "if tonumber(redis.call('hget', KEYS[3], ARGV[1]) or '0') >= tonumber(info[4]) then " +
+            "    return -2 " +
+            "end " +
+            "if tonumber(redis.call('get', KEYS[1]) or '0') <= 0 then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('decr', KEYS[1]) " +
+            "redis.call('hincrby', KEYS[3], ARGV[1], 1) " +
+            "return 1";
+
+    /**
+     * 撤销抢券脚本：归还库存和用户领取数量
+     * KEYS: 1.优惠券库存key 2.用户领取数量key
+     * ARGV: 1.用户ID
+     */
+    private static final String REVOKE_SCRIPT =
+            "redis.call('incr', KEYS[1]) " +
+            "if tonumber(redis.call('hget', KEYS[2], ARGV[1]) or '0') > 0 then " +
+            "    redis.call('hincrby', KEYS[2], ARGV[1], -1) " +
+            "end " +
+            "return 1";
+
+    /**
+     * 用户领取数量加载脚本
+     * KEYS: 1.用户领取数量key
+     * ARGV: 1.过期时间(毫秒) 2..n.用户ID、领取数量交替
+     */
+    private static final String LOAD_USER_SCRIPT =
+            "for i = 2, #ARGV, 2 do " +
+            "    redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "end " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+            "return 1";
+
+    /**
+     * 抢券信息初始化脚本：库存不存在时写入，最后写入抢券信息
+     * KEYS: 1.抢券信息key 2.优惠券库存key
+     * ARGV: 1.状态 2.开始时间 3.结束时间 4.每人限领数量 5.过期时间(毫秒) 6.剩余库存
+     */
+    private static final String INIT_SCRIPT =
+            "if redis.call('exists', KEYS[2]) == 0 then " +
+            "    redis.call('set', KEYS[2], ARGV[6], 'PX', ARGV[5]) " +
+            "end " +
+            "redis.call('hset', KEYS[1], 'status', ARGV[1], 'startTime', ARGV[2], 'endTime', ARGV[3], " +
+            "    'perLimit', ARGV[4]) " +
+            "redis.call('pexpire', KEYS[1], ARGV[5]) " +
+            "return 1";
+
+    /**
+     * 分布式锁释放脚本：锁仍属于当前请求时删除
+     */
+    private static final String UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+
+    private static final DefaultRedisScript<Long> GRAB_REDIS_SCRIPT =
+            new DefaultRedisScript<>(GRAB_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> REVOKE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(REVOKE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> LOAD_USER_REDIS_SCRIPT =
+            new DefaultRedisScript<>(LOAD_USER_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> INIT_REDIS_SCRIPT =
+            new DefaultRedisScript<>(INIT_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> UNLOCK_REDIS_SCRIPT =
+            new DefaultRedisScript<>(UNLOCK_SCRIPT, Long.class);
+
     private final CouponMapper couponMapper;
     private final ProductCouponMapper productcouponMapper;
     private final UserCouponMapper userCouponMapper;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StockWarmUpService stockWarmUpService;
+    private final CouponGrabProducer couponGrabProducer;
+    private final UserCouponWalletCache userCouponWalletCache;
+    private final CouponCatalogCache couponCatalogCache;
+    private final CouponProperties couponProperties;
+    private final TransactionTemplate transactionTemplate;
 
     public CouponServiceImpl(CouponMapper couponMapper,
                              ProductCouponMapper productcouponMapper,
                              UserCouponMapper userCouponMapper,
-                             RedisTemplate<String, Object> redisTemplate) {
+                             RedisTemplate<String, Object> redisTemplate,
+                             StockWarmUpService stockWarmUpService,
+                             CouponGrabProducer couponGrabProducer,
+                             UserCouponWalletCache userCouponWalletCache,
+                             CouponCatalogCache couponCatalogCache,
+                             CouponProperties couponProperties,
+                             TransactionTemplate transactionTemplate) {
         this.couponMapper = couponMapper;
         this.productcouponMapper = productcouponMapper;
         this.userCouponMapper = userCouponMapper;
         this.redisTemplate = redisTemplate;
+        this.stockWarmUpService = stockWarmUpService;
+        this.couponGrabProducer = couponGrabProducer;
+        this.userCouponWalletCache = userCouponWalletCache;
+        this.couponCatalogCache = couponCatalogCache;
+        this.couponProperties = couponProperties;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
@@ -81,6 +203,9 @@ public class CouponServiceImpl implements CouponService {
                 redisTemplate.expire(stockKey, expireTime, TimeUnit.MILLISECONDS);
             }
 
+            // 通知所有节点刷新优惠券目录
+            couponCatalogCache.publishRefresh();
+
             logger.info("添加优惠券成功，优惠券ID：{}，名称：{}", coupon.getId(), coupon.getCouponName());
         } catch (Exception e) {
             logger.error("添加优惠券失败：{}", e.getMessage(), e);
@@ -103,6 +228,9 @@ public class CouponServiceImpl implements CouponService {
                 throw new BusinessException("更新优惠券失败");
             }
 
+            // 清除抢券信息（有效期、限领数量可能变化），下次抢券时重新加载
+            redisTemplate.delete(RedisKeyUtil.getCouponGrabInfoKey(coupon.getId()));
+
             // 如果库存有变化，更新Redis缓存
             if (coupon.getRemainingQuantity() != null &&
                     !coupon.getRemainingQuantity().equals(oldCoupon.getRemainingQuantity())) {
@@ -116,6 +244,9 @@ public class CouponServiceImpl implements CouponService {
                 }
             }
 
+            // 通知所有节点刷新优惠券目录
+            couponCatalogCache.publishRefresh();
+
             logger.info("更新优惠券成功，优惠券ID：{}", coupon.getId());
         } catch (Exception e) {
             logger.error("更新优惠券失败：{}", e.getMessage(), e);
@@ -139,7 +270,11 @@ public class CouponServiceImpl implements CouponService {
 
             // 删除Redis缓存
             String stockKey = RedisKeyUtil.getCouponStockKey(id);
-            redisTemplate.delete(stockKey);
+            redisTemplate.delete(Arrays.asList(stockKey, RedisKeyUtil.getCouponGrabInfoKey(id),
+                    RedisKeyUtil.getCouponGrabUserKey(id)));
+
+            // 通知所有节点刷新优惠券目录
+            couponCatalogCache.publishRefresh();
 
             logger.info("删除优惠券成功，优惠券ID：{}", id);
         } catch (Exception e) {
@@ -180,102 +315,181 @@ public class CouponServiceImpl implements CouponService {
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean grabCoupon(String userId, String couponId) {
-        String lockKey = RedisKeyUtil.getDistributedLockKey("grab_coupon:" + couponId);
-        String lockValue = UUID.randomUUID().toString();
+        // 1. 一次脚本完成有效期、用户限领和库存校验并扣减，未加载时从数据库加载后重试
+        CouponGrabStatus status = executeGrab(userId, couponId);
+        if (status == CouponGrabStatus.NOT_PRELOADED) {
+            loadGrabInfo(couponId);
+            status = executeGrab(userId, couponId);
+        }
+        if (status == CouponGrabStatus.SOLD_OUT) {
+            couponCatalogCache.markSoldOut(couponId);
+        }
+        if (status != CouponGrabStatus.SUCCESS) {
+            throw new BusinessException(status.getMessage());
+        }
 
+        // 2. 投递抢券消息，由消费者批量写入用户优惠券并扣减数据库库存
+        CouponGrabMessage message = new CouponGrabMessage();
+        message.setUserCouponId(IdUtil.simpleUUID());
+        message.setUserId(userId);
+        message.setCouponId(couponId);
+        message.setCouponCode(OrderNoGenerator.generateCouponCode());
+        message.setCreateTime(System.currentTimeMillis());
         try {
-            // 获取分布式锁
-            Boolean lockAcquired = redisTemplate.opsForValue().setIfAbsent(
-                    lockKey, lockValue, 3, TimeUnit.SECONDS);
-            if (lockAcquired == null || !lockAcquired) {
-                throw new BusinessException("抢券过于火爆，请稍后再试");
-            }
+            couponGrabProducer.sendCouponGrabMessage(message);
+        } catch (Exception e) {
+            revokeGrab(message);
+            throw new BusinessException("抢券失败，请稍后再试");
+        }
 
-            // 1. 检查优惠券
-            CouponEntity coupon = couponMapper.selectById(couponId);
-            if (coupon == null || coupon.getStatus() != 1) {
-                throw new BusinessException("优惠券不存在或已失效");
-            }
+        logger.info("抢券成功，用户ID：{}，优惠券ID：{}，优惠券码：{}", userId, couponId, message.getCouponCode());
+        return true;
+    }
 
-            Date now = new Date();
-            if (now.before(coupon.getStartTime()) || now.after(coupon.getEndTime())) {
-                throw new BusinessException("不在优惠券有效期内");
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveGrabbedCoupons(List<CouponGrabMessage> messages) {
+        // 1. 过滤已落库的消息（重复投递）
+        List<String> ids = new ArrayList<>(messages.size());
+        for (CouponGrabMessage message : messages) {
+            ids.add(message.getUserCouponId());
+        }
+        Set<String> existingIds = new HashSet<>(userCouponMapper.selectExistingIds(ids));
+        List<CouponGrabMessage> pending = new ArrayList<>(messages.size());
+        Map<String, Integer> couponQuantities = new HashMap<>();
+        for (CouponGrabMessage message : messages) {
+            if (existingIds.add(message.getUserCouponId())) {
+                pending.add(message);
+                couponQuantities.merge(message.getCouponId(), 1, Integer::sum);
             }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
 
-            // 2. 检查用户领取数量限制
-            List<UserCouponEntity> userCoupons = userCouponMapper.selectByUserAndCoupon(userId, couponId);
-            int userGrabCount = 0;
-            for (UserCouponEntity userCoupon : userCoupons) {
-                if (userCoupon.getStatus() == 0 || userCoupon.getStatus() == 1) { // 未使用或已使用
-                    userGrabCount++;
-                }
+        // 2. 按优惠券合并后一条语句扣减数据库库存
+        int updated = couponMapper.reduceCouponStockBatch(couponQuantities);
+        if (updated != couponQuantities.size()) {
+            throw new BusinessException("扣减优惠券库存失败");
+        }
+
+        // 3. 批量写入用户优惠券，有效期取自优惠券
+        Map<String, CouponEntity> coupons = new HashMap<>();
+        for (CouponEntity coupon : couponMapper.selectByIds(new ArrayList<>(couponQuantities.keySet()))) {
+            coupons.put(coupon.getId(), coupon);
+        }
+        List<UserCouponEntity> userCoupons = new ArrayList<>(pending.size());
+        for (CouponGrabMessage message : pending) {
+            CouponEntity coupon = coupons.get(message.getCouponId());
+            if (coupon == null) {
+                throw new BusinessException("优惠券不存在");
+            }
+            UserCouponEntity userCoupon = new UserCouponEntity();
+            userCoupon.setId(message.getUserCouponId());
+            userCoupon.setUserId(message.getUserId());
+            userCoupon.setCouponId(message.getCouponId());
+            userCoupon.setCouponCode(message.getCouponCode());
+            userCoupon.setStatus(0); // 未使用
+            userCoupon.setStartTime(coupon.getStartTime());
+            userCoupon.setEndTime(coupon.getEndTime());
+            if (message.getCreateTime() != null) {
+                userCoupon.setCreateTime(new Date(message.getCreateTime()));
             }
+            userCoupons.add(userCoupon);
+        }
+        userCouponMapper.batchInsert(userCoupons);
+
+        // 4. 事务提交后写入用户优惠券钱包
+        userCouponWalletCache.putAll(userCoupons);
+    }
+
+    @Override
+    public void revokeGrab(CouponGrabMessage message) {
+        redisTemplate.execute(REVOKE_REDIS_SCRIPT,
+                Arrays.asList(RedisKeyUtil.getCouponStockKey(message.getCouponId()),
+                        RedisKeyUtil.getCouponGrabUserKey(message.getCouponId())),
+                message.getUserId());
+    }
+
+    private CouponGrabStatus executeGrab(String userId, String couponId) {
+        Long result = redisTemplate.execute(GRAB_REDIS_SCRIPT,
+                Arrays.asList(RedisKeyUtil.getCouponStockKey(couponId),
+                        RedisKeyUtil.getCouponGrabInfoKey(couponId),
+                        RedisKeyUtil.getCouponGrabUserKey(couponId)),
+                userId, System.currentTimeMillis());
+        return CouponGrabStatus.of(result);
+    }
 
-            if (userGrabCount >= coupon.getPerLimit()) {
-                throw new BusinessException("已达到领取上限");
+    /**
+     * 从数据库加载抢券信息、用户领取数量和库存到Redis（同一优惠券只有一个请求加载）
+     * 用户领取数量和库存在Redis中已存在时保留，避免覆盖尚未落库的领取；抢券信息最后写入，写入后才开始抢券
+     */
+    private void loadGrabInfo(String couponId) {
+        String lockKey = RedisKeyUtil.getDistributedLockKey("coupon_grab_load:" + couponId);
+        String lockValue = UUID.randomUUID().toString();
+        Boolean lockAcquired = redisTemplate.opsForValue().setIfAbsent(lockKey, lockValue, 10, TimeUnit.SECONDS);
+        if (lockAcquired == null || !lockAcquired) {
+            throw new BusinessException(CouponGrabStatus.NOT_PRELOADED.getMessage());
+        }
+        try {
+            String infoKey = RedisKeyUtil.getCouponGrabInfoKey(couponId);
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(infoKey))) {
+                return;
+            }
+            CouponEntity coupon = couponMapper.selectById(couponId);
+            if (coupon == null) {
+                throw new BusinessException(CouponGrabStatus.INVALID.getMessage());
+            }
+            long ttlMillis = coupon.getEndTime().getTime() - System.currentTimeMillis();
+            if (ttlMillis <= 0) {
+                throw new BusinessException(CouponGrabStatus.NOT_IN_TIME.getMessage());
             }
 
-            // 3. Redis预减库存
-            String stockKey = RedisKeyUtil.getCouponStockKey(couponId);
-            Long remaining = redisTemplate.opsForValue().decrement(stockKey, 1);
-
-            if (remaining != null && remaining >= 0) {
-                // Redis预减成功
-                try {
-                    // 4. 扣减数据库库存（使用乐观锁）
-                    int result = couponMapper.reduceCouponStock(couponId, 1, coupon.getVersion());
-                    if (result > 0) {
-                        // 5. 创建用户优惠券记录
-                        UserCouponEntity userCoupon = new UserCouponEntity();
-                        userCoupon.setId(IdUtil.simpleUUID());
-                        userCoupon.setUserId(userId);
-                        userCoupon.setCouponId(couponId);
-                        userCoupon.setCouponCode(OrderNoGenerator.generateCouponCode());
-                        userCoupon.setStatus(0); // 未使用
-                        userCoupon.setStartTime(coupon.getStartTime());
-                        userCoupon.setEndTime(coupon.getEndTime());
-
-                        userCouponMapper.insert(userCoupon);
-
-                        logger.info("抢券成功，用户ID：{}，优惠券ID：{}，优惠券码：{}",
-                                userId, couponId, userCoupon.getCouponCode());
-                        return true;
-                    } else {
-                        // 数据库扣减失败，恢复Redis库存
-                        redisTemplate.opsForValue().increment(stockKey, 1);
-                        throw new BusinessException("优惠券已抢完");
+            String userKey = RedisKeyUtil.getCouponGrabUserKey(couponId);
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(userKey))) {
+                List<Object> args = new ArrayList<>();
+                args.add(ttlMillis);
+                for (Map<String, Object> row : userCouponMapper.countGrabsByCoupon(couponId)) {
+                    args.add(row.get("userId").toString());
+                    args.add(Integer.parseInt(row.get("grabCount").toString()));
+                    if (args.size() > GRAB_USER_LOAD_BATCH_SIZE * 2) {
+                        redisTemplate.execute(LOAD_USER_REDIS_SCRIPT, Collections.singletonList(userKey), args.toArray());
+                        args.subList(1, args.size()).clear();
                     }
-                } catch (Exception e) {
-                    // 数据库操作异常，恢复Redis库存
-                    redisTemplate.opsForValue().increment(stockKey, 1);
-                    logger.error("抢券异常，恢复Redis库存，优惠券ID：{}，用户ID：{}，异常：{}",
-                            couponId, userId, e.getMessage(), e);
-                    throw e;
                 }
-            } else {
-                // Redis库存不足，恢复刚才的扣减
-                if (remaining != null && remaining < 0) {
-                    redisTemplate.opsForValue().increment(stockKey, 1);
+                if (args.size() > 1) {
+                    redisTemplate.execute(LOAD_USER_REDIS_SCRIPT, Collections.singletonList(userKey), args.toArray());
                 }
-                throw new BusinessException("优惠券已抢完");
             }
+
+            int status = coupon.getStatus() != null ? coupon.getStatus() : 0;
+            int perLimit = coupon.getPerLimit() != null ? coupon.getPerLimit() : 1;
+            redisTemplate.execute(INIT_REDIS_SCRIPT,
+                    Arrays.asList(infoKey, RedisKeyUtil.getCouponStockKey(couponId)),
+                    status, coupon.getStartTime().getTime(), coupon.getEndTime().getTime(), perLimit,
+                    ttlMillis, coupon.getRemainingQuantity());
+            logger.info("加载抢券信息到Redis完成，优惠券ID：{}", couponId);
         } finally {
-            // 释放分布式锁
-            String luaScript = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-                    "return redis.call('del', KEYS[1]) " +
-                    "else return 0 end";
-            org.springframework.data.redis.core.script.DefaultRedisScript<Long> redisScript =
-                    new org.springframework.data.redis.core.script.DefaultRedisScript<>(luaScript, Long.class);
-            redisTemplate.execute(redisScript, Collections.singletonList(lockKey), lockValue);
+            redisTemplate.execute(UNLOCK_REDIS_SCRIPT, Collections.singletonList(lockKey), lockValue);
         }
     }
 
     @Override
     public List<UserCouponEntity> getUserCoupons(String userId, Integer status) {
         try {
-            return userCouponMapper.selectByUser(userId, status);
+            // 从钱包缓存读取，按状态过滤（未使用且已过期的按已过期返回）
+            List<UserCouponEntity> userCoupons = userCouponWalletCache.getCoupons(userId);
+            if (status == null) {
+                return userCoupons;
+            }
+            List<UserCouponEntity> result = new ArrayList<>();
+            for (UserCouponEntity userCoupon : userCoupons) {
+                if (status.equals(userCoupon.getStatus())) {
+                    result.add(userCoupon);
+                }
+            }
+            return result;
         } catch (Exception e) {
             logger.error("查询用户优惠券失败：{}", e.getMessage(), e);
             throw new BusinessException("查询用户优惠券失败");
@@ -285,7 +499,7 @@ public class CouponServiceImpl implements CouponService {
     @Override
     public List<CouponEntity> getAvailableCoupons() {
         try {
-            return couponMapper.selectAvailableCoupons();
+            return couponCatalogCache.getAvailableCoupons();
         } catch (Exception e) {
             logger.error("查询可用优惠券列表失败：{}", e.getMessage(), e);
             throw new BusinessException("查询可用优惠券列表失败");
@@ -295,56 +509,127 @@ public class CouponServiceImpl implements CouponService {
     @Override
     public void initCouponStockToRedis() {
         try {
-            List<CouponEntity> coupons = couponMapper.selectAvailableCoupons();
-            for (CouponEntity coupon : coupons) {
-                String stockKey = RedisKeyUtil.getCouponStockKey(coupon.getId());
-                redisTemplate.opsForValue().set(stockKey, coupon.getRemainingQuantity());
-
-                // 设置过期时间为优惠券结束时间
-                long expireTime = coupon.getEndTime().getTime() - System.currentTimeMillis();
-                if (expireTime > 0) {
-                    redisTemplate.expire(stockKey, expireTime, TimeUnit.MILLISECONDS);
-                }
-            }
-
-            logger.info("初始化优惠券库存到Redis完成，共初始化{}个优惠券", coupons.size());
+            int count = stockWarmUpService.warmUpCouponStock(true);
+            logger.info("初始化优惠券库存到Redis完成，共初始化{}个优惠券", count);
         } catch (Exception e) {
             logger.error("初始化优惠券库存到Redis失败：{}", e.getMessage(), e);
         }
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public void cleanExpiredCoupons() {
+    public int cleanExpiredCoupons() {
+        String lockKey = RedisKeyUtil.getDistributedLockKey(EXPIRE_LOCK_NAME);
+        String lockValue = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, lockValue,
+                couponProperties.getExpireLockSeconds(), TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.info("其他节点正在清理过期优惠券，本节点跳过");
+            return 0;
+        }
+
+        long startMillis = System.currentTimeMillis();
+        Date deadline = new Date(startMillis);
+        int chunkSize = couponProperties.getExpireChunkSize();
+        int scanned = 0;
+        int expired = 0;
+        int chunks = 0;
         try {
-            // 更新过期优惠券状态
-            int updated = userCouponMapper.updateExpiredCoupons();
-            logger.info("清理过期优惠券完成，共清理{}个", updated);
+            // 按(结束时间, ID)游标分批读取，每批一个短事务更新，批间停顿，不长时间持有大范围行锁
+            Date afterEndTime = null;
+            String afterId = "";
+            while (true) {
+                List<UserCouponEntity> chunk =
+                        userCouponMapper.selectExpiredChunk(deadline, afterEndTime, afterId, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                scanned += chunk.size();
+                chunks++;
+                UserCouponEntity last = chunk.get(chunk.size() - 1);
+                afterEndTime = last.getEndTime();
+                afterId = last.getId();
+
+                List<String> ids = new ArrayList<>(chunk.size());
+                for (UserCouponEntity userCoupon : chunk) {
+                    ids.add(userCoupon.getId());
+                }
+                Integer updated = transactionTemplate.execute(status -> expireChunk(ids, deadline));
+                expired += updated != null ? updated : 0;
+
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                Thread.sleep(couponProperties.getExpirePauseMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.error("清理过期优惠券失败：{}", e.getMessage(), e);
+        } finally {
+            redisTemplate.execute(UNLOCK_REDIS_SCRIPT, Collections.singletonList(lockKey), lockValue);
+        }
+        logger.info("清理过期优惠券完成，扫描{}个，过期{}个，批次{}，耗时{}ms",
+                scanned, expired, chunks, System.currentTimeMillis() - startMillis);
+        return expired;
+    }
+
+    /**
+     * 过期一批优惠券，提交后同步已加载的用户钱包（读取后被使用的优惠券不会被更新）
+     */
+    private int expireChunk(List<String> ids, Date deadline) {
+        int updated = userCouponMapper.expireByIds(ids, deadline);
+        if (updated > 0) {
+            userCouponWalletCache.putAllIfLoaded(userCouponMapper.selectByIds(ids));
         }
+        return updated;
     }
 
     @Override
     public List<CouponEntity> getByProductId(String productId) {
-        return couponMapper.getByProductId(productId);
+        return couponCatalogCache.getByProductId(productId);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void saveProductCoupons(ProductCouponEntity productCouponEntity) {
-        //删除旧的商品-优惠券关联信息
-        productcouponMapper.deleteByProductId(productCouponEntity.getProductId());
-        //创建新的商品-优惠券关联信息
+        String productId = productCouponEntity.getProductId();
+        Set<String> couponIds = new LinkedHashSet<>();
+        if (productCouponEntity.getCouponIds() != null) {
+            couponIds.addAll(Arrays.asList(productCouponEntity.getCouponIds()));
+        }
+        Set<String> existingIds = new HashSet<>(productcouponMapper.selectCouponIdsByProductId(productId));
+
+        //删除不再关联的商品-优惠券关联信息
+        List<String> removedIds = new ArrayList<>();
+        for (String couponId : existingIds) {
+            if (!couponIds.contains(couponId)) {
+                removedIds.add(couponId);
+            }
+        }
+        if (!removedIds.isEmpty()) {
+            productcouponMapper.deleteByProductIdAndCouponIds(productId, removedIds);
+        }
+
+        //只新增原来没有的商品-优惠券关联信息
         List<ProductCouponEntity> productCouponEntityList = new ArrayList<>();
-        for (String couponId : productCouponEntity.getCouponIds()) {
+        Date now = new Date();
+        for (String couponId : couponIds) {
+            if (existingIds.contains(couponId)) {
+                continue;
+            }
             ProductCouponEntity productCoupon = new ProductCouponEntity();
             productCoupon.setId(IdUtil.simpleUUID());
-            productCoupon.setProductId(productCouponEntity.getProductId());
+            productCoupon.setProductId(productId);
             productCoupon.setCouponId(couponId);
-            productCoupon.setCreateTime(new Date());
+            productCoupon.setCreateTime(now);
             productCouponEntityList.add(productCoupon);
         }
-        productcouponMapper.insertBatch(productCouponEntityList);
+        if (!productCouponEntityList.isEmpty()) {
+            productcouponMapper.insertBatch(productCouponEntityList);
+        }
+
+        if (!removedIds.isEmpty() || !productCouponEntityList.isEmpty()) {
+            couponCatalogCache.publishRefresh();
+        }
     }
 }
\ No newline at end of file
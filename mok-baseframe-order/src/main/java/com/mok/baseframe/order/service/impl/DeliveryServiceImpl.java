@@ -166,6 +166,10 @@ public class DeliveryServiceImpl implements DeliveryService {
         try {
 
             List<DeliveryOrderEntity> list = deliveryOrderMapper.selectByPage(pageParam);
+            if (pageParam.isCursorMode()) {
+                Long total = pageParam.shouldCount() ? deliveryOrderMapper.countByPage(pageParam) : null;
+                return PageResult.fromCursor(list, pageParam, DeliveryOrderEntity::getCreateTime, DeliveryOrderEntity::getId, total);
+            }
             long total = deliveryOrderMapper.countByPage(pageParam);
             return PageResult.success(list, total, pageParam.getPageNum(), pageParam.getPageSize());
         } catch (Exception e) {
@@ -179,6 +183,10 @@ public class DeliveryServiceImpl implements DeliveryService {
         try {
 
             List<DeliveryOrderEntity> list = deliveryOrderMapper.selectByPage(pageParam);
+            if (pageParam.isCursorMode()) {
+                Long total = pageParam.shouldCount() ? deliveryOrderMapper.countByPage(pageParam) : null;
+                return PageResult.fromCursor(list, pageParam, DeliveryOrderEntity::getCreateTime, DeliveryOrderEntity::getId, total);
+            }
             long total = deliveryOrderMapper.countByPage(pageParam);
 
             return PageResult.success(list, total, pageParam.getPageNum(), pageParam.getPageSize());
@@ -0,0 +1,181 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.dao.InventoryLogMapper;
+import com.mok.baseframe.entity.InventoryLogEntity;
+import com.mok.baseframe.order.config.InventoryProperties;
+import com.mok.baseframe.order.service.InventoryLogService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class InventoryLogServiceImpl implements InventoryLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLogServiceImpl.class);
+
+    private final InventoryLogMapper inventoryLogMapper;
+    private final InventoryProperties inventoryProperties;
+    private final BlockingQueue<InventoryLogEntity> queue;
+
+    // 后台写入线程，停机时先停止再写完队列剩余流水
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public InventoryLogServiceImpl(InventoryLogMapper inventoryLogMapper,
+                                   InventoryProperties inventoryProperties) {
+        this.inventoryLogMapper = inventoryLogMapper;
+        this.inventoryProperties = inventoryProperties;
+        this.queue = new ArrayBlockingQueue<>(inventoryProperties.getLogQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::writeLoop, "inventory-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        // 不中断写入线程，避免打断进行中的数据库写入；线程在一个刷新间隔内退出
+        running = false;
+        try {
+            writerThread.join(inventoryProperties.getLogFlushIntervalMillis() * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("库存流水写入线程已停止");
+    }
+
+    @Override
+    public void record(InventoryLogEntity inventoryLog) {
+        recordAll(Collections.singletonList(inventoryLog));
+    }
+
+    @Override
+    public void recordAll(List<InventoryLogEntity> inventoryLogs) {
+        if (inventoryLogs == null || inventoryLogs.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(inventoryLogs);
+                }
+            });
+        } else {
+            enqueue(inventoryLogs);
+        }
+    }
+
+    @Override
+    public void flush() {
+        List<InventoryLogEntity> batch = new ArrayList<>(inventoryProperties.getLogBatchSize());
+        while (queue.drainTo(batch, inventoryProperties.getLogBatchSize()) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 流水放入缓冲队列；队列满时等待一段时间，仍然放不进去则由调用线程直接写入，
+     * 以降低调用方速度的方式形成背压，不丢弃流水
+     */
+    private void enqueue(List<InventoryLogEntity> inventoryLogs) {
+        List<InventoryLogEntity> overflow = null;
+        for (InventoryLogEntity inventoryLog : inventoryLogs) {
+            boolean offered = false;
+            if (running) {
+                try {
+                    offered = queue.offer(inventoryLog, inventoryProperties.getLogOfferTimeoutMillis(),
+                            TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!offered) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(inventoryLog);
+            }
+        }
+        if (overflow != null) {
+            if (running) {
+                logger.warn("库存流水缓冲队列已满，调用线程直接写入{}条", overflow.size());
+            }
+            write(overflow);
+        }
+    }
+
+    /**
+     * 后台写入：攒够一批或距本批第一条超过刷新间隔时批量写入
+     */
+    private void writeLoop() {
+        int batchSize = inventoryProperties.getLogBatchSize();
+        long flushIntervalMillis = inventoryProperties.getLogFlushIntervalMillis();
+        List<InventoryLogEntity> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                InventoryLogEntity first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long waitMillis = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || waitMillis <= 0) {
+                        break;
+                    }
+                    InventoryLogEntity next = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 线程被中断时写完已取出的流水后退出，队列剩余部分由stop写入
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量写入流水，批量失败时逐条写入，避免一条异常数据拖累整批
+     */
+    private void write(List<InventoryLogEntity> inventoryLogs) {
+        try {
+            inventoryLogMapper.insertBatch(inventoryLogs);
+        } catch (Exception e) {
+            logger.error("批量写入库存流水失败，逐条重试，条数：{}，异常：{}", inventoryLogs.size(), e.getMessage(), e);
+            for (InventoryLogEntity inventoryLog : inventoryLogs) {
+                try {
+                    inventoryLogMapper.insert(inventoryLog);
+                } catch (Exception ex) {
+                    logger.error("写入库存流水失败：{}，异常：{}", inventoryLog, ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+}
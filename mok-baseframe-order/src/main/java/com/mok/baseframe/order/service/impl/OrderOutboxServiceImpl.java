@@ -0,0 +1,293 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mok.baseframe.common.BusinessException;
+import com.mok.baseframe.dao.OrderOutboxMapper;
+import com.mok.baseframe.entity.OrderOutboxEntity;
+import com.mok.baseframe.order.config.OrderOutboxProperties;
+import com.mok.baseframe.order.service.OrderOutboxService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class OrderOutboxServiceImpl implements OrderOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxServiceImpl.class);
+
+    /**
+     * 转发租约获取/续期脚本：租约空闲时占用，属于本节点时续期
+     * KEYS: 1.转发租约key
+     * ARGV: 1.本节点标识 2.租约有效期(毫秒)
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "local owner = redis.call('get', KEYS[1]) " +
+            "if owner == false then " +
+            "    redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "    return 1 " +
+            "end " +
+            "if owner == ARGV[1] then " +
+            "    redis.call('pexpire', KEYS[1], ARGV[2]) " +
+            "    return 1 " +
+            "end " +
+            "return 0";
+
+    /**
+     * 转发租约释放脚本：租约仍属于本节点时删除
+     * KEYS: 1.转发租约key
+     * ARGV: 1.本节点标识
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+
+    private static final DefaultRedisScript<Long> ACQUIRE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(ACQUIRE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private final OrderOutboxMapper orderOutboxMapper;
+    private final OrderOutboxProperties orderOutboxProperties;
+    private final RabbitTemplate rabbitTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    // 本节点转发租约标识
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public OrderOutboxServiceImpl(OrderOutboxMapper orderOutboxMapper,
+                                  OrderOutboxProperties orderOutboxProperties,
+                                  RabbitTemplate rabbitTemplate,
+                                  RedisTemplate<String, Object> redisTemplate,
+                                  ObjectMapper objectMapper) {
+        this.orderOutboxMapper = orderOutboxMapper;
+        this.orderOutboxProperties = orderOutboxProperties;
+        this.rabbitTemplate = rabbitTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void append(String aggregateId, String exchange, String routingKey, Object payload,
+                       Integer priority, Long expiration) {
+        OrderOutboxEntity message = new OrderOutboxEntity();
+        message.setAggregateId(aggregateId);
+        message.setExchange(exchange);
+        message.setRoutingKey(routingKey);
+        message.setPriority(priority);
+        message.setExpiration(expiration != null ? String.valueOf(expiration) : null);
+        try {
+            message.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            logger.error("序列化发件箱消息失败，聚合：{}，路由键：{}，异常：{}", aggregateId, routingKey, e.getMessage(), e);
+            throw new BusinessException("写入消息发件箱失败");
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderOutboxMapper.insertBatch(Collections.singletonList(message));
+            return;
+        }
+        getOrRegisterBuffer().messages.add(message);
+    }
+
+    @Override
+    public int relay() {
+        int total = 0;
+        while (acquireLease()) {
+            List<OrderOutboxEntity> batch = orderOutboxMapper.selectPending(orderOutboxProperties.getBatchSize());
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            int sent = publish(batch);
+            total += sent;
+            if (batch.size() < orderOutboxProperties.getBatchSize() || sent == 0) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        try {
+            redisTemplate.execute(RELEASE_REDIS_SCRIPT,
+                    Collections.singletonList(RedisKeyUtil.getOrderOutboxRelayLeaseKey()),
+                    instanceId);
+        } catch (Exception e) {
+            logger.warn("释放消息发件箱转发租约失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 投递一批消息：先全部发送，再统一等待发布确认
+     * 同一聚合的消息一旦有一条失败，其后的消息不再确认为成功，留待失败消息重试后按顺序重新投递
+     *
+     * @return 确认成功并删除的消息数
+     */
+    private int publish(List<OrderOutboxEntity> batch) {
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        Set<String> sendFailed = new HashSet<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (OrderOutboxEntity message : batch) {
+            CorrelationData correlationData = null;
+            if (!sendFailed.contains(message.getAggregateId())) {
+                try {
+                    correlationData = new CorrelationData(String.valueOf(message.getId()));
+                    rabbitTemplate.convertAndSend(message.getExchange(), message.getRoutingKey(),
+                            objectMapper.readValue(message.getPayload(), Object.class),
+                            msg -> {
+                                if (message.getPriority() != null) {
+                                    msg.getMessageProperties().setPriority(message.getPriority());
+                                }
+                                if (message.getExpiration() != null) {
+                                    msg.getMessageProperties().setExpiration(message.getExpiration());
+                                }
+                                return msg;
+                            },
+                            correlationData);
+                } catch (Exception e) {
+                    logger.error("投递发件箱消息失败，id：{}，聚合：{}，异常：{}",
+                            message.getId(), message.getAggregateId(), e.getMessage());
+                    correlationData = null;
+                    sendFailed.add(message.getAggregateId());
+                    failedIds.add(message.getId());
+                }
+            }
+            confirms.add(correlationData);
+        }
+
+        long deadline = System.currentTimeMillis() + orderOutboxProperties.getConfirmTimeoutMillis();
+        Set<String> blocked = new HashSet<>();
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutboxEntity message = batch.get(i);
+            CorrelationData correlationData = confirms.get(i);
+            if (correlationData == null || blocked.contains(message.getAggregateId())) {
+                blocked.add(message.getAggregateId());
+                continue;
+            }
+            if (isConfirmed(correlationData, deadline)) {
+                sentIds.add(message.getId());
+            } else {
+                logger.warn("发件箱消息未被确认，id：{}，聚合：{}", message.getId(), message.getAggregateId());
+                blocked.add(message.getAggregateId());
+                failedIds.add(message.getId());
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            orderOutboxMapper.deleteByIds(sentIds);
+        }
+        if (!failedIds.isEmpty()) {
+            orderOutboxMapper.markRetry(failedIds,
+                    new Date(System.currentTimeMillis() + orderOutboxProperties.getRetryDelayMillis()),
+                    orderOutboxProperties.getMaxRetries());
+            moveFailedToDead();
+        }
+        return sentIds.size();
+    }
+
+    /**
+     * 超过最大重试次数的消息转入死信表，不再阻塞同一聚合后面的消息
+     * 先复制再删除，中途失败时下次重复执行（复制忽略已存在的消息）
+     */
+    private void moveFailedToDead() {
+        try {
+            int copied = orderOutboxMapper.copyFailedToDead();
+            int deleted = orderOutboxMapper.deleteFailed();
+            if (deleted > 0) {
+                logger.error("发件箱消息超过最大重试次数，已转入死信表 order_outbox_dead，消息数：{}，需人工处理",
+                        Math.max(copied, deleted));
+            }
+        } catch (Exception e) {
+            logger.error("发件箱失败消息转入死信表失败：{}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isConfirmed(CorrelationData correlationData, long deadline) {
+        try {
+            long wait = Math.max(0L, deadline - System.currentTimeMillis());
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(wait, TimeUnit.MILLISECONDS);
+            // 无法路由的消息也会被确认，但已被退回
+            return confirm.isAck() && correlationData.getReturned() == null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean acquireLease() {
+        try {
+            Long result = redisTemplate.execute(ACQUIRE_REDIS_SCRIPT,
+                    Collections.singletonList(RedisKeyUtil.getOrderOutboxRelayLeaseKey()),
+                    instanceId,
+                    TimeUnit.SECONDS.toMillis(orderOutboxProperties.getLeaseSeconds()));
+            return result != null && result == 1;
+        } catch (Exception e) {
+            logger.error("获取消息发件箱转发租约失败：{}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取当前事务的消息缓冲，首次写入时注册事务同步，在提交前一次批量写入
+     */
+    private OutboxBuffer getOrRegisterBuffer() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof OutboxBuffer && ((OutboxBuffer) synchronization).owner == this) {
+                return (OutboxBuffer) synchronization;
+            }
+        }
+        OutboxBuffer buffer = new OutboxBuffer(this);
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    /**
+     * 事务内的消息缓冲，随事务挂起和恢复，嵌套的新事务使用各自的缓冲
+     */
+    private static final class OutboxBuffer implements TransactionSynchronization {
+        private final OrderOutboxServiceImpl owner;
+        private final List<OrderOutboxEntity> messages = new ArrayList<>();
+
+        private OutboxBuffer(OrderOutboxServiceImpl owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public int getOrder() {
+            // 先于MyBatis会话同步执行，确保写入仍在当前会话和事务中
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!messages.isEmpty()) {
+                owner.orderOutboxMapper.insertBatch(messages);
+            }
+        }
+    }
+}
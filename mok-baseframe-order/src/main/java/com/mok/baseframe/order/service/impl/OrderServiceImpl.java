@@ -5,21 +5,35 @@ import com.mok.baseframe.common.BusinessException;
 import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.common.PageResult;
 import com.mok.baseframe.dao.*;
+import com.mok.baseframe.dto.SeckillOrderMessage;
+import com.mok.baseframe.order.enums.StockReservationStatus;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
+import com.mok.baseframe.order.cache.UserCouponWalletCache;
 import com.mok.baseframe.entity.*;
-import com.mok.baseframe.order.mq.producer.OrderCancelProducer;
 import com.mok.baseframe.order.mq.producer.OrderPayProducer;
 import com.mok.baseframe.order.mq.producer.StockUpdateProducer;
+import com.mok.baseframe.order.pricing.CouponPricer;
+import com.mok.baseframe.order.pricing.CouponQuote;
 import com.mok.baseframe.order.service.OrderService;
+import com.mok.baseframe.order.service.OrderTimeoutService;
 import com.mok.baseframe.order.service.ProductService;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.service.StockReservationService;
 import com.mok.baseframe.order.util.OrderNoGenerator;
 import com.mok.baseframe.order.util.RedisKeyUtil;
 import com.mok.baseframe.security.utils.SecurityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -32,17 +46,27 @@ public class OrderServiceImpl implements OrderService {
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
     // 订单超时时间（分钟）
     private static final int ORDER_TIMEOUT_MINUTES = 30;
+    // 批量关闭订单每批数量（每批一个短事务）
+    private static final int ORDER_CLOSE_BATCH_SIZE = 100;
     private final OrderInfoMapper orderInfoMapper;
     private final ProductMapper productMapper;
     private final CouponMapper couponMapper;
     private final UserCouponMapper userCouponMapper;
     private final OrderCouponMapper orderCouponMapper;
     private final ProductService productService;
+    private final SeckillReservationService seckillReservationService;
+    private final StockReservationService stockReservationService;
+    private final ProductSnapshotCache productSnapshotCache;
+    private final UserCouponWalletCache userCouponWalletCache;
+    private final CouponPricer couponPricer;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final OrderCancelProducer orderCancelProducer;
+    private final OrderTimeoutService orderTimeoutService;
     private final StockUpdateProducer stockUpdateProducer;
     private final OrderPayProducer orderPayProducer;
     private final SecurityUtils securityUtils;
+    private final TransactionTemplate transactionTemplate;
+    // 事务提交回调中写库使用新事务
+    private final TransactionTemplate requiresNewTransactionTemplate;
 
     public OrderServiceImpl(OrderInfoMapper orderInfoMapper,
                             ProductMapper productMapper,
@@ -50,22 +74,36 @@ public class OrderServiceImpl implements OrderService {
                             UserCouponMapper userCouponMapper,
                             OrderCouponMapper orderCouponMapper,
                             ProductService productService,
+                            SeckillReservationService seckillReservationService,
+                            StockReservationService stockReservationService,
+                            ProductSnapshotCache productSnapshotCache,
+                            UserCouponWalletCache userCouponWalletCache,
+                            CouponPricer couponPricer,
                             RedisTemplate<String, Object> redisTemplate,
                             SecurityUtils securityUtils,
                             StockUpdateProducer stockUpdateProducer,
-                            OrderCancelProducer orderCancelProducer,
-                            OrderPayProducer orderPayProducer) {
+                            OrderTimeoutService orderTimeoutService,
+                            OrderPayProducer orderPayProducer,
+                            TransactionTemplate transactionTemplate) {
         this.orderInfoMapper = orderInfoMapper;
         this.productMapper = productMapper;
         this.couponMapper = couponMapper;
         this.userCouponMapper = userCouponMapper;
         this.orderCouponMapper = orderCouponMapper;
         this.productService = productService;
+        this.seckillReservationService = seckillReservationService;
+        this.stockReservationService = stockReservationService;
+        this.productSnapshotCache = productSnapshotCache;
+        this.userCouponWalletCache = userCouponWalletCache;
+        this.couponPricer = couponPricer;
         this.redisTemplate = redisTemplate;
         this.securityUtils = securityUtils;
         this.stockUpdateProducer = stockUpdateProducer;
-        this.orderCancelProducer = orderCancelProducer;
+        this.orderTimeoutService = orderTimeoutService;
         this.orderPayProducer = orderPayProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.requiresNewTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.requiresNewTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Override
@@ -75,8 +113,8 @@ public class OrderServiceImpl implements OrderService {
         // 使用分布式锁防止重复下单
         String lockKey = RedisKeyUtil.getDistributedLockKey("create_order:" + userId);
         String lockValue = UUID.randomUUID().toString();
-        //  校验商品
-        ProductEntity product = productMapper.selectById(productId);
+        //  校验商品（商品快照缓存，不含库存）
+        ProductEntity product = productSnapshotCache.get(productId);
         if (product == null) {
             throw new BusinessException("商品不存在");
         }
@@ -102,8 +140,9 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("库存不足");
             }
 
-            // 4. 计算订单金额
-            BigDecimal orderAmount = calculateOrderAmount(productId, quantity, couponIds);
+            // 4. 计算订单金额（报价在核销优惠券时复用）
+            CouponQuote quote = quoteOrder(userId, product, quantity, couponIds);
+            BigDecimal orderAmount = quote.getPayAmount();
 
             // 5. 生成订单号
             String orderNo = OrderNoGenerator.generateOrderNo();
@@ -136,14 +175,15 @@ public class OrderServiceImpl implements OrderService {
             }
 
             // 7. 使用优惠券
-            if (couponIds != null && !couponIds.isEmpty()) {
-                useCoupons(userId, order.getId(), orderNo, couponIds);
-            }
+            useCoupons(order.getId(), orderNo, quote);
 
             // 8. 发送支付成功消息到MQ，用于后续处理（发货等）
             orderPayProducer.sendOrderPayMessage(orderNo);
             stockUpdateProducer.sendStockReduceMessage(productId, quantity, order.getId(), orderNo);
 
+            // 登记订单超时时间，到期未支付由超时时间轮关闭
+            orderTimeoutService.schedule(orderNo, orderDeadline());
+
             // 9. 记录操作日志
             logger.info("创建订单成功，订单号：{}，用户ID：{}，商品：{}，数量：{}，金额：{}",
                     orderNo, userId, product.getProductName(), quantity, orderAmount);
@@ -159,6 +199,114 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public String createSeckillOrder(String userId, String productId, Integer quantity, String orderId) {
+        // 1. 校验商品（秒杀资格和库存已由Redis预占脚本校验）
+        ProductEntity product = productSnapshotCache.get(productId);
+        if (product == null) {
+            throw new BusinessException("商品不存在");
+        }
+
+        // 2. 创建订单
+        OrderInfoEntity order = buildSeckillOrder(orderId, userId, product, quantity);
+        int result = orderInfoMapper.insert(order);
+        if (result <= 0) {
+            throw new BusinessException("创建秒杀订单失败");
+        }
+
+        // 3. 发送支付成功消息和秒杀库存扣减消息（数据库秒杀库存由消费者异步扣减）
+        orderPayProducer.sendOrderPayMessage(order.getOrderNo());
+        stockUpdateProducer.sendSeckillStockReduceMessage(productId, quantity, order.getId(), order.getOrderNo());
+
+        // 4. 登记订单超时时间，到期未支付由超时时间轮关闭并归还秒杀库存
+        orderTimeoutService.schedule(order.getOrderNo(), orderDeadline());
+
+        logger.info("创建秒杀订单成功，订单号：{}，用户ID：{}，商品：{}，数量：{}，金额：{}",
+                order.getOrderNo(), userId, product.getProductName(), quantity, order.getPayAmount());
+
+        return order.getOrderNo();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, String> createSeckillOrders(List<SeckillOrderMessage> messages) {
+        Map<String, String> orderNos = new LinkedHashMap<>();
+        if (messages == null || messages.isEmpty()) {
+            return orderNos;
+        }
+
+        // 1. 同一批次内每个商品只查询一次
+        Map<String, ProductEntity> products = new HashMap<>();
+        List<OrderInfoEntity> orders = new ArrayList<>(messages.size());
+        for (SeckillOrderMessage message : messages) {
+            ProductEntity product = products.computeIfAbsent(message.getProductId(), productSnapshotCache::get);
+            if (product == null) {
+                throw new BusinessException("商品不存在：" + message.getProductId());
+            }
+            OrderInfoEntity order = buildSeckillOrder(message.getTicket(), message.getUserId(), product,
+                    message.getQuantity());
+            orders.add(order);
+            orderNos.put(message.getTicket(), order.getOrderNo());
+        }
+
+        // 2. 批量插入订单
+        int result = orderInfoMapper.insertBatch(orders);
+        if (result < orders.size()) {
+            throw new BusinessException("批量创建秒杀订单失败");
+        }
+
+        // 3. 发送支付成功消息和秒杀库存扣减消息
+        for (OrderInfoEntity order : orders) {
+            orderPayProducer.sendOrderPayMessage(order.getOrderNo());
+            stockUpdateProducer.sendSeckillStockReduceMessage(order.getProductId(), order.getQuantity(),
+                    order.getId(), order.getOrderNo());
+        }
+
+        // 4. 批量登记订单超时时间
+        orderTimeoutService.schedule(new ArrayList<>(orderNos.values()), orderDeadline());
+
+        logger.info("批量创建秒杀订单成功，订单数：{}", orders.size());
+        return orderNos;
+    }
+
+    /**
+     * 订单超时时间戳（毫秒）
+     */
+    private long orderDeadline() {
+        return System.currentTimeMillis() + ORDER_TIMEOUT_MINUTES * 60 * 1000L;
+    }
+
+    /**
+     * 构建秒杀订单（秒杀价优先，未设置秒杀价时使用原价）
+     */
+    private OrderInfoEntity buildSeckillOrder(String orderId, String userId, ProductEntity product, Integer quantity) {
+        BigDecimal price = product.getSeckillPrice() != null ? product.getSeckillPrice() : product.getPrice();
+        BigDecimal orderAmount = price.multiply(new BigDecimal(quantity)).setScale(2, RoundingMode.HALF_UP);
+
+        OrderInfoEntity order = new OrderInfoEntity();
+        order.setId(orderId);
+        order.setOrderNo(OrderNoGenerator.generateOrderNo());
+        order.setUserId(userId);
+        order.setProductId(product.getId());
+        order.setProductName(product.getProductName());
+        order.setProductPrice(price);
+        order.setQuantity(quantity);
+        order.setOriginalAmount(product.getPrice().multiply(new BigDecimal(quantity)));
+        order.setDiscountAmount(order.getOriginalAmount().subtract(orderAmount));
+        order.setPayAmount(orderAmount);
+        // 未支付
+        order.setOrderStatus(0);
+        // 未支付
+        order.setPayStatus(0);
+        order.setPayTime(new Date());
+        order.setPayType(1); // 模拟支付方式
+        order.setTransactionId("SIM_" + System.currentTimeMillis());
+        order.setOrderType(1); // 订单类型 1=秒杀订单
+        order.setRemark("秒杀订单");
+        return order;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public String confirmOrder(String userId, String productId, Integer quantity,
@@ -179,7 +327,7 @@ public class OrderServiceImpl implements OrderService {
             }
 
             // 2. 校验商品
-            ProductEntity product = productMapper.selectById(productId);
+            ProductEntity product = productSnapshotCache.get(productId);
             if (product == null) {
                 throw new BusinessException("商品不存在");
             }
@@ -187,19 +335,17 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("商品已下架");
             }
 
-            // 3. 校验库存（只检查，不扣减）
-            String stockKey = RedisKeyUtil.getProductStockKey(productId);
-            Object stockObj = redisTemplate.opsForValue().get(stockKey);
-            if (stockObj == null || Integer.parseInt(stockObj.toString()) < quantity) {
-                throw new BusinessException("库存不足");
-            }
-
-            // 4. 计算订单金额
-            BigDecimal orderAmount = calculateOrderAmount(productId, quantity, couponIds);
+            // 3. 计算订单金额
+            BigDecimal orderAmount = quoteOrder(userId, product, quantity, couponIds).getPayAmount();
 
-            // 5. 生成订单号
+            // 4. 生成订单号
             String orderNo = OrderNoGenerator.generateOrderNo();
 
+            // 5. 预占库存（校验、扣减Redis库存和写入预占记录原子完成，到期未支付由扫描任务归还，事务回滚时释放）
+            if (!stockReservationService.reserve(orderNo, productId, quantity)) {
+                throw new BusinessException("库存不足");
+            }
+
             // 6. 创建待支付订单
             OrderInfoEntity order = new OrderInfoEntity();
             order.setId(IdUtil.simpleUUID());
@@ -222,8 +368,7 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("确认订单失败");
             }
 
-            // 7. 锁定库存（Redis中预扣）
-            redisTemplate.opsForValue().decrement(stockKey, quantity);
+            // 7. 记录库存锁定（数据库库存在支付时扣减）
             stockUpdateProducer.sendStockLockMessage(productId, quantity, order.getId(), orderNo);
             // 8. 生成订单确认token（用于支付时验证）
             String confirmToken = UUID.randomUUID().toString();
@@ -237,8 +382,8 @@ public class OrderServiceImpl implements OrderService {
             redisTemplate.opsForHash().putAll(tokenKey + ":" + orderNo, tokenData);
             redisTemplate.expire(tokenKey + ":" + orderNo, ORDER_TIMEOUT_MINUTES, TimeUnit.MINUTES);
 
-            // 9. 发送延迟消息，用于订单超时关闭
-            orderCancelProducer.sendOrderCancelMessage(orderNo, ORDER_TIMEOUT_MINUTES);
+            // 9. 登记订单超时时间，到期由超时时间轮关闭
+            orderTimeoutService.schedule(orderNo, orderDeadline());
 
             logger.info("确认订单成功，订单号：{}，用户ID：{}，商品：{}，数量：{}，金额：{}",
                     orderNo, userId, product.getProductName(), quantity, orderAmount);
@@ -293,10 +438,17 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("订单已超时，请重新下单");
             }
 
-            // 4. 检查Redis中是否有库存（防止库存不足）
-            String stockKey = RedisKeyUtil.getProductStockKey(order.getProductId());
-            Object stockObj = redisTemplate.opsForValue().get(stockKey);
-            if (stockObj == null || Integer.parseInt(stockObj.toString()) < 0) {
+            // 4. 预占转为售出（预占已到期释放时重新扣减可用库存，事务回滚时撤销）
+            StockReservationStatus reservation = stockReservationService.convert(
+                    orderNo, order.getProductId(), order.getQuantity());
+            boolean stockNotEnough = reservation == StockReservationStatus.STOCK_NOT_ENOUGH;
+            if (reservation == StockReservationStatus.NOT_FOUND) {
+                // 没有预占记录的订单（非确认下单或上线前创建）检查Redis中是否有库存
+                String stockKey = RedisKeyUtil.getProductStockKey(order.getProductId());
+                Object stockObj = redisTemplate.opsForValue().get(stockKey);
+                stockNotEnough = stockObj == null || Integer.parseInt(stockObj.toString()) < 0;
+            }
+            if (stockNotEnough) {
                 // 库存不足，取消订单
                 cancelOrder(orderNo, "库存不足，支付失败");
                 throw new BusinessException("库存不足，支付失败");
@@ -352,15 +504,17 @@ public class OrderServiceImpl implements OrderService {
                 @SuppressWarnings("unchecked")
                 List<String> couponIds = (List<String>) couponIdsObj;
                 if (couponIds != null && !couponIds.isEmpty()) {
-                    useCoupons(userId, order.getId(), orderNo, couponIds);
+                    useCoupons(order.getId(), orderNo,
+                            couponPricer.quote(userId, order.getOriginalAmount(), couponIds));
                 }
             }
 
             // 9. 删除确认token
             redisTemplate.delete(tokenKey);
 
-            // 10. 发送支付成功消息到MQ
+            // 10. 发送支付成功消息到MQ，并移除超时登记
             orderPayProducer.sendOrderPayMessage(orderNo);
+            orderTimeoutService.cancel(orderNo);
 
             // 11. 设置支付状态缓存，防止重复支付
             String payStatusKey = RedisKeyUtil.getOrderPayStatusKey(orderNo);
@@ -410,17 +564,29 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("取消订单失败，订单状态已变更");
             }
 
-            // 4. 恢复库存（Redis）
-            String stockKey = RedisKeyUtil.getProductStockKey(order.getProductId());
-            redisTemplate.opsForValue().increment(stockKey, order.getQuantity());
-            stockUpdateProducer.sendStockRestoreMessage(order.getProductId(), order.getQuantity(), order.getId(), orderNo);
+            // 4. 恢复库存（Redis），秒杀订单归还秒杀库存和限购额度并清除各节点售罄标记
+            if (Integer.valueOf(1).equals(order.getOrderType())) {
+                seckillReservationService.restoreStock(order.getProductId(), order.getUserId(), order.getQuantity());
+                stockUpdateProducer.sendSeckillStockRestoreMessage(order.getProductId(), order.getQuantity(), order.getId(), orderNo);
+            } else {
+                // 普通订单释放预占；预占已到期释放的库存已归还，没有预占记录的按原方式恢复
+                StockReservationStatus reservation = stockReservationService.release(orderNo, order.getProductId());
+                if (reservation == StockReservationStatus.RELEASED) {
+                    stockUpdateProducer.sendStockReleaseMessage(order.getProductId(), order.getQuantity(), order.getId(), orderNo);
+                } else if (reservation == StockReservationStatus.NOT_FOUND) {
+                    String stockKey = RedisKeyUtil.getProductStockKey(order.getProductId());
+                    redisTemplate.opsForValue().increment(stockKey, order.getQuantity());
+                    stockUpdateProducer.sendStockRestoreMessage(order.getProductId(), order.getQuantity(), order.getId(), orderNo);
+                }
+            }
 
             // 5. 恢复优惠券（如果有）
             recoverCoupons(order.getUserId(), orderNo);
 
-            // 6. 删除确认token
+            // 6. 删除确认token，移除超时登记
             String tokenKey = RedisKeyUtil.getOrderConfirmTokenKey(order.getUserId()) + ":" + orderNo;
             redisTemplate.delete(tokenKey);
+            orderTimeoutService.cancel(orderNo);
 
             logger.info("订单取消成功，订单号：{}，原因：{}", orderNo, cancelReason);
 
@@ -445,6 +611,10 @@ public class OrderServiceImpl implements OrderService {
     public PageResult<OrderInfoEntity> getOrderList(PageParam pageParam) {
         try {
             List<OrderInfoEntity> list = orderInfoMapper.selectByPage(pageParam);
+            if (pageParam.isCursorMode()) {
+                Long total = pageParam.shouldCount() ? orderInfoMapper.countByPage(pageParam) : null;
+                return PageResult.fromCursor(list, pageParam, OrderInfoEntity::getCreateTime, OrderInfoEntity::getId, total);
+            }
             Long total = orderInfoMapper.countByPage(pageParam);
             return PageResult.success(list, total, pageParam.getPageNum(), pageParam.getPageSize());
         } catch (Exception e) {
@@ -454,94 +624,185 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void closeTimeoutOrders() {
-        try {
-            // 查询超时未支付订单
-            List<OrderInfoEntity> timeoutOrders = orderInfoMapper.selectTimeoutOrders(
-                    ORDER_TIMEOUT_MINUTES, 0 // 待支付状态
-            );
+        // 按创建时间分批查询超时未支付订单，每批单独关闭，直到没有可关闭的订单
+        Date deadline = new Date(System.currentTimeMillis() - ORDER_TIMEOUT_MINUTES * 60 * 1000L);
+        int total = 0;
+        while (true) {
+            List<OrderInfoEntity> timeoutOrders;
+            try {
+                timeoutOrders = orderInfoMapper.selectTimeoutOrders(deadline, 0, ORDER_CLOSE_BATCH_SIZE);
+            } catch (Exception e) {
+                logger.error("查询超时订单失败：{}", e.getMessage(), e);
+                break;
+            }
+            if (timeoutOrders == null || timeoutOrders.isEmpty()) {
+                break;
+            }
+            List<String> orderNos = new ArrayList<>(timeoutOrders.size());
+            for (OrderInfoEntity order : timeoutOrders) {
+                orderNos.add(order.getOrderNo());
+            }
+            int closed = closeOrders(orderNos, "超时未支付，系统自动关闭").size();
+            total += closed;
+            // 本批全部关闭失败时停止，避免反复查询同一批订单
+            if (closed == 0 || timeoutOrders.size() < ORDER_CLOSE_BATCH_SIZE) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("关闭超时订单完成，订单数：{}", total);
+        }
+    }
 
-            if (timeoutOrders != null && !timeoutOrders.isEmpty()) {
-                for (OrderInfoEntity order : timeoutOrders) {
-                    try {
-                        // 关闭订单
-                        cancelOrder(order.getOrderNo(), "超时未支付，系统自动关闭");
-                        logger.info("关闭超时订单成功，订单号：{}", order.getOrderNo());
-                    } catch (Exception e) {
-                        logger.error("关闭超时订单失败，订单号：{}，异常：{}",
-                                order.getOrderNo(), e.getMessage(), e);
-                    }
+    @Override
+    public List<String> closeOrders(List<String> orderNos, String cancelReason) {
+        List<String> closed = new ArrayList<>();
+        if (orderNos == null || orderNos.isEmpty()) {
+            return closed;
+        }
+        for (int from = 0; from < orderNos.size(); from += ORDER_CLOSE_BATCH_SIZE) {
+            List<String> batch = orderNos.subList(from, Math.min(from + ORDER_CLOSE_BATCH_SIZE, orderNos.size()));
+            try {
+                List<String> batchClosed = transactionTemplate.execute(status -> closeOrderBatch(batch, cancelReason));
+                if (batchClosed != null) {
+                    closed.addAll(batchClosed);
                 }
+            } catch (Exception e) {
+                logger.error("批量关闭订单失败，订单数：{}，异常：{}", batch.size(), e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("关闭超时订单任务执行失败：{}", e.getMessage(), e);
+        }
+        return closed;
+    }
+
+    /**
+     * 关闭一批待支付订单（在调用方事务内执行）
+     * 1. 锁定仍为待支付的订单，一条状态CAS更新批量关闭，批量恢复优惠券
+     * 2. 事务提交后归还Redis库存并写入一条批量库存恢复消息：提交失败时订单回滚为待支付，
+     *    之后会被再次关闭，Redis库存不能提前归还，否则重复归还
+     *
+     * @return 实际关闭的订单号
+     */
+    private List<String> closeOrderBatch(List<String> orderNos, String cancelReason) {
+        List<OrderInfoEntity> orders = orderInfoMapper.selectPendingByOrderNosForUpdate(orderNos);
+        if (orders == null || orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 1. 批量更新订单状态为已取消（行已加锁，更新行数与查询结果一致）
+        List<String> ids = new ArrayList<>(orders.size());
+        List<String> closedOrderNos = new ArrayList<>(orders.size());
+        for (OrderInfoEntity order : orders) {
+            ids.add(order.getId());
+            closedOrderNos.add(order.getOrderNo());
+        }
+        int updated = orderInfoMapper.closeTimeoutOrders(ids, 0, 4, cancelReason, new Date());
+        if (updated != orders.size()) {
+            throw new BusinessException("批量关闭订单失败，订单状态已变更");
+        }
+
+        // 2. 恢复优惠券，移除超时登记（提交后执行）
+        recoverCoupons(closedOrderNos);
+        orderTimeoutService.cancel(closedOrderNos);
+
+        // 3. 事务提交后恢复Redis库存
+        runAfterCommit(() -> restoreClosedStock(orders));
+
+        logger.info("批量关闭订单成功，订单数：{}，原因：{}", orders.size(), cancelReason);
+        return closedOrderNos;
+    }
+
+    /**
+     * 归还已关闭订单的Redis库存（事务提交后执行，关闭的状态CAS保证每个订单只执行一次）
+     * 普通订单先一次脚本释放预占，没有预占记录的按商品合并后一次管道归还并删除确认token，秒杀订单一次脚本归还；
+     * 最后在新事务中写入一条批量库存恢复消息，通知数据库恢复库存和记录流水
+     */
+    private void restoreClosedStock(List<OrderInfoEntity> orders) {
+        Map<String, String> normalOrders = new LinkedHashMap<>();
+        for (OrderInfoEntity order : orders) {
+            if (!Integer.valueOf(1).equals(order.getOrderType())) {
+                normalOrders.put(order.getOrderNo(), order.getProductId());
+            }
+        }
+        Map<String, StockReservationStatus> reservations = stockReservationService.releaseAll(normalOrders);
+        Map<String, Integer> stockDeltas = new HashMap<>();
+        List<OrderInfoEntity> seckillOrders = new ArrayList<>();
+        List<Map<String, Object>> restoreItems = new ArrayList<>(orders.size());
+        for (OrderInfoEntity order : orders) {
+            boolean isSeckill = Integer.valueOf(1).equals(order.getOrderType());
+            int changeType = 2; // 2表示恢复库存
+            if (isSeckill) {
+                seckillOrders.add(order);
+            } else {
+                StockReservationStatus reservation = reservations.get(order.getOrderNo());
+                if (reservation == StockReservationStatus.RELEASED) {
+                    changeType = 4; // 4表示释放库存（预占未支付，数据库库存未扣减）
+                } else if (reservation == StockReservationStatus.EXPIRED) {
+                    continue; // 预占已到期释放，库存已归还
+                } else {
+                    stockDeltas.merge(order.getProductId(), order.getQuantity(), Integer::sum);
+                }
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("productId", order.getProductId());
+            item.put("quantity", order.getQuantity());
+            item.put("changeType", changeType);
+            item.put("orderId", order.getId());
+            item.put("orderNo", order.getOrderNo());
+            item.put("isSeckill", isSeckill);
+            restoreItems.add(item);
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                stockDeltas.forEach((productId, quantity) ->
+                        ops.opsForValue().increment(RedisKeyUtil.getProductStockKey(productId), quantity));
+                for (OrderInfoEntity order : orders) {
+                    ops.delete(RedisKeyUtil.getOrderConfirmTokenKey(order.getUserId()) + ":" + order.getOrderNo());
+                }
+                return null;
+            }
+        });
+        seckillReservationService.restoreStocks(seckillOrders);
+
+        // 原事务已提交，发件箱消息需要在新事务中写入
+        requiresNewTransactionTemplate.executeWithoutResult(
+                status -> stockUpdateProducer.sendStockRestoreBatchMessage(restoreItems));
+    }
+
+    /**
+     * 事务提交后执行，失败只记录日志（订单已关闭，由库存对账修复）
+     */
+    private void runAfterCommit(Runnable action) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                logger.error("订单关闭后恢复库存失败，等待对账修复，异常：{}", e.getMessage(), e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
         }
     }
 
     @Override
     public BigDecimal calculateOrderAmount(String productId, Integer quantity, List<String> couponIds) {
         try {
-            // 1. 获取商品信息
-            ProductEntity product = productMapper.selectById(productId);
+            ProductEntity product = productSnapshotCache.get(productId);
             if (product == null) {
                 throw new BusinessException("商品不存在");
             }
-
-            // 2. 计算原始金额
-            BigDecimal originalAmount = product.getPrice().multiply(new BigDecimal(quantity));
-            BigDecimal finalAmount = originalAmount;
-
-            // 3. 计算优惠券折扣
-            if (couponIds != null && !couponIds.isEmpty()) {
-                BigDecimal totalDiscount = BigDecimal.ZERO;
-                String currentUserId = securityUtils.getCurrentUserId();
-
-                for (String couponId : couponIds) {
-                    // 检查优惠券是否可用
-                    CouponEntity coupon = couponMapper.selectById(couponId);
-                    if (coupon == null || coupon.getStatus() != 1) {
-                        continue;
-                    }
-
-                    // 检查优惠券有效期
-                    Date now = new Date();
-                    if (now.before(coupon.getStartTime()) || now.after(coupon.getEndTime())) {
-                        continue;
-                    }
-
-                    // 检查用户是否有该优惠券
-                    List<UserCouponEntity> userCoupons = userCouponMapper.selectByUserAndCoupon(
-                            currentUserId, couponId);
-                    boolean hasUsableCoupon = false;
-                    for (UserCouponEntity userCoupon : userCoupons) {
-                        if (userCoupon.getStatus() == 0 &&
-                                now.after(userCoupon.getStartTime()) &&
-                                now.before(userCoupon.getEndTime())) {
-                            hasUsableCoupon = true;
-                            break;
-                        }
-                    }
-
-                    if (!hasUsableCoupon) {
-                        continue;
-                    }
-
-                    // 计算优惠金额
-                    BigDecimal discount = calculateCouponDiscount(coupon, originalAmount);
-                    if (discount.compareTo(BigDecimal.ZERO) > 0) {
-                        totalDiscount = totalDiscount.add(discount);
-                    }
-                }
-
-                // 应用总折扣
-                finalAmount = originalAmount.subtract(totalDiscount);
-                if (finalAmount.compareTo(BigDecimal.ZERO) < 0) {
-                    finalAmount = BigDecimal.ZERO;
-                }
-            }
-
-            return finalAmount.setScale(2, RoundingMode.HALF_UP);
+            return quoteOrder(securityUtils.getCurrentUserId(), product, quantity, couponIds).getPayAmount();
         } catch (Exception e) {
             logger.error("计算订单金额失败：{}", e.getMessage(), e);
             throw new BusinessException("计算订单金额失败");
@@ -549,83 +810,63 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 计算单个优惠券的折扣金额
+     * 计算订单报价：优惠券和用户优惠券各一次批量查询
      */
-    private BigDecimal calculateCouponDiscount(CouponEntity coupon, BigDecimal orderAmount) {
-        if (coupon.getCouponType() == 1) { // 满减
-            if (coupon.getThresholdAmount() != null &&
-                    orderAmount.compareTo(coupon.getThresholdAmount()) >= 0) {
-                return coupon.getDiscountAmount();
-            }
-        } else if (coupon.getCouponType() == 2) { // 折扣
-            if (coupon.getDiscountRate() != null) {
-                return orderAmount.multiply(
-                        coupon.getDiscountRate().divide(new BigDecimal(100), 2, RoundingMode.HALF_UP)
-                );
-            }
-        } else if (coupon.getCouponType() == 3) { // 立减
-            return coupon.getDiscountAmount();
+    private CouponQuote quoteOrder(String userId, ProductEntity product, Integer quantity, List<String> couponIds) {
+        try {
+            BigDecimal originalAmount = product.getPrice().multiply(new BigDecimal(quantity));
+            return couponPricer.quote(userId, originalAmount, couponIds);
+        } catch (Exception e) {
+            logger.error("计算订单金额失败：{}", e.getMessage(), e);
+            throw new BusinessException("计算订单金额失败");
         }
-
-        return BigDecimal.ZERO;
     }
 
     /**
-     * 使用优惠券
+     * 使用优惠券：按报价批量核销用户优惠券、扣减优惠券库存并记录使用明细
      */
-    private void useCoupons(String userId, String orderId, String orderNo, List<String> couponIds) {
+    private void useCoupons(String orderId, String orderNo, CouponQuote quote) {
+        if (!quote.hasCoupons()) {
+            return;
+        }
         try {
-            for (String couponId : couponIds) {
-                // 1. 查询用户优惠券
-                List<UserCouponEntity> userCoupons = userCouponMapper.selectByUserAndCoupon(userId, couponId);
-                UserCouponEntity usableCoupon = null;
-
-                for (UserCouponEntity userCoupon : userCoupons) {
-                    if (userCoupon.getStatus() == 0) { // 未使用
-                        Date now = new Date();
-                        if (now.after(userCoupon.getStartTime()) && now.before(userCoupon.getEndTime())) {
-                            usableCoupon = userCoupon;
-                            break;
-                        }
-                    }
-                }
+            Date useTime = new Date();
+            List<String> userCouponIds = new ArrayList<>(quote.getItems().size());
+            Map<String, Integer> couponQuantities = new HashMap<>();
+            List<OrderCouponEntity> orderCoupons = new ArrayList<>(quote.getItems().size());
+            List<UserCouponEntity> usedCoupons = new ArrayList<>(quote.getItems().size());
+            for (CouponQuote.Item item : quote.getItems()) {
+                CouponEntity coupon = item.getCoupon();
+                userCouponIds.add(item.getUserCoupon().getId());
+                couponQuantities.merge(coupon.getId(), 1, Integer::sum);
+                usedCoupons.add(toUsedCoupon(item.getUserCoupon(), orderId, useTime));
+
+                OrderCouponEntity orderCoupon = new OrderCouponEntity();
+                orderCoupon.setId(IdUtil.simpleUUID());
+                orderCoupon.setOrderId(orderId);
+                orderCoupon.setOrderNo(orderNo);
+                orderCoupon.setUserCouponId(item.getUserCoupon().getId());
+                orderCoupon.setCouponId(coupon.getId());
+                orderCoupon.setCouponName(coupon.getCouponName());
+                orderCoupon.setCouponType(coupon.getCouponType());
+                orderCoupon.setDiscountAmount(item.getDiscountAmount());
+                orderCoupons.add(orderCoupon);
+            }
 
-                if (usableCoupon == null) {
-                    continue;
-                }
+            // 1. 更新用户优惠券状态（只更新未使用的，报价后被其他订单使用时整单回滚）
+            int used = userCouponMapper.useByIds(userCouponIds, orderId, useTime);
+            if (used != userCouponIds.size()) {
+                // 钱包缓存与数据库不一致，删除后下次从数据库重新加载
+                userCouponWalletCache.evict(usedCoupons.get(0).getUserId());
+                throw new BusinessException("优惠券已被使用");
+            }
+            userCouponWalletCache.putAll(usedCoupons);
 
-                // 2. 更新用户优惠券状态
-                usableCoupon.setStatus(1); // 已使用
-                usableCoupon.setOrderId(orderId);
-                usableCoupon.setUseTime(new Date());
-                userCouponMapper.update(usableCoupon);
+            // 2. 扣减优惠券库存
+            couponMapper.reduceCouponStockBatch(couponQuantities);
 
-                // 3. 查询优惠券信息
-                CouponEntity coupon = couponMapper.selectById(couponId);
-                if (coupon != null) {
-                    // 4. 扣减优惠券库存
-                    couponMapper.reduceCouponStock(couponId, 1, coupon.getVersion());
-
-                    // 5. 记录订单优惠券使用记录
-                    OrderCouponEntity orderCoupon = new OrderCouponEntity();
-                    orderCoupon.setId(IdUtil.simpleUUID());
-                    orderCoupon.setOrderId(orderId);
-                    orderCoupon.setOrderNo(orderNo);
-                    orderCoupon.setUserCouponId(usableCoupon.getId());
-                    orderCoupon.setCouponId(couponId);
-                    orderCoupon.setCouponName(coupon.getCouponName());
-                    orderCoupon.setCouponType(coupon.getCouponType());
-
-                    // 计算该优惠券的折扣金额
-                    BigDecimal discount = calculateCouponDiscount(coupon,
-                            usableCoupon.getOrderId() != null ?
-                                    orderInfoMapper.selectById(usableCoupon.getOrderId()).getOriginalAmount() :
-                                    BigDecimal.ZERO);
-                    orderCoupon.setDiscountAmount(discount);
-
-                    orderCouponMapper.insert(orderCoupon);
-                }
-            }
+            // 3. 记录订单优惠券使用记录
+            orderCouponMapper.batchInsert(orderCoupons);
         } catch (Exception e) {
             logger.error("使用优惠券失败：{}", e.getMessage(), e);
             throw new BusinessException("使用优惠券失败");
@@ -633,8 +874,42 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 恢复优惠券
+     * 复制钱包中的用户优惠券并标记为已使用（钱包返回的对象为共享对象，不能直接修改）
      */
+    private UserCouponEntity toUsedCoupon(UserCouponEntity userCoupon, String orderId, Date useTime) {
+        UserCouponEntity usedCoupon = new UserCouponEntity();
+        usedCoupon.setId(userCoupon.getId());
+        usedCoupon.setUserId(userCoupon.getUserId());
+        usedCoupon.setCouponId(userCoupon.getCouponId());
+        usedCoupon.setCouponCode(userCoupon.getCouponCode());
+        usedCoupon.setStatus(1);
+        usedCoupon.setOrderId(orderId);
+        usedCoupon.setUseTime(useTime);
+        usedCoupon.setStartTime(userCoupon.getStartTime());
+        usedCoupon.setEndTime(userCoupon.getEndTime());
+        usedCoupon.setCreateTime(userCoupon.getCreateTime());
+        return usedCoupon;
+    }
+
+    /**
+     * 批量恢复订单使用的优惠券（批量关闭订单时调用，异常向上抛出回滚本批）
+     */
+    private void recoverCoupons(List<String> orderNos) {
+        List<OrderCouponEntity> orderCoupons = orderCouponMapper.selectByOrderNos(orderNos);
+        if (orderCoupons == null || orderCoupons.isEmpty()) {
+            return;
+        }
+        List<String> userCouponIds = new ArrayList<>(orderCoupons.size());
+        Map<String, Integer> couponQuantities = new HashMap<>();
+        for (OrderCouponEntity orderCoupon : orderCoupons) {
+            userCouponIds.add(orderCoupon.getUserCouponId());
+            couponQuantities.merge(orderCoupon.getCouponId(), 1, Integer::sum);
+        }
+        userCouponMapper.restoreUsedByIds(userCouponIds);
+        couponMapper.restoreCouponStockBatch(couponQuantities);
+        userCouponWalletCache.putAll(userCouponMapper.selectByIds(userCouponIds));
+    }
+
     private void recoverCoupons(String userId, String orderNo) {
         try {
             // 1. 查询订单使用的优惠券
@@ -643,6 +918,7 @@ public class OrderServiceImpl implements OrderService {
                 return;
             }
 
+            List<UserCouponEntity> restoredCoupons = new ArrayList<>(orderCoupons.size());
             for (OrderCouponEntity orderCoupon : orderCoupons) {
                 // 2. 恢复用户优惠券状态
                 UserCouponEntity userCoupon = userCouponMapper.selectById(orderCoupon.getUserCouponId());
@@ -651,6 +927,7 @@ public class OrderServiceImpl implements OrderService {
                     userCoupon.setOrderId(null);
                     userCoupon.setUseTime(null);
                     userCouponMapper.update(userCoupon);
+                    restoredCoupons.add(userCoupon);
                 }
 
                 // 3. 恢复优惠券库存
@@ -659,6 +936,8 @@ public class OrderServiceImpl implements OrderService {
                     couponMapper.restoreCouponStock(coupon.getId(), 1, coupon.getVersion());
                 }
             }
+            // 4. 更新用户优惠券钱包
+            userCouponWalletCache.putAll(restoredCoupons);
         } catch (Exception e) {
             logger.error("恢复优惠券失败：{}", e.getMessage(), e);
         }
@@ -0,0 +1,337 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.order.config.OrderTimeoutProperties;
+import com.mok.baseframe.order.service.OrderTimeoutService;
+import com.mok.baseframe.order.util.HashedTimingWheel;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class OrderTimeoutServiceImpl implements OrderTimeoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderTimeoutServiceImpl.class);
+
+    /**
+     * 租约续期脚本：租约仍属于本节点时续期
+     * KEYS: 1.分片租约key
+     * ARGV: 1.本节点标识 2.租约有效期(毫秒)
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('pexpire', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0";
+
+    /**
+     * 租约释放脚本：租约仍属于本节点时删除
+     * KEYS: 1.分片租约key
+     * ARGV: 1.本节点标识
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+
+    private static final DefaultRedisScript<Long> RENEW_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private final OrderTimeoutProperties orderTimeoutProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 本节点标识
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // 本节点持有租约的分片（请求线程登记时读取）
+    private final Set<Integer> ownedShards = ConcurrentHashMap.newKeySet();
+
+    // 请求线程登记的即将到期订单，由时间轮线程取出放入时间轮
+    private final Queue<TimeoutEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    // 以下字段只由调用 pollExpired 的单个线程访问
+    private final HashedTimingWheel<String> wheel;
+    // 已在时间轮中的订单号 -> 超时时间，避免重复加载
+    private final Map<String, Long> trackedOrders = new HashMap<>();
+    private long lastLoadTime;
+
+    public OrderTimeoutServiceImpl(OrderTimeoutProperties orderTimeoutProperties,
+                                   RedisTemplate<String, Object> redisTemplate) {
+        this.orderTimeoutProperties = orderTimeoutProperties;
+        this.redisTemplate = redisTemplate;
+        this.wheel = new HashedTimingWheel<>(orderTimeoutProperties.getTickMillis(),
+                orderTimeoutProperties.getWheelSize(), System.currentTimeMillis());
+    }
+
+    @Override
+    public void schedule(String orderNo, long deadlineMillis) {
+        runAfterCommit(() -> doSchedule(orderNo, deadlineMillis));
+    }
+
+    @Override
+    public void schedule(List<String> orderNos, long deadlineMillis) {
+        if (orderNos == null || orderNos.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> doSchedule(orderNos, deadlineMillis));
+    }
+
+    @Override
+    public void cancel(String orderNo) {
+        runAfterCommit(() -> {
+            try {
+                redisTemplate.opsForZSet().remove(RedisKeyUtil.getOrderTimeoutKey(getShard(orderNo)), orderNo);
+            } catch (Exception e) {
+                // 移除失败时订单到期后仍会被认领，关闭时按订单状态跳过
+                logger.warn("移除订单超时登记失败，订单号：{}，异常：{}", orderNo, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void cancel(List<String> orderNos) {
+        if (orderNos == null || orderNos.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            try {
+                removeAll(orderNos);
+            } catch (Exception e) {
+                logger.warn("批量移除订单超时登记失败，订单数：{}，异常：{}", orderNos.size(), e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public List<String> pollExpired() {
+        long now = System.currentTimeMillis();
+        if (now - lastLoadTime >= orderTimeoutProperties.getLoadIntervalMillis()) {
+            lastLoadTime = now;
+            try {
+                refreshLeases(now);
+                loadDueOrders(now);
+            } catch (Exception e) {
+                logger.error("加载即将超时订单失败：{}", e.getMessage(), e);
+            }
+        }
+
+        TimeoutEntry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            addToWheel(entry.orderNo, entry.deadline);
+        }
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(now, expired);
+        if (expired.isEmpty()) {
+            return expired;
+        }
+        for (String orderNo : expired) {
+            trackedOrders.remove(orderNo);
+        }
+        return claim(expired);
+    }
+
+    private void doSchedule(String orderNo, long deadlineMillis) {
+        int shard = getShard(orderNo);
+        try {
+            redisTemplate.opsForZSet().add(RedisKeyUtil.getOrderTimeoutKey(shard), orderNo, deadlineMillis);
+        } catch (Exception e) {
+            // 登记失败的订单由数据库兜底扫描关闭
+            logger.error("登记订单超时失败，订单号：{}，异常：{}", orderNo, e.getMessage(), e);
+            return;
+        }
+        // 本节点负责的分片且即将到期时直接进入时间轮，不必等待下次加载
+        if (ownedShards.contains(shard)
+                && deadlineMillis <= System.currentTimeMillis() + orderTimeoutProperties.getLookaheadMillis()) {
+            pendingEntries.offer(new TimeoutEntry(orderNo, deadlineMillis));
+        }
+    }
+
+    private void doSchedule(List<String> orderNos, long deadlineMillis) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (String orderNo : orderNos) {
+                        ops.opsForZSet().add(RedisKeyUtil.getOrderTimeoutKey(getShard(orderNo)), orderNo, deadlineMillis);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 登记失败的订单由数据库兜底扫描关闭
+            logger.error("批量登记订单超时失败，订单数：{}，异常：{}", orderNos.size(), e.getMessage(), e);
+            return;
+        }
+        if (deadlineMillis <= System.currentTimeMillis() + orderTimeoutProperties.getLookaheadMillis()) {
+            for (String orderNo : orderNos) {
+                if (ownedShards.contains(getShard(orderNo))) {
+                    pendingEntries.offer(new TimeoutEntry(orderNo, deadlineMillis));
+                }
+            }
+        }
+    }
+
+    private void addToWheel(String orderNo, long deadlineMillis) {
+        if (trackedOrders.putIfAbsent(orderNo, deadlineMillis) == null) {
+            wheel.add(orderNo, deadlineMillis);
+        }
+    }
+
+    /**
+     * 认领到期订单：从Redis有序集合中移除成功的订单归本节点处理
+     * 订单已支付、已取消（登记已移除）或被其他节点认领时移除失败
+     */
+    private List<String> claim(List<String> expired) {
+        List<Object> results = removeAll(expired);
+        List<String> claimed = new ArrayList<>(expired.size());
+        for (int i = 0; i < expired.size(); i++) {
+            Object removed = results.get(i);
+            if (removed instanceof Number && ((Number) removed).longValue() > 0) {
+                claimed.add(expired.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 管道批量从各分片有序集合中移除订单，返回每个订单的移除数
+     */
+    private List<Object> removeAll(List<String> orderNos) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String orderNo : orderNos) {
+                    ops.opsForZSet().remove(RedisKeyUtil.getOrderTimeoutKey(getShard(orderNo)), orderNo);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 心跳并调整分片租约：按存活节点数平均分配分片，多余的释放给其他节点
+     */
+    private void refreshLeases(long now) {
+        long leaseMillis = TimeUnit.SECONDS.toMillis(orderTimeoutProperties.getLeaseSeconds());
+        String nodesKey = RedisKeyUtil.getOrderTimeoutNodesKey();
+        redisTemplate.opsForZSet().add(nodesKey, instanceId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(nodesKey, 0, now - leaseMillis);
+        redisTemplate.expire(nodesKey, leaseMillis, TimeUnit.MILLISECONDS);
+        Long alive = redisTemplate.opsForZSet().zCard(nodesKey);
+
+        int shards = getShardCount();
+        int target = (int) Math.ceil((double) shards / Math.max(1L, alive == null ? 1L : alive));
+
+        Iterator<Integer> iterator = ownedShards.iterator();
+        while (iterator.hasNext()) {
+            int shard = iterator.next();
+            Long renewed = redisTemplate.execute(RENEW_REDIS_SCRIPT,
+                    Collections.singletonList(RedisKeyUtil.getOrderTimeoutLeaseKey(shard)),
+                    instanceId,
+                    leaseMillis);
+            if (renewed == null || renewed != 1) {
+                iterator.remove();
+                logger.warn("订单超时分片租约已丢失，分片：{}", shard);
+            }
+        }
+
+        for (int shard = shards - 1; shard >= 0 && ownedShards.size() > target; shard--) {
+            if (ownedShards.remove(shard)) {
+                redisTemplate.execute(RELEASE_REDIS_SCRIPT,
+                        Collections.singletonList(RedisKeyUtil.getOrderTimeoutLeaseKey(shard)),
+                        instanceId);
+            }
+        }
+
+        for (int shard = 0; shard < shards && ownedShards.size() < target; shard++) {
+            if (ownedShards.contains(shard)) {
+                continue;
+            }
+            Boolean locked = redisTemplate.opsForValue().setIfAbsent(RedisKeyUtil.getOrderTimeoutLeaseKey(shard),
+                    instanceId, leaseMillis, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(locked)) {
+                ownedShards.add(shard);
+                logger.info("获取订单超时分片租约，分片：{}", shard);
+            }
+        }
+    }
+
+    /**
+     * 把本节点负责分片中即将到期（含已到期）的订单加载到时间轮
+     */
+    private void loadDueOrders(long now) {
+        long maxDeadline = now + orderTimeoutProperties.getLookaheadMillis();
+        for (Integer shard : ownedShards) {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet().rangeByScoreWithScores(
+                    RedisKeyUtil.getOrderTimeoutKey(shard), 0, maxDeadline, 0,
+                    orderTimeoutProperties.getLoadBatchSize());
+            if (tuples == null) {
+                continue;
+            }
+            for (ZSetOperations.TypedTuple<Object> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    addToWheel(tuple.getValue().toString(), tuple.getScore().longValue());
+                }
+            }
+        }
+    }
+
+    private int getShardCount() {
+        return Math.max(1, orderTimeoutProperties.getShards());
+    }
+
+    private int getShard(String orderNo) {
+        return Math.floorMod(orderNo.hashCode(), getShardCount());
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class TimeoutEntry {
+        private final String orderNo;
+        private final long deadline;
+
+        private TimeoutEntry(String orderNo, long deadline) {
+            this.orderNo = orderNo;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -6,10 +6,15 @@ import com.mok.baseframe.common.PageParam;
 import com.mok.baseframe.common.PageResult;
 import com.mok.baseframe.dao.ProductMapper;
 import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
 import com.mok.baseframe.order.service.ProductService;
+import com.mok.baseframe.order.service.SeckillPreheatService;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.service.StockWarmUpService;
 import com.mok.baseframe.order.util.RedisKeyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,12 +28,24 @@ public class ProductServiceImpl implements ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
     private final ProductMapper productMapper;
+    private final SeckillReservationService seckillReservationService;
+    private final SeckillPreheatService seckillPreheatService;
+    private final ProductSnapshotCache productSnapshotCache;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StockWarmUpService stockWarmUpService;
 
     public ProductServiceImpl(ProductMapper productMapper,
-                              RedisTemplate<String, Object> redisTemplate) {
+                              SeckillReservationService seckillReservationService,
+                              SeckillPreheatService seckillPreheatService,
+                              ProductSnapshotCache productSnapshotCache,
+                              RedisTemplate<String, Object> redisTemplate,
+                              StockWarmUpService stockWarmUpService) {
         this.productMapper = productMapper;
+        this.seckillReservationService = seckillReservationService;
+        this.seckillPreheatService = seckillPreheatService;
+        this.productSnapshotCache = productSnapshotCache;
         this.redisTemplate = redisTemplate;
+        this.stockWarmUpService = stockWarmUpService;
     }
 
 
@@ -59,15 +76,9 @@ public class ProductServiceImpl implements ProductService {
                 redisTemplate.expire(stockKey, 7, TimeUnit.DAYS);
             }
 
-            if (product.getSeckillStock() > 0 && product.getSeckillStartTime() != null
-                    && product.getSeckillEndTime() != null) {
-                String seckillKey = RedisKeyUtil.getSeckillStockKey(product.getId());
-                redisTemplate.opsForValue().set(seckillKey, product.getSeckillStock());
-                // 秒杀库存缓存设置过期时间为秒杀结束时间
-                long expireTime = product.getSeckillEndTime().getTime() - System.currentTimeMillis();
-                if (expireTime > 0) {
-                    redisTemplate.expire(seckillKey, expireTime, TimeUnit.MILLISECONDS);
-                }
+            // 秒杀库存和时间窗口缓存，过期时间为秒杀结束时间
+            if (product.getSeckillStock() > 0) {
+                seckillReservationService.initSeckillStock(product, true);
             }
 
             logger.info("添加商品成功，商品ID：{}，商品名称：{}", product.getId(), product.getProductName());
@@ -100,11 +111,13 @@ public class ProductServiceImpl implements ProductService {
                 redisTemplate.expire(stockKey, 7, TimeUnit.DAYS);
             }
 
-            // 如果秒杀库存有变化，更新Redis缓存
-            if (product.getSeckillStock() != null && !product.getSeckillStock().equals(oldProduct.getSeckillStock())) {
-                String seckillKey = RedisKeyUtil.getSeckillStockKey(product.getId());
-                redisTemplate.opsForValue().set(seckillKey, product.getSeckillStock());
+            // 如果秒杀库存或秒杀时间有变化，重新加载秒杀库存和时间窗口
+            if (isSeckillChanged(product, oldProduct)) {
+                seckillReservationService.initSeckillStock(productMapper.selectById(product.getId()), true);
             }
+            // 删除商品快照缓存和秒杀预热标记
+            productSnapshotCache.evict(product.getId());
+            seckillPreheatService.evictPreheat(product.getId());
 
             logger.info("更新商品成功，商品ID：{}", product.getId());
         } catch (Exception e) {
@@ -116,11 +129,18 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public void setSeckill(ProductEntity product) {
         productMapper.update(product);
+        // 秒杀信息变更后重新加载秒杀库存和时间窗口
+        seckillReservationService.initSeckillStock(productMapper.selectById(product.getId()), true);
+        productSnapshotCache.evict(product.getId());
+        seckillPreheatService.evictPreheat(product.getId());
     }
 
     @Override
     public void clearSeckill(String id) {
         productMapper.clearSeckill(id);
+        seckillReservationService.clearSeckillStock(id);
+        productSnapshotCache.evict(id);
+        seckillPreheatService.evictPreheat(id);
     }
 
     @Override
@@ -139,9 +159,10 @@ public class ProductServiceImpl implements ProductService {
 
             // 删除Redis缓存
             String stockKey = RedisKeyUtil.getProductStockKey(id);
-            String seckillKey = RedisKeyUtil.getSeckillStockKey(id);
             redisTemplate.delete(stockKey);
-            redisTemplate.delete(seckillKey);
+            seckillReservationService.clearSeckillStock(id);
+            productSnapshotCache.evict(id);
+            seckillPreheatService.evictPreheat(id);
 
             logger.info("删除商品成功，商品ID：{}", id);
         } catch (Exception e) {
@@ -153,16 +174,31 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public ProductEntity getProductById(String id) {
         try {
-            // 先尝试从Redis获取
+            // 库存从Redis获取，Redis中没有库存时查询数据库
             String stockKey = RedisKeyUtil.getProductStockKey(id);
             Object stockObj = redisTemplate.opsForValue().get(stockKey);
-
-            ProductEntity product = productMapper.selectById(id);
-            if (product != null && stockObj != null) {
-                // 使用Redis中的库存，避免读取旧数据
-                product.setStock(Integer.parseInt(stockObj.toString()));
+            if (stockObj == null) {
+                return productMapper.selectById(id);
             }
 
+            // 商品信息使用快照缓存，复制后填充库存，避免修改共享快照
+            ProductEntity snapshot = productSnapshotCache.get(id);
+            if (snapshot == null) {
+                return null;
+            }
+            ProductEntity product = new ProductEntity();
+            BeanUtils.copyProperties(snapshot, product);
+            // 使用Redis中的库存，避免读取旧数据
+            product.setStock(Integer.parseInt(stockObj.toString()));
+            // 秒杀库存以Redis为准，秒杀商品未加载到Redis时查询数据库
+            Integer seckillStock = seckillReservationService.getRemainingStock(id);
+            if (seckillStock == null) {
+                if (snapshot.getSeckillStartTime() != null) {
+                    return productMapper.selectById(id);
+                }
+                seckillStock = 0;
+            }
+            product.setSeckillStock(seckillStock);
             return product;
         } catch (Exception e) {
             logger.error("查询商品失败：{}", e.getMessage(), e);
@@ -174,6 +210,10 @@ public class ProductServiceImpl implements ProductService {
     public PageResult<ProductEntity> getProductList(PageParam pageParam) {
         try {
             List<ProductEntity> list = productMapper.selectByPage(pageParam);
+            if (pageParam.isCursorMode()) {
+                Long total = pageParam.shouldCount() ? productMapper.countByPage(pageParam) : null;
+                return PageResult.fromCursor(list, pageParam, ProductEntity::getCreateTime, ProductEntity::getId, total);
+            }
             long total = productMapper.countByPage(pageParam);
 
             return PageResult.success(list, total, pageParam.getPageNum(), pageParam.getPageSize());
@@ -199,6 +239,7 @@ public class ProductServiceImpl implements ProductService {
                     if (product != null) {
                         int result = productMapper.reduceStock(productId, quantity, product.getVersion());
                         if (result > 0) {
+                            // 库存流水由库存更新消费者在落库时统一记录，这里不重复记录
                             logger.info("扣减库存成功，商品ID：{}，数量：{}", productId, quantity);
                             return true;
                         } else {
@@ -259,7 +300,15 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public List<ProductEntity> getSeckillProducts() {
         try {
-            return productMapper.selectSeckillProducts();
+            List<ProductEntity> products = productMapper.selectSeckillProducts();
+            // 秒杀库存以Redis为准（各分段合计），数据库值由消费者异步扣减存在延迟
+            for (ProductEntity product : products) {
+                Integer remaining = seckillReservationService.getRemainingStock(product.getId());
+                if (remaining != null) {
+                    product.setSeckillStock(remaining);
+                }
+            }
+            return products;
         } catch (Exception e) {
             logger.error("查询秒杀商品列表失败：{}", e.getMessage(), e);
             throw new BusinessException("查询秒杀商品列表失败");
@@ -269,27 +318,19 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public void initProductStockToRedis() {
         try {
-            List<ProductEntity> products = productMapper.selectAllUpProduct();
-            for (ProductEntity product : products) {
-                String stockKey = RedisKeyUtil.getProductStockKey(product.getId());
-                redisTemplate.opsForValue().set(stockKey, product.getStock());
-                redisTemplate.expire(stockKey, 7, TimeUnit.DAYS);
-
-                // 如果是秒杀商品，初始化秒杀库存
-                if (product.getSeckillStock() > 0 && product.getSeckillStartTime() != null
-                        && product.getSeckillEndTime() != null) {
-                    String seckillKey = RedisKeyUtil.getSeckillStockKey(product.getId());
-                    redisTemplate.opsForValue().set(seckillKey, product.getSeckillStock());
-                    long expireTime = product.getSeckillEndTime().getTime() - System.currentTimeMillis();
-                    if (expireTime > 0) {
-                        redisTemplate.expire(seckillKey, expireTime, TimeUnit.MILLISECONDS);
-                    }
-                }
-            }
-
-            logger.info("初始化商品库存到Redis完成，共初始化{}个商品", products.size());
+            int count = stockWarmUpService.warmUpProductStock(true);
+            logger.info("初始化商品库存到Redis完成，共初始化{}个商品", count);
         } catch (Exception e) {
             logger.error("初始化商品库存到Redis失败：{}", e.getMessage(), e);
         }
     }
+
+    /**
+     * 判断本次更新是否修改了秒杀库存或秒杀时间
+     */
+    private boolean isSeckillChanged(ProductEntity product, ProductEntity oldProduct) {
+        return (product.getSeckillStock() != null && !product.getSeckillStock().equals(oldProduct.getSeckillStock()))
+                || (product.getSeckillStartTime() != null && !product.getSeckillStartTime().equals(oldProduct.getSeckillStartTime()))
+                || (product.getSeckillEndTime() != null && !product.getSeckillEndTime().equals(oldProduct.getSeckillEndTime()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.dao.ProductMapper;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.service.SeckillPreheatService;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.util.SeckillUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class SeckillPreheatServiceImpl implements SeckillPreheatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillPreheatServiceImpl.class);
+
+    private final ProductMapper productMapper;
+    private final SeckillReservationService seckillReservationService;
+    private final SeckillSoldOutCache seckillSoldOutCache;
+    private final ProductSnapshotCache productSnapshotCache;
+    private final SeckillProperties seckillProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public SeckillPreheatServiceImpl(ProductMapper productMapper,
+                                     SeckillReservationService seckillReservationService,
+                                     SeckillSoldOutCache seckillSoldOutCache,
+                                     ProductSnapshotCache productSnapshotCache,
+                                     SeckillProperties seckillProperties,
+                                     RedisTemplate<String, Object> redisTemplate) {
+        this.productMapper = productMapper;
+        this.seckillReservationService = seckillReservationService;
+        this.seckillSoldOutCache = seckillSoldOutCache;
+        this.productSnapshotCache = productSnapshotCache;
+        this.seckillProperties = seckillProperties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public int preheatSeckillProducts() {
+        int preheatBefore = seckillProperties.getPreheatBefore();
+        Date startBefore = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(preheatBefore));
+        List<ProductEntity> products = productMapper.selectUpcomingSeckillProducts(startBefore);
+
+        int count = 0;
+        for (ProductEntity product : products) {
+            // 只预热进入预热窗口（开始前 preheatBefore 秒内）的商品；
+            // 已开始但预热标记缺失（商品变更或Redis数据丢失）的商品补做一次
+            boolean upcoming = SeckillUtil.needPreheat(product.getSeckillStartTime(), preheatBefore);
+            if (!upcoming && !SeckillUtil.isInSeckillTime(product.getSeckillStartTime(), product.getSeckillEndTime())) {
+                continue;
+            }
+            // 原子占用预热标记，多节点同时执行时只有一个节点预热；过期时间跟随秒杀结束时间
+            String preheatKey = SeckillUtil.generatePreheatKey(product.getId());
+            long expireTime = product.getSeckillEndTime().getTime() - System.currentTimeMillis();
+            if (expireTime <= 0 || !Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(preheatKey,
+                    product.getSeckillStartTime().getTime(), expireTime, TimeUnit.MILLISECONDS))) {
+                continue;
+            }
+            try {
+                // 1. 加载库存和时间窗口（不覆盖已有库存，避免回滚进行中的秒杀）
+                if (!seckillReservationService.initSeckillStock(product, false)) {
+                    redisTemplate.delete(preheatKey);
+                    continue;
+                }
+
+                // 2. 写入商品快照（Redis和本地缓存）
+                productSnapshotCache.put(product);
+
+                // 3. 库存为0的商品标记售罄（通知所有节点）
+                if (product.getSeckillStock() <= 0) {
+                    seckillSoldOutCache.markSoldOut(product.getId());
+                }
+
+                count++;
+                logger.info("秒杀商品预热完成，商品ID：{}，开始时间：{}，库存：{}，开始前预热：{}",
+                        product.getId(), product.getSeckillStartTime(), product.getSeckillStock(), upcoming);
+            } catch (Exception e) {
+                // 释放预热标记，下次重新预热
+                redisTemplate.delete(preheatKey);
+                logger.error("秒杀商品预热失败，商品ID：{}，异常：{}", product.getId(), e.getMessage(), e);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void evictPreheat(String productId) {
+        redisTemplate.delete(SeckillUtil.generatePreheatKey(productId));
+    }
+}
@@ -0,0 +1,570 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.dao.OrderInfoMapper;
+import com.mok.baseframe.entity.OrderInfoEntity;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.enums.SeckillReserveStatus;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class SeckillReservationServiceImpl implements SeckillReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillReservationServiceImpl.class);
+
+    /**
+     * 秒杀预占脚本（一次调用完成所有分段的尝试）
+     * 同一商品的key使用相同的hash tag，位于同一slot；用户购买记录、预占记录和布隆过滤器按用户所属分段拆分，
+     * 每次预占只写用户所属分段的key和扣减的库存分段
+     * KEYS: 1.时间窗口key 2.用户所属分段的购买记录key 3.用户所属分段的预占记录key
+     *       4.用户所属分段的布隆过滤器key 5..n.各分段库存key（按分段号排列）
+     * ARGV: 1.用户ID 2.购买数量 3.当前时间戳(毫秒) 4.预占记录ID 5.用户限购数量 6.记录保留时间(毫秒) 7.用户所属分段号
+     *       8.布隆模式(0-不使用 1-检查并记录 2-已精确确认未购买，只记录) 9..n.布隆过滤器位偏移
+     * 逻辑:
+     *      1.时间窗口未加载返回-3，不在窗口内返回-1
+     *      2.从用户所属分段开始依次查找库存足够的分段，全部售罄返回0，有库存但都不足本次数量返回-4
+     *      3.超过用户限购返回-2；布隆模式下有未完成预占返回-2，命中过滤器返回-5由调用方查库精确确认
+     *      4.扣减库存，按来源分段记录用户购买数量（用于归还到原分段），记录用户购买（计数或布隆过滤器），
+     *        写入预占记录和来源分段号，返回1
+     */
+    private static final String RESERVE_SCRIPT =
+            "local window = redis.call('hmget', KEYS[1], 'startTime', 'endTime') " +
+            "if not window[1] or not window[2] then " +
+            "    return -3 " +
+            "end " +
+            "local now = tonumber(ARGV[3]) " +
+            "local endTime = tonumber(window[2]) " +
+            "if now < tonumber(window[1]) or now > endTime then " +
+            "    return -1 " +
+            "end " +
+            "local quantity = tonumber(ARGV[2]) " +
+            "local segments = #KEYS - 4 " +
+            "local home = tonumber(ARGV[7]) " +
+            "local segment = -1 " +
+            "local result = 0 " +
+            "for i = 0, segments - 1 do " +
+            "    local s = (home + i) % segments " +
+            "    local stock = tonumber(redis.call('get', KEYS[5 + s]) or '0') " +
+            "    if stock > 0 and stock >= quantity then " +
+            "        segment = s " +
+            "        break " +
+            "    end " +
+            "    if stock > 0 then " +
+            "        result = -4 " +
+            "    end " +
+            "end " +
+            "if segment < 0 then " +
+            "    return result " +
+            "end " +
+            "local limit = tonumber(ARGV[5]) " +
+            "local bloom = tonumber(ARGV[8]) " +
+            "if bloom > 0 then " +
+            "    if quantity > 1 then " +
+            "        return -2 " +
+            "    end " +
+            "    if redis.call('hexists', KEYS[3], 'u:' .. ARGV[1]) == 1 then " +
+            "        return -2 " +
+            "    end " +
+            "    if bloom == 1 then " +
+            "        local seen = true " +
+            "        for i = 9, #ARGV do " +
+            "            if redis.call('getbit', KEYS[4], ARGV[i]) == 0 then " +
+            "                seen = false " +
+            "                break " +
+            "            end " +
+            "        end " +
+            "        if seen then " +
+            "            return -5 " +
+            "        end " +
+            "    end " +
+            "elseif limit > 0 then " +
+            "    local bought = tonumber(redis.call('hget', KEYS[2], ARGV[1]) or '0') " +
+            "    if bought + quantity > limit then " +
+            "        return -2 " +
+            "    end " +
+            "end " +
+            "local ttl = endTime - now + tonumber(ARGV[6]) " +
+            "redis.call('decrby', KEYS[5 + segment], quantity) " +
+            "redis.call('hincrby', KEYS[2], ARGV[1] .. '#' .. segment, quantity) " +
+            "if bloom > 0 then " +
+            "    for i = 9, #ARGV do " +
+            "        redis.call('setbit', KEYS[4], ARGV[i], 1) " +
+            "    end " +
+            "    redis.call('pexpire', KEYS[4], ttl) " +
+            "    redis.call('hset', KEYS[3], ARGV[4], quantity, ARGV[4] .. '#seg', segment, " +
+            "            ARGV[4] .. '#user', ARGV[1], 'u:' .. ARGV[1], ARGV[4]) " +
+            "else " +
+            "    redis.call('hincrby', KEYS[2], ARGV[1], quantity) " +
+            "    redis.call('hset', KEYS[3], ARGV[4], quantity, ARGV[4] .. '#seg', segment) " +
+            "end " +
+            "redis.call('pexpire', KEYS[2], ttl) " +
+            "redis.call('pexpire', KEYS[3], ttl) " +
+            "return 1";
+
+    /**
+     * 释放预占脚本（幂等：预占记录不存在时直接返回0），库存归还到预占时扣减的分段
+     * 布隆模式的预占只删除未完成标记，已购用户由数据库订单精确确认，因此无需从布隆过滤器中删除
+     * KEYS: 1.用户所属分段的购买记录key 2.用户所属分段的预占记录key 3..n.各分段库存key（按分段号排列）
+     * ARGV: 1.用户ID 2.预占记录ID
+     */
+    private static final String RELEASE_SCRIPT =
+            "local quantity = redis.call('hget', KEYS[2], ARGV[2]) " +
+            "if not quantity then " +
+            "    return 0 " +
+            "end " +
+            "local segment = tonumber(redis.call('hget', KEYS[2], ARGV[2] .. '#seg') or '0') " +
+            "redis.call('hdel', KEYS[2], ARGV[2], ARGV[2] .. '#seg') " +
+            "redis.call('incrby', KEYS[3 + segment] or KEYS[3], quantity) " +
+            "local source = ARGV[1] .. '#' .. segment " +
+            "if redis.call('hincrby', KEYS[1], source, -tonumber(quantity)) <= 0 then " +
+            "    redis.call('hdel', KEYS[1], source) " +
+            "end " +
+            "local user = redis.call('hget', KEYS[2], ARGV[2] .. '#user') " +
+            "if user then " +
+            "    redis.call('hdel', KEYS[2], ARGV[2] .. '#user', 'u:' .. user) " +
+            "    return 1 " +
+            "end " +
+            "local left = redis.call('hincrby', KEYS[1], ARGV[1], -tonumber(quantity)) " +
+            "if left <= 0 then " +
+            "    redis.call('hdel', KEYS[1], ARGV[1]) " +
+            "end " +
+            "return 1";
+
+    /**
+     * 归还库存脚本：按用户在各分段的购买记录归还到原分段，没有记录的数量归还到用户所属分段
+     * 库存key已过期说明秒杀已结束，不再写回
+     * KEYS: 1.用户所属分段的购买记录key 2..n.各分段库存key（按分段号排列）
+     * ARGV: 1.用户ID 2.归还数量 3.用户所属分段号
+     * 返回实际归还的数量
+     */
+    private static final String RESTORE_SCRIPT =
+            "local remaining = tonumber(ARGV[2]) " +
+            "local restored = 0 " +
+            "for s = 0, #KEYS - 2 do " +
+            "    if remaining <= 0 then " +
+            "        break " +
+            "    end " +
+            "    local source = ARGV[1] .. '#' .. s " +
+            "    local sold = tonumber(redis.call('hget', KEYS[1], source) or '0') " +
+            "    if sold > 0 then " +
+            "        local take = math.min(sold, remaining) " +
+            "        if redis.call('exists', KEYS[2 + s]) == 1 then " +
+            "            redis.call('incrby', KEYS[2 + s], take) " +
+            "            restored = restored + take " +
+            "        end " +
+            "        if redis.call('hincrby', KEYS[1], source, -take) <= 0 then " +
+            "            redis.call('hdel', KEYS[1], source) " +
+            "        end " +
+            "        remaining = remaining - take " +
+            "    end " +
+            "end " +
+            "local home = KEYS[2 + tonumber(ARGV[3])] or KEYS[2] " +
+            "if remaining > 0 and redis.call('exists', home) == 1 then " +
+            "    redis.call('incrby', home, remaining) " +
+            "    restored = restored + remaining " +
+            "end " +
+            "local left = redis.call('hincrby', KEYS[1], ARGV[1], -tonumber(ARGV[2])) " +
+            "if left <= 0 then " +
+            "    redis.call('hdel', KEYS[1], ARGV[1]) " +
+            "end " +
+            "return restored";
+
+    /**
+     * 确认预占脚本
+     * 预占记录ID与预占时使用相同的参数序列化方式，因此同样通过脚本删除；用户按分段的购买记录保留，用于取消订单时归还
+     * KEYS: 1.用户所属分段的预占记录key
+     * ARGV: 1.预占记录ID
+     */
+    private static final String CONFIRM_SCRIPT =
+            "local user = redis.call('hget', KEYS[1], ARGV[1] .. '#user') " +
+            "if user then " +
+            "    redis.call('hdel', KEYS[1], ARGV[1] .. '#user', 'u:' .. user) " +
+            "end " +
+            "return redis.call('hdel', KEYS[1], ARGV[1], ARGV[1] .. '#seg')";
+
+    /**
+     * 预占记录是否存在脚本
+     * KEYS: 1.用户所属分段的预占记录key
+     * ARGV: 1.预占记录ID
+     */
+    private static final String PENDING_SCRIPT =
+            "return redis.call('hexists', KEYS[1], ARGV[1])";
+
+    /**
+     * 秒杀库存初始化脚本
+     * KEYS: 1.时间窗口key 2..n.各分段库存key
+     * ARGV: 1.开始时间 2.结束时间 3.过期时间(毫秒) 4.是否覆盖已有库存(1/0) 5..n.各分段库存
+     */
+    private static final String INIT_SCRIPT =
+            "for i = 2, #KEYS do " +
+            "    if tonumber(ARGV[4]) == 1 or redis.call('exists', KEYS[i]) == 0 then " +
+            "        redis.call('set', KEYS[i], ARGV[i + 3], 'PX', ARGV[3]) " +
+            "    end " +
+            "end " +
+            "redis.call('hset', KEYS[1], 'startTime', ARGV[1], 'endTime', ARGV[2], 'segments', #KEYS - 1) " +
+            "redis.call('pexpire', KEYS[1], ARGV[3]) " +
+            "return 1";
+
+    private static final DefaultRedisScript<Long> RESERVE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RESERVE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RESTORE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RESTORE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> CONFIRM_REDIS_SCRIPT =
+            new DefaultRedisScript<>(CONFIRM_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> PENDING_REDIS_SCRIPT =
+            new DefaultRedisScript<>(PENDING_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> INIT_REDIS_SCRIPT =
+            new DefaultRedisScript<>(INIT_SCRIPT, Long.class);
+
+    // 布隆过滤器模式
+    private static final int BLOOM_OFF = 0;
+    private static final int BLOOM_CHECK = 1;
+    private static final int BLOOM_RECORD_ONLY = 2;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SeckillProperties seckillProperties;
+    private final SeckillSoldOutCache seckillSoldOutCache;
+    private final OrderInfoMapper orderInfoMapper;
+
+    public SeckillReservationServiceImpl(RedisTemplate<String, Object> redisTemplate,
+                                         SeckillProperties seckillProperties,
+                                         SeckillSoldOutCache seckillSoldOutCache,
+                                         OrderInfoMapper orderInfoMapper) {
+        this.redisTemplate = redisTemplate;
+        this.seckillProperties = seckillProperties;
+        this.seckillSoldOutCache = seckillSoldOutCache;
+        this.orderInfoMapper = orderInfoMapper;
+    }
+
+    @Override
+    public SeckillReserveStatus reserve(String userId, String productId, Integer quantity, String reservationId) {
+        if (!isBloomEnabled()) {
+            return executeReserve(userId, productId, quantity, reservationId, BLOOM_OFF);
+        }
+        SeckillReserveStatus status = executeReserve(userId, productId, quantity, reservationId, BLOOM_CHECK);
+        if (status != SeckillReserveStatus.SUSPECTED_DUPLICATE) {
+            return status;
+        }
+        // 布隆过滤器命中（已购买或误判），查库精确确认；一次预占只查一次（脚本内尝试所有分段），
+        // 查询走 order_info 的 (user_id, product_id) 索引
+        if (orderInfoMapper.countUserSeckillOrders(userId, productId) > 0) {
+            return SeckillReserveStatus.EXCEED_USER_LIMIT;
+        }
+        return executeReserve(userId, productId, quantity, reservationId, BLOOM_RECORD_ONLY);
+    }
+
+    private SeckillReserveStatus executeReserve(String userId, String productId, Integer quantity,
+                                                String reservationId, int bloomMode) {
+        int segments = getSegmentCount();
+        int home = getHomeSegment(userId, segments);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        args.add(quantity);
+        args.add(System.currentTimeMillis());
+        args.add(reservationId);
+        args.add(seckillProperties.getPerUserLimit());
+        args.add(TimeUnit.SECONDS.toMillis(seckillProperties.getRecordRetainSeconds()));
+        args.add(home);
+        args.add(bloomMode);
+        if (bloomMode != BLOOM_OFF) {
+            for (long offset : getBloomOffsets(userId, segments)) {
+                args.add(offset);
+            }
+        }
+        List<String> keys = new ArrayList<>(segments + 4);
+        keys.add(RedisKeyUtil.getSeckillWindowKey(productId));
+        keys.add(RedisKeyUtil.getSeckillBoughtKey(productId, home));
+        keys.add(RedisKeyUtil.getSeckillReservationKey(productId, home));
+        keys.add(RedisKeyUtil.getSeckillBuyerBloomKey(productId, home));
+        keys.addAll(getStockKeys(productId));
+        Long result = redisTemplate.execute(RESERVE_REDIS_SCRIPT, keys, args.toArray());
+        return SeckillReserveStatus.of(result);
+    }
+
+    @Override
+    public void confirm(String productId, String userId, String reservationId) {
+        redisTemplate.execute(CONFIRM_REDIS_SCRIPT,
+                Collections.singletonList(getReservationKey(productId, userId)),
+                reservationId);
+    }
+
+    @Override
+    public boolean release(String productId, String userId, String reservationId) {
+        try {
+            int home = getHomeSegment(userId, getSegmentCount());
+            List<String> keys = new ArrayList<>();
+            keys.add(RedisKeyUtil.getSeckillBoughtKey(productId, home));
+            keys.add(RedisKeyUtil.getSeckillReservationKey(productId, home));
+            keys.addAll(getStockKeys(productId));
+            Long result = redisTemplate.execute(RELEASE_REDIS_SCRIPT, keys, userId, reservationId);
+            if (result != null && result == 1) {
+                seckillSoldOutCache.clear(productId);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            logger.error("释放秒杀预占失败，商品ID：{}，用户ID：{}，预占ID：{}，异常：{}",
+                    productId, userId, reservationId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public void restoreStock(String productId, String userId, Integer quantity) {
+        int home = getHomeSegment(userId, getSegmentCount());
+        Long restored = redisTemplate.execute(RESTORE_REDIS_SCRIPT, getRestoreKeys(productId, home),
+                userId, quantity, home);
+        if (restored != null && restored > 0) {
+            seckillSoldOutCache.clear(productId);
+        }
+    }
+
+    @Override
+    public void restoreStocks(List<OrderInfoEntity> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return;
+        }
+        // 不同商品的key不在同一slot，每个订单一次脚本调用，通过一次流水线执行；先加载脚本，流水线中无法回退为EVAL
+        int segments = getSegmentCount();
+        redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(RESTORE_SCRIPT.getBytes(StandardCharsets.UTF_8)));
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (OrderInfoEntity order : orders) {
+                    int home = getHomeSegment(order.getUserId(), segments);
+                    ops.execute(RESTORE_REDIS_SCRIPT, getRestoreKeys(order.getProductId(), home),
+                            order.getUserId(), order.getQuantity(), home);
+                }
+                return null;
+            }
+        });
+        Set<String> productIds = new HashSet<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Object restored = results.get(i);
+            if (restored != null && Long.parseLong(restored.toString()) > 0) {
+                productIds.add(orders.get(i).getProductId());
+            }
+        }
+        productIds.forEach(seckillSoldOutCache::clear);
+    }
+
+    @Override
+    public boolean isPending(String productId, String userId, String reservationId) {
+        Long result = redisTemplate.execute(PENDING_REDIS_SCRIPT,
+                Collections.singletonList(getReservationKey(productId, userId)),
+                reservationId);
+        return result != null && result == 1;
+    }
+
+    @Override
+    public boolean initSeckillStock(ProductEntity product, boolean overwrite) {
+        List<String> keys = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (!buildInitArgs(product, overwrite, keys, args)) {
+            return false;
+        }
+
+        redisTemplate.execute(INIT_REDIS_SCRIPT, keys, args.toArray());
+        seckillSoldOutCache.clear(product.getId());
+        return true;
+    }
+
+    @Override
+    public int initSeckillStocks(List<ProductEntity> products, boolean overwrite) {
+        List<ProductEntity> loaded = new ArrayList<>(products.size());
+        List<List<String>> keysList = new ArrayList<>(products.size());
+        List<Object[]> argsList = new ArrayList<>(products.size());
+        for (ProductEntity product : products) {
+            List<String> keys = new ArrayList<>();
+            List<Object> args = new ArrayList<>();
+            if (buildInitArgs(product, overwrite, keys, args)) {
+                loaded.add(product);
+                keysList.add(keys);
+                argsList.add(args.toArray());
+            }
+        }
+        if (loaded.isEmpty()) {
+            return 0;
+        }
+
+        // 先加载脚本：流水线中的EVALSHA遇到NOSCRIPT无法回退为EVAL
+        redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(INIT_SCRIPT.getBytes(StandardCharsets.UTF_8)));
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (int i = 0; i < keysList.size(); i++) {
+                    ops.execute(INIT_REDIS_SCRIPT, keysList.get(i), argsList.get(i));
+                }
+                return null;
+            }
+        });
+        for (ProductEntity product : loaded) {
+            seckillSoldOutCache.clear(product.getId());
+        }
+        return loaded.size();
+    }
+
+    /**
+     * 组装秒杀库存初始化脚本参数
+     *
+     * @return false-不是秒杀商品或秒杀已结束
+     */
+    private boolean buildInitArgs(ProductEntity product, boolean overwrite, List<String> keys, List<Object> args) {
+        if (product.getSeckillStock() == null || product.getSeckillStartTime() == null
+                || product.getSeckillEndTime() == null) {
+            return false;
+        }
+        // 过期时间为秒杀结束时间
+        long expireTime = product.getSeckillEndTime().getTime() - System.currentTimeMillis();
+        if (expireTime <= 0) {
+            return false;
+        }
+
+        // 库存平均分配到各分段，余数分给前几个分段
+        int segments = getSegmentCount();
+        int stock = product.getSeckillStock();
+        keys.add(RedisKeyUtil.getSeckillWindowKey(product.getId()));
+        args.add(product.getSeckillStartTime().getTime());
+        args.add(product.getSeckillEndTime().getTime());
+        args.add(expireTime);
+        args.add(overwrite ? 1 : 0);
+        for (int i = 0; i < segments; i++) {
+            keys.add(getStockKey(product.getId(), i));
+            args.add(stock / segments + (i < stock % segments ? 1 : 0));
+        }
+        return true;
+    }
+
+    @Override
+    public void clearSeckillStock(String productId) {
+        List<String> keys = getStockKeys(productId);
+        keys.add(RedisKeyUtil.getSeckillWindowKey(productId));
+        for (int i = 0; i < getSegmentCount(); i++) {
+            keys.add(RedisKeyUtil.getSeckillBuyerBloomKey(productId, i));
+        }
+        redisTemplate.delete(keys);
+        seckillSoldOutCache.clear(productId);
+    }
+
+    @Override
+    public Integer getRemainingStock(String productId) {
+        List<Object> values = redisTemplate.opsForValue().multiGet(getStockKeys(productId));
+        if (values == null) {
+            return null;
+        }
+        Integer remaining = null;
+        for (Object value : values) {
+            if (value != null) {
+                remaining = (remaining == null ? 0 : remaining) + Integer.parseInt(value.toString());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 秒杀库存分段数
+     */
+    private int getSegmentCount() {
+        return Math.max(1, seckillProperties.getStockSegments());
+    }
+
+    /**
+     * 按用户ID哈希确定用户所属分段
+     */
+    private int getHomeSegment(String userId, int segments) {
+        return segments <= 1 ? 0 : Math.floorMod(userId.hashCode(), segments);
+    }
+
+    /**
+     * 每人限购一件时才使用布隆过滤器记录已购用户，限购多件仍需精确计数
+     */
+    private boolean isBloomEnabled() {
+        return seckillProperties.isBuyerBloomEnabled() && seckillProperties.getPerUserLimit() == 1;
+    }
+
+    /**
+     * 布隆过滤器位偏移：对用户ID做两次哈希，第i个偏移为 h1 + i * h2
+     * 过滤器按用户所属分段拆分，总位数平均分给各分段
+     */
+    private long[] getBloomOffsets(String userId, int segments) {
+        long bits = Math.max(1L, seckillProperties.getBuyerBloomBits() / segments);
+        int hashes = Math.max(1, seckillProperties.getBuyerBloomHashes());
+        // FNV-1a 64位
+        long h1 = 0xcbf29ce484222325L;
+        for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+            h1 ^= (b & 0xff);
+            h1 *= 0x100000001b3L;
+        }
+        // 第二个哈希取h1再混淆，保证为奇数避免偏移序列退化
+        long h2 = h1 ^ (h1 >>> 33);
+        h2 *= 0xff51afd7ed558ccdL;
+        h2 ^= h2 >>> 33;
+        h2 |= 1L;
+        long[] offsets = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            offsets[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return offsets;
+    }
+
+    /**
+     * 分段库存key，不分段时沿用原库存key
+     */
+    private String getStockKey(String productId, int segment) {
+        return getSegmentCount() <= 1
+                ? RedisKeyUtil.getSeckillStockKey(productId)
+                : RedisKeyUtil.getSeckillStockSegmentKey(productId, segment);
+    }
+
+    /**
+     * 用户所属分段的预占记录key
+     */
+    private String getReservationKey(String productId, String userId) {
+        return RedisKeyUtil.getSeckillReservationKey(productId, getHomeSegment(userId, getSegmentCount()));
+    }
+
+    /**
+     * 归还库存脚本的KEYS：用户所属分段的购买记录key + 各分段库存key
+     */
+    private List<String> getRestoreKeys(String productId, int home) {
+        List<String> keys = new ArrayList<>();
+        keys.add(RedisKeyUtil.getSeckillBoughtKey(productId, home));
+        keys.addAll(getStockKeys(productId));
+        return keys;
+    }
+
+    private List<String> getStockKeys(String productId) {
+        int segments = getSegmentCount();
+        List<String> keys = new ArrayList<>(segments + 1);
+        for (int i = 0; i < segments; i++) {
+            keys.add(getStockKey(productId, i));
+        }
+        return keys;
+    }
+}
@@ -1,47 +1,74 @@
 package com.mok.baseframe.order.service.impl;
 
+import cn.hutool.core.util.IdUtil;
 import com.mok.baseframe.common.R;
 import com.mok.baseframe.dao.ProductMapper;
+import com.mok.baseframe.dto.SeckillOrderMessage;
 import com.mok.baseframe.entity.ProductEntity;
-import com.mok.baseframe.order.mq.producer.StockUpdateProducer;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
+import com.mok.baseframe.order.cache.SeckillResultNotifier;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.enums.SeckillReserveStatus;
+import com.mok.baseframe.order.enums.SeckillResultStatus;
+import com.mok.baseframe.order.mq.producer.SeckillOrderProducer;
 import com.mok.baseframe.order.service.OrderService;
+import com.mok.baseframe.order.service.SeckillReservationService;
 import com.mok.baseframe.order.service.SeckillService;
-import com.mok.baseframe.order.util.RedisKeyUtil;
+import com.mok.baseframe.order.service.SeckillWaitingRoomService;
+import com.mok.baseframe.order.service.StockWarmUpService;
+import com.mok.baseframe.order.util.SeckillUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
 public class SeckillServiceImpl implements SeckillService {
 
     private static final Logger logger = LoggerFactory.getLogger(SeckillServiceImpl.class);
-    // 秒杀验证码有效期（秒）
-    private static final int VERIFY_CODE_EXPIRE = 60;
-    // 用户秒杀限流（一段时间内只能秒杀一次）
-    // 5秒内只能秒杀一次
-    private static final int USER_SECKILL_LIMIT = 5;
 
     private final ProductMapper productMapper;
     private final OrderService orderService;
-    private final StockUpdateProducer stockUpdateProducer;
+    private final SeckillReservationService seckillReservationService;
+    private final SeckillWaitingRoomService seckillWaitingRoomService;
+    private final SeckillOrderProducer seckillOrderProducer;
+    private final SeckillProperties seckillProperties;
+    private final SeckillSoldOutCache seckillSoldOutCache;
+    private final ProductSnapshotCache productSnapshotCache;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StockWarmUpService stockWarmUpService;
+    private final SeckillResultNotifier seckillResultNotifier;
 
     public SeckillServiceImpl(ProductMapper productMapper,
                               OrderService orderService,
-                              StockUpdateProducer stockUpdateProducer,
-                              RedisTemplate<String, Object> redisTemplate) {
+                              SeckillReservationService seckillReservationService,
+                              SeckillWaitingRoomService seckillWaitingRoomService,
+                              SeckillOrderProducer seckillOrderProducer,
+                              SeckillProperties seckillProperties,
+                              SeckillSoldOutCache seckillSoldOutCache,
+                              ProductSnapshotCache productSnapshotCache,
+                              RedisTemplate<String, Object> redisTemplate,
+                              StockWarmUpService stockWarmUpService,
+                              SeckillResultNotifier seckillResultNotifier) {
         this.productMapper = productMapper;
         this.orderService = orderService;
-        this.stockUpdateProducer = stockUpdateProducer;
+        this.seckillReservationService = seckillReservationService;
+        this.seckillWaitingRoomService = seckillWaitingRoomService;
+        this.seckillOrderProducer = seckillOrderProducer;
+        this.seckillProperties = seckillProperties;
+        this.seckillSoldOutCache = seckillSoldOutCache;
+        this.productSnapshotCache = productSnapshotCache;
         this.redisTemplate = redisTemplate;
+        this.stockWarmUpService = stockWarmUpService;
+        this.seckillResultNotifier = seckillResultNotifier;
     }
 
     @Override
@@ -51,94 +78,164 @@ public class SeckillServiceImpl implements SeckillService {
             return R.error("购买数量必须大于0");
         }
 
-        // 2. 分布式锁key
-        String lockKey = RedisKeyUtil.getDistributedLockKey("seckill:" + productId);
-        String lockValue = UUID.randomUUID().toString();
+        // 本节点已标记售罄的商品直接拒绝，不访问Redis和数据库
+        if (seckillSoldOutCache.isSoldOut(productId)) {
+            return R.error(SeckillReserveStatus.SOLD_OUT.getMessage());
+        }
 
-        try {
-            // 3. 尝试获取分布式锁
-            Boolean lockAcquired = redisTemplate.opsForValue().setIfAbsent(
-                    lockKey, lockValue, 3, TimeUnit.SECONDS);
-            if (lockAcquired == null || !lockAcquired) {
-                return R.error("秒杀过于火爆，请稍后再试");
-            }
+        // 启用等待室时必须先排队并被放行，每次放行只能下单一次
+        if (seckillProperties.isWaitingRoomEnabled()
+                && !seckillWaitingRoomService.consumeAdmission(userId, productId)) {
+            return R.error("请先排队，或下单资格已过期");
+        }
 
-            // 4. 用户秒杀限流
-            String userLimitKey = RedisKeyUtil.getUserSeckillLimitKey(userId, productId);
-            Boolean canSeckill = redisTemplate.opsForValue().setIfAbsent(
-                    userLimitKey, "1", USER_SECKILL_LIMIT, TimeUnit.SECONDS);
-            if (canSeckill == null || !canSeckill) {
-                return R.error("操作过于频繁，请稍后再试");
-            }
+        // 2. Lua脚本原子预占：时间窗口、用户限购、库存扣减、预占记录一次往返完成
+        String reservationId = IdUtil.simpleUUID();
+        SeckillReserveStatus status = seckillReservationService.reserve(userId, productId, quantity, reservationId);
 
-            // 5. 校验秒杀商品
+        // 3. 秒杀信息尚未加载到Redis时，从数据库加载一次后重试
+        if (status == SeckillReserveStatus.NOT_PRELOADED) {
             ProductEntity product = productMapper.selectById(productId);
             if (product == null) {
                 return R.error("商品不存在");
             }
-
-            Date now = new Date();
-            if (product.getSeckillStartTime() == null || product.getSeckillEndTime() == null ||
-                    now.before(product.getSeckillStartTime()) || now.after(product.getSeckillEndTime())) {
+            if (!seckillReservationService.initSeckillStock(product, false)) {
                 return R.error("不在秒杀时间内");
             }
+            status = seckillReservationService.reserve(userId, productId, quantity, reservationId);
+        }
 
-            if (product.getSeckillStock() <= 0) {
-                return R.error("秒杀商品已售罄");
-            }
+        if (status == SeckillReserveStatus.SOLD_OUT) {
+            seckillSoldOutCache.markSoldOut(productId);
+        }
+        if (status != SeckillReserveStatus.SUCCESS) {
+            return R.error(status.getMessage());
+        }
+
+        // 4. 异步模式：投递下单消息后直接返回排队凭证，订单由消费者批量落库
+        if (seckillProperties.isAsyncEnabled()) {
+            return enqueueSeckillOrder(userId, productId, quantity, reservationId);
+        }
+
+        // 5. 创建秒杀订单，失败则释放预占的库存和限购额度
+        try {
+            String orderNo = orderService.createSeckillOrder(userId, productId, quantity, reservationId);
+            seckillReservationService.confirm(productId, userId, reservationId);
+            return R.ok("秒杀成功", orderNo);
+        } catch (Exception e) {
+            seckillReservationService.release(productId, userId, reservationId);
+            logger.error("创建秒杀订单失败，恢复库存，商品ID：{}，用户ID：{}，异常：{}",
+                    productId, userId, e.getMessage(), e);
+            return R.error("秒杀失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 投递异步下单消息，排队凭证即预占记录ID
+     */
+    private R<String> enqueueSeckillOrder(String userId, String productId, Integer quantity, String ticket) {
+        String queueKey = SeckillUtil.generateQueueKey(productId);
+        try {
+            updateSeckillResult(userId, productId, ticket, SeckillResultStatus.QUEUING, null,
+                    SeckillResultStatus.QUEUING.getMessage());
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(queueKey, ticket, now);
+            redisTemplate.expire(queueKey, seckillProperties.getResultExpireSeconds(), TimeUnit.SECONDS);
+
+            SeckillOrderMessage message = new SeckillOrderMessage();
+            message.setTicket(ticket);
+            message.setUserId(userId);
+            message.setProductId(productId);
+            message.setQuantity(quantity);
+            message.setCreateTime(now);
+            seckillOrderProducer.sendSeckillOrderMessage(message);
+
+            return R.ok("排队中", ticket);
+        } catch (Exception e) {
+            seckillReservationService.release(productId, userId, ticket);
+            redisTemplate.opsForZSet().remove(queueKey, ticket);
+            redisTemplate.opsForHash().delete(SeckillUtil.generateResultKey(userId, productId), ticket);
+            logger.error("投递秒杀下单消息失败，恢复库存，商品ID：{}，用户ID：{}，异常：{}",
+                    productId, userId, e.getMessage(), e);
+            return R.error("秒杀失败：" + e.getMessage());
+        }
+    }
+
+    @Override
+    public DeferredResult<R<Map<String, Object>>> getSeckillResult(String userId, String productId, String ticket,
+                                                                   Long waitMillis) {
+        long maxWait = seckillProperties.getResultMaxWaitMillis();
+        long wait = waitMillis == null ? 0 : Math.max(0, Math.min(waitMillis, maxWait));
+
+        R<Map<String, Object>> current = readSeckillResult(userId, productId, ticket);
+        if (wait == 0 || !isQueuing(current)) {
+            DeferredResult<R<Map<String, Object>>> deferred = new DeferredResult<>();
+            deferred.setResult(withPosition(current, productId, ticket));
+            return deferred;
+        }
 
-            // 6. Redis预减秒杀库存（使用Lua脚本保证原子性）
-            String seckillStockKey = RedisKeyUtil.getSeckillStockKey(productId);
-//            Object stockValue = redisTemplate.opsForValue().get(seckillStockKey);
-//            String luaScript =
-//                    "local stock = redis.call('get', KEYS[1]) " +
-//                            "if stock then " +
-//                            "   if tonumber(stock) >= tonumber(ARGV[1]) then " +
-//                            "       redis.call('decrby', KEYS[1], ARGV[1]) " +
-//                            "       return 1 " +
-//                            "   else " +
-//                            "       return 0 " +
-//                            "   end " +
-//                            "else " +
-//                            "   return 0 " +
-//                            "end";
-//
-//            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>(luaScript, Long.class);
-//            logger.info(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>Lua script SHA1: {}", redisScript.getSha1());
-//            logger.info(">>>>>>>>>>>>>>>>>>>>>>>>>>>Lua script content: {}", luaScript);
-//            Long result = redisTemplate.execute(redisScript,
-//                    Collections.singletonList(seckillStockKey), quantity.toString());
-//            Long stock = redisTemplate.opsForValue().decrement(seckillStockKey, quantity);
-//            if (stock == null || stock < 0) {
-//                // 库存不足，回滚
-//                redisTemplate.opsForValue().increment(seckillStockKey, quantity);
-//                return R.error("秒杀商品剩余库存不足");
-//            }
-//            if (result == 0) {
-//                return R.error("秒杀商品已售罄");
-//            }
-
-            // 7. 创建秒杀订单（异步处理，放入消息队列）
-            // 这里简化处理，直接创建订单
-            try {
-                String orderNo = orderService.createOrder(userId, productId, quantity, null, "秒杀订单",1);
-                stockUpdateProducer.sendSeckillStockReduceMessage(productId, quantity, null, orderNo);
-                return R.ok("秒杀成功", orderNo);
-            } catch (Exception e) {
-                // 创建订单失败，恢复Redis库存
-//                redisTemplate.opsForValue().increment(seckillStockKey, quantity);
-                logger.error("创建秒杀订单失败，恢复库存，商品ID：{}，用户ID：{}，异常：{}",
-                        productId, userId, e.getMessage(), e);
-                return R.error("秒杀失败：" + e.getMessage());
+        // 排队中：登记回调后释放请求线程，结果变更通知到达或等待超时时再响应
+        DeferredResult<R<Map<String, Object>>> deferred = new DeferredResult<>(wait);
+        Runnable callback = () -> {
+            R<Map<String, Object>> result = readSeckillResult(userId, productId, ticket);
+            if (!isQueuing(result)) {
+                deferred.setResult(result);
             }
+        };
+        deferred.onTimeout(() -> deferred.setResult(
+                withPosition(readSeckillResult(userId, productId, ticket), productId, ticket)));
+        deferred.onError(e -> deferred.setResult(R.error("查询秒杀结果失败")));
+        deferred.onCompletion(() -> seckillResultNotifier.unregister(ticket, callback));
+        seckillResultNotifier.register(ticket, callback);
+        // 登记前结果可能已经变更，登记后再读一次
+        callback.run();
+        return deferred;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R<Map<String, Object>> readSeckillResult(String userId, String productId, String ticket) {
+        Map<String, Object> result = (Map<String, Object>) redisTemplate.opsForHash()
+                .get(SeckillUtil.generateResultKey(userId, productId), ticket);
+        if (result == null) {
+            return R.error("秒杀记录不存在或已过期");
+        }
+        return R.ok(result);
+    }
+
+    private boolean isQueuing(R<Map<String, Object>> result) {
+        if (result.getData() == null) {
+            return false;
+        }
+        Object status = result.getData().get("status");
+        return status instanceof Number && ((Number) status).intValue() == SeckillResultStatus.QUEUING.getCode();
+    }
 
-        } finally {
-            // 8. 释放分布式锁
-            String luaScript = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-                    "return redis.call('del', KEYS[1]) " +
-                    "else return 0 end";
-            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>(luaScript, Long.class);
-            redisTemplate.execute(redisScript, Collections.singletonList(lockKey), lockValue);
+    /**
+     * 排队中返回当前排队位置（从1开始）
+     */
+    private R<Map<String, Object>> withPosition(R<Map<String, Object>> result, String productId, String ticket) {
+        if (isQueuing(result)) {
+            Long rank = redisTemplate.opsForZSet().rank(SeckillUtil.generateQueueKey(productId), ticket);
+            result.getData().put("position", rank == null ? null : rank + 1);
+        }
+        return result;
+    }
+
+    @Override
+    public void updateSeckillResult(String userId, String productId, String ticket,
+                                    SeckillResultStatus status, String orderNo, String message) {
+        String resultKey = SeckillUtil.generateResultKey(userId, productId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("ticket", ticket);
+        result.put("status", status.getCode());
+        result.put("orderNo", orderNo);
+        result.put("message", message);
+        redisTemplate.opsForHash().put(resultKey, ticket, result);
+        redisTemplate.expire(resultKey, seckillProperties.getResultExpireSeconds(), TimeUnit.SECONDS);
+
+        if (status != SeckillResultStatus.QUEUING) {
+            redisTemplate.opsForZSet().remove(SeckillUtil.generateQueueKey(productId), ticket);
+            seckillResultNotifier.publish(ticket);
         }
     }
 
@@ -146,7 +243,7 @@ public class SeckillServiceImpl implements SeckillService {
     public R<String> getSeckillVerifyCode(String userId, String productId) {
         try {
             // 1. 校验商品是否存在且是秒杀商品
-            ProductEntity product = productMapper.selectById(productId);
+            ProductEntity product = productSnapshotCache.get(productId);
             if (product == null) {
                 return R.error("商品不存在");
             }
@@ -165,12 +262,21 @@ public class SeckillServiceImpl implements SeckillService {
                 return R.error("秒杀已结束");
             }
 
-            // 3. 生成验证码（6位随机数字）
-            String verifyCode = String.format("%06d", (int) (Math.random() * 1000000));
+            // 3. 无状态模式：按时间片计算HMAC验证码，不写Redis
+            if (seckillProperties.isVerifyCodeStateless()) {
+                long bucketMillis = TimeUnit.SECONDS.toMillis(seckillProperties.getVerifyCodeExpire());
+                String verifyCode = SeckillUtil.generateSeckillCode(seckillProperties.getVerifySecret(),
+                        userId, productId, System.currentTimeMillis() / bucketMillis);
+                return R.ok("获取成功", verifyCode);
+            }
+
+            // 4. 生成验证码（6位随机数字）
+            String verifyCode = SeckillUtil.generateNumericVerifyCode();
 
-            // 4. 将验证码存入Redis，设置过期时间
+            // 5. 将验证码存入Redis，设置过期时间
             String verifyKey = "seckill:verify:code:" + userId + ":" + productId;
-            redisTemplate.opsForValue().set(verifyKey, verifyCode, VERIFY_CODE_EXPIRE, TimeUnit.SECONDS);
+            redisTemplate.opsForValue().set(verifyKey, verifyCode,
+                    seckillProperties.getVerifyCodeExpire(), TimeUnit.SECONDS);
 
             return R.ok("获取成功", verifyCode);
         } catch (Exception e) {
@@ -182,6 +288,11 @@ public class SeckillServiceImpl implements SeckillService {
     @Override
     public boolean verifySeckillCode(String userId, String productId, String verifyCode) {
         try {
+            if (seckillProperties.isVerifyCodeStateless()) {
+                return SeckillUtil.verifySeckillCode(seckillProperties.getVerifySecret(), userId, productId,
+                        verifyCode, TimeUnit.SECONDS.toMillis(seckillProperties.getVerifyCodeExpire()));
+            }
+
             String verifyKey = "seckill:verify:code:" + userId + ":" + productId;
             String storedCode = (String) redisTemplate.opsForValue().get(verifyKey);
 
@@ -197,23 +308,23 @@ public class SeckillServiceImpl implements SeckillService {
     }
 
     @Override
-    public void initSeckillStockToRedis() {
-        try {
-            // 查询所有秒杀商品
-            List<ProductEntity> seckillProducts = productMapper.selectSeckillProducts();
-
-            for (ProductEntity product : seckillProducts) {
-                String seckillKey = RedisKeyUtil.getSeckillStockKey(product.getId());
-                redisTemplate.opsForValue().set(seckillKey, product.getSeckillStock());
-
-                // 设置过期时间为秒杀结束时间
-                long expireTime = product.getSeckillEndTime().getTime() - System.currentTimeMillis();
-                if (expireTime > 0) {
-                    redisTemplate.expire(seckillKey, expireTime, TimeUnit.MILLISECONDS);
-                }
+    public R<Integer> getSeckillRemainingStock(String productId) {
+        Integer remaining = seckillReservationService.getRemainingStock(productId);
+        if (remaining == null) {
+            ProductEntity product = productMapper.selectById(productId);
+            if (product == null) {
+                return R.error("商品不存在");
             }
+            remaining = product.getSeckillStock();
+        }
+        return R.ok("查询成功", remaining);
+    }
 
-            logger.info("初始化秒杀库存到Redis完成，共初始化{}个秒杀商品", seckillProducts.size());
+    @Override
+    public void initSeckillStockToRedis() {
+        try {
+            int count = stockWarmUpService.warmUpSeckillStock(true);
+            logger.info("初始化秒杀库存到Redis完成，共初始化{}个秒杀商品", count);
         } catch (Exception e) {
             logger.error("初始化秒杀库存到Redis失败：{}", e.getMessage(), e);
         }
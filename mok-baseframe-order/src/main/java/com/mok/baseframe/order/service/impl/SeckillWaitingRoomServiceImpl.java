@@ -0,0 +1,261 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.common.R;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.cache.ProductSnapshotCache;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.enums.SeckillReserveStatus;
+import com.mok.baseframe.order.enums.SeckillWaitingStatus;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.service.SeckillWaitingRoomService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import com.mok.baseframe.order.util.SeckillUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class SeckillWaitingRoomServiceImpl implements SeckillWaitingRoomService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillWaitingRoomServiceImpl.class);
+
+    /**
+     * 加入等待室脚本
+     * KEYS: 1.排队key 2.已放行key 3.排队序号key 4.活跃商品集合key
+     * ARGV: 1.用户ID 2.等待室容量 3.当前时间戳(毫秒) 4.过期时间(毫秒) 5.商品ID
+     * 逻辑:
+     *      1.已放行且未过期返回-2
+     *      2.已在排队返回当前位置
+     *      3.排队加已放行人数达到容量返回-1
+     *      4.按递增序号入队，返回排队位置
+     */
+    private static final String JOIN_SCRIPT =
+            "local now = tonumber(ARGV[3]) " +
+            "local admitExpire = redis.call('zscore', KEYS[2], ARGV[1]) " +
+            "if admitExpire and tonumber(admitExpire) >= now then " +
+            "    return -2 " +
+            "end " +
+            "local rank = redis.call('zrank', KEYS[1], ARGV[1]) " +
+            "if rank then " +
+            "    return rank + 1 " +
+            "end " +
+            "redis.call('zremrangebyscore', KEYS[2], '-inf', now) " +
+            "local size = redis.call('zcard', KEYS[1]) " +
+            "if size + redis.call('zcard', KEYS[2]) >= tonumber(ARGV[2]) then " +
+            "    return -1 " +
+            "end " +
+            "local seq = redis.call('incr', KEYS[3]) " +
+            "redis.call('zadd', KEYS[1], seq, ARGV[1]) " +
+            "redis.call('sadd', KEYS[4], ARGV[5]) " +
+            "redis.call('pexpire', KEYS[1], ARGV[4]) " +
+            "redis.call('pexpire', KEYS[3], ARGV[4]) " +
+            "return size + 1";
+
+    /**
+     * 放行脚本：按入队顺序弹出一批用户写入已放行集合
+     * KEYS: 1.排队key 2.已放行key 3.活跃商品集合key
+     * ARGV: 1.放行人数 2.当前时间戳(毫秒) 3.下单资格有效期(毫秒) 4.商品ID
+     */
+    private static final String RELEASE_SCRIPT =
+            "local users = redis.call('zpopmin', KEYS[1], ARGV[1]) " +
+            "local expireAt = tonumber(ARGV[2]) + tonumber(ARGV[3]) " +
+            "for i = 1, #users, 2 do " +
+            "    redis.call('zadd', KEYS[2], expireAt, users[i]) " +
+            "end " +
+            "if #users > 0 then " +
+            "    redis.call('pexpire', KEYS[2], ARGV[3]) " +
+            "end " +
+            "if redis.call('zcard', KEYS[1]) == 0 then " +
+            "    redis.call('srem', KEYS[3], ARGV[4]) " +
+            "end " +
+            "return #users / 2";
+
+    /**
+     * 消费下单资格脚本（资格只能使用一次）
+     * KEYS: 1.已放行key
+     * ARGV: 1.用户ID 2.当前时间戳(毫秒)
+     */
+    private static final String CONSUME_SCRIPT =
+            "local admitExpire = redis.call('zscore', KEYS[1], ARGV[1]) " +
+            "if not admitExpire then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "if tonumber(admitExpire) < tonumber(ARGV[2]) then " +
+            "    return 0 " +
+            "end " +
+            "return 1";
+
+    private static final DefaultRedisScript<Long> JOIN_REDIS_SCRIPT =
+            new DefaultRedisScript<>(JOIN_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> CONSUME_REDIS_SCRIPT =
+            new DefaultRedisScript<>(CONSUME_SCRIPT, Long.class);
+
+    // 放行任务锁，保证多节点部署时每个周期只有一个节点放行
+    private static final String RELEASE_LOCK_NAME = "seckill_waiting_release";
+
+    private final SeckillReservationService seckillReservationService;
+    private final SeckillSoldOutCache seckillSoldOutCache;
+    private final ProductSnapshotCache productSnapshotCache;
+    private final SeckillProperties seckillProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public SeckillWaitingRoomServiceImpl(SeckillReservationService seckillReservationService,
+                                         SeckillSoldOutCache seckillSoldOutCache,
+                                         ProductSnapshotCache productSnapshotCache,
+                                         SeckillProperties seckillProperties,
+                                         RedisTemplate<String, Object> redisTemplate) {
+        this.seckillReservationService = seckillReservationService;
+        this.seckillSoldOutCache = seckillSoldOutCache;
+        this.productSnapshotCache = productSnapshotCache;
+        this.seckillProperties = seckillProperties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public R<Map<String, Object>> joinQueue(String userId, String productId) {
+        // 1. 本地已标记售罄直接拒绝
+        if (seckillSoldOutCache.isSoldOut(productId)) {
+            return R.error(SeckillReserveStatus.SOLD_OUT.getMessage());
+        }
+
+        // 2. 校验秒杀时间（商品快照，不查数据库）
+        ProductEntity product = productSnapshotCache.get(productId);
+        if (product == null) {
+            return R.error("商品不存在");
+        }
+        if (product.getSeckillEndTime() == null) {
+            return R.error("该商品不是秒杀商品");
+        }
+        long now = System.currentTimeMillis();
+        if (now > product.getSeckillEndTime().getTime()) {
+            return R.error("秒杀已结束");
+        }
+
+        // 3. 等待室容量跟随剩余库存
+        Integer remaining = seckillReservationService.getRemainingStock(productId);
+        if (remaining == null) {
+            return R.error("秒杀尚未开始");
+        }
+        if (remaining <= 0) {
+            seckillSoldOutCache.markSoldOut(productId);
+            return R.error(SeckillReserveStatus.SOLD_OUT.getMessage());
+        }
+        long capacity = (long) Math.ceil(remaining * seckillProperties.getWaitingOversubscription());
+        long ttl = product.getSeckillEndTime().getTime() - now
+                + TimeUnit.SECONDS.toMillis(seckillProperties.getAdmissionExpireSeconds());
+
+        Long result = redisTemplate.execute(JOIN_REDIS_SCRIPT,
+                Arrays.asList(
+                        SeckillUtil.generateWaitingKey(productId),
+                        SeckillUtil.generateAdmittedKey(productId),
+                        SeckillUtil.generateWaitingSeqKey(productId),
+                        SeckillUtil.generateWaitingProductsKey()),
+                userId,
+                capacity,
+                now,
+                ttl,
+                productId);
+
+        if (result == null || result == -1) {
+            return R.error("排队人数已满，请稍后再试");
+        }
+        if (result == -2) {
+            return R.ok(buildStatus(SeckillWaitingStatus.ADMITTED, null));
+        }
+        return R.ok(buildStatus(SeckillWaitingStatus.WAITING, result));
+    }
+
+    @Override
+    public R<Map<String, Object>> getQueueStatus(String userId, String productId) {
+        Double admitExpire = redisTemplate.opsForZSet().score(SeckillUtil.generateAdmittedKey(productId), userId);
+        if (admitExpire != null && admitExpire >= System.currentTimeMillis()) {
+            return R.ok(buildStatus(SeckillWaitingStatus.ADMITTED, null));
+        }
+        Long rank = redisTemplate.opsForZSet().rank(SeckillUtil.generateWaitingKey(productId), userId);
+        if (rank != null) {
+            return R.ok(buildStatus(SeckillWaitingStatus.WAITING, rank + 1));
+        }
+        return R.ok(buildStatus(SeckillWaitingStatus.NOT_IN_QUEUE, null));
+    }
+
+    @Override
+    public boolean consumeAdmission(String userId, String productId) {
+        Long result = redisTemplate.execute(CONSUME_REDIS_SCRIPT,
+                Collections.singletonList(SeckillUtil.generateAdmittedKey(productId)),
+                userId,
+                System.currentTimeMillis());
+        return result != null && result == 1;
+    }
+
+    @Override
+    public int releaseWaitingUsers() {
+        // 每个放行周期只允许一个节点执行，锁随周期自动过期
+        String lockKey = RedisKeyUtil.getDistributedLockKey(RELEASE_LOCK_NAME);
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, 1,
+                seckillProperties.getWaitingReleaseIntervalMillis(), TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return 0;
+        }
+
+        Set<Object> productIds = redisTemplate.opsForSet().members(SeckillUtil.generateWaitingProductsKey());
+        if (productIds == null || productIds.isEmpty()) {
+            return 0;
+        }
+
+        int released = 0;
+        for (Object id : productIds) {
+            String productId = id.toString();
+            try {
+                released += releaseProduct(productId);
+            } catch (Exception e) {
+                logger.error("秒杀等待室放行失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+            }
+        }
+        return released;
+    }
+
+    private int releaseProduct(String productId) {
+        String waitingKey = SeckillUtil.generateWaitingKey(productId);
+
+        // 已售罄的商品清空排队，排队用户查询时得到未排队状态
+        Integer remaining = seckillReservationService.getRemainingStock(productId);
+        if (remaining == null || remaining <= 0) {
+            redisTemplate.delete(waitingKey);
+            redisTemplate.opsForSet().remove(SeckillUtil.generateWaitingProductsKey(), productId);
+            logger.info("秒杀商品已售罄或已结束，清空等待室，商品ID：{}", productId);
+            return 0;
+        }
+
+        Long released = redisTemplate.execute(RELEASE_REDIS_SCRIPT,
+                Arrays.asList(
+                        waitingKey,
+                        SeckillUtil.generateAdmittedKey(productId),
+                        SeckillUtil.generateWaitingProductsKey()),
+                seckillProperties.getWaitingReleaseBatch(),
+                System.currentTimeMillis(),
+                TimeUnit.SECONDS.toMillis(seckillProperties.getAdmissionExpireSeconds()),
+                productId);
+        return released == null ? 0 : released.intValue();
+    }
+
+    private Map<String, Object> buildStatus(SeckillWaitingStatus status, Long position) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", status.getCode());
+        result.put("message", status.getMessage());
+        result.put("position", position);
+        return result;
+    }
+}
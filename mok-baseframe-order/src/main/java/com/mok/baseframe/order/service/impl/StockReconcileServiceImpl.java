@@ -0,0 +1,428 @@
+package com.mok.baseframe.order.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.mok.baseframe.dao.ProductMapper;
+import com.mok.baseframe.entity.InventoryLogEntity;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.cache.SeckillSoldOutCache;
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.config.StockReconcileProperties;
+import com.mok.baseframe.order.service.InventoryLogService;
+import com.mok.baseframe.order.service.StockReconcileService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class StockReconcileServiceImpl implements StockReconcileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReconcileServiceImpl.class);
+
+    private static final String LOCK_NAME = "stock_reconcile";
+
+    /**
+     * 库存修复脚本：各key库存仍等于对账时读到的值才调整，期间有并发扣减则放弃，避免覆盖
+     * 增加的库存加到第一个key，减少的库存依次从各分段扣减
+     * KEYS: 库存key（秒杀分段时为各分段库存key）
+     * ARGV: 1..n.对账时读到的各key库存 n+1.库存调整量
+     */
+    private static final String REPAIR_SCRIPT =
+            "for i = 1, #KEYS do " +
+            "    if tonumber(redis.call('get', KEYS[i]) or '0') ~= tonumber(ARGV[i]) then " +
+            "        return 0 " +
+            "    end " +
+            "end " +
+            "local delta = tonumber(ARGV[#KEYS + 1]) " +
+            "if delta > 0 then " +
+            "    redis.call('incrby', KEYS[1], delta) " +
+            "    return 1 " +
+            "end " +
+            "for i = 1, #KEYS do " +
+            "    local take = math.min(tonumber(ARGV[i]), -delta) " +
+            "    if take > 0 then " +
+            "        redis.call('decrby', KEYS[i], take) " +
+            "        delta = delta + take " +
+            "    end " +
+            "    if delta == 0 then " +
+            "        break " +
+            "    end " +
+            "end " +
+            "return 1";
+
+    /**
+     * 对账锁释放脚本：锁仍属于本节点时删除
+     * KEYS: 1.对账锁key
+     * ARGV: 1.本节点标识
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+
+    private static final DefaultRedisScript<Long> REPAIR_REDIS_SCRIPT =
+            new DefaultRedisScript<>(REPAIR_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private final ProductMapper productMapper;
+    private final InventoryLogService inventoryLogService;
+    private final SeckillSoldOutCache seckillSoldOutCache;
+    private final SeckillProperties seckillProperties;
+    private final StockReconcileProperties stockReconcileProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 本节点对账锁标识
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public StockReconcileServiceImpl(ProductMapper productMapper,
+                                     InventoryLogService inventoryLogService,
+                                     SeckillSoldOutCache seckillSoldOutCache,
+                                     SeckillProperties seckillProperties,
+                                     StockReconcileProperties stockReconcileProperties,
+                                     RedisTemplate<String, Object> redisTemplate) {
+        this.productMapper = productMapper;
+        this.inventoryLogService = inventoryLogService;
+        this.seckillSoldOutCache = seckillSoldOutCache;
+        this.seckillProperties = seckillProperties;
+        this.stockReconcileProperties = stockReconcileProperties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public int reconcile() {
+        String lockKey = RedisKeyUtil.getDistributedLockKey(LOCK_NAME);
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, instanceId,
+                stockReconcileProperties.getLockSeconds(), TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.info("其他节点正在进行库存对账，本节点跳过");
+            return 0;
+        }
+
+        long startMillis = System.currentTimeMillis();
+        int chunkSize = stockReconcileProperties.getChunkSize();
+        int scanned = 0;
+        int found = 0;
+        int repaired = 0;
+        try {
+            // 按主键分批读取，候选差异攒够一批再统一复核，复核等待不随批次数线性增长
+            List<StockDiff> candidates = new ArrayList<>();
+            long detectedAt = 0;
+            String afterId = "";
+            while (true) {
+                List<ProductEntity> products = productMapper.selectStockChunk(afterId, chunkSize);
+                if (products.isEmpty()) {
+                    break;
+                }
+                scanned += products.size();
+                afterId = products.get(products.size() - 1).getId();
+
+                List<StockDiff> diffs = findDiffs(products);
+                if (!diffs.isEmpty()) {
+                    if (candidates.isEmpty()) {
+                        detectedAt = System.currentTimeMillis();
+                    }
+                    candidates.addAll(diffs);
+                    found += diffs.size();
+                }
+                if (candidates.size() >= chunkSize) {
+                    repaired += settleAndRepair(candidates, detectedAt);
+                    candidates.clear();
+                }
+                if (products.size() < chunkSize) {
+                    break;
+                }
+            }
+            if (!candidates.isEmpty()) {
+                repaired += settleAndRepair(candidates, detectedAt);
+            }
+        } finally {
+            redisTemplate.execute(RELEASE_REDIS_SCRIPT, Collections.singletonList(lockKey), instanceId);
+        }
+
+        logger.info("库存对账完成，商品数：{}，发现差异：{}，修复：{}，耗时：{}ms",
+                scanned, found, repaired, System.currentTimeMillis() - startMillis);
+        return repaired;
+    }
+
+    /**
+     * 比对一批商品的Redis库存与数据库库存
+     * 普通库存：Redis = 数据库库存 - 已预占未支付数量（确认订单时预占Redis库存，支付时才扣数据库）
+     * 秒杀库存：Redis各分段合计 = 数据库秒杀库存 - 未落库的预占数量
+     * Redis中未加载的库存不比对，由预热负责加载
+     */
+    @SuppressWarnings("unchecked")
+    private List<StockDiff> findDiffs(List<ProductEntity> products) {
+        long now = System.currentTimeMillis();
+        List<String> stockKeys = new ArrayList<>(products.size());
+        List<String> reservedKeys = new ArrayList<>(products.size());
+        List<ProductEntity> seckillProducts = new ArrayList<>();
+        List<String> seckillKeys = new ArrayList<>();
+        for (ProductEntity product : products) {
+            stockKeys.add(RedisKeyUtil.getProductStockKey(product.getId()));
+            reservedKeys.add(RedisKeyUtil.getProductStockReservedKey(product.getId()));
+            if (product.getSeckillEndTime() != null && product.getSeckillEndTime().getTime() > now) {
+                seckillProducts.add(product);
+                seckillKeys.addAll(getSeckillStockKeys(product.getId()));
+            }
+        }
+
+        // 1. 一次流水线读取整批库存、已预占数量和秒杀预占记录，按字符串读取原始值
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().mGet(toBytes(stockKeys));
+            connection.stringCommands().mGet(toBytes(reservedKeys));
+            if (!seckillKeys.isEmpty()) {
+                connection.stringCommands().mGet(toBytes(seckillKeys));
+            }
+            // 预占记录按用户所属分段拆分，每个商品读取全部分段
+            for (ProductEntity product : seckillProducts) {
+                for (int s = 0; s < getSeckillSegmentCount(); s++) {
+                    connection.hashCommands().hGetAll(toBytes(RedisKeyUtil.getSeckillReservationKey(product.getId(), s)));
+                }
+            }
+            return null;
+        }, RedisSerializer.string());
+
+        List<StockDiff> diffs = new ArrayList<>();
+        List<String> stocks = (List<String>) results.get(0);
+        List<String> reservedQuantities = (List<String>) results.get(1);
+        for (int i = 0; i < products.size(); i++) {
+            ProductEntity product = products.get(i);
+            String value = stocks.get(i);
+            if (value == null || product.getStock() == null) {
+                continue;
+            }
+            String reserved = reservedQuantities.get(i);
+            long expected = product.getStock() - (reserved != null ? Long.parseLong(reserved.trim()) : 0L);
+            addDiff(diffs, product.getId(), false, Collections.singletonList(stockKeys.get(i)),
+                    Collections.singletonList(value), expected);
+        }
+
+        if (!seckillProducts.isEmpty()) {
+            List<String> seckillStocks = (List<String>) results.get(2);
+            int segments = getSeckillSegmentCount();
+            for (int i = 0; i < seckillProducts.size(); i++) {
+                ProductEntity product = seckillProducts.get(i);
+                List<String> values = seckillStocks.subList(i * segments, (i + 1) * segments);
+                if (values.contains(null)) {
+                    continue;
+                }
+                long reserved = 0;
+                for (int s = 0; s < segments; s++) {
+                    reserved += sumReservations((Map<String, String>) results.get(3 + i * segments + s));
+                }
+                long seckillStock = product.getSeckillStock() != null ? product.getSeckillStock() : 0;
+                long expected = seckillStock - reserved;
+                addDiff(diffs, product.getId(), true, seckillKeys.subList(i * segments, (i + 1) * segments),
+                        values, expected);
+            }
+        }
+        return diffs;
+    }
+
+    private void addDiff(List<StockDiff> diffs, String productId, boolean seckill, List<String> keys,
+                         List<String> values, long expected) {
+        List<Long> observed = new ArrayList<>(values.size());
+        long total = 0;
+        try {
+            for (String value : values) {
+                long stock = Long.parseLong(value.trim());
+                observed.add(stock);
+                total += stock;
+            }
+        } catch (NumberFormatException e) {
+            logger.error("Redis库存格式错误，商品ID：{}，库存：{}", productId, values);
+            return;
+        }
+        if (total == expected) {
+            return;
+        }
+        if (expected < 0) {
+            logger.warn("数据库库存小于途中预占数量，跳过对账，商品ID：{}，Redis库存：{}，应有库存：{}，是否秒杀：{}",
+                    productId, total, expected, seckill);
+            return;
+        }
+        diffs.add(new StockDiff(productId, seckill, keys, observed, expected));
+    }
+
+    /**
+     * 预占记录hash中除分段号、用户等附加字段外，每个字段的值是一条预占的数量
+     */
+    private long sumReservations(Map<String, String> reservations) {
+        long reserved = 0;
+        if (reservations == null) {
+            return reserved;
+        }
+        for (Map.Entry<String, String> entry : reservations.entrySet()) {
+            String field = entry.getKey();
+            if (field.contains("#") || field.startsWith("u:")) {
+                continue;
+            }
+            reserved += Long.parseLong(entry.getValue());
+        }
+        return reserved;
+    }
+
+    /**
+     * 复核后修复差异
+     * 距发现差异至少等待settleMillis，让途中的库存消息处理完；复核时读到的值与发现时完全一致才修复，
+     * 仍在变动的商品留给下次对账
+     */
+    private int settleAndRepair(List<StockDiff> candidates, long detectedAt) {
+        long waitMillis = detectedAt + stockReconcileProperties.getSettleMillis() - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+
+        Map<String, StockDiff> candidateMap = new LinkedHashMap<>();
+        for (StockDiff diff : candidates) {
+            candidateMap.put(diff.getKey(), diff);
+        }
+        List<String> productIds = new ArrayList<>();
+        for (StockDiff diff : candidates) {
+            if (!productIds.contains(diff.productId)) {
+                productIds.add(diff.productId);
+            }
+        }
+        List<StockDiff> confirmed = new ArrayList<>();
+        for (StockDiff diff : findDiffs(productMapper.selectByIds(productIds))) {
+            if (diff.sameAs(candidateMap.get(diff.getKey()))) {
+                confirmed.add(diff);
+            }
+        }
+        if (confirmed.isEmpty()) {
+            return 0;
+        }
+
+        // 先加载脚本：流水线中的EVALSHA遇到NOSCRIPT无法回退为EVAL，再一次流水线执行全部修复脚本
+        redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(toBytes(REPAIR_SCRIPT)));
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (StockDiff diff : confirmed) {
+                    List<Object> args = new ArrayList<>(diff.observed);
+                    args.add(diff.expected - diff.getObservedTotal());
+                    ops.execute(REPAIR_REDIS_SCRIPT, diff.keys, args.toArray());
+                }
+                return null;
+            }
+        });
+
+        List<InventoryLogEntity> inventoryLogs = new ArrayList<>(confirmed.size());
+        for (int i = 0; i < confirmed.size(); i++) {
+            StockDiff diff = confirmed.get(i);
+            Object result = results.get(i);
+            if (result == null || Long.parseLong(result.toString()) != 1) {
+                continue;
+            }
+            long observedTotal = diff.getObservedTotal();
+            logger.warn("库存对账修复，商品ID：{}，Redis库存：{}，应有库存：{}，是否秒杀：{}",
+                    diff.productId, observedTotal, diff.expected, diff.seckill);
+            if (diff.seckill && diff.expected > observedTotal) {
+                seckillSoldOutCache.clear(diff.productId);
+            }
+
+            InventoryLogEntity inventoryLog = new InventoryLogEntity();
+            inventoryLog.setId(IdUtil.simpleUUID());
+            inventoryLog.setProductId(diff.productId);
+            inventoryLog.setChangeType(5); // 5表示库存同步
+            inventoryLog.setChangeQuantity((int) (diff.expected - observedTotal));
+            inventoryLog.setBeforeQuantity((int) observedTotal);
+            inventoryLog.setAfterQuantity((int) diff.expected);
+            inventoryLog.setRemark(diff.seckill ? "库存对账修复Redis秒杀库存" : "库存对账修复Redis库存");
+            inventoryLogs.add(inventoryLog);
+        }
+        inventoryLogService.recordAll(inventoryLogs);
+        return inventoryLogs.size();
+    }
+
+    /**
+     * 秒杀库存key，分段时为各分段key
+     */
+    private List<String> getSeckillStockKeys(String productId) {
+        int segments = getSeckillSegmentCount();
+        if (segments <= 1) {
+            return Collections.singletonList(RedisKeyUtil.getSeckillStockKey(productId));
+        }
+        List<String> keys = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            keys.add(RedisKeyUtil.getSeckillStockSegmentKey(productId, i));
+        }
+        return keys;
+    }
+
+    private int getSeckillSegmentCount() {
+        return Math.max(1, seckillProperties.getStockSegments());
+    }
+
+    private static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] toBytes(List<String> keys) {
+        byte[][] bytes = new byte[keys.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            bytes[i] = toBytes(keys.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * 一个商品普通库存或秒杀库存的差异
+     */
+    private static final class StockDiff {
+        private final String productId;
+        private final boolean seckill;
+        private final List<String> keys;
+        private final List<Long> observed;
+        private final long expected;
+
+        private StockDiff(String productId, boolean seckill, List<String> keys, List<Long> observed, long expected) {
+            this.productId = productId;
+            this.seckill = seckill;
+            this.keys = keys;
+            this.observed = observed;
+            this.expected = expected;
+        }
+
+        private String getKey() {
+            return productId + ":" + seckill;
+        }
+
+        private long getObservedTotal() {
+            long total = 0;
+            for (Long stock : observed) {
+                total += stock;
+            }
+            return total;
+        }
+
+        private boolean sameAs(StockDiff other) {
+            return other != null && expected == other.expected && observed.equals(other.observed);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.order.config.StockReservationProperties;
+import com.mok.baseframe.order.enums.StockReservationStatus;
+import com.mok.baseframe.order.mq.producer.StockUpdateProducer;
+import com.mok.baseframe.order.service.StockReservationService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    /**
+     * 预占脚本
+     * KEYS: 1.预占记录key 2.到期索引key 3.商品库存key 4.已预占数量key（同一商品的key带相同hash tag，位于同一slot）
+     * ARGV: 1.订单号 2.数量 3.到期时间戳(毫秒)
+     * 逻辑: 库存不足返回0，否则扣减库存、累加已预占数量、写入预占记录和到期索引，返回1
+     * 预占记录按商品拆分，字段（以订单号为前缀）: 订单号 -> 数量，#x -> 已不再占用库存（已释放或已售出）。
+     *       不再占用库存的记录保留一段时间后由扫描脚本删除，期间重复释放、回滚后再次支付都能识别预占状态
+     */
+    private static final String RESERVE_SCRIPT =
+            "local quantity = tonumber(ARGV[2]) " +
+            "local stock = tonumber(redis.call('get', KEYS[3]) or '0') " +
+            "if stock < quantity then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('decrby', KEYS[3], quantity) " +
+            "redis.call('incrby', KEYS[4], quantity) " +
+            "redis.call('hset', KEYS[1], ARGV[1], quantity) " +
+            "redis.call('zadd', KEYS[2], ARGV[3], ARGV[1]) " +
+            "return 1";
+
+    /**
+     * 转为售出脚本
+     * KEYS: 1.商品库存key 2.预占记录key 3.到期索引key 4.已预占数量key
+     * ARGV: 1.订单号 2.数量 3.记录保留截止时间戳(毫秒)
+     * 逻辑:
+     *      1.没有预占记录返回-1
+     *      2.预占仍有效：扣减已预占数量，标记不再占用库存，返回2
+     *      3.预占已到期释放：可用库存不足返回0，否则重新扣减库存，返回3
+     */
+    private static final String CONVERT_SCRIPT =
+            "local orderNo = ARGV[1] " +
+            "local reserved = redis.call('hget', KEYS[2], orderNo) " +
+            "if not reserved then " +
+            "    return -1 " +
+            "end " +
+            "local code = 2 " +
+            "if redis.call('hexists', KEYS[2], orderNo .. '#x') == 0 then " +
+            "    redis.call('decrby', KEYS[4], reserved) " +
+            "else " +
+            "    local quantity = tonumber(ARGV[2]) " +
+            "    if tonumber(redis.call('get', KEYS[1]) or '0') < quantity then " +
+            "        return 0 " +
+            "    end " +
+            "    redis.call('decrby', KEYS[1], quantity) " +
+            "    code = 3 " +
+            "end " +
+            "redis.call('hset', KEYS[2], orderNo .. '#x', 1) " +
+            "redis.call('zadd', KEYS[3], ARGV[3], orderNo) " +
+            "return code";
+
+    /**
+     * 撤销转为售出脚本（支付事务回滚时执行）
+     * KEYS: 1.商品库存key 2.预占记录key 3.到期索引key 4.已预占数量key
+     * ARGV: 1.订单号 2.转为售出时的结果 3.数量 4.到期时间戳(毫秒)
+     * 逻辑: 预占转出的恢复为有效预占；重新扣减的归还库存，记录保持已释放
+     */
+    private static final String UNDO_CONVERT_SCRIPT =
+            "local orderNo = ARGV[1] " +
+            "if tonumber(ARGV[2]) == 2 then " +
+            "    local reserved = redis.call('hget', KEYS[2], orderNo) " +
+            "    if reserved and redis.call('hdel', KEYS[2], orderNo .. '#x') == 1 then " +
+            "        redis.call('incrby', KEYS[4], reserved) " +
+            "        redis.call('zadd', KEYS[3], ARGV[4], orderNo) " +
+            "    end " +
+            "else " +
+            "    redis.call('incrby', KEYS[1], ARGV[3]) " +
+            "end " +
+            "return 1";
+
+    /**
+     * 释放脚本（同一商品的订单批量释放）
+     * KEYS: 1.预占记录key 2.到期索引key 3.商品库存key 4.已预占数量key
+     * ARGV: 1.记录保留截止时间戳(毫秒) 2..n.订单号
+     * 逻辑: 逐个订单返回结果：没有预占记录-1，已不再占用库存4，归还库存并标记已释放1
+     */
+    private static final String RELEASE_SCRIPT =
+            "local results = {} " +
+            "for i = 2, #ARGV do " +
+            "    local orderNo = ARGV[i] " +
+            "    local reserved = redis.call('hget', KEYS[1], orderNo) " +
+            "    local code = -1 " +
+            "    if reserved then " +
+            "        code = 4 " +
+            "        if redis.call('hsetnx', KEYS[1], orderNo .. '#x', 1) == 1 then " +
+            "            redis.call('incrby', KEYS[3], reserved) " +
+            "            redis.call('decrby', KEYS[4], reserved) " +
+            "            redis.call('zadd', KEYS[2], ARGV[1], orderNo) " +
+            "            code = 1 " +
+            "        end " +
+            "    end " +
+            "    results[i - 1] = code " +
+            "end " +
+            "return results";
+
+    /**
+     * 到期扫描脚本（一个商品）
+     * KEYS: 1.预占记录key 2.到期索引key 3.商品库存key 4.已预占数量key
+     * ARGV: 1.当前时间戳(毫秒) 2.记录保留截止时间戳(毫秒) 3..n.到期索引中查到的订单号
+     * 逻辑（到期时间在查询后被支付延长的订单跳过）:
+     *      1.有效预占到期：归还库存、标记已释放并延长保留时间
+     *      2.已不再占用库存的记录保留到期：删除记录和索引
+     *      返回 {订单号1, 数量1, 订单号2, ...}（只包含归还了库存的预占）
+     */
+    private static final String SWEEP_SCRIPT =
+            "local released = {} " +
+            "for j = 3, #ARGV do " +
+            "    local orderNo = ARGV[j] " +
+            "    local score = redis.call('zscore', KEYS[2], orderNo) " +
+            "    if score and tonumber(score) <= tonumber(ARGV[1]) then " +
+            "        local reserved = redis.call('hget', KEYS[1], orderNo) " +
+            "        if reserved and redis.call('hsetnx', KEYS[1], orderNo .. '#x', 1) == 1 then " +
+            "            redis.call('incrby', KEYS[3], reserved) " +
+            "            redis.call('decrby', KEYS[4], reserved) " +
+            "            redis.call('zadd', KEYS[2], ARGV[2], orderNo) " +
+            "            table.insert(released, orderNo) " +
+            "            table.insert(released, reserved) " +
+            "        else " +
+            "            redis.call('hdel', KEYS[1], orderNo, orderNo .. '#x') " +
+            "            redis.call('zrem', KEYS[2], orderNo) " +
+            "        end " +
+            "    end " +
+            "end " +
+            "return released";
+
+    // 同一节点重复登记同一商品到商品索引的最小间隔（毫秒）
+    private static final long PRODUCT_REGISTER_INTERVAL_MILLIS = 60000L;
+
+    private static final DefaultRedisScript<Long> RESERVE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RESERVE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> CONVERT_REDIS_SCRIPT =
+            new DefaultRedisScript<>(CONVERT_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> UNDO_CONVERT_REDIS_SCRIPT =
+            new DefaultRedisScript<>(UNDO_CONVERT_SCRIPT, Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RELEASE_REDIS_SCRIPT =
+            new DefaultRedisScript<>(RELEASE_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SWEEP_REDIS_SCRIPT =
+            new DefaultRedisScript<>(SWEEP_SCRIPT, List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StockReservationProperties stockReservationProperties;
+    private final StockUpdateProducer stockUpdateProducer;
+
+    // 本节点最近一次把商品登记到商品索引的时间，避免每次预占都写同一个索引key
+    private final Map<String, Long> registeredProducts = new ConcurrentHashMap<>();
+
+    public StockReservationServiceImpl(RedisTemplate<String, Object> redisTemplate,
+                                       StockReservationProperties stockReservationProperties,
+                                       StockUpdateProducer stockUpdateProducer) {
+        this.redisTemplate = redisTemplate;
+        this.stockReservationProperties = stockReservationProperties;
+        this.stockUpdateProducer = stockUpdateProducer;
+    }
+
+    @Override
+    public boolean reserve(String orderNo, String productId, Integer quantity) {
+        Long result = redisTemplate.execute(RESERVE_REDIS_SCRIPT, getKeys(productId),
+                orderNo, quantity, getExpireAt());
+        if (result == null || result != 1L) {
+            return false;
+        }
+
+        // 订单未落库（事务回滚）时释放预占
+        runAfterRollback(() -> release(orderNo, productId));
+        registerProduct(productId);
+        return true;
+    }
+
+    @Override
+    public StockReservationStatus convert(String orderNo, String productId, Integer quantity) {
+        List<String> keys = Arrays.asList(
+                RedisKeyUtil.getProductStockKey(productId),
+                RedisKeyUtil.getStockReservationKey(productId),
+                RedisKeyUtil.getStockReservationExpiryKey(productId),
+                RedisKeyUtil.getProductStockReservedKey(productId));
+        Long result = redisTemplate.execute(CONVERT_REDIS_SCRIPT, keys, orderNo, quantity, getRetainUntil());
+        StockReservationStatus status = StockReservationStatus.of(result);
+
+        // 支付未完成（事务回滚）时撤销：预占恢复有效，重新扣减的库存归还
+        if (status == StockReservationStatus.CONVERTED || status == StockReservationStatus.REDEDUCTED) {
+            registerProduct(productId);
+            runAfterRollback(() -> redisTemplate.execute(UNDO_CONVERT_REDIS_SCRIPT, keys,
+                    orderNo, status.getCode(), quantity, getExpireAt()));
+        }
+        return status;
+    }
+
+    @Override
+    public StockReservationStatus release(String orderNo, String productId) {
+        return releaseAll(Collections.singletonMap(orderNo, productId)).get(orderNo);
+    }
+
+    @Override
+    public Map<String, StockReservationStatus> releaseAll(Map<String, String> productIdByOrderNo) {
+        Map<String, StockReservationStatus> statuses = new LinkedHashMap<>();
+        if (productIdByOrderNo == null || productIdByOrderNo.isEmpty()) {
+            return statuses;
+        }
+        // 预占记录按商品拆分，同一商品的订单一次脚本调用释放
+        Map<String, List<String>> orderNosByProduct = new LinkedHashMap<>();
+        productIdByOrderNo.forEach((orderNo, productId) ->
+                orderNosByProduct.computeIfAbsent(productId, k -> new ArrayList<>()).add(orderNo));
+        for (Map.Entry<String, List<String>> entry : orderNosByProduct.entrySet()) {
+            List<String> orderNos = entry.getValue();
+            List<Object> args = new ArrayList<>(orderNos.size() + 1);
+            args.add(getRetainUntil());
+            args.addAll(orderNos);
+            List<?> results = redisTemplate.execute(RELEASE_REDIS_SCRIPT, getKeys(entry.getKey()), args.toArray());
+            for (int i = 0; i < orderNos.size(); i++) {
+                Object code = results != null && i < results.size() ? results.get(i) : null;
+                StockReservationStatus status =
+                        StockReservationStatus.of(code instanceof Number ? ((Number) code).longValue() : null);
+                statuses.put(orderNos.get(i), status);
+                if (status == StockReservationStatus.RELEASED) {
+                    registerProduct(entry.getKey());
+                }
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public int sweepExpired() {
+        long now = System.currentTimeMillis();
+        String productsKey = RedisKeyUtil.getStockReservationProductsKey();
+
+        // 1. 移除长时间没有登记的商品，这些商品的预占记录和索引都已到期删除
+        redisTemplate.opsForZSet().removeRangeByScore(productsKey, 0, now - getProductInactiveMillis());
+        Set<Object> products = redisTemplate.opsForZSet().range(productsKey, 0, -1);
+        if (products == null || products.isEmpty()) {
+            return 0;
+        }
+        List<String> productIds = new ArrayList<>(products.size());
+        for (Object productId : products) {
+            productIds.add(String.valueOf(productId));
+        }
+
+        // 2. 一次管道统计每个商品到期的索引条数，只扫描有到期记录的商品
+        List<Object> dueCounts = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String productId : productIds) {
+                    ops.opsForZSet().count(RedisKeyUtil.getStockReservationExpiryKey(productId), 0, now);
+                }
+                return null;
+            }
+        });
+
+        // 3. 逐个商品脚本原子认领并释放，释放的预占攒够一批写入一条库存释放消息
+        List<Map<String, Object>> items = new ArrayList<>();
+        int total = 0;
+        for (int i = 0; i < productIds.size(); i++) {
+            Object dueCount = i < dueCounts.size() ? dueCounts.get(i) : null;
+            if (!(dueCount instanceof Number) || ((Number) dueCount).longValue() == 0) {
+                continue;
+            }
+            try {
+                sweepProduct(productIds.get(i), items);
+            } catch (Exception e) {
+                logger.error("释放商品到期库存预占失败，商品ID：{}，异常：{}", productIds.get(i), e.getMessage(), e);
+            }
+            if (items.size() >= stockReservationProperties.getSweepBatchSize()) {
+                total += sendReleaseItems(items);
+            }
+        }
+        total += sendReleaseItems(items);
+        if (total > 0) {
+            logger.info("释放到期库存预占完成，预占数：{}", total);
+        }
+        return total;
+    }
+
+    /**
+     * 分批释放一个商品到期的预占，释放的预占追加到 items
+     */
+    private void sweepProduct(String productId, List<Map<String, Object>> items) {
+        int batchSize = stockReservationProperties.getSweepBatchSize();
+        String expiryKey = RedisKeyUtil.getStockReservationExpiryKey(productId);
+        List<String> keys = getKeys(productId);
+        boolean released = false;
+        while (true) {
+            long now = System.currentTimeMillis();
+            Set<Object> dueOrderNos = redisTemplate.opsForZSet().rangeByScore(expiryKey, 0, now, 0, batchSize);
+            if (dueOrderNos == null || dueOrderNos.isEmpty()) {
+                break;
+            }
+            List<Object> args = new ArrayList<>(dueOrderNos.size() + 2);
+            args.add(now);
+            args.add(getRetainUntil());
+            for (Object orderNo : dueOrderNos) {
+                args.add(String.valueOf(orderNo));
+            }
+            List<?> result = redisTemplate.execute(SWEEP_REDIS_SCRIPT, keys, args.toArray());
+
+            // 到期释放的预占只记录库存流水，数据库库存未扣减无需恢复
+            if (result != null) {
+                for (int i = 0; i + 1 < result.size(); i += 2) {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("productId", productId);
+                    item.put("quantity", Integer.parseInt(String.valueOf(result.get(i + 1))));
+                    item.put("changeType", 4); // 4表示释放库存
+                    item.put("orderNo", String.valueOf(result.get(i)));
+                    item.put("isSeckill", false);
+                    items.add(item);
+                    released = true;
+                }
+            }
+            if (dueOrderNos.size() < batchSize) {
+                break;
+            }
+        }
+        // 释放后的记录还要保留一段时间，商品继续留在索引中
+        if (released) {
+            registerProduct(productId);
+        }
+    }
+
+    /**
+     * 写入一条批量库存释放消息并清空 items
+     *
+     * @return 本次写入的明细数
+     */
+    private int sendReleaseItems(List<Map<String, Object>> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        int count = items.size();
+        stockUpdateProducer.sendStockRestoreBatchMessage(new ArrayList<>(items));
+        items.clear();
+        return count;
+    }
+
+    /**
+     * 预占、释放、扫描脚本使用的一个商品的key：预占记录、到期索引、库存、已预占数量
+     */
+    private List<String> getKeys(String productId) {
+        return Arrays.asList(
+                RedisKeyUtil.getStockReservationKey(productId),
+                RedisKeyUtil.getStockReservationExpiryKey(productId),
+                RedisKeyUtil.getProductStockKey(productId),
+                RedisKeyUtil.getProductStockReservedKey(productId));
+    }
+
+    /**
+     * 把商品登记到有预占的商品索引，供到期扫描遍历；同一节点同一商品每分钟最多写一次
+     * 登记失败只记录日志，该商品下次写入预占记录时重新登记
+     */
+    private void registerProduct(String productId) {
+        long now = System.currentTimeMillis();
+        Long last = registeredProducts.get(productId);
+        if (last != null && now - last < PRODUCT_REGISTER_INTERVAL_MILLIS) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().add(RedisKeyUtil.getStockReservationProductsKey(), productId, now);
+            registeredProducts.put(productId, now);
+        } catch (Exception e) {
+            logger.error("登记库存预占商品失败，商品ID：{}，异常：{}", productId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 商品多久没有登记后从商品索引中移除：最后一次写入预占记录后，记录最晚在预占有效期或保留时间之后到期，
+     * 再加上登记间隔和同样长度的余量
+     */
+    private long getProductInactiveMillis() {
+        long retainMillis = TimeUnit.SECONDS.toMillis(Math.max(stockReservationProperties.getTtlSeconds(),
+                stockReservationProperties.getReleasedRetainSeconds()));
+        return retainMillis + 2 * PRODUCT_REGISTER_INTERVAL_MILLIS;
+    }
+
+    private long getExpireAt() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(stockReservationProperties.getTtlSeconds());
+    }
+
+    private long getRetainUntil() {
+        return System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(stockReservationProperties.getReleasedRetainSeconds());
+    }
+
+    private void runAfterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    logger.error("事务回滚后撤销库存预占失败，等待对账修复，异常：{}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
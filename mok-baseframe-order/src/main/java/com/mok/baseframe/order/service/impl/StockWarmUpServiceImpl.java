@@ -0,0 +1,190 @@
+package com.mok.baseframe.order.service.impl;
+
+import com.mok.baseframe.common.BusinessException;
+import com.mok.baseframe.dao.CouponMapper;
+import com.mok.baseframe.dao.ProductMapper;
+import com.mok.baseframe.entity.CouponEntity;
+import com.mok.baseframe.entity.ProductEntity;
+import com.mok.baseframe.order.config.StockWarmUpProperties;
+import com.mok.baseframe.order.service.SeckillReservationService;
+import com.mok.baseframe.order.service.StockWarmUpService;
+import com.mok.baseframe.order.util.RedisKeyUtil;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class StockWarmUpServiceImpl implements StockWarmUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockWarmUpServiceImpl.class);
+
+    private final ProductMapper productMapper;
+    private final CouponMapper couponMapper;
+    private final SeckillReservationService seckillReservationService;
+    private final StockWarmUpProperties stockWarmUpProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockWarmUpServiceImpl(ProductMapper productMapper,
+                                  CouponMapper couponMapper,
+                                  SeckillReservationService seckillReservationService,
+                                  StockWarmUpProperties stockWarmUpProperties,
+                                  RedisTemplate<String, Object> redisTemplate,
+                                  TransactionTemplate transactionTemplate) {
+        this.productMapper = productMapper;
+        this.couponMapper = couponMapper;
+        this.seckillReservationService = seckillReservationService;
+        this.stockWarmUpProperties = stockWarmUpProperties;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public int warmUpProductStock(boolean overwrite) {
+        long startMillis = System.currentTimeMillis();
+        long ttlMillis = TimeUnit.SECONDS.toMillis(stockWarmUpProperties.getProductStockTtlSeconds());
+        long now = System.currentTimeMillis();
+        WarmUpBatch batch = new WarmUpBatch("商品库存", overwrite);
+        List<ProductEntity> seckillProducts = new ArrayList<>();
+        int[] seckillLoaded = {0};
+
+        // 游标需要在事务内遍历，遍历期间连接持续按行返回结果
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<ProductEntity> cursor = productMapper.scanUpProductStock()) {
+                for (ProductEntity product : cursor) {
+                    if (product.getStock() != null) {
+                        batch.add(RedisKeyUtil.getProductStockKey(product.getId()), product.getStock(), ttlMillis);
+                    }
+                    // 秒杀商品同时加载秒杀库存和时间窗口
+                    if (product.getSeckillStock() != null && product.getSeckillStock() > 0
+                            && product.getSeckillEndTime() != null && product.getSeckillEndTime().getTime() > now) {
+                        seckillProducts.add(product);
+                        if (seckillProducts.size() >= stockWarmUpProperties.getChunkSize()) {
+                            seckillLoaded[0] += seckillReservationService.initSeckillStocks(seckillProducts, overwrite);
+                            seckillProducts.clear();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new BusinessException("关闭商品库存游标失败");
+            }
+        });
+        batch.flush();
+        if (!seckillProducts.isEmpty()) {
+            seckillLoaded[0] += seckillReservationService.initSeckillStocks(seckillProducts, overwrite);
+        }
+
+        logger.info("预热商品库存完成，读取{}个商品，写入{}个库存，加载{}个秒杀商品，耗时：{}ms",
+                batch.read, batch.written, seckillLoaded[0], System.currentTimeMillis() - startMillis);
+        return batch.written;
+    }
+
+    @Override
+    public int warmUpSeckillStock(boolean overwrite) {
+        // 进行中的秒杀商品数量很少，直接查询后一次流水线加载
+        List<ProductEntity> seckillProducts = productMapper.selectSeckillProducts();
+        int loaded = seckillReservationService.initSeckillStocks(seckillProducts, overwrite);
+        logger.info("预热秒杀库存完成，共加载{}个秒杀商品", loaded);
+        return loaded;
+    }
+
+    @Override
+    public int warmUpCouponStock(boolean overwrite) {
+        long startMillis = System.currentTimeMillis();
+        WarmUpBatch batch = new WarmUpBatch("优惠券库存", overwrite);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<CouponEntity> cursor = couponMapper.scanAvailableCouponStock()) {
+                for (CouponEntity coupon : cursor) {
+                    // 过期时间为优惠券结束时间
+                    long ttlMillis = coupon.getEndTime().getTime() - System.currentTimeMillis();
+                    if (ttlMillis > 0) {
+                        batch.add(RedisKeyUtil.getCouponStockKey(coupon.getId()), coupon.getRemainingQuantity(),
+                                ttlMillis);
+                    }
+                }
+            } catch (IOException e) {
+                throw new BusinessException("关闭优惠券库存游标失败");
+            }
+        });
+        batch.flush();
+
+        logger.info("预热优惠券库存完成，读取{}个优惠券，写入{}个库存，耗时：{}ms",
+                batch.read, batch.written, System.currentTimeMillis() - startMillis);
+        return batch.written;
+    }
+
+    /**
+     * 待写入的一批库存，攒够chunkSize条后一次流水线写入
+     */
+    private final class WarmUpBatch {
+        private final String name;
+        private final boolean overwrite;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        private final List<Long> ttls = new ArrayList<>();
+        private int read;
+        private int written;
+
+        private WarmUpBatch(String name, boolean overwrite) {
+            this.name = name;
+            this.overwrite = overwrite;
+        }
+
+        private void add(String key, Object value, long ttlMillis) {
+            keys.add(key);
+            values.add(value);
+            ttls.add(ttlMillis);
+            read++;
+            if (keys.size() >= stockWarmUpProperties.getChunkSize()) {
+                flush();
+            }
+            if (read % stockWarmUpProperties.getProgressInterval() == 0) {
+                logger.info("预热{}进度：已读取{}条，已写入{}条", name, read, written);
+            }
+        }
+
+        /**
+         * 一次流水线写入，覆盖时SET PX，不覆盖时SET NX PX
+         */
+        private void flush() {
+            if (keys.isEmpty()) {
+                return;
+            }
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (overwrite) {
+                            ops.opsForValue().set(keys.get(i), values.get(i), ttls.get(i), TimeUnit.MILLISECONDS);
+                        } else {
+                            ops.opsForValue().setIfAbsent(keys.get(i), values.get(i), ttls.get(i),
+                                    TimeUnit.MILLISECONDS);
+                        }
+                    }
+                    return null;
+                }
+            });
+            for (Object result : results) {
+                if (overwrite || Boolean.TRUE.equals(result)) {
+                    written++;
+                }
+            }
+            keys.clear();
+            values.clear();
+            ttls.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.cache.CouponCatalogCache;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CouponCatalogRefreshTask {
+
+    private final CouponCatalogCache couponCatalogCache;
+
+    public CouponCatalogRefreshTask(CouponCatalogCache couponCatalogCache) {
+        this.couponCatalogCache = couponCatalogCache;
+    }
+
+    /**
+     * 定时全量刷新本节点优惠券目录（兜底丢失的刷新通知，同步剩余数量）
+     */
+    @Scheduled(fixedDelayString = "${order.coupon.catalog-refresh-millis:60000}")
+    public void refreshCatalog() {
+        couponCatalogCache.reload();
+    }
+}
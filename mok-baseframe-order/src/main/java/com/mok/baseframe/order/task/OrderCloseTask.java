@@ -1,12 +1,21 @@
 package com.mok.baseframe.order.task;
 
+import com.mok.baseframe.entity.OrderInfoEntity;
+import com.mok.baseframe.order.config.OrderTimeoutProperties;
 import com.mok.baseframe.order.service.CouponService;
 import com.mok.baseframe.order.service.OrderService;
+import com.mok.baseframe.order.service.OrderTimeoutService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 public class OrderCloseTask {
 
@@ -14,17 +23,85 @@ public class OrderCloseTask {
 
     private final OrderService orderService;
     private final CouponService couponService;
+    private final OrderTimeoutService orderTimeoutService;
+    private final OrderTimeoutProperties orderTimeoutProperties;
+    private final ThreadPoolTaskExecutor orderCloseExecutor;
+    private final ThreadPoolTaskExecutor couponCleanExecutor;
 
     public OrderCloseTask(OrderService orderService,
-                          CouponService couponService) {
+                          CouponService couponService,
+                          OrderTimeoutService orderTimeoutService,
+                          OrderTimeoutProperties orderTimeoutProperties,
+                          @Qualifier("orderCloseExecutor") ThreadPoolTaskExecutor orderCloseExecutor,
+                          @Qualifier("couponCleanExecutor") ThreadPoolTaskExecutor couponCleanExecutor) {
         this.couponService = couponService;
         this.orderService = orderService;
+        this.orderTimeoutService = orderTimeoutService;
+        this.orderTimeoutProperties = orderTimeoutProperties;
+        this.orderCloseExecutor = orderCloseExecutor;
+        this.couponCleanExecutor = couponCleanExecutor;
+    }
+
+    /**
+     * 每个时间轮tick触发一次，在单独的执行器中认领并关闭到期订单，关单事务不占用共享的定时线程；
+     * 认领也在执行器中进行，上一批还没关完时本次触发直接跳过，不会认领后丢弃
+     */
+    @Scheduled(fixedDelayString = "${order.timeout-wheel.tick-millis:100}")
+    public void closeExpiredOrders() {
+        orderCloseExecutor.execute(() -> {
+            try {
+                closeClaimedOrders();
+            } catch (Exception e) {
+                logger.error("关闭到期订单任务执行异常：{}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 认领本节点到期的订单并批量关闭，关闭失败且仍为待支付的重新登记
+     */
+    private void closeClaimedOrders() {
+        List<String> orderNos;
+        try {
+            orderNos = orderTimeoutService.pollExpired();
+        } catch (Exception e) {
+            logger.error("推进订单超时时间轮异常：{}", e.getMessage(), e);
+            return;
+        }
+        if (orderNos.isEmpty()) {
+            return;
+        }
+        List<String> closed = orderService.closeOrders(orderNos, "超时未支付，系统自动取消");
+        if (closed.size() < orderNos.size()) {
+            Set<String> closedSet = new HashSet<>(closed);
+            for (String orderNo : orderNos) {
+                if (!closedSet.contains(orderNo)) {
+                    retryIfPending(orderNo);
+                }
+            }
+        }
+    }
+
+    /**
+     * 未关闭的订单仍为待支付（关闭失败）时重新登记，稍后重试；已支付或已取消的直接忽略
+     */
+    private void retryIfPending(String orderNo) {
+        try {
+            OrderInfoEntity order = orderService.getOrderByNo(orderNo);
+            if (order != null && Integer.valueOf(0).equals(order.getOrderStatus())) {
+                orderTimeoutService.schedule(orderNo,
+                        System.currentTimeMillis() + orderTimeoutProperties.getRetryDelayMillis());
+                logger.warn("关闭超时订单失败，稍后重试，订单号：{}", orderNo);
+            }
+        } catch (Exception e) {
+            logger.error("关闭超时订单失败，订单号：{}，异常：{}", orderNo, e.getMessage(), e);
+        }
     }
 
     /**
-     * 每5分钟执行一次，关闭超时未支付订单
+     * 兜底扫描数据库，关闭未登记到超时队列的订单（如上线前创建的订单、Redis数据丢失）
      */
-    @Scheduled(cron = "0 */5 * * * ?")
+    @Scheduled(cron = "${order.timeout-wheel.fallback-scan-cron:0 */5 * * * ?}")
     public void closeTimeoutOrders() {
         try {
             logger.info("开始执行关闭超时未支付订单任务");
@@ -39,18 +116,21 @@ public class OrderCloseTask {
 
     /**
      * 每天凌晨1点执行，清理过期优惠券
+     * 分批清理且批次之间暂停，耗时较长，在单独的执行器中运行，不占用共享的定时线程
      */
     @Scheduled(cron = "0 0 1 * * ?")
     public void cleanExpiredCoupons() {
-        try {
-            logger.info("开始执行清理过期优惠券任务");
+        couponCleanExecutor.execute(() -> {
+            try {
+                logger.info("开始执行清理过期优惠券任务");
 
-            // 这里调用优惠券服务的清理方法
-            couponService.cleanExpiredCoupons();
+                // 这里调用优惠券服务的清理方法
+                couponService.cleanExpiredCoupons();
 
-            logger.info("清理过期优惠券任务执行完成");
-        } catch (Exception e) {
-            logger.error("清理过期优惠券任务执行异常：{}", e.getMessage(), e);
-        }
+                logger.info("清理过期优惠券任务执行完成");
+            } catch (Exception e) {
+                logger.error("清理过期优惠券任务执行异常：{}", e.getMessage(), e);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.service.OrderOutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单消息发件箱转发任务
+ * 持有转发租约的节点按id顺序批量投递发件箱中的消息；
+ * 投递要等待发布确认，在单独的执行器中运行，不阻塞其他定时任务
+ */
+@Component
+public class OrderOutboxRelayTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxRelayTask.class);
+
+    private final OrderOutboxService orderOutboxService;
+    private final ThreadPoolTaskExecutor orderOutboxRelayExecutor;
+
+    public OrderOutboxRelayTask(OrderOutboxService orderOutboxService,
+                                @Qualifier("orderOutboxRelayExecutor") ThreadPoolTaskExecutor orderOutboxRelayExecutor) {
+        this.orderOutboxService = orderOutboxService;
+        this.orderOutboxRelayExecutor = orderOutboxRelayExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.relay-interval-millis:200}")
+    public void relay() {
+        orderOutboxRelayExecutor.execute(() -> {
+            try {
+                int sent = orderOutboxService.relay();
+                if (sent > 0) {
+                    logger.debug("发件箱消息转发完成，数量：{}", sent);
+                }
+            } catch (Exception e) {
+                logger.error("发件箱消息转发异常：{}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.service.SeckillPreheatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SeckillPreheatTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillPreheatTask.class);
+
+    private final SeckillPreheatService seckillPreheatService;
+
+    public SeckillPreheatTask(SeckillPreheatService seckillPreheatService) {
+        this.seckillPreheatService = seckillPreheatService;
+    }
+
+    /**
+     * 定时预热即将开始的秒杀商品（启动后立即执行一次）
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${order.seckill.preheat-interval-millis:60000}")
+    public void preheatSeckillProducts() {
+        try {
+            int count = seckillPreheatService.preheatSeckillProducts();
+            if (count > 0) {
+                logger.info("秒杀预热任务执行完成，本次预热{}个秒杀商品", count);
+            }
+        } catch (Exception e) {
+            logger.error("秒杀预热任务执行异常：{}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.config.SeckillProperties;
+import com.mok.baseframe.order.service.SeckillWaitingRoomService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SeckillWaitingRoomTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeckillWaitingRoomTask.class);
+
+    private final SeckillWaitingRoomService seckillWaitingRoomService;
+    private final SeckillProperties seckillProperties;
+
+    public SeckillWaitingRoomTask(SeckillWaitingRoomService seckillWaitingRoomService,
+                                  SeckillProperties seckillProperties) {
+        this.seckillWaitingRoomService = seckillWaitingRoomService;
+        this.seckillProperties = seckillProperties;
+    }
+
+    /**
+     * 按固定速率放行等待室中的排队用户
+     */
+    @Scheduled(fixedDelayString = "${order.seckill.waiting-release-interval-millis:100}")
+    public void releaseWaitingUsers() {
+        if (!seckillProperties.isWaitingRoomEnabled()) {
+            return;
+        }
+        try {
+            int released = seckillWaitingRoomService.releaseWaitingUsers();
+            if (released > 0) {
+                logger.debug("秒杀等待室放行{}人", released);
+            }
+        } catch (Exception e) {
+            logger.error("秒杀等待室放行任务执行异常：{}", e.getMessage(), e);
+        }
+    }
+}
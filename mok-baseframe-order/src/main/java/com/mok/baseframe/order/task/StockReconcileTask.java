@@ -0,0 +1,46 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.config.StockReconcileProperties;
+import com.mok.baseframe.order.service.StockReconcileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StockReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReconcileTask.class);
+
+    private final StockReconcileService stockReconcileService;
+    private final StockReconcileProperties stockReconcileProperties;
+    private final ThreadPoolTaskExecutor stockReconcileExecutor;
+
+    public StockReconcileTask(StockReconcileService stockReconcileService,
+                              StockReconcileProperties stockReconcileProperties,
+                              @Qualifier("stockReconcileExecutor") ThreadPoolTaskExecutor stockReconcileExecutor) {
+        this.stockReconcileService = stockReconcileService;
+        this.stockReconcileProperties = stockReconcileProperties;
+        this.stockReconcileExecutor = stockReconcileExecutor;
+    }
+
+    /**
+     * 定时对账Redis与数据库库存
+     * 对账包含复核等待，在单独的执行器中运行，不阻塞其他定时任务
+     */
+    @Scheduled(cron = "${order.stock-reconcile.cron:0 30 3 * * ?}")
+    public void reconcileStock() {
+        if (!stockReconcileProperties.isEnabled()) {
+            return;
+        }
+        stockReconcileExecutor.execute(() -> {
+            try {
+                stockReconcileService.reconcile();
+            } catch (Exception e) {
+                logger.error("库存对账任务执行异常：{}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StockReservationSweepTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationSweepTask.class);
+
+    private final StockReservationService stockReservationService;
+    private final ThreadPoolTaskExecutor stockReservationSweepExecutor;
+
+    public StockReservationSweepTask(StockReservationService stockReservationService,
+                                     @Qualifier("stockReservationSweepExecutor")
+                                     ThreadPoolTaskExecutor stockReservationSweepExecutor) {
+        this.stockReservationService = stockReservationService;
+        this.stockReservationSweepExecutor = stockReservationSweepExecutor;
+    }
+
+    /**
+     * 定时批量释放到期未支付的库存预占（脚本原子认领，多节点同时执行不会重复归还）
+     * 每秒触发，在单独的执行器中运行，不占用共享的定时线程
+     */
+    @Scheduled(fixedDelayString = "${order.stock-reservation.sweep-interval-millis:1000}")
+    public void sweepExpiredReservations() {
+        stockReservationSweepExecutor.execute(() -> {
+            try {
+                stockReservationService.sweepExpired();
+            } catch (Exception e) {
+                logger.error("释放到期库存预占任务执行异常：{}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.mok.baseframe.order.task;
+
+import com.mok.baseframe.order.config.StockWarmUpProperties;
+import com.mok.baseframe.order.service.StockWarmUpService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动预热库存
+ * ApplicationRunner在应用发布就绪状态之前执行，预热完成后才开始接收流量；
+ * 预热失败时启动失败，不在库存未加载的情况下接收流量
+ */
+@Component
+public class StockWarmUpRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockWarmUpRunner.class);
+
+    private final StockWarmUpService stockWarmUpService;
+    private final StockWarmUpProperties stockWarmUpProperties;
+
+    public StockWarmUpRunner(StockWarmUpService stockWarmUpService,
+                             StockWarmUpProperties stockWarmUpProperties) {
+        this.stockWarmUpService = stockWarmUpService;
+        this.stockWarmUpProperties = stockWarmUpProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!stockWarmUpProperties.isEnabled()) {
+            return;
+        }
+        long startMillis = System.currentTimeMillis();
+        try {
+            // 只写入不存在的库存，其他节点运行中预扣的库存不被覆盖
+            int products = stockWarmUpService.warmUpProductStock(false);
+            int coupons = stockWarmUpService.warmUpCouponStock(false);
+            logger.info("启动库存预热完成，商品库存：{}，优惠券库存：{}，耗时：{}ms",
+                    products, coupons, System.currentTimeMillis() - startMillis);
+        } catch (Exception e) {
+            logger.error("启动库存预热失败：{}", e.getMessage(), e);
+            throw new IllegalStateException("启动库存预热失败", e);
+        }
+    }
+}
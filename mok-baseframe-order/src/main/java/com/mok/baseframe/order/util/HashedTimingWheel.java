@@ -0,0 +1,86 @@
+package com.mok.baseframe.order.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 哈希时间轮
+ * 每个槽位对应一个tick，超过一圈的任务记录剩余圈数，推进时只处理经过的槽位。
+ * 非线程安全，需由单个线程调用 add 和 advance。
+ *
+ * @param <T> 到期元素类型
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final ArrayDeque<Entry<T>>[] slots;
+    // 下一个待处理的tick序号（毫秒时间戳 / tickMillis）
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis必须大于0");
+        }
+        // 槽位数取不小于wheelSize的2的幂，用位运算定位槽位
+        int capacity = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = capacity - 1;
+        this.slots = new ArrayDeque[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 添加到期元素，已过期的元素在下一次推进时到期
+     */
+    public void add(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        long rounds = (tick - currentTick) / slots.length;
+        slots[(int) (tick & mask)].add(new Entry<>(item, rounds));
+        size++;
+    }
+
+    /**
+     * 推进时间轮到指定时间，将到期元素放入expired
+     */
+    public void advance(long nowMillis, List<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick <= targetTick) {
+            Iterator<Entry<T>> iterator = slots[(int) (currentTick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                if (entry.rounds <= 0) {
+                    iterator.remove();
+                    expired.add(entry.item);
+                    size--;
+                } else {
+                    entry.rounds--;
+                }
+            }
+            currentTick++;
+        }
+    }
+
+    /**
+     * 时间轮中未到期的元素数
+     */
+    public int size() {
+        return size;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private long rounds;
+
+        private Entry(T item, long rounds) {
+            this.item = item;
+            this.rounds = rounds;
+        }
+    }
+}
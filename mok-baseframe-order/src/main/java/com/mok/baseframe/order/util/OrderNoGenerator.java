@@ -1,35 +1,46 @@
 package com.mok.baseframe.order.util;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * @description: * 订单号生成器
- * * 格式：年月日时分秒 + 6位自增序列 + 2位随机数
+ * * 格式：年月日时分秒 + 2位节点号 + 6位秒内序列（共22位）；发货单号为 DL + 年月日时分秒 + 2位节点号 + 4位秒内序列（共22位）
+ * * 类Snowflake结构：时间（秒）+ 节点号 + 序列，节点号由配置指定或从Redis租约获取，
+ * * 多节点部署时不同节点生成的单号不会重复；租约到期后拒绝生成单号，直到续期或重新获取
  * @author: mok
  * @date: 2026/2/4 23:41
  **/
 public class OrderNoGenerator {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmss");
-    private static final AtomicLong SEQUENCE = new AtomicLong(0);
-    private static final int MAX_SEQUENCE = 999999;
+    private static final int MAX_WORKER_ID = 99;
+    private static final int DATE_LENGTH = 14;
+    private static final int WORKER_LENGTH = 2;
+    // 单号总长度，发货单号前缀占用的位数从秒内序列中扣除，与原格式的长度保持一致
+    private static final int NO_LENGTH = 22;
+
+    // 订单号与发货单号各自独立的序列
+    private static final Sequence ORDER_SEQUENCE = new Sequence(6);
+    private static final Sequence DELIVERY_SEQUENCE = new Sequence(4);
+
+    // 当前节点号及其租约到期时间，启动时由 OrderNoWorkerRegistrar 设置，未设置时为节点号0且不过期；
+    // 租约丢失时节点号为-1，暂停生成单号
+    private static volatile Lease lease = new Lease(0, Long.MAX_VALUE);
+
+    // 每个线程复用的拼接缓冲区，生成单号时只分配结果字符串
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[NO_LENGTH]);
+
+    // 最近一次格式化的秒级时间前缀，同一秒内复用
+    private static volatile DatePrefix datePrefix = new DatePrefix(-1, new char[DATE_LENGTH]);
 
     /**
      * 生成订单号
      */
     public static String generateOrderNo() {
-        String dateStr = DATE_FORMAT.format(new Date());
-        long seq = SEQUENCE.incrementAndGet();
-        if (seq > MAX_SEQUENCE) {
-            SEQUENCE.set(0);
-            seq = SEQUENCE.incrementAndGet();
-        }
-        String seqStr = String.format("%06d", seq);
-        String randomStr = String.format("%02d", (int) (Math.random() * 100));
-        return dateStr + seqStr + randomStr;
+        return build(null, ORDER_SEQUENCE);
     }
 
     /**
@@ -44,9 +55,171 @@ public class OrderNoGenerator {
      * 生成发货单号
      */
     public static String generateDeliveryNo() {
-        String dateStr = DATE_FORMAT.format(new Date());
-        long seq = SEQUENCE.incrementAndGet();
-        String seqStr = String.format("%06d", seq % 1000000);
-        return "DL" + dateStr + seqStr;
+        return build("DL", DELIVERY_SEQUENCE);
+    }
+
+    /**
+     * 设置当前节点号（配置指定，不过期）
+     */
+    public static void setWorkerId(int id) {
+        setWorkerId(id, Long.MAX_VALUE);
+    }
+
+    /**
+     * 设置当前节点号及其租约到期时间，到期后生成单号会抛出异常
+     */
+    public static void setWorkerId(int id, long leaseExpireAtMillis) {
+        if (id < 0 || id > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("节点号超出范围[0, " + MAX_WORKER_ID + "]：" + id);
+        }
+        lease = new Lease(id, leaseExpireAtMillis);
+    }
+
+    /**
+     * 暂停生成单号：节点号租约丢失后该节点号可能已被其他节点占用，重新获取到节点号前生成单号会抛出异常
+     */
+    public static void suspend() {
+        lease = new Lease(-1, 0);
+    }
+
+    public static int getWorkerId() {
+        return lease.workerId;
+    }
+
+    public static int getMaxWorkerId() {
+        return MAX_WORKER_ID;
+    }
+
+    /**
+     * 拼接单号：写入线程复用的字符数组，不经过 String.format
+     * @param prefix 单号前缀，可为null，长度与序列位数之和为 NO_LENGTH - DATE_LENGTH - WORKER_LENGTH
+     * @param sequence 秒内序列
+     */
+    private static String build(String prefix, Sequence sequence) {
+        Lease current = lease;
+        if (current.workerId < 0) {
+            throw new IllegalStateException("订单号节点号租约已丢失，暂停生成单号");
+        }
+        if (System.currentTimeMillis() >= current.expireAtMillis) {
+            throw new IllegalStateException("订单号节点号租约已到期，暂停生成单号");
+        }
+        long state = sequence.next();
+        long second = sequence.second(state);
+        int seq = sequence.seq(state);
+        int prefixLength = prefix == null ? 0 : prefix.length();
+        char[] buf = BUFFER.get();
+        if (prefix != null) {
+            prefix.getChars(0, prefixLength, buf, 0);
+        }
+        System.arraycopy(getDatePrefix(second), 0, buf, prefixLength, DATE_LENGTH);
+        writeDigits(buf, prefixLength + DATE_LENGTH, WORKER_LENGTH, current.workerId);
+        writeDigits(buf, prefixLength + DATE_LENGTH + WORKER_LENGTH, sequence.length, seq);
+        return new String(buf, 0, NO_LENGTH);
+    }
+
+    /**
+     * 获取秒级时间前缀 yyyyMMddHHmmss，每秒只格式化一次
+     */
+    private static char[] getDatePrefix(long second) {
+        DatePrefix current = datePrefix;
+        if (current.second == second) {
+            return current.chars;
+        }
+        LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0,
+                ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochSecond(second)));
+        char[] chars = new char[DATE_LENGTH];
+        writeDigits(chars, 0, 4, time.getYear());
+        writeDigits(chars, 4, 2, time.getMonthValue());
+        writeDigits(chars, 6, 2, time.getDayOfMonth());
+        writeDigits(chars, 8, 2, time.getHour());
+        writeDigits(chars, 10, 2, time.getMinute());
+        writeDigits(chars, 12, 2, time.getSecond());
+        // 只向前更新，避免并发时旧的秒覆盖新的秒
+        if (second > current.second) {
+            datePrefix = new DatePrefix(second, chars);
+        }
+        return chars;
+    }
+
+    /**
+     * 将数字按固定位数（左补0）写入字符数组
+     */
+    private static void writeDigits(char[] buf, int offset, int length, int value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * 无锁序列：秒和秒内序列打包在一个long中，通过CAS推进
+     * 时钟回拨时继续沿用上次的秒，秒内序列用尽时借用下一秒，保证单调递增不重复且不阻塞
+     */
+    private static final class Sequence {
+        private final AtomicLong state = new AtomicLong();
+        // 序列位数
+        private final int length;
+        // 每秒序列个数（10^length）
+        private final int capacity;
+
+        private Sequence(int length) {
+            this.length = length;
+            int capacity = 1;
+            for (int i = 0; i < length; i++) {
+                capacity *= 10;
+            }
+            this.capacity = capacity;
+        }
+
+        long next() {
+            while (true) {
+                long last = state.get();
+                long lastSecond = last / capacity;
+                long lastSeq = last % capacity;
+                long nowSecond = System.currentTimeMillis() / 1000;
+                long next;
+                if (nowSecond > lastSecond) {
+                    next = nowSecond * capacity;
+                } else if (lastSeq < capacity - 1) {
+                    next = last + 1;
+                } else {
+                    next = (lastSecond + 1) * capacity;
+                }
+                if (state.compareAndSet(last, next)) {
+                    return next;
+                }
+            }
+        }
+
+        long second(long state) {
+            return state / capacity;
+        }
+
+        int seq(long state) {
+            return (int) (state % capacity);
+        }
+    }
+
+    /**
+     * 节点号与租约到期时间，整体替换，生成单号时读到的两者一致
+     */
+    private static final class Lease {
+        private final int workerId;
+        private final long expireAtMillis;
+
+        private Lease(int workerId, long expireAtMillis) {
+            this.workerId = workerId;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+
+    private static final class DatePrefix {
+        private final long second;
+        private final char[] chars;
+
+        private DatePrefix(long second, char[] chars) {
+            this.second = second;
+            this.chars = chars;
+        }
     }
 }
\ No newline at end of file
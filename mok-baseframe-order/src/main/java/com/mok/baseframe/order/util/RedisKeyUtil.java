@@ -4,14 +4,44 @@ package com.mok.baseframe.order.util;
  * Redis Key工具类
  */
 public class RedisKeyUtil {
+    // 普通库存相关key中的商品ID使用hash tag，库存、已预占数量与该商品的预占记录、到期索引位于同一slot，可以在一个脚本中操作
     // 商品库存缓存key前缀
-    private static final String PRODUCT_STOCK_KEY = "product:stock:%s";
+    private static final String PRODUCT_STOCK_KEY = "product:stock:{%s}";
 
+    // 商品快照缓存key前缀（不含库存）
+    private static final String PRODUCT_SNAPSHOT_KEY = "product:snapshot:%s";
+
+    // 秒杀相关key中的商品ID使用hash tag，同一商品的key在Redis Cluster中位于同一slot，可以在一个脚本中操作
     // 秒杀商品库存缓存key前缀
-    private static final String SECKILL_STOCK_KEY = "seckill:stock:%s";
+    private static final String SECKILL_STOCK_KEY = "seckill:stock:{%s}";
+
+    // 秒杀商品分段库存缓存key前缀
+    private static final String SECKILL_STOCK_SEGMENT_KEY = "seckill:stock:{%s}:%d";
+
+    // 秒杀时间窗口缓存key前缀（hash：startTime/endTime）
+    private static final String SECKILL_WINDOW_KEY = "seckill:window:{%s}";
+
+    // 秒杀用户购买记录key前缀，按用户所属库存分段拆分（hash：userId -> 已购数量，userId#分段号 -> 从该分段购买的数量）
+    private static final String SECKILL_BOUGHT_KEY = "seckill:bought:{%s}:%d";
+
+    // 秒杀购买用户布隆过滤器key前缀，按用户所属库存分段拆分（bitmap）
+    private static final String SECKILL_BUYER_BLOOM_KEY = "seckill:buyers:{%s}:%d";
+
+    // 秒杀库存预占记录key前缀，按用户所属库存分段拆分（hash：reservationId -> 预占数量）
+    private static final String SECKILL_RESERVATION_KEY = "seckill:reservation:{%s}:%d";
 
+    // 抢券相关key中的优惠券ID使用hash tag，抢券、撤销脚本同时操作的库存、抢券信息、领取数量位于同一slot
     // 优惠券库存缓存key前缀
-    private static final String COUPON_STOCK_KEY = "coupon:stock:%s";
+    private static final String COUPON_STOCK_KEY = "coupon:stock:{%s}";
+
+    // 优惠券抢券信息key前缀（hash：status、startTime、endTime、perLimit）
+    private static final String COUPON_GRAB_INFO_KEY = "coupon:grab:info:{%s}";
+
+    // 优惠券用户领取数量key前缀（hash：userId -> 领取数量）
+    private static final String COUPON_GRAB_USER_KEY = "coupon:grab:user:{%s}";
+
+    // 用户优惠券钱包key前缀（hash：用户优惠券ID -> 编码后的优惠券记录）
+    private static final String USER_COUPON_WALLET_KEY = "coupon:wallet:%s";
 
     // 用户秒杀限流key前缀
     private static final String USER_SECKILL_LIMIT_KEY = "seckill:user:%s:product:%s";
@@ -25,6 +55,33 @@ public class RedisKeyUtil {
     // 订单确认token key前缀
     private static final String ORDER_CONFIRM_TOKEN_KEY = "order:confirm:token:%s";
 
+    // 订单号节点号租约key前缀
+    private static final String ORDER_NO_WORKER_KEY = "order:no:worker:%d";
+
+    // 订单超时队列key前缀（zset：订单号 -> 超时时间戳，按分片）
+    private static final String ORDER_TIMEOUT_KEY = "order:timeout:%d";
+
+    // 订单超时分片租约key前缀
+    private static final String ORDER_TIMEOUT_LEASE_KEY = "order:timeout:lease:%d";
+
+    // 订单超时处理节点心跳key（zset：节点标识 -> 心跳时间戳）
+    private static final String ORDER_TIMEOUT_NODES_KEY = "order:timeout:nodes";
+
+    // 订单消息发件箱转发租约key（同一时间只有一个节点转发，保证聚合内顺序）
+    private static final String ORDER_OUTBOX_RELAY_LEASE_KEY = "order:outbox:relay:lease";
+
+    // 普通订单库存预占记录key前缀，按商品拆分（hash：订单号 -> 预占数量，附带释放标记）
+    private static final String STOCK_RESERVATION_KEY = "stock:reservation:{%s}";
+
+    // 库存预占到期索引key前缀，按商品拆分（zset：订单号 -> 到期时间戳）
+    private static final String STOCK_RESERVATION_EXPIRY_KEY = "stock:reservation:expiry:{%s}";
+
+    // 有库存预占的商品索引key（zset：商品ID -> 最近登记时间戳），到期扫描按商品逐个处理
+    private static final String STOCK_RESERVATION_PRODUCTS_KEY = "stock:reservation:products";
+
+    // 商品已预占未支付数量key前缀
+    private static final String PRODUCT_STOCK_RESERVED_KEY = "product:stock:reserved:{%s}";
+
     /**
      * 获取商品库存缓存key
      */
@@ -32,6 +89,13 @@ public class RedisKeyUtil {
         return String.format(PRODUCT_STOCK_KEY, productId);
     }
 
+    /**
+     * 获取商品快照缓存key
+     */
+    public static String getProductSnapshotKey(String productId) {
+        return String.format(PRODUCT_SNAPSHOT_KEY, productId);
+    }
+
     /**
      * 获取秒杀商品库存缓存key
      */
@@ -39,6 +103,41 @@ public class RedisKeyUtil {
         return String.format(SECKILL_STOCK_KEY, productId);
     }
 
+    /**
+     * 获取秒杀商品分段库存缓存key
+     */
+    public static String getSeckillStockSegmentKey(String productId, int segment) {
+        return String.format(SECKILL_STOCK_SEGMENT_KEY, productId, segment);
+    }
+
+    /**
+     * 获取秒杀时间窗口缓存key
+     */
+    public static String getSeckillWindowKey(String productId) {
+        return String.format(SECKILL_WINDOW_KEY, productId);
+    }
+
+    /**
+     * 获取秒杀用户购买记录key（用户所属库存分段）
+     */
+    public static String getSeckillBoughtKey(String productId, int segment) {
+        return String.format(SECKILL_BOUGHT_KEY, productId, segment);
+    }
+
+    /**
+     * 获取秒杀购买用户布隆过滤器key（用户所属库存分段）
+     */
+    public static String getSeckillBuyerBloomKey(String productId, int segment) {
+        return String.format(SECKILL_BUYER_BLOOM_KEY, productId, segment);
+    }
+
+    /**
+     * 获取秒杀库存预占记录key（用户所属库存分段）
+     */
+    public static String getSeckillReservationKey(String productId, int segment) {
+        return String.format(SECKILL_RESERVATION_KEY, productId, segment);
+    }
+
     /**
      * 获取优惠券库存缓存key
      */
@@ -46,6 +145,27 @@ public class RedisKeyUtil {
         return String.format(COUPON_STOCK_KEY, couponId);
     }
 
+    /**
+     * 获取优惠券抢券信息key
+     */
+    public static String getCouponGrabInfoKey(String couponId) {
+        return String.format(COUPON_GRAB_INFO_KEY, couponId);
+    }
+
+    /**
+     * 获取优惠券用户领取数量key
+     */
+    public static String getCouponGrabUserKey(String couponId) {
+        return String.format(COUPON_GRAB_USER_KEY, couponId);
+    }
+
+    /**
+     * 获取用户优惠券钱包key
+     */
+    public static String getUserCouponWalletKey(String userId) {
+        return String.format(USER_COUPON_WALLET_KEY, userId);
+    }
+
     /**
      * 获取用户秒杀限流key
      */
@@ -73,4 +193,67 @@ public class RedisKeyUtil {
     public static String getOrderConfirmTokenKey(String userId) {
         return String.format(ORDER_CONFIRM_TOKEN_KEY, userId);
     }
+
+    /**
+     * 获取订单号节点号租约key
+     */
+    public static String getOrderNoWorkerKey(int workerId) {
+        return String.format(ORDER_NO_WORKER_KEY, workerId);
+    }
+
+    /**
+     * 获取订单超时队列key
+     */
+    public static String getOrderTimeoutKey(int shard) {
+        return String.format(ORDER_TIMEOUT_KEY, shard);
+    }
+
+    /**
+     * 获取订单超时分片租约key
+     */
+    public static String getOrderTimeoutLeaseKey(int shard) {
+        return String.format(ORDER_TIMEOUT_LEASE_KEY, shard);
+    }
+
+    /**
+     * 获取订单超时处理节点心跳key
+     */
+    public static String getOrderTimeoutNodesKey() {
+        return ORDER_TIMEOUT_NODES_KEY;
+    }
+
+    /**
+     * 获取订单消息发件箱转发租约key
+     */
+    public static String getOrderOutboxRelayLeaseKey() {
+        return ORDER_OUTBOX_RELAY_LEASE_KEY;
+    }
+
+    /**
+     * 获取普通订单库存预占记录key（按商品）
+     */
+    public static String getStockReservationKey(String productId) {
+        return String.format(STOCK_RESERVATION_KEY, productId);
+    }
+
+    /**
+     * 获取库存预占到期索引key（按商品）
+     */
+    public static String getStockReservationExpiryKey(String productId) {
+        return String.format(STOCK_RESERVATION_EXPIRY_KEY, productId);
+    }
+
+    /**
+     * 获取有库存预占的商品索引key
+     */
+    public static String getStockReservationProductsKey() {
+        return STOCK_RESERVATION_PRODUCTS_KEY;
+    }
+
+    /**
+     * 获取商品已预占未支付数量key
+     */
+    public static String getProductStockReservedKey(String productId) {
+        return String.format(PRODUCT_STOCK_RESERVED_KEY, productId);
+    }
 }
\ No newline at end of file
@@ -4,7 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.DigestUtils;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -22,9 +27,15 @@ public class SeckillUtil {
     // 随机数生成器
     private static final Random RANDOM = new Random();
     
-    // 秒杀路径盐值（应该从配置文件读取，这里使用默认值）
+    // 秒杀路径盐值（已废弃，HMAC签名的密钥从配置文件读取）
     private static final String SECKILL_SALT = "mok_seckill_salt_2024";
     
+    // HMAC签名算法
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    // 每个线程缓存一个已初始化的Mac实例，避免每次签名重新创建
+    private static final ThreadLocal<HmacHolder> HMAC_HOLDER = new ThreadLocal<>();
+    
     /**
      * 生成秒杀验证码（6位字母数字混合）
      * 用于防止机器人刷单
@@ -81,7 +92,130 @@ public class SeckillUtil {
         }
         
         String expectedPath = generateSeckillPath(userId, productId, timestamp);
-        return expectedPath.equals(path);
+        return MessageDigest.isEqual(expectedPath.getBytes(StandardCharsets.UTF_8),
+                path.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 生成秒杀路径（HMAC签名，无需Redis存储）
+     * 签名内容：用户ID + 商品ID + 时间片序号
+     *
+     * @param secret    签名密钥（从配置读取）
+     * @param timeBucket 时间片序号（当前时间 / 时间片长度）
+     */
+    public static String generateSeckillPath(String secret, String userId, String productId, long timeBucket) {
+        return HexFormat.of().formatHex(hmac(secret, userId, productId, timeBucket));
+    }
+    
+    /**
+     * 验证秒杀路径（接受当前和上一个时间片，避免跨时间片边界时失效）
+     * 解码后与签名按字节做常量时间比较，比较耗时不随匹配的前缀长度变化
+     */
+    public static boolean verifySeckillPath(String secret, String userId, String productId,
+                                            String path, long bucketMillis) {
+        if (userId == null || productId == null || path == null) {
+            return false;
+        }
+        byte[] signature;
+        try {
+            signature = HexFormat.of().parseHex(path);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        long timeBucket = System.currentTimeMillis() / bucketMillis;
+        return MessageDigest.isEqual(signature, hmac(secret, userId, productId, timeBucket))
+                || MessageDigest.isEqual(signature, hmac(secret, userId, productId, timeBucket - 1));
+    }
+    
+    /**
+     * 生成秒杀验证码（HMAC签名截取6位数字，无需Redis存储）
+     *
+     * @param secret    签名密钥（从配置读取）
+     * @param timeBucket 时间片序号（当前时间 / 时间片长度）
+     */
+    public static String generateSeckillCode(String secret, String userId, String productId, long timeBucket) {
+        return String.format("%06d", truncate(hmac(secret, userId, productId, timeBucket)));
+    }
+    
+    /**
+     * 验证秒杀验证码（接受当前和上一个时间片，按数值比较不创建字符串）
+     *
+     * @param bucketMillis 时间片长度（毫秒），验证码有效期在1到2个时间片之间
+     */
+    public static boolean verifySeckillCode(String secret, String userId, String productId,
+                                            String code, long bucketMillis) {
+        if (userId == null || productId == null || code == null || code.length() != 6) {
+            return false;
+        }
+        int value = 0;
+        for (int i = 0; i < 6; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+        }
+        long timeBucket = System.currentTimeMillis() / bucketMillis;
+        return value == truncate(hmac(secret, userId, productId, timeBucket))
+                || value == truncate(hmac(secret, userId, productId, timeBucket - 1));
+    }
+    
+    /**
+     * 计算HMAC签名：用户ID | 商品ID | 时间片序号
+     */
+    private static byte[] hmac(String secret, String userId, String productId, long timeBucket) {
+        Mac mac = getMac(secret);
+        mac.update(userId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) '|');
+        mac.update(productId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) '|');
+        for (int i = 7; i >= 0; i--) {
+            mac.update((byte) (timeBucket >>> (i * 8)));
+        }
+        return mac.doFinal();
+    }
+    
+    /**
+     * 动态截取签名得到6位数字（同TOTP算法）
+     */
+    private static int truncate(byte[] hash) {
+        int offset = hash[hash.length - 1] & 0x0f;
+        int binary = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+        return binary % 1000000;
+    }
+    
+    /**
+     * 获取当前线程的Mac实例，密钥变化时重新初始化
+     */
+    private static Mac getMac(String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("秒杀签名密钥不能为空");
+        }
+        HmacHolder holder = HMAC_HOLDER.get();
+        if (holder == null || !holder.secret.equals(secret)) {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+                holder = new HmacHolder(secret, mac);
+                HMAC_HOLDER.set(holder);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化秒杀签名失败", e);
+            }
+        }
+        return holder.mac;
+    }
+    
+    private static final class HmacHolder {
+        private final String secret;
+        private final Mac mac;
+        
+        private HmacHolder(String secret, Mac mac) {
+            this.secret = secret;
+            this.mac = mac;
+        }
     }
     
     /**
@@ -172,6 +306,14 @@ public class SeckillUtil {
         return "seckill:result:" + userId + ":" + productId;
     }
     
+    /**
+     * 生成秒杀结果Key（字符串ID）
+     * 格式：seckill:result:{userId}:{productId}
+     */
+    public static String generateResultKey(String userId, String productId) {
+        return "seckill:result:" + userId + ":" + productId;
+    }
+    
     /**
      * 生成秒杀用户已抢Key（防止重复抢购）
      * 格式：seckill:user:{userId}:{productId}
@@ -188,6 +330,45 @@ public class SeckillUtil {
         return "seckill:queue:" + productId;
     }
     
+    /**
+     * 生成秒杀排队队列Key（字符串ID）
+     * 格式：seckill:queue:{productId}
+     */
+    public static String generateQueueKey(String productId) {
+        return "seckill:queue:" + productId;
+    }
+    
+    /**
+     * 生成秒杀等待室排队Key（按加入顺序出队）
+     * 格式：seckill:queue:{productId}:waiting
+     */
+    public static String generateWaitingKey(String productId) {
+        return generateQueueKey(productId) + ":waiting";
+    }
+    
+    /**
+     * 生成秒杀等待室已放行Key（用户 -> 放行过期时间）
+     * 格式：seckill:queue:{productId}:admitted
+     */
+    public static String generateAdmittedKey(String productId) {
+        return generateQueueKey(productId) + ":admitted";
+    }
+    
+    /**
+     * 生成秒杀等待室排队序号Key（保证严格先进先出）
+     * 格式：seckill:queue:{productId}:seq
+     */
+    public static String generateWaitingSeqKey(String productId) {
+        return generateQueueKey(productId) + ":seq";
+    }
+    
+    /**
+     * 生成秒杀等待室活跃商品集合Key（放行任务遍历使用）
+     */
+    public static String generateWaitingProductsKey() {
+        return "seckill:queue:active";
+    }
+    
     /**
      * 生成秒杀订单Key
      * 格式：seckill:order:{productId}:{orderNo}
@@ -335,6 +516,14 @@ public class SeckillUtil {
         return "seckill:preheat:" + productId;
     }
     
+    /**
+     * 生成秒杀缓存预热Key（字符串ID）
+     * 格式：seckill:preheat:{productId}
+     */
+    public static String generatePreheatKey(String productId) {
+        return "seckill:preheat:" + productId;
+    }
+    
     /**
      * 生成秒杀统计Key（用于统计秒杀数据）
      * 格式：seckill:stat:{productId}:{date}
@@ -0,0 +1,63 @@
+package com.mok.baseframe.order.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成基准测试
+ * 运行：在IDE中执行 main 方法，或 mvn test-compile 后以测试类路径运行 org.openjdk.jmh.Main OrderNoGeneratorBenchmark；
+ * 加 -prof gc 可查看每次生成的分配字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderNoGeneratorBenchmark {
+
+    @Setup
+    public void setUp() {
+        OrderNoGenerator.setWorkerId(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generateOrderNoSingleThread() {
+        return OrderNoGenerator.generateOrderNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateOrderNoEightThreads() {
+        return OrderNoGenerator.generateOrderNo();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generateDeliveryNoSingleThread() {
+        return OrderNoGenerator.generateDeliveryNo();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OrderNoGeneratorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.mok.baseframe.order.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNoGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 50000;
+
+    @AfterEach
+    void resetWorkerId() {
+        OrderNoGenerator.setWorkerId(0);
+    }
+
+    @Test
+    void generatesUniqueOrderNosAcrossThreads() throws Exception {
+        OrderNoGenerator.setWorkerId(7);
+        Set<String> orderNos = ConcurrentHashMap.newKeySet(THREADS * PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < PER_THREAD; j++) {
+                        orderNos.add(OrderNoGenerator.generateOrderNo());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * PER_THREAD, orderNos.size());
+        for (String orderNo : orderNos) {
+            assertEquals(22, orderNo.length());
+            assertEquals("07", orderNo.substring(14, 16));
+        }
+    }
+
+    @Test
+    void deliveryNoHasPrefixAndFixedLength() {
+        String deliveryNo = OrderNoGenerator.generateDeliveryNo();
+        assertTrue(deliveryNo.startsWith("DL"));
+        assertEquals(22, deliveryNo.length());
+        // 缓冲区在线程内复用，前缀不能残留到订单号中
+        assertEquals(22, OrderNoGenerator.generateOrderNo().length());
+    }
+
+    @Test
+    void suspendedGeneratorRefusesUntilWorkerIdIsSetAgain() {
+        OrderNoGenerator.suspend();
+        assertThrows(IllegalStateException.class, OrderNoGenerator::generateOrderNo);
+        assertThrows(IllegalStateException.class, OrderNoGenerator::generateDeliveryNo);
+
+        OrderNoGenerator.setWorkerId(3);
+        assertEquals("03", OrderNoGenerator.generateOrderNo().substring(14, 16));
+    }
+
+    @Test
+    void expiredLeaseRefusesUntilRenewed() {
+        OrderNoGenerator.setWorkerId(5, System.currentTimeMillis() - 1);
+        assertThrows(IllegalStateException.class, OrderNoGenerator::generateOrderNo);
+        assertThrows(IllegalStateException.class, OrderNoGenerator::generateDeliveryNo);
+
+        OrderNoGenerator.setWorkerId(5, System.currentTimeMillis() + 60000);
+        assertEquals("05", OrderNoGenerator.generateOrderNo().substring(14, 16));
+    }
+}
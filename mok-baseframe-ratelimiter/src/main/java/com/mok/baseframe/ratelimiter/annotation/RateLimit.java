@@ -73,6 +73,13 @@ public @interface RateLimit {
      */
     String message() default "";
     
+    /**
+     * 是否本地限流，默认否
+     * 作用：为true时在当前节点内存中计数，不访问Redis，limit/capacity/rate为单节点的值；
+     *      适用于不需要全局精确的节点级保护，全局限流仍使用默认的Redis限流
+     */
+    boolean local() default false;
+    
     /**
      * 是否启用，默认启用
      * 作用：可以动态开关某个方法的限流
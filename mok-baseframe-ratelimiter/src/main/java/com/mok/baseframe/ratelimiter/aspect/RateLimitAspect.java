@@ -85,6 +85,8 @@ public class RateLimitAspect {
                 .rate(rateLimitAnnotation.rate())
                 // 提示信息
                 .message(getMessage(rateLimitAnnotation))
+                // 是否本地限流
+                .local(rateLimitAnnotation.local())
                 .build();
             // 执行限流检查,待用 rateLimiterService.check 方法,传入限流上下文
             var result = rateLimiterService.check(context);
@@ -48,6 +48,11 @@ public class RateLimiterProperties {
      */
     private boolean clusterMode = false;
     
+    /**
+     * 本地限流每种算法最多保存的key数，超过时清理过期和最早的key
+     */
+    private int localMaxKeys = 100000;
+    
     /**
      * 默认限流提示信息
      */
@@ -125,6 +130,14 @@ public class RateLimiterProperties {
         this.clusterMode = clusterMode;
     }
     
+    public int getLocalMaxKeys() {
+        return localMaxKeys;
+    }
+    
+    public void setLocalMaxKeys(int localMaxKeys) {
+        this.localMaxKeys = localMaxKeys;
+    }
+    
     public String getDefaultRateLimitMessage() {
         return defaultRateLimitMessage;
     }
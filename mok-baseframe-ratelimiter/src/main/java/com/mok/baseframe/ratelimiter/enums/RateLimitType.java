@@ -35,4 +35,11 @@ public enum RateLimitType {
     public String getValue() {
         return value;
     }
+
+    /**
+     * 本地限流策略的类型值（在当前节点内存中计数，不访问Redis）
+     */
+    public String getLocalValue() {
+        return "local_" + value;
+    }
 }
\ No newline at end of file
@@ -26,6 +26,8 @@ public class RateLimitContext {
     private double rate;
     // 提示信息
     private String message;
+    // 是否本地限流（在当前节点内存中计数）
+    private boolean local;
     // 当前时间戳（秒），用于算法计算
     private long currentTime;
     // 客户端 IP
@@ -48,6 +50,7 @@ public class RateLimitContext {
                 ", capacity=" + capacity +
                 ", rate=" + rate +
                 ", message='" + message + '\'' +
+                ", local=" + local +
                 ", currentTime=" + currentTime +
                 ", clientIp='" + clientIp + '\'' +
                 ", userId='" + userId + '\'' +
@@ -114,6 +117,11 @@ public class RateLimitContext {
             return this;
         }
 
+        public Builder local(boolean local) {
+            context.local = local;
+            return this;
+        }
+
         public Builder clientIp(String clientIp) {
             context.clientIp = clientIp;
             return this;
@@ -204,6 +212,14 @@ public class RateLimitContext {
         this.message = message;
     }
 
+    public boolean isLocal() {
+        return local;
+    }
+
+    public void setLocal(boolean local) {
+        this.local = local;
+    }
+
     public long getCurrentTime() {
         return currentTime;
     }
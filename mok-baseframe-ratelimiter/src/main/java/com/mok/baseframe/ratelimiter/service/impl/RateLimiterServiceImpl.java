@@ -52,8 +52,8 @@ public class RateLimiterServiceImpl implements RateLimiterService, DuplicateSubm
     
     @Override
     public RateLimitResult check(RateLimitContext context) {
-        // 从策略工厂获取对应的限流策略，然后执行
-        return strategyFactory.getStrategy(context.getType()).execute(context);
+        // 从策略工厂获取对应的限流策略（本地限流使用本地策略），然后执行
+        return strategyFactory.getStrategy(context.getType(), context.isLocal()).execute(context);
     }
     
     @Override
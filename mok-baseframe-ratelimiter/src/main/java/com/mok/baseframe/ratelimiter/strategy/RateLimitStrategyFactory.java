@@ -65,6 +65,24 @@ public class RateLimitStrategyFactory implements ApplicationContextAware {
         return strategy;
     }
 
+    /**
+     * 根据限流类型枚举和是否本地限流获取策略
+     * @param type 限流类型枚举
+     * @param local 是否本地限流
+     * @return 对应的策略实例
+     */
+    public RateLimitStrategy getStrategy(RateLimitType type, boolean local) {
+        if (!local) {
+            return getStrategy(type);
+        }
+        String localType = (type != null ? type : RateLimitType.SLIDING_WINDOW).getLocalValue();
+        RateLimitStrategy strategy = strategyMap.get(localType);
+        if (strategy == null) {
+            throw new IllegalArgumentException("不支持的本地限流类型: " + type);
+        }
+        return strategy;
+    }
+
     /**
      * 根据字符串类型获取策略
      * @param type 类型字符串
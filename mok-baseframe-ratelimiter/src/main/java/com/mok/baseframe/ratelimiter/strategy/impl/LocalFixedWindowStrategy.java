@@ -0,0 +1,79 @@
+package com.mok.baseframe.ratelimiter.strategy.impl;
+
+import com.mok.baseframe.ratelimiter.config.RateLimiterProperties;
+import com.mok.baseframe.ratelimiter.core.RateLimitStrategy;
+import com.mok.baseframe.ratelimiter.enums.RateLimitType;
+import com.mok.baseframe.ratelimiter.model.RateLimitContext;
+import com.mok.baseframe.ratelimiter.model.RateLimitResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地固定窗口限流策略
+ * 作用：在当前节点内存中实现固定窗口算法，不访问Redis，限制次数为单节点的限制
+ *      窗口编号和计数打包在一个long中，通过CAS无锁更新
+ * @author aha13
+ */
+// 注册为 spring bean
+@Component
+public class LocalFixedWindowStrategy implements RateLimitStrategy {
+
+    // 计数占用低32位
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    // 本地限流状态表
+    private final LocalRateLimitStateMap<Window> windows;
+
+    // 构造函数注入
+    public LocalFixedWindowStrategy(@Qualifier("mok.ratelimiter-com.mok.baseframe.ratelimiter.config.RateLimiterProperties")
+                                    RateLimiterProperties properties) {
+        this.windows = new LocalRateLimitStateMap<>(properties.getLocalMaxKeys());
+    }
+
+    @Override
+    public RateLimitResult execute(RateLimitContext context) {
+        long now = System.currentTimeMillis();
+        // 窗口大小(毫秒)，至少1秒
+        long windowMillis = Math.max(context.getWindow(), 1) * 1000;
+        // 限制次数，不超过计数位能表示的范围
+        long limit = Math.min(context.getLimit(), COUNT_MASK);
+        long windowIndex = now / windowMillis;
+        long windowEnd = (windowIndex + 1) * windowMillis;
+
+        Window window = windows.get(context.getKey(), now, k -> new Window());
+        while (true) {
+            long state = window.state.get();
+            // 不是当前窗口时计数从0开始
+            long count = (state >>> 32) == (windowIndex & COUNT_MASK) ? state & COUNT_MASK : 0;
+            if (count >= limit) {
+                // 达到限制，返回当前窗口剩余时间(秒)
+                return RateLimitResult.denied(Math.max((windowEnd - now + 999) / 1000, 1));
+            }
+            if (window.state.compareAndSet(state, ((windowIndex & COUNT_MASK) << 32) | (count + 1))) {
+                window.expireAtMillis = windowEnd;
+                return RateLimitResult.allowed();
+            }
+        }
+    }
+
+    @Override
+    public String getType() {
+        // 返回策略类型，与枚举中的本地类型值对应
+        return RateLimitType.FIXED_WINDOW.getLocalValue();
+    }
+
+    /**
+     * 固定窗口状态：高32位为窗口编号，低32位为窗口内计数
+     */
+    private static final class Window implements LocalRateLimitStateMap.State {
+        private final AtomicLong state = new AtomicLong();
+        private volatile long expireAtMillis;
+
+        @Override
+        public long getExpireAtMillis() {
+            return expireAtMillis;
+        }
+    }
+}
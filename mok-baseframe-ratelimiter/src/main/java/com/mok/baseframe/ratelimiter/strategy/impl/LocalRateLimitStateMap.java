@@ -0,0 +1,84 @@
+package com.mok.baseframe.ratelimiter.strategy.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 本地限流状态表
+ * 作用：按限流key保存本节点的限流状态，有最大key数且状态会过期
+ *      1.状态过期后（窗口结束、令牌桶已满）等同于新建状态，可以直接删除
+ *      2.key数超过上限时先清理过期状态，仍超过时随机淘汰一部分（被淘汰的key重新计数）
+ *      3.清理最多每秒执行一次，不影响正常检查的开销
+ * @author aha13
+ */
+final class LocalRateLimitStateMap<S extends LocalRateLimitStateMap.State> {
+
+    // 淘汰后保留的比例，避免每次新增key都触发清理
+    private static final double EVICT_RETAIN_RATIO = 0.9;
+    // 两次清理的最小间隔（毫秒）
+    private static final long CLEAN_INTERVAL_MILLIS = 1000;
+
+    // 限流key -> 限流状态
+    private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+    // 最大key数
+    private final int maxKeys;
+    // 下次允许清理的时间（毫秒）
+    private final AtomicLong nextCleanMillis = new AtomicLong();
+
+    LocalRateLimitStateMap(int maxKeys) {
+        this.maxKeys = Math.max(maxKeys, 1);
+    }
+
+    /**
+     * 获取key对应的状态，不存在时创建
+     */
+    S get(String key, long nowMillis, Function<String, S> factory) {
+        S state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+        state = states.computeIfAbsent(key, factory);
+        if (states.size() > maxKeys) {
+            clean(nowMillis);
+        }
+        return state;
+    }
+
+    /**
+     * 当前保存的key数
+     */
+    int size() {
+        return states.size();
+    }
+
+    /**
+     * 清理过期状态，仍超过上限时淘汰到上限的90%
+     */
+    private void clean(long nowMillis) {
+        long next = nextCleanMillis.get();
+        if (nowMillis < next || !nextCleanMillis.compareAndSet(next, nowMillis + CLEAN_INTERVAL_MILLIS)) {
+            return;
+        }
+        states.values().removeIf(state -> state.getExpireAtMillis() <= nowMillis);
+        int target = (int) (maxKeys * EVICT_RETAIN_RATIO);
+        Iterator<Map.Entry<String, S>> iterator = states.entrySet().iterator();
+        while (states.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 限流状态
+     */
+    interface State {
+
+        /**
+         * 状态过期时间（毫秒），过期后的状态等同于新建状态
+         */
+        long getExpireAtMillis();
+    }
+}
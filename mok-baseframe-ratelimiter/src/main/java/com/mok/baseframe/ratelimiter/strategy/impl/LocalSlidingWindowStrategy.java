@@ -0,0 +1,107 @@
+package com.mok.baseframe.ratelimiter.strategy.impl;
+
+import com.mok.baseframe.ratelimiter.config.RateLimiterProperties;
+import com.mok.baseframe.ratelimiter.core.RateLimitStrategy;
+import com.mok.baseframe.ratelimiter.enums.RateLimitType;
+import com.mok.baseframe.ratelimiter.model.RateLimitContext;
+import com.mok.baseframe.ratelimiter.model.RateLimitResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本地滑动窗口限流策略
+ * 作用：在当前节点内存中实现滑动窗口算法，不访问Redis，限制次数为单节点的限制
+ *      使用滑动窗口计数器近似：上一窗口计数按未滑出的比例加上当前窗口计数，
+ *      不需要保存每个请求的时间，状态通过CAS无锁更新
+ * @author aha13
+ */
+// 注册为 spring bean
+@Component
+public class LocalSlidingWindowStrategy implements RateLimitStrategy {
+
+    // 本地限流状态表
+    private final LocalRateLimitStateMap<Window> windows;
+
+    // 构造函数注入
+    public LocalSlidingWindowStrategy(@Qualifier("mok.ratelimiter-com.mok.baseframe.ratelimiter.config.RateLimiterProperties")
+                                      RateLimiterProperties properties) {
+        this.windows = new LocalRateLimitStateMap<>(properties.getLocalMaxKeys());
+    }
+
+    @Override
+    public RateLimitResult execute(RateLimitContext context) {
+        long now = System.currentTimeMillis();
+        // 窗口大小(毫秒)，至少1秒
+        long windowMillis = Math.max(context.getWindow(), 1) * 1000;
+        long limit = context.getLimit();
+        long windowIndex = now / windowMillis;
+        long windowEnd = (windowIndex + 1) * windowMillis;
+        // 上一窗口还在滑动窗口内的比例
+        double previousWeight = 1 - (double) (now - windowIndex * windowMillis) / windowMillis;
+
+        Window window = windows.get(context.getKey(), now, k -> new Window());
+        while (true) {
+            Counter counter = window.counter.get();
+            // 按当前窗口编号换算上一窗口和当前窗口的计数
+            long previous;
+            long current;
+            if (counter.windowIndex == windowIndex) {
+                previous = counter.previousCount;
+                current = counter.currentCount;
+            } else if (counter.windowIndex == windowIndex - 1) {
+                previous = counter.currentCount;
+                current = 0;
+            } else {
+                previous = 0;
+                current = 0;
+            }
+            if (previous * previousWeight + current + 1 > limit) {
+                // 达到限制，返回当前窗口剩余时间(秒)
+                return RateLimitResult.denied(Math.max((windowEnd - now + 999) / 1000, 1));
+            }
+            if (window.counter.compareAndSet(counter, new Counter(windowIndex, previous, current + 1))) {
+                // 下一个窗口结束后两个窗口的计数都已滑出，状态可以删除
+                window.expireAtMillis = windowEnd + windowMillis;
+                return RateLimitResult.allowed();
+            }
+        }
+    }
+
+    @Override
+    public String getType() {
+        // 返回策略类型，与枚举中的本地类型值对应
+        return RateLimitType.SLIDING_WINDOW.getLocalValue();
+    }
+
+    /**
+     * 窗口计数（不可变，整体CAS替换）
+     */
+    private static final class Counter {
+        private static final Counter EMPTY = new Counter(Long.MIN_VALUE, 0, 0);
+
+        private final long windowIndex;
+        private final long previousCount;
+        private final long currentCount;
+
+        private Counter(long windowIndex, long previousCount, long currentCount) {
+            this.windowIndex = windowIndex;
+            this.previousCount = previousCount;
+            this.currentCount = currentCount;
+        }
+    }
+
+    /**
+     * 滑动窗口状态
+     */
+    private static final class Window implements LocalRateLimitStateMap.State {
+        private final AtomicReference<Counter> counter = new AtomicReference<>(Counter.EMPTY);
+        private volatile long expireAtMillis;
+
+        @Override
+        public long getExpireAtMillis() {
+            return expireAtMillis;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mok.baseframe.ratelimiter.strategy.impl;
+
+import com.mok.baseframe.ratelimiter.config.RateLimiterProperties;
+import com.mok.baseframe.ratelimiter.core.RateLimitStrategy;
+import com.mok.baseframe.ratelimiter.enums.RateLimitType;
+import com.mok.baseframe.ratelimiter.model.RateLimitContext;
+import com.mok.baseframe.ratelimiter.model.RateLimitResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地令牌桶限流策略
+ * 作用：在当前节点内存中实现令牌桶算法，不访问Redis，容量和速率为单节点的值
+ *      令牌桶用"理论到达时间"表示（GCRA）：每个请求把理论到达时间推后一个令牌间隔，
+ *      推后的时间超过容量个令牌间隔时拒绝，状态只有一个long，通过CAS无锁更新
+ * @author aha13
+ */
+// 注册为 spring bean
+@Component
+public class LocalTokenBucketStrategy implements RateLimitStrategy {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // 本地限流状态表
+    private final LocalRateLimitStateMap<Bucket> buckets;
+
+    // 构造函数注入
+    public LocalTokenBucketStrategy(@Qualifier("mok.ratelimiter-com.mok.baseframe.ratelimiter.config.RateLimiterProperties")
+                                    RateLimiterProperties properties) {
+        this.buckets = new LocalRateLimitStateMap<>(properties.getLocalMaxKeys());
+    }
+
+    @Override
+    public RateLimitResult execute(RateLimitContext context) {
+        // 令牌生成速率(每秒)，不大于0时不生成令牌
+        double rate = context.getRate();
+        if (rate <= 0) {
+            return RateLimitResult.denied(null);
+        }
+        long nowMillis = System.currentTimeMillis();
+        long now = System.nanoTime();
+        // 生成一个令牌的间隔(纳秒)
+        long interval = Math.max((long) (NANOS_PER_SECOND / rate), 1);
+        // 桶容量对应的时间(纳秒)，桶满时理论到达时间不晚于当前时间
+        long burst = Math.max(context.getCapacity(), 1) * interval;
+
+        Bucket bucket = buckets.get(context.getKey(), nowMillis, k -> new Bucket());
+        while (true) {
+            long tat = bucket.tat.get();
+            // 消耗1个令牌后的理论到达时间
+            long newTat = Math.max(tat, now) + interval;
+            long excess = newTat - now - burst;
+            if (excess > 0) {
+                // 令牌不足，返回需要等待的秒数
+                return RateLimitResult.denied(Math.max((excess + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND, 1));
+            }
+            if (bucket.tat.compareAndSet(tat, newTat)) {
+                // 理论到达时间之后桶已补满，状态可以删除
+                bucket.expireAtMillis = nowMillis + (newTat - now) / 1_000_000 + 1;
+                return RateLimitResult.allowed();
+            }
+        }
+    }
+
+    @Override
+    public String getType() {
+        // 返回策略类型，与枚举中的本地类型值对应
+        return RateLimitType.TOKEN_BUCKET.getLocalValue();
+    }
+
+    /**
+     * 令牌桶状态：理论到达时间(System.nanoTime)，初始为最小值表示桶已满
+     */
+    private static final class Bucket implements LocalRateLimitStateMap.State {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+        private volatile long expireAtMillis;
+
+        @Override
+        public long getExpireAtMillis() {
+            return expireAtMillis;
+        }
+    }
+}